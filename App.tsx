@@ -12,6 +12,7 @@ import {
   TextInput,
   Alert,
   TouchableOpacity,
+  ScrollView,
 } from 'react-native';
 
 import NativeAccessibility from './NativeAccessibility/NativeAccessibility';
@@ -19,6 +20,8 @@ import NativeAccessibility from './NativeAccessibility/NativeAccessibility';
 function App() {
   // const [moduleName, setModuleName] = useState<string>('');
   const [inputText, setInputText] = useState<string>('');
+  const [metricsText, setMetricsText] = useState<string>('');
+  const [recordingPath, setRecordingPath] = useState<string>('');
 
   // useEffect(() => {
   //   try {
@@ -43,6 +46,31 @@ function App() {
     }
   };
 
+  // 读取原生侧的运行指标，用于判断哪个处理器慢、重试是否过多
+  const handleRefreshMetrics = () => {
+    try {
+      const metrics = NativeAccessibility.getMetrics();
+      setMetricsText(JSON.stringify(metrics, null, 2));
+    } catch (e) {
+      console.error('调用 getMetrics 失败', e);
+    }
+  };
+
+  // 开始 / 结束录制会话，录制的文件可以在电脑上回放（见 android/benchmark）
+  const handleToggleRecording = () => {
+    try {
+      if (recordingPath) {
+        const path = NativeAccessibility.stopSessionRecording();
+        setRecordingPath('');
+        Alert.alert('会话已保存', path);
+      } else {
+        setRecordingPath(NativeAccessibility.startSessionRecording());
+      }
+    } catch (e) {
+      console.error('切换会话录制失败', e);
+    }
+  };
+
   // 检查模块是否成功加载
   if (!NativeAccessibility) {
     return (
@@ -74,6 +102,25 @@ function App() {
       >
         <Text style={styles.buttonText}>开始执行</Text>
       </TouchableOpacity>
+      <TouchableOpacity
+        style={[styles.button, styles.secondaryButton]}
+        onPress={handleRefreshMetrics}
+      >
+        <Text style={styles.buttonText}>刷新运行指标</Text>
+      </TouchableOpacity>
+      <TouchableOpacity
+        style={[styles.button, styles.secondaryButton]}
+        onPress={handleToggleRecording}
+      >
+        <Text style={styles.buttonText}>
+          {recordingPath ? '结束录制会话' : '开始录制会话'}
+        </Text>
+      </TouchableOpacity>
+      {metricsText ? (
+        <ScrollView style={styles.metrics}>
+          <Text style={styles.metricsText}>{metricsText}</Text>
+        </ScrollView>
+      ) : null}
     </View>
   );
 }
@@ -120,6 +167,19 @@ const styles = StyleSheet.create({
     fontSize: 16,
     fontWeight: 'bold',
   },
+  secondaryButton: {
+    marginTop: 10,
+    backgroundColor: '#555555',
+  },
+  metrics: {
+    flex: 1,
+    marginTop: 10,
+  },
+  metricsText: {
+    fontFamily: 'monospace',
+    fontSize: 12,
+    color: '#333',
+  },
 });
 
 export default App;
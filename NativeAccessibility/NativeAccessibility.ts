@@ -7,6 +7,18 @@ export interface Spec extends TurboModule {
   getModuleName(): string;
 
   performSearch(query: string): void;
+
+  // 导出原生侧内存中的追踪记录（事件、调度结果、手势），用于排查问题
+  dumpTrace(): string;
+
+  // 原生侧的运行指标快照：按类型统计的事件数、各处理器耗时直方图摘要等，耗时单位为微秒
+  getMetrics(): Object;
+
+  // 开始录制会话（事件流和调度时的界面），返回会话文件路径，失败时返回空字符串
+  startSessionRecording(): string;
+
+  // 结束录制，返回刚结束的会话文件路径，没有在录制时返回空字符串
+  stopSessionRecording(): string;
 }
 
 // 2. 向React Native注册我们的模块
@@ -1,34 +1,57 @@
 package com.tomato.nativeaccessibility;
 
 import com.tomato.processor.AdProcessor;
-import com.tomato.processor.AfterSkipAdProcessor;
-import com.tomato.processor.EnterAdProcessor;
-import com.tomato.processor.MainPageProcessor;
-import com.tomato.processor.Middle1InAdProcessor;
-import com.tomato.processor.AddToHomePageProcessor;
-import com.tomato.processor.SearchNovelProcessor;
-import com.tomato.processor.ProductProcessor;
-import com.tomato.processor.RankProcessor;
-import com.tomato.processor.InputNovelNameProcessor;
 import com.tomato.processor.FindAndClickNovelProcessor;
 import com.tomato.processor.ReadingPageProcessor;
+import com.tomato.processor.RuleProcessor;
 import com.tomato.utils.AccessibilityConfig;
+import com.tomato.utils.AccessibilityLog;
 
 import android.accessibilityservice.AccessibilityService;
 import android.content.Intent;
 import android.os.Handler;
-import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
 
+import com.tomato.utils.AutomationExecutor;
+import com.tomato.utils.EventCoalescer;
+import com.tomato.utils.EventSubscription;
+import com.tomato.utils.GestureQueue;
+import com.tomato.utils.MetricsRegistry;
+import com.tomato.utils.MirrorTree;
+import com.tomato.utils.NodeFetcher;
+import com.tomato.utils.NodeLeakTracker;
+import com.tomato.utils.NodeScope;
+import com.tomato.utils.ProcessorContext;
+import com.tomato.utils.RecordedContext;
+import com.tomato.utils.RetryPolicy;
+import com.tomato.utils.ScreenDecisionCache;
+import com.tomato.utils.ScreenDispatcher;
+import com.tomato.utils.ScreenEvent;
+import com.tomato.utils.ScreenEventListener;
 import com.tomato.utils.ScreenProcessor;
+import com.tomato.utils.ScreenRuleLoader;
+import com.tomato.utils.ScreenRuleFile;
+import com.tomato.utils.ScreenRuleSet;
+import com.tomato.utils.ScreenSnapshot;
+import com.tomato.utils.SessionRecorder;
+import com.tomato.utils.SessionWriter;
+import com.tomato.utils.State;
+import com.tomato.utils.TraceBuffer;
+import com.tomato.utils.WindowRoots;
 
 import com.tomato.utils.ActionStateManager;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 核心的无障碍服务类。
@@ -36,17 +59,59 @@ import java.util.Random;
  *
  * [已修改]
  */
-public class AccessibilityEventService extends AccessibilityService {
+public class AccessibilityEventService extends AccessibilityService implements ProcessorContext {
 
-    // 使用 Handler 来处理延迟操作，避免阻塞主线程
-    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    // 节点作用域的持有者名称，用于泄漏统计
+    private static final String SCOPE_OWNER = "AccessibilityEventService";
 
-    // 创建一个处理器列表
-    private final List<ScreenProcessor> screenProcessors = new ArrayList<>();
+    // 自动化专用线程：快照、调度、重试和处理器的循环任务都在这里执行，不占用服务的主线程
+    private final AutomationExecutor executor = new AutomationExecutor("TomatoAutomation");
+
+    // 自动化线程的 Handler，用来处理延迟操作
+    private final Handler mHandler = executor.getHandler();
+
+    // 处理器调度器，按注册顺序保存处理器，并基于界面签名预筛选候选
+    private final ScreenDispatcher dispatcher = new ScreenDispatcher();
+
+    // 需要订阅事件或循环执行、无法用规则描述的处理器，由规则文件中的 builtin 条目按名称引用。
+    // 热加载规则时沿用同一批实例，进行中的广告任务和翻页循环不受影响
+    private final Map<String, ScreenProcessor> builtinProcessors = new HashMap<>();
+
+    // 界面规则的加载器，在服务连接时创建
+    private ScreenRuleLoader ruleLoader;
+
+    // 界面结构指纹 -> 上次匹配的处理器，重复出现的界面可以直接命中
+    private final ScreenDecisionCache decisionCache = new ScreenDecisionCache();
+
+    // 目标窗口的镜像树，只在自动化线程上访问
+    private final MirrorTree mirrorTree = new MirrorTree();
+
+    // 运行时收窄的事件订阅，只在自动化线程上访问
+    private final EventSubscription eventSubscription = new EventSubscription();
+
+    // 按窗口缓存的根节点，同一代内所有调用方共用
+    private final WindowRoots windowRoots = WindowRoots.of(this);
+
+    // 事件合并调度器：每个窗口最多一个挂起的处理周期，事件风暴下不会堆积重复的延迟任务
+    private final EventCoalescer eventCoalescer = new EventCoalescer(mHandler, this::onCoalescedCycle);
+
+    // 直接响应事件的监听者（例如等待列表滚动的处理器），以及等待转交给它们的事件
+    private final List<ScreenEventListener> screenEventListeners = new CopyOnWriteArrayList<>();
+    private final ArrayDeque<ScreenEvent> pendingScreenEvents = new ArrayDeque<>();
+    private final Runnable screenEventDrainer = this::drainScreenEvents;
+
+    // 窗口状态变化的序号，主线程递增。排在队首的重置任务发现自己不是最新的一次时直接放弃，
+    // 连续两次变化插队后执行顺序颠倒，旧的重置不能取消新界面已经安排的周期
+    private final AtomicInteger windowStateSequence = new AtomicInteger();
 
     // 用于生成随机延迟
     private final Random random = new Random();
 
+    // --- 重试链状态，只在自动化线程上访问 ---
+    private Runnable pendingRetry;
+    private long cycleStartMs;
+    private RetryPolicy retryPolicyInUse;
+
     // 随机延迟的选项 (毫秒)
     private final int[] processingDelays = {3000, 5000};
 
@@ -58,26 +123,63 @@ public class AccessibilityEventService extends AccessibilityService {
     protected void onServiceConnected() {
 
         Log.i(AccessibilityConfig.TAG, "无障碍服务已连接。");
-        // 在这里初始化并注册所有的处理器
-        initializeProcessors();
+        if (NodeFetcher.PREFETCH_SUPPORTED) {
+            // 预取回来的节点保存在客户端缓存中，缓存关闭时预取不起作用
+            setCacheEnabled(true);
+        }
+        // 在这里初始化并注册所有的处理器。此时还没有事件进入自动化线程，可以直接在主线程注册
+        registerBuiltin(new AdProcessor());
+        registerBuiltin(new FindAndClickNovelProcessor());
+        registerBuiltin(new ReadingPageProcessor());
+        ruleLoader = new ScreenRuleLoader(this);
+        initializeProcessors(ruleLoader.load());
     }
 
-    private void initializeProcessors() {
-        // 优先处理可能出现的广告和弹窗
-        screenProcessors.add(new EnterAdProcessor());
-        screenProcessors.add(new AfterSkipAdProcessor());
-        screenProcessors.add(new AdProcessor());
-        screenProcessors.add(new Middle1InAdProcessor());
-        screenProcessors.add(new RankProcessor());
-        screenProcessors.add(new ProductProcessor());
-        screenProcessors.add(new MainPageProcessor());
-        screenProcessors.add(new AddToHomePageProcessor());
-        screenProcessors.add(new InputNovelNameProcessor());
-        screenProcessors.add(new SearchNovelProcessor());
-        screenProcessors.add(new FindAndClickNovelProcessor());
-        // 处理小说界面的翻页一定要在处理广告的后面
-        screenProcessors.add(new ReadingPageProcessor());
-        // ... 如果有更多界面，继续添加 ...
+    private void registerBuiltin(ScreenProcessor processor) {
+        builtinProcessors.put(processor.getName(), processor);
+    }
+
+    /**
+     * 按规则文件中的顺序注册处理器：规则包装成 RuleProcessor，builtin 条目替换为对应的内置处理器。
+     * 优先级完全由规则文件决定（广告和弹窗在前，阅读页翻页一定要在处理广告的后面）。
+     */
+    private void initializeProcessors(ScreenRuleSet rules) {
+        dispatcher.clear();
+        decisionCache.invalidate();
+        for (ScreenRuleFile.Entry entry : rules.getEntries()) {
+            if (entry.getRule() != null) {
+                dispatcher.register(new RuleProcessor(entry.getRule(), rules));
+                continue;
+            }
+            ScreenProcessor builtin = builtinProcessors.get(entry.getBuiltin());
+            if (builtin != null) {
+                dispatcher.register(builtin);
+            } else {
+                Log.w(AccessibilityConfig.TAG, "规则文件引用了未知的内置处理器: " + entry.getBuiltin());
+            }
+        }
+        String[] processorNames = dispatcher.getProcessorNames();
+        TraceBuffer.getInstance().setProcessorNames(processorNames);
+        MetricsRegistry.getInstance().setProcessorNames(processorNames);
+        updateSubscription();
+    }
+
+    /**
+     * 按当前的处理器和流程状态重新计算事件订阅，只在自动化线程上调用。
+     */
+    private void updateSubscription() {
+        eventSubscription.update(this, dispatcher.getProcessors(), isWorkflowBusy());
+    }
+
+    /**
+     * 流程是否在进行中：搜索流程以点击搜索结果中的小说结束，之后由自动阅读接管；
+     * 有监听者在等待事件或正在录制会话时也不能收窄到空闲订阅。
+     */
+    private boolean isWorkflowBusy() {
+        return !getStateManager().isActionCompleted(AccessibilityConfig.ACTION_ID_FIND_AND_CLICK_NOVEL)
+                || State.getInstance().isAutoReading()
+                || !screenEventListeners.isEmpty()
+                || SessionRecorder.getInstance().isRecording();
     }
 
     /**
@@ -85,8 +187,11 @@ public class AccessibilityEventService extends AccessibilityService {
      */
     @Override
     public void onAccessibilityEvent(AccessibilityEvent event) {
-        Log.d(AccessibilityConfig.TAG, "----------开始一轮事件监听----------");
-        if (event == null || event.getPackageName() == null) {
+        AccessibilityLog.v(AccessibilityConfig.TAG, "----------开始一轮事件监听----------");
+        if (event == null) {
+            return;
+        }
+        if (event.getPackageName() == null) {
             return;
         }
 
@@ -97,150 +202,444 @@ public class AccessibilityEventService extends AccessibilityService {
         }
 
         int eventType = event.getEventType();
+        MetricsRegistry.getInstance().recordEvent(eventType);
+        SessionRecorder.getInstance().recordEvent(event);
 
         // 主要监听窗口变化事件，这是进入新界面的最可靠信号
         if (eventType == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED ||
                 eventType == AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED ||
                 eventType == AccessibilityEvent.TYPE_VIEW_SCROLLED) {
-            Log.d(AccessibilityConfig.TAG, "接收到事件: " + AccessibilityEvent.eventTypeToString(eventType) +
-                    " 来自包: " + event.getPackageName() +
-                    " 类名: " + event.getClassName());
+            // 每个事件都写一条二进制追踪记录，字符串日志只在开启调试时才拼接
+            TraceBuffer.getInstance().record(eventType, TraceBuffer.NO_PROCESSOR, TraceBuffer.OUTCOME_EVENT);
+            if (AccessibilityLog.isDebugEnabled()) {
+                Log.d(AccessibilityConfig.TAG, "接收到事件: " + AccessibilityEvent.eventTypeToString(eventType) +
+                        " 来自包: " + event.getPackageName() +
+                        " 类名: " + event.getClassName());
+            }
 
             // 当窗口状态改变时，通常表示进入新屏幕，此时重置点击状态
             if (eventType == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) {
+                // 根节点缓存只是标记失效，可以在任何线程上进行
+                windowRoots.advance();
                 Log.i(AccessibilityConfig.TAG, "窗口状态改变，重置点击标记。");
-                resetServiceState(); // 重置点击标记和取消挂起的重试
+                // 重置和新界面的处理周期都交给自动化线程并排在队首：正在执行的周期结束后才重置，
+                // 它写回的决策、运行标志和重试都会被清掉，不会落到新界面上
+                final int sequence = windowStateSequence.incrementAndGet();
+                final AccessibilityEvent copy = AccessibilityEvent.obtain(event);
+                mHandler.postAtFrontOfQueue(() -> onWindowStateChanged(copy, sequence));
+                return;
+            }
+
+            // 有监听者在等待事件或需要维护镜像树时，把事件副本转交到自动化线程
+            if (AccessibilityConfig.MIRROR_TREE_ENABLED || !screenEventListeners.isEmpty()) {
+                enqueueScreenEvent(event);
+                // 增量监听者只重新检查事件源所在的子树，内容变化和滚动不再触发整窗口的遍历
+                if (hasIncrementalListener()) {
+                    TraceBuffer.getInstance().record(eventType, TraceBuffer.NO_PROCESSOR, TraceBuffer.OUTCOME_ROUTED);
+                    return;
+                }
             }
+            scheduleCycle(event);
+        } else if (eventType == AccessibilityEvent.TYPE_VIEW_TEXT_CHANGED && AccessibilityConfig.MIRROR_TREE_ENABLED) {
+            // 文本变化不触发处理周期，只用来更新镜像树中对应节点的属性
+            enqueueScreenEvent(event);
+        }
+    }
 
-            // --- 新增：引入随机延迟 ---
-            long randomDelay = getRandomProcessingDelay();
+    /**
+     * 在自动化线程上处理窗口状态变化：重置上一个界面留下的状态，再为新界面安排处理周期。
+     *
+     * @param event    事件的副本，由本方法回收。
+     * @param sequence 事件的序号，已有更新的窗口状态变化时放弃。
+     */
+    private void onWindowStateChanged(AccessibilityEvent event, int sequence) {
+        try {
+            if (sequence != windowStateSequence.get()) {
+                return;
+            }
+            resetServiceState(); // 重置点击标记和取消挂起的重试
+            // 空闲订阅下只有这个事件能送达，前端在此期间发起的流程要靠它重新放宽订阅
+            updateSubscription();
+            if (AccessibilityConfig.MIRROR_TREE_ENABLED) {
+                enqueueScreenEvent(event);
+            }
+            scheduleCycle(event);
+        } finally {
+            event.recycle();
+        }
+    }
 
-            Log.d(AccessibilityConfig.TAG, "计划在 " + randomDelay + "ms 后尝试处理屏幕内容 (事件: " + AccessibilityEvent.eventTypeToString(eventType) + ")");
+    /**
+     * 为事件所在的窗口安排处理周期，同一窗口已有挂起的周期时只做合并。
+     */
+    private void scheduleCycle(AccessibilityEvent event) {
+        int eventType = event.getEventType();
+        // --- 新增：引入随机延迟 ---
+        long randomDelay = getRandomProcessingDelay();
+
+        // 同一窗口已有挂起的处理周期时，事件只会被合并进去，不再重复安排
+        if (eventCoalescer.submit(event, randomDelay)) {
+            TraceBuffer.getInstance().record(eventType, TraceBuffer.NO_PROCESSOR, TraceBuffer.OUTCOME_CYCLE_SCHEDULED, (int) randomDelay);
+            if (AccessibilityLog.isDebugEnabled()) {
+                Log.d(AccessibilityConfig.TAG, "计划在 " + randomDelay + "ms 后尝试处理屏幕内容 (事件: " + AccessibilityEvent.eventTypeToString(eventType) + ")");
+            }
+        } else {
+            TraceBuffer.getInstance().record(eventType, TraceBuffer.NO_PROCESSOR, TraceBuffer.OUTCOME_COALESCED);
+        }
+    }
 
-            String packageName = event.getPackageName().toString();
+    private boolean hasIncrementalListener() {
+        for (ScreenEventListener listener : screenEventListeners) {
+            if (listener.isIncremental()) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-            mHandler.postDelayed(() -> {
-                if (!AccessibilityConfig.TARGET_PACKAGE_NAME_1.equals(packageName) &&
-                        !AccessibilityConfig.TARGET_PACKAGE_NAME_2.equals(packageName)) {
-                    Log.d(AccessibilityConfig.TAG, "延迟任务执行时发现已离开目标应用，取消处理。");
-                    resetServiceState(); // 确保状态也重置
-                    return;
-                }
+    /**
+     * 复制事件并排队，由自动化线程统一分发给监听者。队列非空时说明已经安排过分发任务。
+     */
+    private void enqueueScreenEvent(AccessibilityEvent event) {
+        ScreenEvent screenEvent = ScreenEvent.from(event);
+        boolean needsDrain;
+        synchronized (pendingScreenEvents) {
+            needsDrain = pendingScreenEvents.isEmpty();
+            pendingScreenEvents.add(screenEvent);
+        }
+        if (needsDrain) {
+            mHandler.post(screenEventDrainer);
+        }
+    }
 
-                AccessibilityNodeInfo rootNode = getRootInActiveWindow();
-                if (rootNode != null) {
-                    Log.d(AccessibilityConfig.TAG, "获取 rootNode 成功，准备处理节点查找与点击。");
-                    tryProcessingScreen(0);
-                    rootNode.recycle();
-                } else {
-                    Log.w(AccessibilityConfig.TAG, "未能获取 rootNode。");
+    /**
+     * 在自动化线程上用排队的事件依次更新镜像树、分发给所有监听者，之后回收事件源节点。
+     */
+    private void drainScreenEvents() {
+        while (true) {
+            ScreenEvent screenEvent;
+            synchronized (pendingScreenEvents) {
+                screenEvent = pendingScreenEvents.poll();
+            }
+            if (screenEvent == null) {
+                return;
+            }
+            try {
+                if (AccessibilityConfig.MIRROR_TREE_ENABLED) {
+                    mirrorTree.apply(screenEvent);
                 }
+                for (ScreenEventListener listener : screenEventListeners) {
+                    listener.onScreenEvent(this, screenEvent);
+                }
+            } finally {
+                screenEvent.recycle();
+            }
+        }
+    }
 
-            }, randomDelay);
+    /**
+     * 丢弃尚未分发的事件。
+     */
+    private void clearScreenEvents() {
+        synchronized (pendingScreenEvents) {
+            for (ScreenEvent screenEvent : pendingScreenEvents) {
+                screenEvent.recycle();
+            }
+            pendingScreenEvents.clear();
+        }
+    }
+
+    /**
+     * 注册事件监听者。重复注册同一个监听者不会生效。
+     */
+    public void addScreenEventListener(ScreenEventListener listener) {
+        if (!screenEventListeners.contains(listener)) {
+            screenEventListeners.add(listener);
+            updateSubscription();
+        }
+    }
 
+    public void removeScreenEventListener(ScreenEventListener listener) {
+        if (screenEventListeners.remove(listener)) {
+            updateSubscription();
         }
     }
 
+    /**
+     * 合并后的处理周期到期时调用。一个周期只获取一次根节点并完整调度一次。
+     *
+     * @param cycle 本周期合并的事件信息。
+     */
+    private void onCoalescedCycle(EventCoalescer.PendingCycle cycle) {
+        if (AccessibilityLog.isDebugEnabled()) {
+            Log.d(AccessibilityConfig.TAG, "开始处理周期: 合并了 " + cycle.getEventCount() + " 个事件，来源 " + cycle.getSources());
+        }
+        tryProcessingScreen(0);
+    }
+
     @Override
     public void onInterrupt() {
         Log.w(AccessibilityConfig.TAG, "无障碍服务被中断。");
+        eventCoalescer.cancelAll();
         mHandler.removeCallbacksAndMessages(null);
     }
 
     @Override
     public boolean onUnbind(Intent intent) {
         Log.i(AccessibilityConfig.TAG, "无障碍服务已解绑。");
+        eventCoalescer.cancelAll();
         mHandler.removeCallbacksAndMessages(null);
         return super.onUnbind(intent);
     }
 
+    @Override
+    public void onDestroy() {
+        Log.i(AccessibilityConfig.TAG, "无障碍服务已销毁。");
+        eventCoalescer.cancelAll();
+        screenEventListeners.clear();
+        clearScreenEvents();
+        executor.quit();
+        windowRoots.release();
+        SessionRecorder.getInstance().stop();
+        NodeLeakTracker.report();
+        super.onDestroy();
+    }
+
     /**
      * 尝试处理当前屏幕，并包含重试逻辑。
      * 
-     * @param attempt 当前的尝试次数。
+     * @param attempt 当前的尝试次数，0 表示一个新处理周期的第一次尝试。
      */
     private void tryProcessingScreen(int attempt) {
-        if (attempt >= AccessibilityConfig.MAX_RETRY_ATTEMPTS) {
-            Log.w(AccessibilityConfig.TAG, "已达到最大重试次数，放弃。");
-            return;
+        if (attempt == 0) {
+            // 新周期开始：之前周期遗留的重试已经没有意义，同一时刻只保留一条重试链
+            if (pendingRetry != null) {
+                mHandler.removeCallbacks(pendingRetry);
+                pendingRetry = null;
+            }
+            cycleStartMs = SystemClock.uptimeMillis();
+            retryPolicyInUse = null;
+            // 规则文件更新后在新周期开始时替换处理器，不需要重启服务
+            ScreenRuleSet reloaded = ruleLoader.reloadIfChanged();
+            if (reloaded != null) {
+                initializeProcessors(reloaded);
+            }
         }
 
-        Log.d(AccessibilityConfig.TAG, "开始第 " + (attempt + 1) + " 次屏幕处理尝试。");
+        if (AccessibilityLog.isDebugEnabled()) {
+            Log.d(AccessibilityConfig.TAG, "开始第 " + (attempt + 1) + " 次屏幕处理尝试。");
+        }
 
-        AccessibilityNodeInfo rootNode = getRootInActiveWindow();
+        long slowFetchesAtStart = MetricsRegistry.getInstance().getSlowFetchCount();
+        // 每次尝试都重新枚举窗口，同一次尝试中的所有调用方共用这一代的根节点
+        windowRoots.advance();
+        AccessibilityNodeInfo rootNode = windowRoots.acquireRoot();
         if (rootNode == null) {
             Log.w(AccessibilityConfig.TAG, "尝试时 rootNode 为 null，计划重试。");
-            scheduleNextAttempt(attempt + 1); // 根节点为空，直接安排重试
+            scheduleNextAttempt(attempt + 1, RetryPolicy.TRANSITION); // 根节点为空，通常是窗口切换中，快速重查
             return;
         }
 
+        long cycleStart = System.nanoTime();
         boolean processed = false;
-        boolean processorFound = false;
-        // 遍历所有注册的处理器
-        for (ScreenProcessor processor : screenProcessors) {
-            if (processor.canProcess(this, rootNode)) {
-                processorFound = true;
-                Log.d(AccessibilityConfig.TAG, "找到处理器: " + processor.getClass().getSimpleName());
-                // 把处理任务交给它，并获取结果
-                processed = processor.process(this, rootNode);
-                // 找到并处理后，就跳出循环
-                break;
+        ScreenProcessor matchedProcessor = null;
+        // 整棵树只遍历一次，所有处理器共享同一份快照。快照接管了 rootNode，
+        // 作用域结束时回收快照即回收了本轮取得的所有节点
+        try (NodeScope scope = NodeScope.open(SCOPE_OWNER)) {
+            ScreenSnapshot snapshot = null;
+            long fingerprint;
+            // 镜像树与当前窗口一致时先用镜像的指纹判断能否跳过，跳过的周期不需要遍历窗口。
+            // 录制会话时每一轮都需要快照，不走这条路
+            if (AccessibilityConfig.MIRROR_TREE_ENABLED && !SessionRecorder.getInstance().isRecording()
+                    && mirrorTree.isCurrent(rootNode)) {
+                scope.track(rootNode);
+                fingerprint = mirrorTree.getFingerprint();
+            } else {
+                snapshot = scope.capture(rootNode);
+                fingerprint = snapshot.getFingerprint();
+                if (AccessibilityConfig.MIRROR_TREE_ENABLED) {
+                    mirrorTree.rebuild(snapshot);
+                }
+            }
+            if (decisionCache.shouldSkip(fingerprint)) {
+                // 界面结构与上一轮无匹配时相同，再跑一遍 canProcess 结果也不会变
+                TraceBuffer.getInstance().record(0, TraceBuffer.NO_PROCESSOR, TraceBuffer.OUTCOME_SKIPPED);
+                MetricsRegistry.getInstance().recordCycleSkipped();
+                if (snapshot != null) {
+                    recordScreen(snapshot, attempt, SessionWriter.DECISION_SKIPPED);
+                }
+                if (AccessibilityLog.isDebugEnabled()) {
+                    Log.d(AccessibilityConfig.TAG, "界面结构未变化 (指纹 " + Long.toHexString(fingerprint) + ")，跳过本轮调度。");
+                }
+            } else {
+                if (snapshot == null) {
+                    snapshot = scope.capture(rootNode);
+                    if (snapshot.getFingerprint() != fingerprint) {
+                        // 镜像漏掉了某些变化，以快照为准
+                        if (AccessibilityLog.isDebugEnabled()) {
+                            Log.d(AccessibilityConfig.TAG, "镜像树与快照的指纹不一致，重建镜像。");
+                        }
+                        fingerprint = snapshot.getFingerprint();
+                        mirrorTree.rebuild(snapshot);
+                    }
+                }
+                // 先尝试该界面上次匹配到的处理器，不满足时再走完整调度
+                ScreenProcessor processor = decisionCache.getProcessor(fingerprint);
+                if (processor == null || !dispatcher.canProcess(this, processor, snapshot)) {
+                    // 只在签名匹配的候选处理器中按顺序查找
+                    processor = dispatcher.selectProcessor(this, snapshot);
+                } else if (AccessibilityLog.isDebugEnabled()) {
+                    Log.d(AccessibilityConfig.TAG, "决策缓存命中 (指纹 " + Long.toHexString(fingerprint) + ")。");
+                }
+                // 在 process 之前记录，process 中修改的状态会让缓存在下一轮失效
+                decisionCache.record(fingerprint, processor);
+                recordScreen(snapshot, attempt, processor != null ? processor.getName() : SessionWriter.DECISION_NO_MATCH);
+                if (processor != null) {
+                    matchedProcessor = processor;
+                    if (AccessibilityLog.isDebugEnabled()) {
+                        Log.d(AccessibilityConfig.TAG, "找到处理器: " + processor.getName());
+                    }
+                    // 把处理任务交给它，并获取结果
+                    int processorId = dispatcher.getProcessorId(processor);
+                    long processStart = System.nanoTime();
+                    processed = processor.process(this, snapshot);
+                    MetricsRegistry.getInstance().recordProcess(processorId, processStart);
+                    TraceBuffer.getInstance().record(0, processorId,
+                            processed ? TraceBuffer.OUTCOME_PROCESSED : TraceBuffer.OUTCOME_FAILED, attempt);
+                } else {
+                    MetricsRegistry.getInstance().recordNoMatch();
+                    TraceBuffer.getInstance().record(0, TraceBuffer.NO_PROCESSOR, TraceBuffer.OUTCOME_NO_MATCH, attempt);
+                }
             }
         }
-
-        rootNode.recycle();
+        MetricsRegistry.getInstance().recordCycle(cycleStart);
+        MetricsRegistry.getInstance().recordCycleSlowFetches(slowFetchesAtStart);
+        // 调试模式下检查本轮结束后是否有节点未被回收
+        NodeLeakTracker.checkpoint();
 
         // 根据处理结果决定下一步
-        if (!processed) {
-            if (processorFound) {
-                // 处理器找到了，但 process() 返回 false
-                Log.w(AccessibilityConfig.TAG, "处理器执行失败，计划重试。");
-            } else {
-                // 遍历完所有处理器，没有一个 canProcess() 返回 true
-                Log.i(AccessibilityConfig.TAG, "当前屏幕无匹配的处理器，可能为过渡界面，计划重试。");
+        if (processed) {
+            MetricsRegistry.getInstance().recordSuccess(attempt);
+            // 处理器可能刚完成了一个只执行一次的操作，不再需要的事件和应用从订阅中去掉
+            updateSubscription();
+            if (attempt > 0 && retryPolicyInUse != null) {
+                // 经过重试才成功，记录界面实际稳定所需的时间，用于调整该策略之后的退避
+                long settleMs = SystemClock.uptimeMillis() - cycleStartMs;
+                retryPolicyInUse.recordSettleTime(settleMs);
+                if (AccessibilityLog.isDebugEnabled()) {
+                    Log.d(AccessibilityConfig.TAG, "界面经过 " + settleMs + "ms 稳定，" + retryPolicyInUse);
+                }
             }
-            scheduleNextAttempt(attempt + 1);
+            return;
         }
+
+        RetryPolicy policy;
+        if (matchedProcessor != null) {
+            // 处理器找到了，但 process() 返回 false
+            Log.w(AccessibilityConfig.TAG, "处理器执行失败，计划重试。");
+            policy = matchedProcessor.getRetryPolicy() != null ? matchedProcessor.getRetryPolicy() : RetryPolicy.DEFAULT;
+        } else {
+            // 遍历完所有处理器，没有一个 canProcess() 返回 true
+            Log.i(AccessibilityConfig.TAG, "当前屏幕无匹配的处理器，可能为过渡界面，计划重试。");
+            policy = RetryPolicy.TRANSITION;
+        }
+        scheduleNextAttempt(attempt + 1, policy);
     }
 
     /**
-     * 重置服务的状态，例如点击标志和待处理任务。
+     * 重置服务的状态，例如点击标志和待处理任务。只在自动化线程上调用，与处理周期串行。
      */
     private void resetServiceState() {
         // 注意：此方法会取消所有挂起的 Handler 任务，包括重试和自动翻页循环。
         Log.d(AccessibilityConfig.TAG, "重置服务状态: 清除所有挂起的 Handler 消息。");
         mHandler.removeCallbacksAndMessages(null); // 取消所有挂起的重试任务
+        pendingRetry = null;
+        // 主线程可能在这两步之间提交事件，先清 Handler 再清挂起记录，
+        // 否则会留下任务已被移除的挂起周期，之后的事件都被合并进这个永远不会执行的周期
+        eventCoalescer.cancelAll();
+        screenEventListeners.clear(); // 监听者依赖的异步流程都随 Handler 任务一起被取消了
+        clearScreenEvents(); // 同理，队列清空后下一个事件会重新安排分发任务
+        GestureQueue.of(this).clearPending(); // 为上一个界面排队的手势不应落在新界面上
+        decisionCache.invalidate(); // 处理器内部的运行标志被重置，之前的决策不再可靠
         // [重要] 同时重置翻页处理器的循环标志，以允许它在下次事件检查时可以被重新启动。
         ReadingPageProcessor.resetLoopFlag();
         AdProcessor.resetTaskFlag();
+        FindAndClickNovelProcessor.resetSearchFlag();
     }
 
     /**
-     * 安排下一次查找和点击的尝试。
+     * 按重试策略安排下一次查找和点击的尝试。
      *
      * @param nextAttempt 下一次尝试的计数。
+     * @param policy      本次失败对应的重试策略。
      */
-    private void scheduleNextAttempt(int nextAttempt) {
-        if (nextAttempt >= AccessibilityConfig.MAX_RETRY_ATTEMPTS) {
-            Log.w(AccessibilityConfig.TAG, "scheduleNextAttempt: 已达最大重试次数，不再调度。");
+    private void scheduleNextAttempt(int nextAttempt, RetryPolicy policy) {
+        if (!policy.allows(nextAttempt)) {
+            MetricsRegistry.getInstance().recordRetryExhausted();
+            Log.w(AccessibilityConfig.TAG, "scheduleNextAttempt: 已达最大重试次数 (" + policy.getName() + ")，不再调度。");
             return;
         }
 
-        Log.d(AccessibilityConfig.TAG,
-                "计划在 " + AccessibilityConfig.RETRY_DELAY_MS + "ms 后进行第 " + (nextAttempt + 1) + " 次尝试。");
+        long delay = policy.delayBeforeAttempt(nextAttempt, random);
+        MetricsRegistry.getInstance().recordRetryScheduled();
+        TraceBuffer.getInstance().record(0, TraceBuffer.NO_PROCESSOR, TraceBuffer.OUTCOME_RETRY, nextAttempt);
+        if (AccessibilityLog.isDebugEnabled()) {
+            Log.d(AccessibilityConfig.TAG,
+                    "计划在 " + delay + "ms 后进行第 " + (nextAttempt + 1) + " 次尝试 (" + policy.getName() + ")。");
+        }
 
-        mHandler.postDelayed(() -> {
-            Log.d(AccessibilityConfig.TAG, "执行计划中的重试 (第 " + (nextAttempt + 1) + " 次尝试)。");
-            AccessibilityNodeInfo newRootNode = getRootInActiveWindow();
-            if (newRootNode != null) {
-                tryProcessingScreen(nextAttempt); // 注意这里传递的是 nextAttempt
-                newRootNode.recycle();
-            } else {
-                Log.w(AccessibilityConfig.TAG, "计划重试时，newRootNode 为 null。可能再次安排或放弃。");
-                // 可以在这里决定是否再次调度，如果根节点仍然为 null
-                // scheduleNextAttempt(nextAttempt + 1); // 谨慎，避免死循环
+        retryPolicyInUse = policy;
+        Runnable retry = () -> {
+            pendingRetry = null;
+            AccessibilityLog.d(AccessibilityConfig.TAG, "执行计划中的重试，尝试序号: ", nextAttempt + 1);
+            tryProcessingScreen(nextAttempt); // 根节点为 null 时由 tryProcessingScreen 继续按策略重试
+        };
+        pendingRetry = retry;
+        mHandler.postDelayed(retry, delay);
+    }
+
+    /**
+     * 录制会话时记录本轮的界面、处理器状态和调度结果。处理器状态只在录制时才收集。
+     */
+    private void recordScreen(ScreenSnapshot snapshot, int attempt, String decision) {
+        SessionRecorder recorder = SessionRecorder.getInstance();
+        if (!recorder.isRecording()) {
+            return;
+        }
+        List<String> runningFlows = new ArrayList<>();
+        for (ScreenProcessor processor : builtinProcessors.values()) {
+            if (processor.isFlowRunning()) {
+                runningFlows.add(processor.getName());
             }
-        }, AccessibilityConfig.RETRY_DELAY_MS);
+        }
+        recorder.recordScreen(new RecordedContext(getStateManager().getCompletedActions(), getNovelNameToSearch(),
+                isAutoReading(), runningFlows), snapshot, attempt, decision);
+    }
+
+    // --- ProcessorContext：处理器判断界面时读取的运行状态 ---
+
+    @Override
+    public boolean isActionCompleted(String actionId) {
+        return getStateManager().isActionCompleted(actionId);
+    }
+
+    @Override
+    public String getNovelNameToSearch() {
+        return State.getInstance().getNovelNameToSearch();
+    }
+
+    @Override
+    public boolean isAutoReading() {
+        return State.getInstance().isAutoReading();
+    }
+
+    /**
+     * 内置处理器的异步流程（小说查找、翻页循环）是否仍在运行。规则处理器没有异步流程。
+     */
+    @Override
+    public boolean isFlowRunning(String processorName) {
+        ScreenProcessor processor = builtinProcessors.get(processorName);
+        return processor != null && processor.isFlowRunning();
     }
 
     /**
@@ -252,10 +651,20 @@ public class AccessibilityEventService extends AccessibilityService {
         return ActionStateManager.getInstance();
     }
 
+    /**
+     * @return 自动化线程的 Handler，处理器的循环和延迟任务都应投递到这里。
+     */
     public Handler getHandler() {
         return mHandler;
     }
 
+    /**
+     * @return 自动化线程执行器，提供不阻塞线程的等待。
+     */
+    public AutomationExecutor getExecutor() {
+        return executor;
+    }
+
     /**
      * 获取一个随机的延迟时间。
      * 
@@ -4,14 +4,23 @@ import androidx.annotation.NonNull;
 import android.util.Log;
 
 
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableMap;
 
 import com.tomato.NativeAccessibilitySpec;
 import com.tomato.utils.ActionStateManager;
+import com.tomato.utils.MetricsRegistry;
+import com.tomato.utils.SessionRecorder;
 import com.tomato.utils.State;
+import com.tomato.utils.TraceBuffer;
+
+import java.io.File;
+import java.util.Map;
 
 public class NativeAccessibilityModule extends NativeAccessibilitySpec {
     public static final String NAME = "NativeAccessibility";
+    private static final String SESSION_DIRECTORY = "sessions";
 
     public NativeAccessibilityModule(ReactApplicationContext context) {
         super(context);
@@ -48,4 +57,65 @@ public class NativeAccessibilityModule extends NativeAccessibilitySpec {
 //            queryParts = new String[]{query};
 //        }
     }
+
+    /**
+     * 导出内存中的追踪记录，同时写入日志，便于在不开启调试日志的情况下排查问题。
+     */
+    @Override
+    public String dumpTrace() {
+        String dump = TraceBuffer.getInstance().dump();
+        Log.i(NAME, dump);
+        return dump;
+    }
+
+    /**
+     * 导出运行指标（事件数、各处理器耗时、快照和手势延迟、重试次数），耗时单位为微秒。
+     */
+    @Override
+    public WritableMap getMetrics() {
+        return toWritableMap(MetricsRegistry.getInstance().snapshot());
+    }
+
+    /**
+     * 开始录制会话（事件流和每次调度时的界面），文件写到应用的外部文件目录，可以直接用 adb pull 取出。
+     *
+     * @return 会话文件路径；创建失败时返回空字符串。
+     */
+    @Override
+    public String startSessionRecording() {
+        File directory = getReactApplicationContext().getExternalFilesDir(SESSION_DIRECTORY);
+        if (directory == null) {
+            directory = new File(getReactApplicationContext().getFilesDir(), SESSION_DIRECTORY);
+        }
+        File file = SessionRecorder.getInstance().start(directory);
+        return file == null ? "" : file.getAbsolutePath();
+    }
+
+    /**
+     * 结束录制。
+     *
+     * @return 刚结束的会话文件路径；没有在录制时返回空字符串。
+     */
+    @Override
+    public String stopSessionRecording() {
+        File file = SessionRecorder.getInstance().stop();
+        return file == null ? "" : file.getAbsolutePath();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static WritableMap toWritableMap(Map<String, Object> source) {
+        WritableMap map = Arguments.createMap();
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Map) {
+                map.putMap(entry.getKey(), toWritableMap((Map<String, Object>) value));
+            } else if (value instanceof Number) {
+                // JS 侧只有 double，计数和微秒在 2^53 以内不会丢精度
+                map.putDouble(entry.getKey(), ((Number) value).doubleValue());
+            } else if (value != null) {
+                map.putString(entry.getKey(), value.toString());
+            }
+        }
+        return map;
+    }
 }
@@ -0,0 +1,61 @@
+package com.tomato.processor;
+
+import com.tomato.utils.MultiPatternMatcher;
+import com.tomato.utils.ProcessorContext;
+import com.tomato.utils.ScreenMatcher;
+import com.tomato.utils.ScreenSignature;
+import com.tomato.utils.ScreenView;
+
+/**
+ * 广告界面的识别：界面上有 "广告" 标志，并且不在 "领取奖励 / 坚持退出" 的中间弹窗上。
+ * 不依赖 Android，回放会话时直接在录制的界面上运行，AdProcessor 在此之上处理广告。
+ */
+public class AdMatcher implements ScreenMatcher {
+
+    /** 处理器名称，规则文件中的 builtin 条目按它引用。 */
+    public static final String NAME = "AdProcessor";
+
+    // --- 广告页面的关键文本 ---
+    protected static final String AD_MARKER_CONTENT_DESC = "广告";
+    protected static final String AD_SUCCESS_CONTENT_DESC = "领取成功";
+    protected static final String REWARD_CONTENT_DESC = "领取奖励";
+    protected static final String EXIT_CONTENT_DESC = "坚持退出";
+
+    // "领取奖励" 与 "坚持退出" 同时出现才排除，签名无法表达这种组合，留给 canProcess 判断
+    private static final ScreenSignature SIGNATURE = ScreenSignature.builder()
+            .requireContentDesc(AD_MARKER_CONTENT_DESC)
+            .build();
+
+    // 所有关键文本编译到同一个自动机里，处理器注册时构建一次，之后每次检测只扫描一遍 content-desc
+    protected final MultiPatternMatcher adMarkerMatcher = MultiPatternMatcher.compile(
+            AD_MARKER_CONTENT_DESC, AD_SUCCESS_CONTENT_DESC, REWARD_CONTENT_DESC, EXIT_CONTENT_DESC);
+
+    /**
+     * 判断是否进入了广告页面。
+     * 逻辑：根据用户提供的信息，只要页面中存在 text="广告" 的节点，就认为可以处理。
+     */
+    @Override
+    public boolean canProcess(ProcessorContext context, ScreenView<?> screen) {
+        if (screen == null) {
+            return false;
+        }
+
+        MultiPatternMatcher.Hits<?> hits = screen.matchContentDescriptions(adMarkerMatcher);
+        // 如果存在 "领取奖励" 和 "坚持退出" 标志节点，说明当前在广告处理的 Middle 过程
+        if (hits.contains(REWARD_CONTENT_DESC) && hits.contains(EXIT_CONTENT_DESC)) {
+            return false;
+        }
+        // 查找是否存在 "广告" 标志节点
+        return hits.contains(AD_MARKER_CONTENT_DESC);
+    }
+
+    @Override
+    public ScreenSignature getSignature() {
+        return SIGNATURE;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -1,255 +1,188 @@
 package com.tomato.processor;
 
-import android.graphics.Rect;
 import android.os.Handler;
 import android.util.Log;
+import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
 
 import com.tomato.nativeaccessibility.AccessibilityEventService;
 import com.tomato.utils.AccessibilityActionUtils;
 import com.tomato.utils.AccessibilityConfig;
+import com.tomato.utils.AccessibilityLog;
 import com.tomato.utils.AccessibilityNodeUtils;
+import com.tomato.utils.NodeCondition;
+import com.tomato.utils.NodeScope;
+import com.tomato.utils.RetryPolicy;
+import com.tomato.utils.ScreenEvent;
+import com.tomato.utils.ScreenEventListener;
 import com.tomato.utils.ScreenProcessor;
-
-import java.util.List;
+import com.tomato.utils.ScreenSnapshot;
+import com.tomato.utils.SearchBudget;
 
 /**
  * 首先判断是否是广告界面
  * 如果是广告界面
- * 启用定时器循环检查界面是否出现领取成功的标志，如果出现则点击领取成功按钮
+ * 订阅内容变化事件，只在变化的子树中检查是否出现领取成功的标志，如果出现则点击领取成功按钮
+ * 低频的定时检查只作为兜底
  */
-public class AdProcessor implements ScreenProcessor {
+public class AdProcessor extends AdMatcher implements ScreenProcessor, ScreenEventListener {
 
     private static final String TAG = AccessibilityConfig.TAG; // 使用统一的TAG方便日志查看
+    // 节点作用域的持有者名称，用于泄漏统计
+    private static final String SCOPE_OWNER = "AdProcessor";
+
+    // 关闭按钮："领取成功" 之后的第一个图片兄弟节点
+    private static final String CLOSE_BUTTON_SELECTOR =
+            "[desc*=" + AD_SUCCESS_CONTENT_DESC + "] ~ " + AccessibilityConfig.TARGET_IMAGE_CLASS;
 
-    // --- 广告页面的关键文本 ---
-    private static final String AD_MARKER_CONTENT_DESC = "广告";
-    private static final String AD_SUCCESS_CONTENT_DESC = "领取成功";
-    private static final String REWARD_CONTENT_DESC = "领取奖励";
-    private static final String EXIT_CONTENT_DESC = "坚持退出";
+    // 兜底检测只需要知道 "领取成功" 是否已经出现
+    private static final NodeCondition AD_SUCCESS_CONDITION =
+            AccessibilityNodeUtils.contentDescriptionContains(AD_SUCCESS_CONTENT_DESC);
 
     private static volatile boolean isAdTaskRunning = false;
 
-    // 为了防止无限循环，设置一个最大检查次数。例如，每10秒查一次，总共查6次（1分钟）
-    private static final int MAX_CHECK_COUNT = 8;
-    // 定时器检查间隔，单位：毫秒
-    private static final long CHECK_INTERVAL_MS = 10000; // 10秒
+    // 为了防止无限循环，设置一个最大检查次数。兜底检查每20秒一次，总共4次，与原来的总时长（80秒）一致
+    private static final int MAX_CHECK_COUNT = 4;
+    // 兜底定时检查间隔，单位：毫秒。正常情况下由内容变化事件触发检查
+    private static final long SAFETY_POLL_INTERVAL_MS = 20000; // 20秒
 
     // 用于执行定时任务
     private Handler adHandler;
     private Runnable adCheckRunnable;
     private int checkCounter = 0;
-
-    /**
-     * 判断是否进入了广告页面。
-     * 逻辑：根据用户提供的信息，只要页面中存在 text="广告" 的节点，就认为可以处理。
-     */
-    @Override
-    public boolean canProcess(AccessibilityEventService service, AccessibilityNodeInfo rootNode) {
-        if (rootNode == null) {
-            return false;
-        }
-
-        List<AccessibilityNodeInfo> adMarkers = null;
-        List<AccessibilityNodeInfo> rewardNodes = null;
-        List<AccessibilityNodeInfo> exitNodes = null;
-        try {
-            // 查找是否存在 "广告" 标志节点
-            adMarkers = AccessibilityNodeUtils.findNodesByContentDescriptionContains(rootNode, AD_MARKER_CONTENT_DESC); // 使用完全匹配
-
-            // 如果存在 "领取奖励" 和 "坚持退出" 标志节点，说明当前在广告处理的 Middle 过程
-            // 使用 content-desc 查找“领取奖励”节点
-            rewardNodes = AccessibilityNodeUtils.findNodesByContentDescriptionContains(rootNode, REWARD_CONTENT_DESC);
-            // 使用 content-desc 查找“坚持退出”节点
-            exitNodes = AccessibilityNodeUtils.findNodesByContentDescriptionContains(rootNode, EXIT_CONTENT_DESC);
-
-            if (!rewardNodes.isEmpty() && !exitNodes.isEmpty()) {
-                return false;
-            } else {
-                return !adMarkers.isEmpty();
-            }
-        } finally {
-            AccessibilityNodeUtils.recycleNodes(adMarkers);
-            AccessibilityNodeUtils.recycleNodes(rewardNodes);
-            AccessibilityNodeUtils.recycleNodes(exitNodes);
-        }
-    }
+    private AccessibilityEventService adService;
 
     /**
      * 处理广告的完整流程。
      * 新逻辑：
      * 1. (canProcess触发) 确认进入广告页。
-     * 2. (本方法启动) 启动定时器，周期性检查。
-     * 3. 检查页面是否存在含 "领取成功" 的节点。
-     * 4. 如果存在，则点击该节点关闭广告，任务结束。
-     * 5. 如果不存在，但存在含 "秒后可领奖励" 的节点，则继续等待。
+     * 2. (本方法启动) 订阅内容变化事件，并启动低频的兜底定时检查。
+     * 3. 每次内容变化时，只在变化的子树中检查是否存在含 "领取成功" 的节点。
+     * 4. 如果存在，则点击它旁边的关闭按钮，任务结束。
+     * 5. 如果不存在，则继续等待下一次变化。
      *
      * @param service  AccessibilityEventService 的实例。
-     * @param rootNode 窗口根节点 (注意：此节点可能很快失效，定时任务中需要重新获取)。
+     * @param snapshot 本轮调度的屏幕快照 (注意：快照在本轮结束后即被回收，定时任务中需要重新获取)。
      * @return boolean 返回 true 表示已成功启动广告处理流程。
      */
     @Override
-    public boolean process(AccessibilityEventService service, AccessibilityNodeInfo rootNode) {
+    public boolean process(AccessibilityEventService service, ScreenSnapshot snapshot) {
         if (isAdTaskRunning) {
             Log.d(TAG, "AdProcessor: 任务已在运行中，跳过本次 process 调用。");
             return false;
         }
 
-        Log.i(TAG, "AdProcessor: 启动广告处理流程 (新逻辑)...");
+        Log.i(TAG, "AdProcessor: 启动广告处理流程 (事件订阅)...");
         isAdTaskRunning = true;
         checkCounter = 0;
+        adService = service;
+        service.addScreenEventListener(this);
 
         adHandler = service.getHandler();
         adCheckRunnable = new Runnable() {
             @Override
             public void run() {
-                // 每次检测时，都获取最新的窗口信息
-                AccessibilityNodeInfo currentRootNode = service.getRootInActiveWindow();
-                if (currentRootNode == null) {
-                    Log.w(TAG, "AdProcessor: 无法获取当前窗口的根节点。");
-                    resetTaskState();
-                    return;
-                }
-
-                // 检查是否超时
-                if (checkCounter++ >= MAX_CHECK_COUNT) {
-                    Log.e(TAG, "AdProcessor: 检测超时，未能关闭广告。");
-                    resetTaskState();
-                    currentRootNode.recycle();
-                    return;
-                }
+                // 每次检测时，都获取最新的窗口信息，取得的节点和快照在作用域结束时回收
+                try (NodeScope scope = NodeScope.open(SCOPE_OWNER)) {
+                    AccessibilityNodeInfo currentRootNode = scope.root(service);
+                    if (currentRootNode == null) {
+                        Log.w(TAG, "AdProcessor: 无法获取当前窗口的根节点。");
+                        resetTaskState();
+                        return;
+                    }
 
-                Log.d(TAG, "AdProcessor: 正在进行第 " + checkCounter + " 次检测...");
+                    // 检查是否超时
+                    if (checkCounter++ >= MAX_CHECK_COUNT) {
+                        Log.e(TAG, "AdProcessor: 检测超时，未能关闭广告。");
+                        resetTaskState();
+                        return;
+                    }
 
-                // 核心处理逻辑
-                processAdState(service, currentRootNode);
+                    Log.d(TAG, "AdProcessor: 正在进行第 " + checkCounter + " 次兜底检测...");
 
-                currentRootNode.recycle();
+                    // 大多数检测时 "领取成功" 还没有出现：先在可见的子树上确认它存在，命中即停止，
+                    // 确认存在后才为查找关闭按钮构建整个窗口的快照
+                    if (AccessibilityNodeUtils.exists(currentRootNode, AD_SUCCESS_CONDITION, SearchBudget.DEFAULT)) {
+                        tryCloseAd(service, scope.capture(currentRootNode));
+                    }
+                }
+                // 只要任务没被重置，就安排下一次兜底检测
+                if (isAdTaskRunning && adHandler != null) {
+                    adHandler.postDelayed(this, SAFETY_POLL_INTERVAL_MS);
+                }
             }
         };
-        // 立即开始第一次检测
-        Log.i(TAG, "AdProcessor: 定时器已初始化，立即开始首次检测。");
+        // 立即开始第一次检测，"领取成功" 可能在进入时就已经存在
+        Log.i(TAG, "AdProcessor: 事件订阅与兜底定时器已初始化，立即开始首次检测。");
         adHandler.post(adCheckRunnable);
 
         return true;
     }
 
     /**
-     * 根据当前广告状态进行处理
-     * @param service AccessibilityEventService 实例
-     * @param rootNode 当前窗口的根节点
+     * 广告页的内容变化事件。只检查事件源所在的子树（从事件源的父节点开始，以便包含关闭按钮所在的兄弟节点）。
      */
-    private void processAdState(AccessibilityEventService service, AccessibilityNodeInfo rootNode) {
-        List<AccessibilityNodeInfo> successNodes = null;
-
-        try {
-            // 步骤 1: 查找 "领取成功" 的锚点节点
-            successNodes = AccessibilityNodeUtils.findNodesByContentDescriptionContains(rootNode, AD_SUCCESS_CONTENT_DESC);
-            if (successNodes != null && !successNodes.isEmpty()) {
-                AccessibilityNodeInfo triggerNode = successNodes.get(0); // 获取触发状态的节点
-                Log.i(TAG, "AdProcessor: 检测到 '" + AD_MARKER_CONTENT_DESC + "'! 准备基于索引查找关闭按钮。");
-                Log.i(TAG, "successNodes.get(0) 是：" + successNodes.get(0));
-                Log.i(TAG, "1111111111111111111111111111111111111111111successNodes.get(0).getClassName() 是：" + successNodes.get(0).getClassName());
-
-
-                // 步骤 2: 基于锚点节点，查找下一个符合条件的兄弟节点
-                AccessibilityNodeInfo targetButton = findNextSiblingImageByClass(triggerNode, AccessibilityConfig.TARGET_IMAGE_CLASS);
-                if (targetButton != null) {
-                    Log.i(TAG, "AdProcessor: 找到目标关闭按钮 (基于索引)，准备点击。");
-                    if (AccessibilityActionUtils.performClick(service, targetButton)) {
-                        Log.i(TAG, "AdProcessor: 成功点击关闭按钮，广告流程结束。");
-                        resetTaskState();
-                    } else {
-                        Log.w(TAG, "AdProcessor: 点击关闭按钮失败，将在下个周期重试。");
-                    }
-                    // 回收找到的目标按钮
-                    targetButton.recycle();
-                } else {
-                    Log.w(TAG, "AdProcessor: 未能找到符合条件的下一个 " + AccessibilityConfig.TARGET_IMAGE_CLASS + " 兄弟节点。");
-                }
-            }
-        } finally {
-            AccessibilityNodeUtils.recycleNodes(successNodes);
+    @Override
+    public void onScreenEvent(AccessibilityEventService service, ScreenEvent event) {
+        if (!isAdTaskRunning || event.getEventType() != AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED) {
+            return;
         }
-
-        // 只要任务没被重置，就安排下一次检测
-        if (isAdTaskRunning) {
-            adHandler.postDelayed(adCheckRunnable, CHECK_INTERVAL_MS);
+        AccessibilityNodeInfo source = event.getSource();
+        if (source == null || !AccessibilityConfig.TARGET_PACKAGE_NAME_1.equals(event.getPackageName())) {
+            return;
+        }
+        try (NodeScope scope = NodeScope.open(SCOPE_OWNER)) {
+            AccessibilityNodeInfo scopeRoot = scope.parentOf(source);
+            if (scopeRoot == null) {
+                // 事件源归事件所有，快照需要自己的一份
+                scopeRoot = scope.copyOf(source);
+            }
+            ScreenSnapshot scoped = scope.capture(scopeRoot);
+            if (tryCloseAd(service, scoped)) {
+                AccessibilityLog.i(TAG, "AdProcessor: 由内容变化事件触发关闭，子树节点数: ", scoped.size());
+            }
         }
     }
 
     /**
-     * 【新】查找锚点节点的下一个指定类名的兄弟节点。
-     * @param anchorNode 锚点节点 (例如，包含“领取成功”文本的节点)
-     * @param className  目标类名
-     * @return 找到的第一个符合条件的兄弟节点，如果没有则返回 null
+     * 广告播放期间只有 "领取成功" 的出现值得关注，内容变化由 onScreenEvent 在子树上检查，
+     * 倒计时等元素的频繁变化不再触发整窗口的遍历。
      */
-    private AccessibilityNodeInfo findNextSiblingImageByClass(AccessibilityNodeInfo anchorNode, String className) {
-        if (anchorNode == null || className == null) {
-            return null;
-        }
-
-        AccessibilityNodeInfo parent = anchorNode.getParent();
-
-        if (parent == null) {
-            return null;
-        }
-
-        try {
-            int anchorIndex = -1;
-            Rect anchorRect = new Rect();
-            Rect childRect = new Rect(); // 优化：在循环外创建，避免重复分配内存
-            anchorNode.getBoundsInScreen(anchorRect);
-
-            // 步骤 1: 找到锚点节点在父节点中的索引
-            for (int i = 0; i < parent.getChildCount(); i++) {
-                AccessibilityNodeInfo child = parent.getChild(i);
-                if (child != null) {
-                    child.getBoundsInScreen(childRect);
-//                    if (anchorRect.equals(childRect)) {
-//                        Log.d(TAG, "=====================================找到锚点节点在父节点中的索引: " + i);
-//                        Log.d(TAG, String.valueOf(anchorNode.getClassName()));
-//                        Log.d(TAG, String.valueOf(child.getClassName()));
-//                    } else {
-//                        Log.d(TAG, "。。。。。。。。。。。。。。。。。。。。。。。。。。。。。。未能找到锚点节点在父节点中的索引: " + i);
-//                    }
-                     if (anchorRect.equals(childRect) &&
-                             String.valueOf(anchorNode.getClassName()).equals(String.valueOf(child.getClassName()))) {
-                         Log.d(TAG, "=====================================找到锚点节点在父节点中的索引: " + i);
-                         Log.d(TAG, "找到锚点节点在父节点中的索引: " + i);
-                         anchorIndex = i;
-                         child.recycle(); // 回收用于比较的节点
-                         break; // 找到索引，跳出循环
-                     }
-                     Log.d(TAG, "。。。。。。。。。。。。。。。。。。。。。。。。。。。。。。未能找到锚点节点在父节点中的索引: " + i);
-                    child.recycle(); // 如果不是，也要回收
-                }
-            }
-
-            if (anchorIndex == -1) {
-                Log.w(TAG, "无法在父节点中定位到锚点节点。锚点: " + anchorNode);
-                return null;
-            }
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
 
-            // 步骤 2: 从锚点索引之后开始，查找第一个符合条件的兄弟节点
-            for (int i = anchorIndex + 1; i < parent.getChildCount(); i++) {
-                AccessibilityNodeInfo potentialTarget = parent.getChild(i);
-                if (potentialTarget != null) {
-                    if (className.equals(potentialTarget.getClassName().toString())) {
-                        // 找到了！所有权将转移给调用者。
-                        return potentialTarget;
-                    }
-                    // 如果不是目标，回收它并继续查找
-                    potentialTarget.recycle();
+    /**
+     * 在快照中查找 "领取成功" 并点击旁边的关闭按钮。
+     * @param service AccessibilityEventService 实例
+     * @param snapshot 整个窗口或变化子树的屏幕快照
+     * @return 成功点击关闭按钮并结束任务时返回 true
+     */
+    private boolean tryCloseAd(AccessibilityEventService service, ScreenSnapshot snapshot) {
+        // 步骤 1: 查找 "领取成功" 的锚点节点
+        AccessibilityNodeInfo triggerNode = snapshot.matchContentDescriptions(adMarkerMatcher).getFirst(AD_SUCCESS_CONTENT_DESC);
+        if (triggerNode != null) {
+            // 内容变化事件的路径上也会走到这里，日志级别关闭时不拼接字符串
+            AccessibilityLog.i(TAG, "AdProcessor: 检测到 '" + AD_SUCCESS_CONTENT_DESC + "'! 准备基于快照查找关闭按钮。");
+            AccessibilityLog.i(TAG, "AdProcessor: 锚点节点类名：", triggerNode.getClassName());
+
+            // 步骤 2: 查找锚点之后符合条件的兄弟节点。选择器在快照的节点数组上一次扫描完成，不发起 IPC
+            AccessibilityNodeInfo targetButton = snapshot.selectFirst(CLOSE_BUTTON_SELECTOR);
+            if (targetButton != null) {
+                Log.i(TAG, "AdProcessor: 找到目标关闭按钮 (基于快照)，准备点击。");
+                if (AccessibilityActionUtils.performClick(service, targetButton)) {
+                    Log.i(TAG, "AdProcessor: 成功点击关闭按钮，广告流程结束。");
+                    resetTaskState();
+                    return true;
+                } else {
+                    Log.w(TAG, "AdProcessor: 点击关闭按钮失败，将在下次变化或兜底检测时重试。");
                 }
+            } else {
+                Log.w(TAG, "AdProcessor: 未能找到符合条件的下一个 " + AccessibilityConfig.TARGET_IMAGE_CLASS + " 兄弟节点。");
             }
-        } finally {
-            // 操作完成后，回收父节点
-            parent.recycle();
         }
-
-        // 未找到符合条件的兄弟节点
-        return null;
+        return false;
     }
 
     /**
@@ -259,18 +192,28 @@ public class AdProcessor implements ScreenProcessor {
         if (adHandler != null && adCheckRunnable != null) {
             adHandler.removeCallbacks(adCheckRunnable);
         }
+        if (adService != null) {
+            adService.removeScreenEventListener(this);
+        }
         isAdTaskRunning = false;
         checkCounter = 0;
         adHandler = null;
         adCheckRunnable = null;
+        adService = null;
         Log.i(TAG, "AdProcessor: 任务状态已重置。");
     }
 
     /**
      * [新增] 从外部重置任务标志。
-     * 当服务状态重置时，需要调用此方法，以允许处理器可以处理下一个广告。
+     * 当服务状态重置时（同时会移除所有事件监听者），需要调用此方法，以允许处理器可以处理下一个广告。
      */
     public static void resetTaskFlag() {
         isAdTaskRunning = false;
     }
+
+    @Override
+    public RetryPolicy getRetryPolicy() {
+        // 广告页加载和倒计时都较慢，退避得远一些
+        return RetryPolicy.SLOW;
+    }
 }
@@ -0,0 +1,50 @@
+package com.tomato.processor;
+
+import com.tomato.utils.AccessibilityConfig;
+import com.tomato.utils.ProcessorContext;
+import com.tomato.utils.ScreenMatcher;
+import com.tomato.utils.ScreenSignature;
+import com.tomato.utils.ScreenView;
+
+/**
+ * 搜索结果页的识别：查找操作还没有完成、设置了要搜索的小说名，并且界面上有结果列表容器。
+ * 不依赖 Android，回放会话时直接在录制的界面上运行，FindAndClickNovelProcessor 在此之上查找并点击小说。
+ */
+public class FindAndClickNovelMatcher implements ScreenMatcher {
+
+    /** 处理器名称，规则文件中的 builtin 条目按它引用。 */
+    public static final String NAME = "FindAndClickNovelProcessor";
+
+    private static final ScreenSignature SIGNATURE = ScreenSignature.builder()
+            .requireViewId(AccessibilityConfig.SCROLLABLE_CONTAINER_ID)
+            .build();
+
+    @Override
+    public boolean canProcess(ProcessorContext context, ScreenView<?> screen) {
+        // 查找流程跨越多次滚动异步执行，运行期间不再重复启动
+        if (screen == null || context.isFlowRunning(NAME)) {
+            return false;
+        }
+        // 1. Check if this action is already completed
+        if (context.isActionCompleted(AccessibilityConfig.ACTION_ID_FIND_AND_CLICK_NOVEL)) {
+            return false;
+        }
+        // 2. Check if there is a novel name to search for
+        String novelNameToSearch = context.getNovelNameToSearch();
+        if (novelNameToSearch == null || novelNameToSearch.isEmpty()) {
+            return false;
+        }
+        // 3. Check for a characteristic of the search results page, e.g., the scrollable container
+        return screen.hasViewId(AccessibilityConfig.SCROLLABLE_CONTAINER_ID);
+    }
+
+    @Override
+    public ScreenSignature getSignature() {
+        return SIGNATURE;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -1,140 +1,239 @@
 package com.tomato.processor;
 
 import android.util.Log;
+import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
 
 import com.tomato.nativeaccessibility.AccessibilityEventService;
 import com.tomato.utils.AccessibilityActionUtils;
 import com.tomato.utils.AccessibilityConfig;
-import com.tomato.utils.AccessibilityNodeUtils;
+import com.tomato.utils.NodeScope;
+import com.tomato.utils.RetryPolicy;
+import com.tomato.utils.ScreenEvent;
+import com.tomato.utils.ScreenEventListener;
 import com.tomato.utils.ScreenProcessor;
+import com.tomato.utils.ScreenSnapshot;
 import com.tomato.utils.State;
 
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
-public class FindAndClickNovelProcessor implements ScreenProcessor {
+/**
+ * 在搜索结果页查找并点击目标小说。
+ * 查找是一个增量的状态机：每次滚动后不再固定等待，而是在列表容器发出滚动或内容变化事件时推进，
+ * 收不到事件时最多等待 SCROLL_TIMEOUT_MS。每一步只检查之前没见过的结果项。
+ */
+public class FindAndClickNovelProcessor extends FindAndClickNovelMatcher implements ScreenProcessor, ScreenEventListener {
 
     private static final int MAX_SCROLL_ATTEMPTS = 10; // To prevent infinite loops
+    // 滚动后等待列表事件的最长时间，超时后也会检查一次
+    private static final long SCROLL_TIMEOUT_MS = 1000;
+    // 同一次滚动会连续产生多个事件，稍等片刻合并成一次检查
+    private static final long EVENT_DEBOUNCE_MS = 80;
+    // 节点作用域的持有者名称，用于泄漏统计
+    private static final String SCOPE_OWNER = "FindAndClickNovelProcessor";
+
+    // Results of one scan step
+    private static final int RESULT_CLICKED = 0;
+    private static final int RESULT_FAILED = 1;
+    private static final int RESULT_NEW_ITEMS = 2;
+    private static final int RESULT_NO_NEW_ITEMS = 3;
+
+    // 查找流程跨越多次滚动在自动化线程上异步执行，运行期间不再重复启动
+    private static volatile boolean isSearchRunning = false;
+
+    // --- 查找状态，只在自动化线程上访问 ---
+    private AccessibilityEventService searchService;
+    private String targetNovelName;
+    // Use a set to keep track of visited nodes' text to detect end of scroll
+    private final Set<String> seenNodeTexts = new HashSet<>();
+    private int scrollCount;
+    // 列表容器节点的拷贝，收到容器的事件后记下，之后每一步只遍历容器的子树
+    private NodeScope listScope;
+    private AccessibilityNodeInfo listNode;
+    private final Runnable eventStep = () -> advance(false);
+    private final Runnable timeoutStep = () -> advance(true);
 
     @Override
-    public boolean canProcess(AccessibilityEventService service, AccessibilityNodeInfo rootNode) {
-        if (rootNode == null) {
-            return false;
-        }
-        // 1. Check if this action is already completed
-        if (service.getStateManager().isActionCompleted(AccessibilityConfig.ACTION_ID_FIND_AND_CLICK_NOVEL)) {
-            return false;
-        }
-        // 2. Check if there is a novel name to search for
+    public boolean process(AccessibilityEventService service, ScreenSnapshot snapshot) {
+        Log.i(AccessibilityConfig.TAG, "识别到搜索结果页，开始查找并点击目标小说...");
         String novelNameToSearch = State.getInstance().getNovelNameToSearch();
         if (novelNameToSearch == null || novelNameToSearch.isEmpty()) {
+            Log.w(AccessibilityConfig.TAG, "要查找的小说名为空，无法执行操作。");
             return false;
         }
-        // 3. Check for a characteristic of the search results page, e.g., the scrollable container
-        List<AccessibilityNodeInfo> scrollableNodes = null;
-        try {
-            scrollableNodes = AccessibilityNodeUtils.findNodesByResourceID(rootNode, AccessibilityConfig.SCROLLABLE_CONTAINER_ID);
-            return !scrollableNodes.isEmpty();
-        } finally {
-            if (scrollableNodes != null) {
-                for (AccessibilityNodeInfo node : scrollableNodes) {
-                    if (node != null) {
-                        node.recycle();
-                    }
-                }
+
+        // 上一次查找可能被服务重置打断，这里从头开始
+        service.getExecutor().cancel(eventStep);
+        service.getExecutor().cancel(timeoutStep);
+        releaseListNode();
+        seenNodeTexts.clear();
+        scrollCount = 0;
+        targetNovelName = novelNameToSearch;
+
+        int result = scan(service, snapshot);
+        if (result != RESULT_NEW_ITEMS) {
+            if (result == RESULT_NO_NEW_ITEMS) {
+                Log.w(AccessibilityConfig.TAG, "搜索结果列表为空，稍后重试。");
             }
+            return result == RESULT_CLICKED;
+        }
+        // If not found, try to scroll
+        if (!scrollDown(service, snapshot)) {
+            Log.w(AccessibilityConfig.TAG, "无法继续向下滑动，停止查找。");
+            return false;
         }
+
+        // 不在第一屏：注册事件监听，等列表滚动完成后继续
+        isSearchRunning = true;
+        searchService = service;
+        service.addScreenEventListener(this);
+        service.getExecutor().delay(SCROLL_TIMEOUT_MS, timeoutStep);
+        return true; // 返回 true 表示查找流程已启动
     }
 
     @Override
-    public boolean process(AccessibilityEventService service, AccessibilityNodeInfo rootNode) {
-        Log.i(AccessibilityConfig.TAG, "识别到搜索结果页，开始查找并点击目标小说...");
-        String novelNameToSearch = State.getInstance().getNovelNameToSearch();
-        if (novelNameToSearch == null || novelNameToSearch.isEmpty()) {
-            Log.w(AccessibilityConfig.TAG, "要查找的小说名为空，无法执行操作。");
-            return false;
+    public void onScreenEvent(AccessibilityEventService service, ScreenEvent event) {
+        if (!isSearchRunning) {
+            return;
         }
+        int eventType = event.getEventType();
+        if ((eventType == AccessibilityEvent.TYPE_VIEW_SCROLLED || eventType == AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED)
+                && event.isFromViewId(AccessibilityConfig.SCROLLABLE_CONTAINER_ID)) {
+            if (listNode == null) {
+                // 事件源归事件所有，这里保留一份拷贝
+                listScope = NodeScope.open(SCOPE_OWNER);
+                listNode = listScope.copyOf(event.getSource());
+            }
+            service.getExecutor().cancel(eventStep);
+            service.getExecutor().delay(EVENT_DEBOUNCE_MS, eventStep);
+        }
+    }
 
-        // Use a set to keep track of visited nodes' text to detect end of scroll
-        Set<String> seenNodeTexts = new HashSet<>();
-        boolean contentChangedAfterScroll = true;
-
-        for (int i = 0; i < MAX_SCROLL_ATTEMPTS && contentChangedAfterScroll; i++) {
-            List<AccessibilityNodeInfo> resultItems = null;
-            try {
-                resultItems = AccessibilityNodeUtils.findNodesByResourceID(rootNode, AccessibilityConfig.TARGET_FOR_SEARCH_RESULT_ITEM);
-                int newNodesCount = 0;
-
-                for (AccessibilityNodeInfo itemNode : resultItems) {
-                    CharSequence text = itemNode.getText();
-                    if (text != null) {
-                        String textStr = text.toString();
-                        if (seenNodeTexts.add(textStr)) {
-                            newNodesCount++;
-                        }
-
-                        if (novelNameToSearch.equals(textStr)) {
-                            Log.i(AccessibilityConfig.TAG, "找到目标小说: " + novelNameToSearch);
-                            // The item itself might not be clickable, but its parent is.
-                            // We need to find the clickable parent.
-                            AccessibilityNodeInfo clickableParent = findClickableParent(itemNode);
-                            if (clickableParent != null) {
-                                boolean clicked = AccessibilityActionUtils.performClick(service, clickableParent);
-                                if (clicked) {
-                                    Log.i(AccessibilityConfig.TAG, "成功点击小说: " + novelNameToSearch);
-                                    service.getStateManager().markActionAsCompleted(AccessibilityConfig.ACTION_ID_FIND_AND_CLICK_NOVEL);
-                                    clickableParent.recycle(); // Recycle the found clickable parent
-                                    return true;
-                                } else {
-                                    Log.w(AccessibilityConfig.TAG, "点击小说失败: " + novelNameToSearch);
-                                    clickableParent.recycle();
-                                    return false;
-                                }
-                            } else {
-                                Log.w(AccessibilityConfig.TAG, "找到了小说名，但其父节点不可点击。");
-                                return false; // Stop trying if we found it but can't click
-                            }
-                        }
-                    }
-                }
-                contentChangedAfterScroll = newNodesCount > 0;
-
-            } finally {
-                if (resultItems != null) {
-                    for (AccessibilityNodeInfo node : resultItems) {
-                        if (node != null) {
-                            node.recycle();
-                        }
-                    }
+    /**
+     * 查找期间列表容器负责自己的内容变化和滚动事件，搜索结果页不需要整窗口重新匹配。
+     */
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
+
+    /**
+     * 状态机的一步：列表发出事件或等待超时后，检查新出现的结果项。
+     * 已经知道列表容器时只遍历容器的子树，否则遍历整个窗口。
+     *
+     * @param timedOut 是否由超时触发。事件触发时列表可能还没有更新完，没有新内容也继续等待。
+     */
+    private void advance(boolean timedOut) {
+        AccessibilityEventService service = searchService;
+        if (!isSearchRunning || service == null) {
+            return;
+        }
+        // Snapshots taken after scrolling belong to us
+        try (NodeScope scope = NodeScope.open(SCOPE_OWNER)) {
+            ScreenSnapshot current = null;
+            if (listNode != null) {
+                AccessibilityNodeInfo container = scope.copyOf(listNode);
+                // refresh 失败说明容器已经不在界面上，退回整窗口
+                if (container.refresh()) {
+                    current = scope.capture(container);
                 }
             }
-
-            // If not found, try to scroll
-            if (!scrollDown(service, rootNode)) {
+            if (current == null) {
+                current = scope.capture(scope.root(service));
+            }
+            if (current == null) {
+                Log.w(AccessibilityConfig.TAG, "滚动后无法获取 rootNode。");
+                finishSearch();
+                return;
+            }
+            int result = scan(service, current);
+            if (result == RESULT_CLICKED || result == RESULT_FAILED) {
+                finishSearch();
+            } else if (result == RESULT_NO_NEW_ITEMS) {
+                if (timedOut) {
+                    // No new items since the last scroll: we have reached the end of the list
+                    Log.w(AccessibilityConfig.TAG, "列表中没有新的内容，停止查找: " + targetNovelName);
+                    finishSearch();
+                }
+            } else if (++scrollCount >= MAX_SCROLL_ATTEMPTS) {
+                Log.w(AccessibilityConfig.TAG, "滑动了 " + MAX_SCROLL_ATTEMPTS + " 次后仍未找到小说: " + targetNovelName);
+                finishSearch();
+            } else if (!scrollDown(service, current)) {
                 Log.w(AccessibilityConfig.TAG, "无法继续向下滑动，停止查找。");
-                break; // Stop if we can't scroll anymore
+                finishSearch();
+            } else {
+                // 新的一次滚动，重新开始等待
+                service.getExecutor().cancel(eventStep);
+                service.getExecutor().cancel(timeoutStep);
+                service.getExecutor().delay(SCROLL_TIMEOUT_MS, timeoutStep);
             }
+        }
+    }
 
-            // Wait a bit for the UI to settle after scroll
-            try {
-                Thread.sleep(1000); // 1-second delay
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                Log.e(AccessibilityConfig.TAG, "Scroll delay interrupted", e);
-                return false;
+    private void finishSearch() {
+        AccessibilityEventService service = searchService;
+        if (service != null) {
+            service.removeScreenEventListener(this);
+            service.getExecutor().cancel(eventStep);
+            service.getExecutor().cancel(timeoutStep);
+        }
+        releaseListNode();
+        searchService = null;
+        isSearchRunning = false;
+    }
+
+    private void releaseListNode() {
+        if (listScope != null) {
+            listScope.close();
+            listScope = null;
+            listNode = null;
+        }
+    }
+
+    /**
+     * 检查快照中之前没见过的结果项，找到目标小说则点击。
+     *
+     * @param service  AccessibilityService 实例。
+     * @param snapshot 当前窗口的屏幕快照。
+     * @return RESULT_* 之一。
+     */
+    private int scan(AccessibilityEventService service, ScreenSnapshot snapshot) {
+        int newNodesCount = 0;
+
+        for (AccessibilityNodeInfo itemNode : snapshot.findByViewId(AccessibilityConfig.TARGET_FOR_SEARCH_RESULT_ITEM)) {
+            CharSequence text = itemNode.getText();
+            if (text == null) {
+                continue;
             }
-            // Refresh rootNode after scroll
-            rootNode = service.getRootInActiveWindow();
-            if (rootNode == null) {
-                Log.w(AccessibilityConfig.TAG, "滚动后无法获取 rootNode。");
-                return false;
+            String textStr = text.toString();
+            if (!seenNodeTexts.add(textStr)) {
+                continue; // 上一步已经检查过
             }
-        }
+            newNodesCount++;
 
-        Log.w(AccessibilityConfig.TAG, "滑动了 " + MAX_SCROLL_ATTEMPTS + " 次后仍未找到小说: " + novelNameToSearch);
-        return false;
+            if (targetNovelName.equals(textStr)) {
+                Log.i(AccessibilityConfig.TAG, "找到目标小说: " + targetNovelName);
+                // The item itself might not be clickable, but its parent is.
+                // The snapshot keeps the parent links, so no extra IPC is needed here.
+                AccessibilityNodeInfo clickableParent = snapshot.findClickableAncestor(itemNode);
+                if (clickableParent != null) {
+                    boolean clicked = AccessibilityActionUtils.performClick(service, clickableParent);
+                    if (clicked) {
+                        Log.i(AccessibilityConfig.TAG, "成功点击小说: " + targetNovelName);
+                        service.getStateManager().markActionAsCompleted(AccessibilityConfig.ACTION_ID_FIND_AND_CLICK_NOVEL);
+                        return RESULT_CLICKED;
+                    } else {
+                        Log.w(AccessibilityConfig.TAG, "点击小说失败: " + targetNovelName);
+                        return RESULT_FAILED;
+                    }
+                } else {
+                    Log.w(AccessibilityConfig.TAG, "找到了小说名，但其父节点不可点击。");
+                    return RESULT_FAILED; // Stop trying if we found it but can't click
+                }
+            }
+        }
+        return newNodesCount > 0 ? RESULT_NEW_ITEMS : RESULT_NO_NEW_ITEMS;
     }
 
     /**
@@ -142,46 +241,55 @@ public class FindAndClickNovelProcessor implements ScreenProcessor {
      * 这个效果是通过一次“向上滑动”手势（手指从屏幕底部移动到顶部）来实现的。
      * 该方法会优先尝试标准的无障碍滚动操作，如果失败，则回退到通用的手势模拟。
      * @param service AccessibilityService 实例。
-     * @param rootNode 当前窗口的根节点。
+     * @param snapshot 当前窗口的屏幕快照。
      * @return 如果滚动操作成功派发，则返回 true。
      */
-    private boolean scrollDown(AccessibilityEventService service, AccessibilityNodeInfo rootNode) {
-        List<AccessibilityNodeInfo> scrollableNodes = AccessibilityNodeUtils.findNodesByResourceID(rootNode, AccessibilityConfig.SCROLLABLE_CONTAINER_ID);
-        try {
-            if (!scrollableNodes.isEmpty()) {
-                AccessibilityNodeInfo scrollableNode = scrollableNodes.get(0);
-                if (scrollableNode.isScrollable()) {
-                    Log.i(AccessibilityConfig.TAG, "找到可滚动节点，尝试 ACTION_SCROLL_FORWARD...");
-                    if (scrollableNode.performAction(AccessibilityNodeInfo.ACTION_SCROLL_FORWARD)) {
-                        Log.i(AccessibilityConfig.TAG, "ACTION_SCROLL_FORWARD 成功。");
-                        return true;
-                    }
-                    Log.w(AccessibilityConfig.TAG, "ACTION_SCROLL_FORWARD 失败，将回退到手势滑动。");
+    private boolean scrollDown(AccessibilityEventService service, ScreenSnapshot snapshot) {
+        AccessibilityNodeInfo scrollableNode = snapshot.findFirstByViewId(AccessibilityConfig.SCROLLABLE_CONTAINER_ID);
+        if (scrollableNode != null) {
+            if (scrollableNode.isScrollable()) {
+                Log.i(AccessibilityConfig.TAG, "找到可滚动节点，尝试 ACTION_SCROLL_FORWARD...");
+                if (scrollableNode.performAction(AccessibilityNodeInfo.ACTION_SCROLL_FORWARD)) {
+                    Log.i(AccessibilityConfig.TAG, "ACTION_SCROLL_FORWARD 成功。");
+                    return true;
                 }
-            } else {
-                Log.w(AccessibilityConfig.TAG, "未找到可滚动的容器 (ID: " + AccessibilityConfig.SCROLLABLE_CONTAINER_ID + ")，将直接尝试通用手势滑动。");
+                Log.w(AccessibilityConfig.TAG, "ACTION_SCROLL_FORWARD 失败，将回退到手势滑动。");
             }
-
-            // 回退方案：通用手势滑动
-            Log.i(AccessibilityConfig.TAG, "执行备用方案：通用手势向上滑动。");
-            return AccessibilityActionUtils.performGenericSwipeUp(service);
-        } finally {
-            AccessibilityNodeUtils.recycleNodes(scrollableNodes);
+        } else {
+            Log.w(AccessibilityConfig.TAG, "未找到可滚动的容器 (ID: " + AccessibilityConfig.SCROLLABLE_CONTAINER_ID + ")，将直接尝试通用手势滑动。");
         }
+
+        // 回退方案：通用手势滑动
+        Log.i(AccessibilityConfig.TAG, "执行备用方案：通用手势向上滑动。");
+        return AccessibilityActionUtils.performGenericSwipeUp(service);
     }
 
-    private AccessibilityNodeInfo findClickableParent(AccessibilityNodeInfo node) {
-        AccessibilityNodeInfo parent = node;
-        while (parent != null) {
-            if (parent.isClickable()) {
-                return parent;
-            }
-            AccessibilityNodeInfo temp = parent;
-            parent = parent.getParent();
-            if (temp != node) {
-                temp.recycle();
-            }
+    /**
+     * 从外部重置查找标志。
+     * 当服务状态重置并取消所有 Handler 任务、移除所有监听者时，需要调用此方法，以允许查找在下次检查时可以重新启动。
+     */
+    public static void resetSearchFlag() {
+        isSearchRunning = false;
+    }
+
+    @Override
+    public int getEventTypes(AccessibilityEventService service) {
+        if (service.getStateManager().isActionCompleted(AccessibilityConfig.ACTION_ID_FIND_AND_CLICK_NOVEL)) {
+            return 0;
         }
-        return null;
+        // 在搜索结果列表中查找依赖列表滚动的事件
+        return AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED | AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED
+                | AccessibilityEvent.TYPE_VIEW_SCROLLED;
+    }
+
+    @Override
+    public boolean isFlowRunning() {
+        return isSearchRunning;
+    }
+
+    @Override
+    public RetryPolicy getRetryPolicy() {
+        // 搜索结果需要等待网络加载，退避得远一些
+        return RetryPolicy.SLOW;
     }
 }
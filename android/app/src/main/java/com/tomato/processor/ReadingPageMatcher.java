@@ -0,0 +1,42 @@
+package com.tomato.processor;
+
+import com.tomato.utils.AccessibilityConfig;
+import com.tomato.utils.ProcessorContext;
+import com.tomato.utils.ScreenMatcher;
+import com.tomato.utils.ScreenView;
+
+/**
+ * 阅读页的识别：开启了自动阅读、翻页循环没有在运行，并且界面上有阅读页的特征 ID。
+ * 不依赖 Android，回放会话时直接在录制的界面上运行，ReadingPageProcessor 在此之上启动翻页循环。
+ */
+public class ReadingPageMatcher implements ScreenMatcher {
+
+    /** 处理器名称，规则文件中的 builtin 条目按它引用。 */
+    public static final String NAME = "ReadingPageProcessor";
+
+    @Override
+    public boolean canProcess(ProcessorContext context, ScreenView<?> screen) {
+        if (screen == null || context.isFlowRunning(NAME)) {
+            return false;
+        }
+        // 检查全局状态是否开启了自动阅读，并且当前确实在阅读页
+        return context.isAutoReading() && isReadingPage(screen);
+    }
+
+    /**
+     * 辅助方法，检查当前是否在阅读页面。
+     *
+     * @param screen 界面视图
+     * @return 如果是阅读页面则返回 true
+     */
+    private static boolean isReadingPage(ScreenView<?> screen) {
+        // 找到特征1或特征2，确认是阅读页
+        return screen.hasViewId(AccessibilityConfig.TARGET_FOR_READING_PAGE_FEATURE_1)
+                || screen.hasViewId(AccessibilityConfig.TARGET_FOR_READING_PAGE_FEATURE_2);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -1,24 +1,39 @@
 package com.tomato.processor;
 
+import android.accessibilityservice.AccessibilityService;
+import android.accessibilityservice.GestureDescription;
 import android.util.Log;
+import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
 
 import com.tomato.nativeaccessibility.AccessibilityEventService;
 import com.tomato.utils.AccessibilityActionUtils;
 import com.tomato.utils.AccessibilityConfig;
 import com.tomato.utils.AccessibilityNodeUtils;
+import com.tomato.utils.NodeCondition;
+import com.tomato.utils.NodeScope;
 import com.tomato.utils.ScreenProcessor;
+import com.tomato.utils.ScreenSnapshot;
+import com.tomato.utils.SearchBudget;
 import com.tomato.utils.State;
 
-import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 处理器，用于处理小说阅读页面，主要负责自动向左滑动翻页。
  */
-public class ReadingPageProcessor implements ScreenProcessor {
+public class ReadingPageProcessor extends ReadingPageMatcher implements ScreenProcessor {
+    // 节点作用域的持有者名称，用于泄漏统计
+    private static final String SCOPE_OWNER = "ReadingPageProcessor";
+    // 阅读页的两个特征 ID，出现任意一个即确认是阅读页
+    private static final NodeCondition READING_PAGE_FEATURES = AccessibilityNodeUtils.viewIdIn(
+            AccessibilityConfig.TARGET_FOR_READING_PAGE_FEATURE_1, AccessibilityConfig.TARGET_FOR_READING_PAGE_FEATURE_2);
     // 使用 volatile 保证多线程间的可见性
     private static volatile boolean isLoopRunning = false;
+    // 每次启动或重置循环都会递增。翻页在手势完成回调中才安排下一次，
+    // 重置之后迟到的回调靠它识别出自己属于旧循环，不会让旧循环复活
+    private static final AtomicInteger loopGeneration = new AtomicInteger();
 
     // 用于生成随机延迟
     private final Random random = new Random();
@@ -26,105 +41,119 @@ public class ReadingPageProcessor implements ScreenProcessor {
     private final int[] swipeDelays = { 4000, 5000, 6000, 7000 };
 
     @Override
-    public boolean canProcess(AccessibilityEventService service, AccessibilityNodeInfo rootNode) {
-        if (isLoopRunning) {
-            return false;
-        }
-        // 检查全局状态是否开启了自动阅读，并且当前确实在阅读页
-        return State.getInstance().isAutoReading() && isReadingPage(rootNode);
+    public int getEventTypes(AccessibilityEventService service) {
+        // 自动阅读关闭时不会启动翻页循环
+        return State.getInstance().isAutoReading()
+                ? AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED | AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED
+                : 0;
     }
 
     @Override
-    public boolean process(AccessibilityEventService service, AccessibilityNodeInfo rootNode) {
+    public boolean process(AccessibilityEventService service, ScreenSnapshot snapshot) {
         // canProcess 已经确认可以启动，这里直接启动循环
         Log.i(AccessibilityConfig.TAG, "识别到阅读页面和自动阅读指令，启动翻页循环...");
 
         isLoopRunning = true;
+        final int generation = loopGeneration.incrementAndGet();
 
-        // --- 新增的常量，用于重试逻辑 ---
-        final int MAX_RETRIES = 3; // 最大连续重试次数
-        final long RETRY_INTERVAL_MS = 2000; // 每次重试的间隔时间（1.5秒）
+        // 立即启动循环的第一次执行。整个循环共用一个任务对象和一个手势回调，
+        // 翻页会持续几个小时，每一页只剩手势队列里的一个排队请求
+        service.getHandler().post(new SwipeLoop(service, generation));
 
-        // 定义一个健壮的翻页任务
-        Runnable swipeRunnable = new Runnable() {
-            private int failureCount = 0; // 失败计数器
+        return true; // 返回 true 表示“启动循环”这个动作已成功处理
+    }
 
-            @Override
-            public void run() {
-                // 1. 检查全局开关，这是最优先的停止条件
-                if (!State.getInstance().isAutoReading()) {
-                    Log.i(AccessibilityConfig.TAG, "自动阅读状态已关闭，永久停止翻页循环。");
-                    isLoopRunning = false;
-                    return; // 彻底退出循环
+    /**
+     * 一次翻页循环。它既是被 Handler 反复调度的任务，也是翻页手势的结果回调：
+     * 滑动真正完成后才计划下一次检查，翻页间隔从手势结束开始计算。
+     */
+    private final class SwipeLoop extends AccessibilityService.GestureResultCallback implements Runnable {
+        private static final int MAX_RETRIES = 3; // 最大连续重试次数
+        private static final long RETRY_INTERVAL_MS = 2000; // 每次重试的间隔时间
+
+        private final AccessibilityEventService service;
+        private final int generation;
+        private int failureCount = 0; // 失败计数器
+
+        SwipeLoop(AccessibilityEventService service, int generation) {
+            this.service = service;
+            this.generation = generation;
+        }
+
+        @Override
+        public void run() {
+            if (generation != loopGeneration.get()) {
+                return; // 循环已被重置或重新启动
+            }
+            // 1. 检查全局开关，这是最优先的停止条件
+            if (!State.getInstance().isAutoReading()) {
+                Log.i(AccessibilityConfig.TAG, "自动阅读状态已关闭，永久停止翻页循环。");
+                isLoopRunning = false;
+                return; // 彻底退出循环
+            }
+
+            // 2. 检查当前是否仍在阅读页，本次检查取得的节点都在作用域结束时回收
+            boolean onReadingPage;
+            try (NodeScope scope = NodeScope.open(SCOPE_OWNER)) {
+                AccessibilityNodeInfo currentRoot = scope.root(service);
+                onReadingPage = currentRoot != null && isReadingPage(currentRoot);
+            }
+            if (onReadingPage) {
+                // 成功了，必须重置失败计数器！
+                if (failureCount > 0) {
+                    Log.i(AccessibilityConfig.TAG, "重试成功，已返回阅读页面。");
                 }
 
-                // 2. 检查当前是否仍在阅读页
-                AccessibilityNodeInfo currentRoot = service.getRootInActiveWindow();
-                if (currentRoot != null && isReadingPage(currentRoot)) {
-                    // 下面是成功识别到阅读页的逻辑
-
-                    // 成功了，必须重置失败计数器！
-                    if (failureCount > 0) {
-                        Log.i(AccessibilityConfig.TAG, "重试成功，已返回阅读页面。");
-                    }
-
-                    failureCount = 0; // 重置失败计数
-                    Log.d(AccessibilityConfig.TAG, "翻页循环: 在阅读页，执行一次向左滑动。");
-                    AccessibilityActionUtils.performGenericSwipeLeft(service);
-                    currentRoot.recycle();
-
-                    // 3. 成功滑动后，计划下一次检查
-                    long randomDelay = swipeDelays[random.nextInt(swipeDelays.length)];
-                    Log.d(AccessibilityConfig.TAG,
-                            "计划在 " + randomDelay + "ms 后进行下一次翻页。");
-                    service.getHandler().postDelayed(this, randomDelay);
+                failureCount = 0; // 重置失败计数
+                Log.d(AccessibilityConfig.TAG, "翻页循环: 在阅读页，执行一次向左滑动。");
+
+                // 3. 结果通过 onCompleted / onCancelled 回到本对象
+                if (!AccessibilityActionUtils.performGenericSwipeLeft(service, this)) {
+                    service.getHandler().postDelayed(this, RETRY_INTERVAL_MS);
+                }
+            } else {
+                // 不在阅读页（可能临时切换、弹窗等）
+                failureCount++;
+                Log.w(AccessibilityConfig.TAG, "翻页循环: 未在阅读页，尝试次数: " + failureCount);
+                if (failureCount < MAX_RETRIES) { // 最多重试3次
+                    // 等待一个很短的时间（比如2秒）再试几次，给弹窗消失的时间
+                    service.getHandler().postDelayed(this, RETRY_INTERVAL_MS);
                 } else {
-                    // 不在阅读页（可能临时切换、弹窗等）
-                    failureCount++;
-                    Log.w(AccessibilityConfig.TAG, "翻页循环: 未在阅读页，尝试次数: " + failureCount);
-                    if (currentRoot != null) {
-                        currentRoot.recycle();
-                    }
-                    if (failureCount < MAX_RETRIES) { // 最多重试3次
-                        // 等待一个很短的时间（比如2秒）再试几次，给弹窗消失的时间
-                        service.getHandler().postDelayed(this, RETRY_INTERVAL_MS);
-                    } else {
-                        // 已达到最大重试次数，确认已离开阅读页，彻底停止循环
-                        Log.e(AccessibilityConfig.TAG, "已连续重试 " + MAX_RETRIES + " 次仍未返回阅读页，停止翻页循环。");
-                        isLoopRunning = false;
-                    }
+                    // 已达到最大重试次数，确认已离开阅读页，彻底停止循环
+                    Log.e(AccessibilityConfig.TAG, "已连续重试 " + MAX_RETRIES + " 次仍未返回阅读页，停止翻页循环。");
+                    isLoopRunning = false;
                 }
             }
-        };
+        }
 
-        // 立即启动循环的第一次执行
-        service.getHandler().post(swipeRunnable);
+        @Override
+        public void onCompleted(GestureDescription gestureDescription) {
+            long randomDelay = swipeDelays[random.nextInt(swipeDelays.length)];
+            Log.d(AccessibilityConfig.TAG, "计划在 " + randomDelay + "ms 后进行下一次翻页。");
+            service.getHandler().postDelayed(this, randomDelay);
+        }
 
-        return true; // 返回 true 表示“启动循环”这个动作已成功处理
+        @Override
+        public void onCancelled(GestureDescription gestureDescription) {
+            Log.w(AccessibilityConfig.TAG, "翻页手势被取消，稍后重试。");
+            service.getHandler().postDelayed(this, RETRY_INTERVAL_MS);
+        }
     }
 
     /**
-     * 辅助方法，检查当前是否在阅读页面。
-     * 
+     * 辅助方法，检查根节点对应的窗口是否是阅读页面。
+     * 翻页循环只需要知道两个特征 ID 中是否有一个可见，找到第一个即停止，不可见的子树直接跳过。
+     *
      * @param rootNode 根节点
      * @return 如果是阅读页面则返回 true
      */
     private boolean isReadingPage(AccessibilityNodeInfo rootNode) {
-        List<AccessibilityNodeInfo> featureNodes1 = null;
-        List<AccessibilityNodeInfo> featureNodes2 = null;
-        try {
-            featureNodes1 = AccessibilityNodeUtils.findNodesByResourceID(rootNode,
-                    AccessibilityConfig.TARGET_FOR_READING_PAGE_FEATURE_1);
-            if (!featureNodes1.isEmpty()) {
-                return true; // 找到特征1，确认是阅读页
-            }
-            featureNodes2 = AccessibilityNodeUtils.findNodesByResourceID(rootNode,
-                    AccessibilityConfig.TARGET_FOR_READING_PAGE_FEATURE_2);
-            return !featureNodes2.isEmpty(); // 找到特征2，确认是阅读页
-        } finally {
-            AccessibilityNodeUtils.recycleNodes(featureNodes1);
-            AccessibilityNodeUtils.recycleNodes(featureNodes2);
-        }
+        return AccessibilityNodeUtils.exists(rootNode, READING_PAGE_FEATURES, SearchBudget.DEFAULT);
+    }
+
+    @Override
+    public boolean isFlowRunning() {
+        return isLoopRunning;
     }
 
     /**
@@ -133,5 +162,6 @@ public class ReadingPageProcessor implements ScreenProcessor {
      */
     public static void resetLoopFlag() {
         isLoopRunning = false;
+        loopGeneration.incrementAndGet();
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.tomato.processor;
+
+import com.tomato.utils.ProcessorContext;
+import com.tomato.utils.ScreenMatcher;
+import com.tomato.utils.ScreenRule;
+import com.tomato.utils.ScreenRuleSet;
+import com.tomato.utils.ScreenSignature;
+import com.tomato.utils.ScreenView;
+
+/**
+ * 规则处理器的界面识别部分：先检查状态守卫，再在共享的界面上检查界面条件。
+ * 不依赖 Android，回放会话时直接在录制的界面上运行，RuleProcessor 在此之上执行规则中的操作。
+ */
+public class RuleMatcher implements ScreenMatcher {
+
+    protected final ScreenRule rule;
+    protected final ScreenRuleSet ruleSet;
+
+    /**
+     * @param rule    要匹配的规则。
+     * @param ruleSet 规则所属的规则集，同一界面上的 desc / text 匹配结果在规则集内共享。
+     */
+    public RuleMatcher(ScreenRule rule, ScreenRuleSet ruleSet) {
+        this.rule = rule;
+        this.ruleSet = ruleSet;
+    }
+
+    @Override
+    public boolean canProcess(ProcessorContext context, ScreenView<?> screen) {
+        if (screen == null || !ruleSet.guardsPass(context, rule)) {
+            return false;
+        }
+        return ruleSet.matches(screen, rule);
+    }
+
+    @Override
+    public ScreenSignature getSignature() {
+        return rule.getSignature();
+    }
+
+    @Override
+    public String getName() {
+        return rule.getName();
+    }
+}
@@ -0,0 +1,126 @@
+package com.tomato.processor;
+
+import android.util.Log;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import com.tomato.nativeaccessibility.AccessibilityEventService;
+import com.tomato.utils.AccessibilityActionUtils;
+import com.tomato.utils.AccessibilityConfig;
+import com.tomato.utils.RetryPolicy;
+import com.tomato.utils.ScreenProcessor;
+import com.tomato.utils.ScreenRule;
+import com.tomato.utils.ScreenRuleSet;
+import com.tomato.utils.ScreenSnapshot;
+import com.tomato.utils.State;
+
+import java.util.Set;
+
+/**
+ * 由规则文件中的一条规则驱动的处理器。
+ * canProcess（见 RuleMatcher）先检查状态守卫，再在共享快照上检查界面条件；process 依次执行规则中的操作，
+ * 全部成功后把规则的 once 操作标记为已完成。任何一个操作失败都返回 false，按规则的重试策略重试整条规则。
+ */
+public class RuleProcessor extends RuleMatcher implements ScreenProcessor {
+
+    private static final String TAG = AccessibilityConfig.TAG;
+
+    /**
+     * @param rule    要执行的规则。
+     * @param ruleSet 规则所属的规则集，同一快照上的 desc / text 匹配结果在规则集内共享。
+     */
+    public RuleProcessor(ScreenRule rule, ScreenRuleSet ruleSet) {
+        super(rule, ruleSet);
+    }
+
+    @Override
+    public boolean process(AccessibilityEventService service, ScreenSnapshot snapshot) {
+        Log.i(TAG, "规则 " + rule.getName() + " 匹配，执行 " + rule.getActions().size() + " 个操作...");
+        for (ScreenRule.Action action : rule.getActions()) {
+            if (!perform(service, snapshot, action)) {
+                return false;
+            }
+        }
+        if (rule.getOnceActionId() != null) {
+            service.getStateManager().markActionAsCompleted(rule.getOnceActionId());
+        }
+        return true;
+    }
+
+    private boolean perform(AccessibilityEventService service, ScreenSnapshot snapshot, ScreenRule.Action action) {
+        if (action.getType() == ScreenRule.Action.SWIPE) {
+            boolean swiped = "left".equals(action.getArgument())
+                    ? AccessibilityActionUtils.performGenericSwipeLeft(service)
+                    : AccessibilityActionUtils.performGenericSwipeUp(service);
+            if (!swiped) {
+                Log.w(TAG, "规则 " + rule.getName() + ": 滑动 (" + action.getArgument() + ") 发起失败。");
+            }
+            return swiped;
+        }
+
+        // 节点归快照所有，不需要在这里回收
+        AccessibilityNodeInfo target = ruleSet.findFirst(snapshot, action.getTarget());
+        if (target == null) {
+            Log.w(TAG, "规则 " + rule.getName() + ": 未能找到目标节点 " + action.getTarget() + "，可能界面已变化。");
+            return false;
+        }
+
+        boolean performed;
+        switch (action.getType()) {
+            case ScreenRule.Action.CLICK:
+                performed = AccessibilityActionUtils.performClick(service, target);
+                break;
+            case ScreenRule.Action.INPUT:
+                String value = resolveValue(action.getArgument());
+                if (value == null) {
+                    Log.w(TAG, "规则 " + rule.getName() + ": 要输入的小说名为空，无法执行输入操作。");
+                    return false;
+                }
+                performed = AccessibilityActionUtils.performInput(service, target, value);
+                break;
+            case ScreenRule.Action.SCROLL:
+                performed = target.performAction("backward".equals(action.getArgument())
+                        ? AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD
+                        : AccessibilityNodeInfo.ACTION_SCROLL_FORWARD);
+                break;
+            default:
+                performed = false;
+                break;
+        }
+        if (!performed) {
+            Log.w(TAG, "规则 " + rule.getName() + ": 对 " + action.getTarget() + " 的操作发起失败。");
+        }
+        return performed;
+    }
+
+    /**
+     * 替换输入值中的占位符。
+     *
+     * @return 要输入的文本；需要小说名但还没有设置时返回 null。
+     */
+    private static String resolveValue(String value) {
+        if (!value.contains(ScreenRule.Action.NOVEL_NAME_PLACEHOLDER)) {
+            return value;
+        }
+        String novelName = State.getInstance().getNovelNameToSearch();
+        if (novelName == null || novelName.isEmpty()) {
+            return null;
+        }
+        return value.replace(ScreenRule.Action.NOVEL_NAME_PLACEHOLDER, novelName);
+    }
+
+    @Override
+    public int getEventTypes(AccessibilityEventService service) {
+        // 守卫不通过时规则不会匹配任何界面，例如只执行一次的操作已经完成
+        return ruleSet.guardsPass(service, rule) ? ScreenProcessor.super.getEventTypes(service) : 0;
+    }
+
+    @Override
+    public Set<String> getPackageNames() {
+        return rule.getPackageNames();
+    }
+
+    @Override
+    public RetryPolicy getRetryPolicy() {
+        return rule.getRetryPolicy();
+    }
+}
@@ -6,7 +6,6 @@ import android.os.Bundle;
 import android.util.Log;
 import android.graphics.Rect;
 import android.graphics.Path;
-import android.accessibilityservice.GestureDescription;
 import android.content.ClipData;
 import android.content.ClipboardManager;
 import android.content.Context;
@@ -41,15 +40,21 @@ public class AccessibilityActionUtils {
         }
         // 1. 尝试 ACTION_CLICK
         if (targetNode.isClickable()) {
-            Log.i(TAG, "performClick: Node (ID: " + targetNode.getViewIdResourceName() + ") is clickable, attempting ACTION_CLICK.");
+            if (AccessibilityLog.isDebugEnabled()) {
+                Log.d(TAG, "performClick: Node (ID: " + targetNode.getViewIdResourceName() + ") is clickable, attempting ACTION_CLICK.");
+            }
             if (targetNode.performAction(AccessibilityNodeInfo.ACTION_CLICK)) {
-                Log.i(TAG, "performClick: ACTION_CLICK successful on node (ID: " + targetNode.getViewIdResourceName() + ").");
+                if (AccessibilityLog.isLoggable(Log.INFO)) {
+                    Log.i(TAG, "performClick: ACTION_CLICK successful on node (ID: " + targetNode.getViewIdResourceName() + ").");
+                }
                 return true;
             } else {
                 Log.w(TAG, "performClick: ACTION_CLICK failed on node (ID: " + targetNode.getViewIdResourceName() + "). Falling back to gesture.");
             }
         } else {
-            Log.i(TAG, "performClick: Node (ID: " + targetNode.getViewIdResourceName() + ") is not directly clickable (isClickable=false). Attempting gesture click.");
+            if (AccessibilityLog.isLoggable(Log.INFO)) {
+                Log.i(TAG, "performClick: Node (ID: " + targetNode.getViewIdResourceName() + ") is not directly clickable (isClickable=false). Attempting gesture click.");
+            }
         }
         // 2. 如果 ACTION_CLICK 失败或不可点击，回退到手势模拟点击
         Rect bounds = new Rect();
@@ -60,7 +65,9 @@ public class AccessibilityActionUtils {
             return false;
         }
 
-        Log.i(TAG, "performClick: Performing gesture click on node (ID: " + targetNode.getViewIdResourceName() + ") at center (" + bounds.centerX() + ", " + bounds.centerY() + ").");
+        if (AccessibilityLog.isLoggable(Log.INFO)) {
+            Log.i(TAG, "performClick: Performing gesture click on node (ID: " + targetNode.getViewIdResourceName() + ") at center (" + bounds.centerX() + ", " + bounds.centerY() + ").");
+        }
         return clickByGesture(service, bounds.centerX(), bounds.centerY(), null);
     }
 
@@ -70,29 +77,18 @@ public class AccessibilityActionUtils {
      * @param service  AccessibilityService 实例，用于 dispatchGesture。
      * @param x        X坐标。
      * @param y        Y坐标。
-     * @param callback 可选的手势结果回调。
-     * @return 如果手势成功派发则返回 true，否则返回 false。
+     * @param callback 可选的手势结果回调，在手势真正完成或被取消时调用（主线程）。
+     * @return 如果手势成功进入手势队列则返回 true，否则返回 false。
      */
     public static boolean clickByGesture(AccessibilityService service, int x, int y, AccessibilityService.GestureResultCallback callback) {
-        Log.i(TAG, "clickByGesture: Performing gesture click at (" + x + ", " + y + ").");
-        Path path = new Path();
-        path.moveTo(x, y);
-
-        // 短暂按压模拟点击，50ms 可能适合大多数情况
-        GestureDescription.StrokeDescription stroke = new GestureDescription.StrokeDescription(path, 0, 50);
-        GestureDescription.Builder gestureBuilder = new GestureDescription.Builder().addStroke(stroke);
+        if (AccessibilityLog.isLoggable(Log.INFO)) {
+            Log.i(TAG, "clickByGesture: Performing gesture click at (" + x + ", " + y + ").");
+        }
 
-        AccessibilityService.GestureResultCallback localCallback = callback != null ? callback : new AccessibilityService.GestureResultCallback() {
-            @Override
-            public void onCompleted(GestureDescription gestureDescription) {
-                Log.i(TAG, "clickByGesture: Gesture completed at (" + x + ", " + y + ").");
-            }
-            @Override
-            public void onCancelled(GestureDescription gestureDescription) {
-                Log.w(TAG, "clickByGesture: Gesture cancelled at (" + x + ", " + y + ").");
-            }
-        };
-        return service.dispatchGesture(gestureBuilder.build(), localCallback, null);
+        // 取消时手势队列会带坐标记录日志，默认回调使用共享实例
+        AccessibilityService.GestureResultCallback localCallback = callback != null ? callback : GestureCatalog.LOGGING_CALLBACK;
+        // 短暂按压模拟点击，50ms 可能适合大多数情况。经由手势队列派发，不会打断正在执行的手势
+        return GestureQueue.of(service).enqueueTap(x, y, 50, localCallback);
     }
 
     /**
@@ -104,8 +100,8 @@ public class AccessibilityActionUtils {
      * @param endX        结束X坐标。
      * @param endY        结束Y坐标。
      * @param durationMs  滑动持续时间（毫秒）。
-     * @param callback    可选的手势结果回调。
-     * @return 如果手势成功派发则返回 true，否则返回 false。
+     * @param callback    可选的手势结果回调，在手势真正完成或被取消时调用（主线程）。
+     * @return 如果手势成功进入手势队列则返回 true，否则返回 false。
      */
     public static boolean performSwipe(AccessibilityService service,
                                        int startX, int startY,
@@ -122,20 +118,9 @@ public class AccessibilityActionUtils {
         path.moveTo(startX, startY);
         path.lineTo(endX, endY);
 
-        GestureDescription.StrokeDescription stroke = new GestureDescription.StrokeDescription(path, 0, durationMs);
-        GestureDescription.Builder gestureBuilder = new GestureDescription.Builder().addStroke(stroke);
-
-        AccessibilityService.GestureResultCallback localCallback = callback != null ? callback : new AccessibilityService.GestureResultCallback() {
-            @Override
-            public void onCompleted(GestureDescription gestureDescription) {
-                Log.i(TAG, "performSwipe: Gesture completed.");
-            }
-            @Override
-            public void onCancelled(GestureDescription gestureDescription) {
-                Log.w(TAG, "performSwipe: Gesture cancelled.");
-            }
-        };
-        return service.dispatchGesture(gestureBuilder.build(), localCallback, null);
+        AccessibilityService.GestureResultCallback localCallback = callback != null ? callback : GestureCatalog.LOGGING_CALLBACK;
+        String label = "swipe(" + startX + "," + startY + "->" + endX + "," + endY + ")";
+        return GestureQueue.of(service).enqueueStroke(path, durationMs, label, localCallback);
     }
 
     /**
@@ -234,51 +219,39 @@ public class AccessibilityActionUtils {
      * 这是当 ACTION_SCROLL_FORWARD 失败时的备用方案。
      *
      * @param service AccessibilityService 实例，用于获取屏幕尺寸和派发手势。
-     * @return 如果手势成功派发则返回 true，否则返回 false。
+     * @return 如果手势成功进入手势队列则返回 true，否则返回 false。
      */
     public static boolean performGenericSwipeUp(AccessibilityService service) {
-        // 获取屏幕尺寸
-        android.util.DisplayMetrics displayMetrics = service.getResources().getDisplayMetrics();
-        int screenHeight = displayMetrics.heightPixels;
-        int screenWidth = displayMetrics.widthPixels;
-
-        // 定义滑动的起始和结束点
-        // 从屏幕 80% 高度的中心位置滑动到 20% 高度的中心位置
-        int startX = screenWidth / 2;
-        int startY = (int) (screenHeight * 0.8);
-        int endX = screenWidth / 2;
-        int endY = (int) (screenHeight * 0.2);
-        long durationMs = 350; // 500毫秒的滑动时间
+        return performGenericSwipeUp(service, null);
+    }
 
-        Log.i(TAG, "performGenericSwipeUp: Performing generic swipe from (" + startX + "," + startY + ") to (" + endX + "," + endY + ")");
-        return performSwipe(service, startX
-                , startY, endX, endY, durationMs, null);
+    /**
+     * 与 performGenericSwipeUp(service) 相同，手势完成或取消时调用 callback。
+     */
+    public static boolean performGenericSwipeUp(AccessibilityService service, AccessibilityService.GestureResultCallback callback) {
+        // 手势按屏幕尺寸预先构建（见 GestureCatalog），这里只负责排队
+        return GestureQueue.of(service).enqueueGesture(GestureCatalog.get(service).getSwipeUp(),
+                GestureCatalog.SWIPE_UP_DURATION_MS, GestureCatalog.SWIPE_UP_LABEL,
+                callback != null ? callback : GestureCatalog.LOGGING_CALLBACK);
     }
 
     /**
      * [新增功能] 在屏幕上执行一次通用的向左滑动（从右到左），用于翻页。
      *
      * @param service AccessibilityService 实例，用于获取屏幕尺寸和派发手势。
-     * @return 如果手势成功派发则返回 true，否则返回 false。
+     * @return 如果手势成功进入手势队列则返回 true，否则返回 false。
      */
     public static boolean performGenericSwipeLeft(AccessibilityService service) {
-        // 获取屏幕尺寸
-        android.util.DisplayMetrics displayMetrics = service.getResources().getDisplayMetrics();
-        int screenHeight = displayMetrics.heightPixels;
-        int screenWidth = displayMetrics.widthPixels;
-
-        // 定义滑动的起始和结束点
-        // 从屏幕 80% 宽度的中心位置滑动到 20% 宽度的中心位置
-        // 为了避免触发边缘区域的特殊功能，我们将滑动范围稍微向内收缩
-        int startX = (int) (screenWidth * 0.85);
-        int startY = screenHeight / 2;
-        int endX = (int) (screenWidth * 0.15);
-        int endY = screenHeight / 2 + 5; // 增加一个微小的垂直位移，模拟更自然的手势
-        // 持续时间是关键。过长（像拖动）或过短（像点击）都可能无效。
-        // 500ms 是一个比较典型的“轻拂”手势时长，可以根据目标应用调整。
-        long durationMs = 500;
+        return performGenericSwipeLeft(service, null);
+    }
 
-        Log.i(TAG, "performGenericSwipeLeft: Performing generic swipe from (" + startX + "," + startY + ") to (" + endX + "," + endY + ")");
-        return performSwipe(service, startX, startY, endX, endY, durationMs, null);
+    /**
+     * 与 performGenericSwipeLeft(service) 相同，手势完成或取消时调用 callback。
+     */
+    public static boolean performGenericSwipeLeft(AccessibilityService service, AccessibilityService.GestureResultCallback callback) {
+        // 翻页循环会长时间反复调用这里，手势和默认回调都是共享的，每次只分配一个排队请求
+        return GestureQueue.of(service).enqueueGesture(GestureCatalog.get(service).getSwipeLeft(),
+                GestureCatalog.SWIPE_LEFT_DURATION_MS, GestureCatalog.SWIPE_LEFT_LABEL,
+                callback != null ? callback : GestureCatalog.LOGGING_CALLBACK);
     }
 }
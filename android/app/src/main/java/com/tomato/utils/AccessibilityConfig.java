@@ -109,16 +109,153 @@ public final class AccessibilityConfig {
      */
     public static final String TAG = "MyAccessibilityService";
 
+    /**
+     * 是否统计各持有者的存活节点数并报告泄漏（见 NodeLeakTracker），调试时打开。
+     */
+    public static final boolean NODE_LEAK_TRACKING = false;
+
+    /**
+     * 内存中追踪记录环形缓冲区的容量（条），写满后覆盖最旧的记录。
+     */
+    public static final int TRACE_BUFFER_CAPACITY = 1024;
+
+    /**
+     * 会话录制文件是否压缩（Deflate）。关闭后文件更大，但回放时可以直接内存映射读取。
+     */
+    public static final boolean SESSION_COMPRESS = true;
+
+    /**
+     * 会话录制中等待写入线程处理的最大记录数，超过后丢弃新的记录，避免写入跟不上时占用过多内存。
+     */
+    public static final int SESSION_MAX_PENDING_WRITES = 32;
+
+    // --- Screen Rules ---
+    /**
+     * 界面规则文件名。内置规则在 assets 下，覆盖文件在应用外部文件目录的 RULES_DIRECTORY 下。
+     */
+    public static final String RULES_FILE_NAME = "screen_rules.json";
+
+    /**
+     * 覆盖规则文件所在的目录名。
+     */
+    public static final String RULES_DIRECTORY = "rules";
+
+    /**
+     * 检查覆盖规则文件是否更新的最短间隔（毫秒）。
+     */
+    public static final long RULES_RELOAD_CHECK_INTERVAL_MS = 2000;
+
     // --- Retry Logic ---
     /**
-     * 查找节点的最大重试次数。
+     * 查找节点的最大重试次数（默认策略，包含第一次尝试）。
      */
     public static final int MAX_RETRY_ATTEMPTS = 5;
 
     /**
-     * 每次重试的间隔时间（毫秒）。
+     * 默认策略的首次重试间隔（毫秒），之后每次翻倍。
+     */
+    public static final long RETRY_DEFAULT_BASE_DELAY_MS = 250;
+
+    /**
+     * 默认策略的最大重试间隔（毫秒）。
+     */
+    public static final long RETRY_DEFAULT_MAX_DELAY_MS = 2000;
+
+    /**
+     * 过渡界面（没有任何处理器匹配）的首次重试间隔（毫秒），依次为 100、200、400……
+     */
+    public static final long RETRY_TRANSITION_BASE_DELAY_MS = 100;
+
+    /**
+     * 过渡界面的最大重试间隔（毫秒）。
+     */
+    public static final long RETRY_TRANSITION_MAX_DELAY_MS = 800;
+
+    /**
+     * 过渡界面的最大尝试次数。
+     */
+    public static final int RETRY_TRANSITION_MAX_ATTEMPTS = 6;
+
+    /**
+     * 慢界面（广告、搜索结果）的首次重试间隔（毫秒）。
+     */
+    public static final long RETRY_SLOW_BASE_DELAY_MS = 500;
+
+    /**
+     * 慢界面的最大重试间隔（毫秒）。
+     */
+    public static final long RETRY_SLOW_MAX_DELAY_MS = 4000;
+
+    /**
+     * 慢界面的最大尝试次数。
      */
-    public static final long RETRY_DELAY_MS = 1000;
+    public static final int RETRY_SLOW_MAX_ATTEMPTS = 6;
+
+    /**
+     * 重试间隔的随机抖动比例，0.2 表示在计算值的 ±20% 范围内浮动。
+     */
+    public static final double RETRY_JITTER_RATIO = 0.2;
+
+    /**
+     * 界面稳定耗时的指数加权平均系数，越大越偏向最近的观测值。
+     */
+    public static final double RETRY_SETTLE_EWMA_ALPHA = 0.3;
+
+    // --- Event Coalescing ---
+    /**
+     * 每个合并周期最多记录的事件来源类名数量。
+     */
+    public static final int COALESCE_MAX_SOURCES = 8;
+
+    // --- Tree Search ---
+    /**
+     * 一次遍历最多访问的节点数。
+     */
+    public static final int SEARCH_MAX_NODES = 4000;
+
+    /**
+     * 一次遍历的最大深度。
+     */
+    public static final int SEARCH_MAX_DEPTH = 64;
+
+    /**
+     * 编译好的节点选择器的缓存条目数。选择器大多是代码和规则文件中的常量，数量有限。
+     */
+    public static final int SELECTOR_CACHE_SIZE = 64;
+
+    /**
+     * 节点检索耗时达到该值（纳秒）时记为一次慢检索。命中客户端缓存的检索只要几微秒，
+     * 一次 binder 往返通常在一百微秒以上，但 GC 停顿和线程被抢占也会让缓存命中超过这个值。
+     */
+    public static final long SLOW_FETCH_THRESHOLD_NS = 50_000;
+
+    // --- Screen Fingerprint ---
+    /**
+     * 计算界面结构指纹时参与的最大深度，只看界面骨架，不受列表内容滚动的影响。
+     */
+    public static final int FINGERPRINT_MAX_DEPTH = 6;
+
+    /**
+     * 指纹 -> 处理器 决策缓存的最大条目数。
+     */
+    public static final int DECISION_CACHE_SIZE = 32;
+
+    /**
+     * 界面结构未变化时跳过调度的最长时间（毫秒），超过后即使指纹相同也重新完整匹配一次。
+     */
+    public static final long NO_MATCH_SKIP_TTL_MS = 10000;
+
+    // --- Mirror Tree ---
+    /**
+     * 是否维护目标窗口的镜像树。开启后界面没有变化的处理周期直接用镜像判断，不再抓取快照。
+     */
+    public static final boolean MIRROR_TREE_ENABLED = true;
+
+    /**
+     * 镜像树最长使用时间（毫秒），超过后即使没有收到窗口状态变化也由下一次快照重建，
+     * 防止漏掉的事件让镜像与窗口长期不一致。
+     */
+    public static final long MIRROR_MAX_AGE_MS = 10000;
 
     // --- Gesture Simulation ---
     /**
@@ -126,6 +263,16 @@ public final class AccessibilityConfig {
      */
     public static final long GESTURE_CLICK_DURATION_MS = 20;
 
+    /**
+     * 排队中的点击合并成一个多笔画手势时，相邻两次点击之间的间隔（毫秒）。
+     */
+    public static final long GESTURE_BATCH_TAP_GAP_MS = 60;
+
+    /**
+     * 手势结束后仍未收到系统回调的等待上限（毫秒），超过后按取消处理，避免手势队列卡住。
+     */
+    public static final long GESTURE_CALLBACK_TIMEOUT_MS = 1000;
+
     // --- Ad Closing Logic ---
     /**
      * 广告中“反馈”按钮的文本。
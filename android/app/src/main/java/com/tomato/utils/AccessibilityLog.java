@@ -0,0 +1,118 @@
+package com.tomato.utils;
+
+import android.util.Log;
+
+/**
+ * 带级别判断的日志门面。
+ * 事件回调、点击、状态查询这类热路径每秒可能被调用上百次，直接写 Log.d(TAG, "..." + x)
+ * 即使该级别的日志最终被丢弃，字符串也已经拼接好了。这里的方法先判断级别，未开启时什么都不做：
+ *
+ * <pre>
+ * AccessibilityLog.d(TAG, "开始第 ", attempt);          // 拼接只在开启调试日志时发生
+ * if (AccessibilityLog.isDebugEnabled()) {               // 多段拼接时整体加判断
+ *     Log.d(TAG, "..." + a + "..." + b);
+ * }
+ * </pre>
+ *
+ * 默认级别：AccessibilityConfig.TAG 被设置为可输出 DEBUG（adb shell setprop log.tag.MyAccessibilityService DEBUG）
+ * 时为 DEBUG，否则为 INFO。运行时可以通过 setMinLevel() 调整。
+ */
+public final class AccessibilityLog {
+
+    private static volatile int minLevel =
+            Log.isLoggable(AccessibilityConfig.TAG, Log.DEBUG) ? Log.DEBUG : Log.INFO;
+
+    private AccessibilityLog() {
+    }
+
+    /**
+     * @param level Log.VERBOSE ~ Log.ERROR，低于它的日志被跳过。
+     */
+    public static void setMinLevel(int level) {
+        minLevel = level;
+    }
+
+    public static int getMinLevel() {
+        return minLevel;
+    }
+
+    public static boolean isLoggable(int level) {
+        return level >= minLevel;
+    }
+
+    public static boolean isVerboseEnabled() {
+        return minLevel <= Log.VERBOSE;
+    }
+
+    public static boolean isDebugEnabled() {
+        return minLevel <= Log.DEBUG;
+    }
+
+    // --- VERBOSE ---
+
+    public static void v(String tag, String msg) {
+        if (minLevel <= Log.VERBOSE) {
+            Log.v(tag, msg);
+        }
+    }
+
+    // --- DEBUG ---
+
+    public static void d(String tag, String msg) {
+        if (minLevel <= Log.DEBUG) {
+            Log.d(tag, msg);
+        }
+    }
+
+    public static void d(String tag, String msg, long value) {
+        if (minLevel <= Log.DEBUG) {
+            Log.d(tag, msg + value);
+        }
+    }
+
+    public static void d(String tag, String msg, Object value) {
+        if (minLevel <= Log.DEBUG) {
+            Log.d(tag, msg + value);
+        }
+    }
+
+    // --- INFO ---
+
+    public static void i(String tag, String msg) {
+        if (minLevel <= Log.INFO) {
+            Log.i(tag, msg);
+        }
+    }
+
+    public static void i(String tag, String msg, long value) {
+        if (minLevel <= Log.INFO) {
+            Log.i(tag, msg + value);
+        }
+    }
+
+    public static void i(String tag, String msg, Object value) {
+        if (minLevel <= Log.INFO) {
+            Log.i(tag, msg + value);
+        }
+    }
+
+    // --- WARN / ERROR ---
+
+    public static void w(String tag, String msg) {
+        if (minLevel <= Log.WARN) {
+            Log.w(tag, msg);
+        }
+    }
+
+    public static void e(String tag, String msg) {
+        if (minLevel <= Log.ERROR) {
+            Log.e(tag, msg);
+        }
+    }
+
+    public static void e(String tag, String msg, Throwable tr) {
+        if (minLevel <= Log.ERROR) {
+            Log.e(tag, msg, tr);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import android.view.accessibility.AccessibilityNodeInfo;
 import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class AccessibilityNodeUtils {
@@ -16,54 +17,175 @@ public class AccessibilityNodeUtils {
      * @return 返回所有符合条件的节点列表 (节点为副本)，如果未找到则返回空列表。
      */
     public static List<AccessibilityNodeInfo> findNodesByResourceID(AccessibilityNodeInfo rootNode, String resourceId) {
-        Log.d(TAG, "findNodesByResourceID: 正在根据resourceId查找节点: " + resourceId);
+        AccessibilityLog.d(TAG, "findNodesByResourceID: 正在根据resourceId查找节点: ", resourceId);
         //  findAccessibilityNodeInfosByViewId 会从 rootNode 节点开始，递归地遍历该节点下的整个视图子树（包括它自己、它的所有子节点、孙子节点，以此类推），并找出所有 resource-id 与您提供的ID字符串相匹配的节点，然后将它们全部收集到一个 List 列表中返回。
         return rootNode.findAccessibilityNodeInfosByViewId(resourceId);
     }
 
     /**
-     * 【已修改】通过内容描述（content-desc）查找节点（包含匹配）。
-     * 由于系统没有只查找 content-desc 的原生 API，此方法通过递归手动实现。
+     * 生成一个 content-desc 包含指定文本的条件。
+     */
+    public static NodeCondition contentDescriptionContains(final String contentDesc) {
+        return node -> {
+            CharSequence currentContentDesc = node.getContentDescription();
+            return currentContentDesc != null && currentContentDesc.toString().contains(contentDesc);
+        };
+    }
+
+    /**
+     * 生成一个 view id 等于其中任意一个的条件。
+     */
+    public static NodeCondition viewIdIn(final String... viewIds) {
+        final List<String> candidates = Arrays.asList(viewIds);
+        return node -> {
+            String viewId = node.getViewIdResourceName();
+            return viewId != null && candidates.contains(viewId);
+        };
+    }
+
+    // --- 显式栈遍历引擎 ---
+    // 整个窗口的调度走 ScreenSnapshot；这里服务于快照之外只需要回答 “有没有” 的检查，
+    // 例如定时的兜底检测和翻页循环，它们命中第一个节点即可停止，并跳过不可见的子树
+
+    /**
+     * 判断子树中是否存在满足条件的节点。命中第一个即停止遍历。
      *
-     * @param rootNode    起始节点
-     * @param contentDesc 要查找的内容描述文本
-     * @return 包含该内容描述的节点列表
+     * @param rootNode  起始节点，所有权仍归调用者。
+     * @param condition 匹配条件。
+     * @param budget    遍历预算。
+     * @return 是否存在。
      */
-    public static List<AccessibilityNodeInfo> findNodesByContentDescriptionContains(AccessibilityNodeInfo rootNode, String contentDesc) {
-        List<AccessibilityNodeInfo> foundNodes = new ArrayList<>();
-        if (rootNode == null || contentDesc == null) {
-            return foundNodes; // 返回空列表，避免 NullPointerException
-        }
-        // 调用递归辅助函数开始查找
-        findNodesByContentDescriptionRecursive(rootNode, contentDesc, foundNodes);
-        return foundNodes;
+    public static boolean exists(AccessibilityNodeInfo rootNode, NodeCondition condition, SearchBudget budget) {
+        final boolean[] found = {false};
+        traverse(rootNode, budget, node -> {
+            if (condition.test(node)) {
+                found[0] = true;
+                return VISIT_STOP;
+            }
+            return VISIT_CONTINUE;
+        });
+        return found[0];
     }
 
     /**
-     * 用于递归查找的私有辅助方法。
+     * 按前序深度优先顺序查找第一个满足条件的节点，命中即停止遍历。
      *
-     * @param currentNode 当前正在检查的节点
-     * @param contentDesc 要查找的内容描述
-     * @param foundNodes  用于存放结果的列表
+     * @return 找到的节点（调用者负责回收），没有则返回 null。
+     */
+    public static AccessibilityNodeInfo findFirst(AccessibilityNodeInfo rootNode, NodeCondition condition, SearchBudget budget) {
+        final List<AccessibilityNodeInfo> found = new ArrayList<>(1);
+        traverse(rootNode, budget, node -> {
+            if (condition.test(node)) {
+                found.add(node);
+                return VISIT_KEEP | VISIT_STOP;
+            }
+            return VISIT_CONTINUE;
+        });
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * 按前序深度优先顺序查找所有满足条件的节点。
+     *
+     * @return 节点列表（调用者负责回收），没有则返回空列表。
+     */
+    public static List<AccessibilityNodeInfo> findAll(AccessibilityNodeInfo rootNode, NodeCondition condition, SearchBudget budget) {
+        final List<AccessibilityNodeInfo> found = new ArrayList<>();
+        traverse(rootNode, budget, node -> {
+            if (condition.test(node)) {
+                found.add(node);
+                return VISIT_KEEP;
+            }
+            return VISIT_CONTINUE;
+        });
+        return found;
+    }
+
+    private static final int VISIT_CONTINUE = 0;
+    // 访问者保留了该节点，遍历引擎不再回收它
+    private static final int VISIT_KEEP = 1;
+    // 立即结束遍历
+    private static final int VISIT_STOP = 2;
+
+    private interface NodeVisitor {
+        int visit(AccessibilityNodeInfo node);
+    }
+
+    /**
+     * 用显式栈按前序深度优先遍历子树。
+     * 每个通过 getChild 取得的节点在访问后都会被回收，除非访问者声明保留它；
+     * 起始节点永远不会被回收，访问者保留起始节点时得到的是一份副本。
+     * 提前结束或超出预算时，栈中剩余的节点也会全部回收。
      */
-    private static void findNodesByContentDescriptionRecursive(AccessibilityNodeInfo currentNode, String contentDesc, List<AccessibilityNodeInfo> foundNodes) {
-        if (currentNode == null) {
+    private static void traverse(AccessibilityNodeInfo rootNode, SearchBudget budget, NodeVisitor visitor) {
+        if (rootNode == null) {
             return;
         }
+        List<AccessibilityNodeInfo> stack = new ArrayList<>();
+        int[] depths = new int[16];
+        stack.add(rootNode);
+        depths[0] = 0;
+        int visited = 0;
 
-        // 1. 检查当前节点
-        CharSequence currentContentDesc = currentNode.getContentDescription();
-        if (currentContentDesc != null && currentContentDesc.toString().contains(contentDesc)) {
-            // 找到了！添加一个节点的副本到列表中
-            foundNodes.add(AccessibilityNodeInfo.obtain(currentNode));
-        }
+        try {
+            while (!stack.isEmpty()) {
+                int top = stack.size() - 1;
+                AccessibilityNodeInfo node = stack.remove(top);
+                int depth = depths[top];
+                boolean isRoot = node == rootNode;
+
+                if (++visited > budget.getMaxNodes()) {
+                    Log.w(TAG, "traverse: 已达到节点预算 " + budget.getMaxNodes() + "，提前结束遍历。");
+                    if (!isRoot) {
+                        node.recycle();
+                    }
+                    return;
+                }
+                // 不可见的子树直接剪掉，连同其子节点一起跳过
+                if (budget.isVisibleOnly() && !node.isVisibleToUser()) {
+                    if (!isRoot) {
+                        node.recycle();
+                    }
+                    continue;
+                }
 
-        // 2. 递归遍历所有子节点
-        for (int i = 0; i < currentNode.getChildCount(); i++) {
-            AccessibilityNodeInfo childNode = currentNode.getChild(i);
-            if (childNode != null) {
-                findNodesByContentDescriptionRecursive(childNode, contentDesc, foundNodes);
-                // 注意：这里不需要 recycle() childNode，因为它的所有权仍在父节点中
+                // 起始节点属于调用者，只把副本交给访问者
+                AccessibilityNodeInfo candidate = isRoot ? AccessibilityNodeInfo.obtain(node) : node;
+                int result = visitor.visit(candidate);
+                boolean kept = (result & VISIT_KEEP) != 0;
+                if (isRoot && !kept) {
+                    candidate.recycle();
+                }
+                if ((result & VISIT_STOP) != 0) {
+                    if (!kept && !isRoot) {
+                        node.recycle();
+                    }
+                    return;
+                }
+
+                if (depth < budget.getMaxDepth()) {
+                    // 逆序压栈，保证出栈顺序与递归的前序遍历一致
+                    for (int i = node.getChildCount() - 1; i >= 0; i--) {
+                        AccessibilityNodeInfo child = NodeFetcher.child(node, i);
+                        if (child != null) {
+                            if (stack.size() == depths.length) {
+                                depths = Arrays.copyOf(depths, depths.length * 2);
+                            }
+                            depths[stack.size()] = depth + 1;
+                            stack.add(child);
+                        }
+                    }
+                }
+
+                if (!kept && !isRoot) {
+                    node.recycle();
+                }
+            }
+        } finally {
+            for (AccessibilityNodeInfo remaining : stack) {
+                if (remaining != rootNode) {
+                    remaining.recycle();
+                }
             }
         }
     }
@@ -4,6 +4,8 @@ import android.util.Log;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 管理自动化流程中已完成操作的状态，以防止重复执行。
@@ -13,7 +15,11 @@ public class ActionStateManager {
 
     private static final String TAG = AccessibilityConfig.TAG + ".StateManager";
 
-    private final Set<String> completedActions = new HashSet<>();
+    // 自动化线程读写、React Native 线程重置，需要线程安全的集合
+    private final Set<String> completedActions = ConcurrentHashMap.newKeySet();
+
+    // 每次状态变化递增，用于让依赖状态的缓存（例如处理器决策缓存）失效
+    private final AtomicLong version = new AtomicLong();
 
     private static final ActionStateManager instance = new ActionStateManager();
 
@@ -30,7 +36,9 @@ public class ActionStateManager {
      */
     public void markActionAsCompleted(String actionIdentifier) {
         if (actionIdentifier != null && !actionIdentifier.isEmpty()) {
-            completedActions.add(actionIdentifier);
+            if (completedActions.add(actionIdentifier)) {
+                version.incrementAndGet();
+            }
             Log.i(TAG, "Action marked as completed: " + actionIdentifier);
         }
     }
@@ -44,11 +52,18 @@ public class ActionStateManager {
     public boolean isActionCompleted(String actionIdentifier) {
         boolean isCompleted = actionIdentifier != null && completedActions.contains(actionIdentifier);
         if (isCompleted) {
-            Log.d(TAG, "Check: Action '" + actionIdentifier + "' is already completed.");
+            AccessibilityLog.d(TAG, "Check: Action already completed: ", actionIdentifier);
         }
         return isCompleted;
     }
 
+    /**
+     * @return 当前已完成操作的副本，供会话录制记录处理器状态。
+     */
+    public Set<String> getCompletedActions() {
+        return new HashSet<>(completedActions);
+    }
+
     /**
      * 将一个操作标记为待处理（即，未完成），从而可以被执行。
      * 这对于在默认所有操作都完成的情况下，选择性地启用某个步骤很有用。
@@ -57,6 +72,7 @@ public class ActionStateManager {
      */
     public void markActionAsPending(String actionIdentifier) {
         if (actionIdentifier != null && completedActions.remove(actionIdentifier)) {
+            version.incrementAndGet();
             Log.i(TAG, "Action marked as PENDING (re-enabled): " + actionIdentifier);
         }
     }
@@ -73,6 +89,7 @@ public class ActionStateManager {
         completedActions.add(AccessibilityConfig.ACTION_ID_DISMISS_ADD_TO_HOME_DIALOG);
         completedActions.add(AccessibilityConfig.ACTION_ID_FIND_AND_CLICK_NOVEL);
         completedActions.add(AccessibilityConfig.ACTION_ID_CLICK_START_READING);
+        version.incrementAndGet();
     }
 
     public static ActionStateManager getInstance() {
@@ -86,5 +103,13 @@ public class ActionStateManager {
     public void resetState() {
         Log.i(TAG, "Resetting all action states to PENDING.");
         completedActions.clear();
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return 当前状态版本号，任何操作状态的变化都会使其递增。
+     */
+    public long getVersion() {
+        return version.get();
     }
 }
@@ -0,0 +1,83 @@
+package com.tomato.utils;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * 自动化流程专用的执行线程。
+ * 屏幕快照、处理器调度、重试和各处理器的循环任务都在这个线程上执行，
+ * 服务的主线程只负责接收无障碍事件和手势回调，不会被节点遍历或等待阻塞。
+ *
+ * 处理器需要等待界面稳定时，应使用 delay() 把后续步骤安排到稍后执行，
+ * 而不是调用 Thread.sleep()。
+ */
+public class AutomationExecutor {
+
+    private static final String TAG = AccessibilityConfig.TAG + ".Executor";
+
+    private final HandlerThread thread;
+    private final Handler handler;
+
+    public AutomationExecutor(String name) {
+        thread = new HandlerThread(name, Process.THREAD_PRIORITY_FOREGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        Log.i(TAG, "自动化线程已启动: " + name);
+    }
+
+    /**
+     * @return 自动化线程的 Handler。
+     */
+    public Handler getHandler() {
+        return handler;
+    }
+
+    /**
+     * @return 当前线程是否是自动化线程。
+     */
+    public boolean isCurrentThread() {
+        return thread.getLooper().isCurrentThread();
+    }
+
+    /**
+     * 在自动化线程上执行任务。
+     */
+    public void post(Runnable task) {
+        handler.post(task);
+    }
+
+    /**
+     * 非阻塞等待：delayMs 之后在自动化线程上继续执行 continuation。
+     * 等待期间线程可以处理其它任务，调用方应在 continuation 中重新获取界面状态。
+     *
+     * @param delayMs      等待时间（毫秒）。
+     * @param continuation 等待结束后要执行的后续步骤。
+     */
+    public void delay(long delayMs, Runnable continuation) {
+        handler.postDelayed(continuation, delayMs);
+    }
+
+    /**
+     * 取消尚未执行的后续步骤。
+     */
+    public void cancel(Runnable continuation) {
+        handler.removeCallbacks(continuation);
+    }
+
+    /**
+     * 取消所有尚未执行的任务。
+     */
+    public void cancelAll() {
+        handler.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * 结束自动化线程。已到期的任务会执行完，尚未到期的延迟任务被丢弃。
+     */
+    public void quit() {
+        thread.quitSafely();
+        Log.i(TAG, "自动化线程已退出。");
+    }
+}
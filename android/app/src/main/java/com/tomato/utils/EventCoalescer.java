@@ -0,0 +1,183 @@
+package com.tomato.utils;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.accessibility.AccessibilityEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 无障碍事件合并调度器。
+ * 每个窗口同一时刻最多只有一个挂起的处理周期：第一个事件负责安排周期，
+ * 周期执行前到达的同一窗口的事件只合并进这个周期，不再额外 postDelayed。
+ * 这样内容变化事件风暴下，Handler 队列长度和获取根节点的次数都保持常数级。
+ *
+ * 周期的执行时间以第一个事件为准，后续事件不会推迟它，避免持续的事件流让处理永远得不到执行。
+ * 事件在主线程提交，周期在 Handler 所在的线程执行，挂起列表的访问都加了同步。
+ */
+public class EventCoalescer {
+
+    private static final String TAG = AccessibilityConfig.TAG + ".Coalescer";
+
+    /**
+     * 一个挂起中的处理周期，记录被合并进来的事件信息。
+     */
+    public static final class PendingCycle {
+        private final int windowId;
+        private final String packageName;
+        private final long scheduledAt;
+        private int eventTypes;
+        private int eventCount;
+        private final Set<String> sources = new LinkedHashSet<>();
+
+        PendingCycle(int windowId, String packageName) {
+            this.windowId = windowId;
+            this.packageName = packageName;
+            this.scheduledAt = SystemClock.uptimeMillis();
+        }
+
+        void merge(AccessibilityEvent event) {
+            eventTypes |= event.getEventType();
+            eventCount++;
+            CharSequence className = event.getClassName();
+            if (className != null && sources.size() < AccessibilityConfig.COALESCE_MAX_SOURCES) {
+                sources.add(className.toString());
+            }
+        }
+
+        public int getWindowId() {
+            return windowId;
+        }
+
+        public String getPackageName() {
+            return packageName;
+        }
+
+        /**
+         * @return 被合并的所有事件类型的按位或。
+         */
+        public int getEventTypes() {
+            return eventTypes;
+        }
+
+        public boolean hasEventType(int eventType) {
+            return (eventTypes & eventType) != 0;
+        }
+
+        /**
+         * @return 合并进本周期的事件数量（包含第一个事件）。
+         */
+        public int getEventCount() {
+            return eventCount;
+        }
+
+        /**
+         * @return 事件来源的类名（去重，最多 COALESCE_MAX_SOURCES 个）。
+         */
+        public Set<String> getSources() {
+            return Collections.unmodifiableSet(sources);
+        }
+
+        /**
+         * @return 从安排周期到现在经过的时间（毫秒）。
+         */
+        public long getAgeMs() {
+            return SystemClock.uptimeMillis() - scheduledAt;
+        }
+
+        @Override
+        public String toString() {
+            return "PendingCycle{window=" + windowId
+                    + ", package=" + packageName
+                    + ", events=" + eventCount
+                    + ", types=0x" + Integer.toHexString(eventTypes)
+                    + ", sources=" + sources + "}";
+        }
+    }
+
+    /**
+     * 处理周期到期时的回调。
+     */
+    public interface Callback {
+        void onCycle(PendingCycle cycle);
+    }
+
+    private final Handler handler;
+    private final Callback callback;
+    // 窗口数量很少（目标应用 + 启动器弹窗），用列表比 Map 更省
+    private final List<PendingCycle> pending = new ArrayList<>(2);
+
+    public EventCoalescer(Handler handler, Callback callback) {
+        this.handler = handler;
+        this.callback = callback;
+    }
+
+    /**
+     * 提交一个事件。如果该事件所在窗口已有挂起的周期，只做合并。
+     *
+     * @param event   无障碍事件。
+     * @param delayMs 新周期的延迟时间（毫秒），只在需要新建周期时使用。
+     * @return 新安排了周期时返回 true，合并进已有周期时返回 false。
+     */
+    public synchronized boolean submit(AccessibilityEvent event, long delayMs) {
+        int windowId = event.getWindowId();
+        PendingCycle cycle = find(windowId);
+        if (cycle != null) {
+            cycle.merge(event);
+            if (AccessibilityLog.isDebugEnabled()) {
+                Log.d(TAG, "合并事件 " + AccessibilityEvent.eventTypeToString(event.getEventType())
+                        + " 到窗口 " + windowId + " 的挂起周期 (已合并 " + cycle.getEventCount() + " 个)。");
+            }
+            return false;
+        }
+
+        CharSequence packageName = event.getPackageName();
+        final PendingCycle newCycle = new PendingCycle(windowId, packageName == null ? null : packageName.toString());
+        newCycle.merge(event);
+        pending.add(newCycle);
+        // 以周期对象本身作为 token，取消时可以精确移除（带 token 的 postDelayed 需要 API 28，这里用 postAtTime）
+        handler.postAtTime(() -> {
+            synchronized (this) {
+                if (!pending.remove(newCycle)) {
+                    return;
+                }
+            }
+            if (newCycle.getEventCount() > 1 && AccessibilityLog.isDebugEnabled()) {
+                Log.d(TAG, "执行合并后的处理周期: " + newCycle);
+            }
+            callback.onCycle(newCycle);
+        }, newCycle, SystemClock.uptimeMillis() + delayMs);
+        return true;
+    }
+
+    /**
+     * @return 当前挂起的处理周期数量。
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 取消所有挂起的处理周期。
+     */
+    public synchronized void cancelAll() {
+        for (PendingCycle cycle : pending) {
+            handler.removeCallbacksAndMessages(cycle);
+        }
+        pending.clear();
+    }
+
+    private PendingCycle find(int windowId) {
+        for (PendingCycle cycle : pending) {
+            if (cycle.windowId == windowId) {
+                return cycle;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,99 @@
+package com.tomato.utils;
+
+import android.accessibilityservice.AccessibilityServiceInfo;
+import android.util.Log;
+import android.view.accessibility.AccessibilityEvent;
+
+import com.tomato.nativeaccessibility.AccessibilityEventService;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 运行时收窄的事件订阅。
+ *
+ * 系统在分发事件之前就按服务的订阅过滤，不在订阅内的事件不会唤醒本进程。这里按当前注册的处理器和流程状态
+ * 计算真正需要的事件类型和应用包名，通过 setServiceInfo 下发：
+ * 流程进行中时订阅所有活动处理器需要的事件类型，以及它们的界面所属的应用；镜像树和窗口根节点缓存
+ * 需要的事件始终包含在内。流程空闲时（没有待执行的操作、自动阅读关闭、没有监听者、没有在录制会话）
+ * 只保留目标应用的窗口状态变化，用户回到目标应用时由这个事件触发重新计算。
+ *
+ * 修改的是 getServiceInfo() 返回的对象，配置文件中的 flags、反馈类型等其他字段保持不变。
+ * 计算结果与上次下发的相同时不会重复调用 setServiceInfo。与调度器一样只在自动化线程上访问。
+ */
+public final class EventSubscription {
+
+    private static final String TAG = AccessibilityConfig.TAG + ".Subscription";
+
+    /**
+     * 空闲时的订阅：只等待目标应用的窗口状态变化。
+     */
+    private static final int IDLE_EVENT_TYPES = AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED;
+
+    /**
+     * 流程进行中始终订阅的事件：窗口状态变化让缓存的根节点失效。
+     * 不订阅 TYPE_WINDOWS_CHANGED：它不带包名，设置了 packageNames 时系统不会送达。
+     */
+    private static final int BASE_EVENT_TYPES = AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED;
+
+    /**
+     * 镜像树需要的事件：内容变化、滚动和文本变化都会修补镜像，少了任何一种镜像都会与窗口不一致。
+     */
+    private static final int MIRROR_EVENT_TYPES = AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED
+            | AccessibilityEvent.TYPE_VIEW_SCROLLED
+            | AccessibilityEvent.TYPE_VIEW_TEXT_CHANGED;
+
+    // 上次下发的订阅
+    private int appliedEventTypes = -1;
+    private String[] appliedPackageNames;
+
+    /**
+     * 重新计算订阅，与上次下发的不同时调用 setServiceInfo。
+     *
+     * @param service    无障碍服务。
+     * @param processors 当前注册的处理器。
+     * @param busy       流程是否在进行中，空闲时只保留最小订阅。
+     * @return 是否下发了新的订阅。
+     */
+    public boolean update(AccessibilityEventService service, List<ScreenProcessor> processors, boolean busy) {
+        int eventTypes;
+        Set<String> packages = new TreeSet<>();
+        if (busy) {
+            eventTypes = BASE_EVENT_TYPES;
+            if (AccessibilityConfig.MIRROR_TREE_ENABLED) {
+                eventTypes |= MIRROR_EVENT_TYPES;
+            }
+            for (ScreenProcessor processor : processors) {
+                int processorTypes = processor.getEventTypes(service);
+                if (processorTypes != 0) {
+                    eventTypes |= processorTypes;
+                    packages.addAll(processor.getPackageNames());
+                }
+            }
+        } else {
+            eventTypes = IDLE_EVENT_TYPES;
+        }
+        // 即使没有活动的处理器，也要收到目标应用的窗口状态变化，否则流程再也无法被唤醒
+        packages.add(AccessibilityConfig.TARGET_PACKAGE_NAME_1);
+        String[] packageNames = packages.toArray(new String[0]);
+        if (eventTypes == appliedEventTypes && Arrays.equals(packageNames, appliedPackageNames)) {
+            return false;
+        }
+
+        AccessibilityServiceInfo info = service.getServiceInfo();
+        if (info == null) {
+            // 服务尚未连接或已经断开
+            return false;
+        }
+        info.eventTypes = eventTypes;
+        info.packageNames = packageNames;
+        service.setServiceInfo(info);
+        appliedEventTypes = eventTypes;
+        appliedPackageNames = packageNames;
+        Log.i(TAG, (busy ? "收窄订阅: " : "流程空闲，最小订阅: ")
+                + AccessibilityEvent.eventTypeToString(eventTypes) + " 包: " + Arrays.toString(packageNames));
+        return true;
+    }
+}
@@ -0,0 +1,136 @@
+package com.tomato.utils;
+
+import android.accessibilityservice.AccessibilityService;
+import android.accessibilityservice.GestureDescription;
+import android.content.Context;
+import android.graphics.Path;
+import android.util.DisplayMetrics;
+import android.util.Log;
+
+/**
+ * 预先构建好的标准手势。
+ * 通用的向左翻页、向上滚动手势只依赖屏幕尺寸，每次都重新创建 Path、StrokeDescription
+ * 和 GestureDescription 没有意义。这里按显示配置（宽、高、密度）构建一次并缓存，
+ * 配置变化（旋转、分屏、改分辨率）后的第一次获取会自动重建。
+ *
+ * GestureDescription 构建后不可变，可以被多次派发，也可以跨线程共享。
+ */
+public final class GestureCatalog {
+
+    private static final String TAG = AccessibilityConfig.TAG + ".GestureCatalog";
+
+    // 手势时长，与原先 performGenericSwipe* 中的取值一致
+    public static final long SWIPE_LEFT_DURATION_MS = 500;
+    public static final long SWIPE_UP_DURATION_MS = 350;
+
+    // 用于日志的标签，使用常量避免每次派发都拼接字符串
+    public static final String SWIPE_LEFT_LABEL = "swipeLeft";
+    public static final String SWIPE_UP_LABEL = "swipeUp";
+
+    /**
+     * 调用方没有提供回调时使用的共享回调，只记录日志。
+     */
+    public static final AccessibilityService.GestureResultCallback LOGGING_CALLBACK =
+            new AccessibilityService.GestureResultCallback() {
+                @Override
+                public void onCompleted(GestureDescription gestureDescription) {
+                    Log.d(TAG, "Gesture completed.");
+                }
+
+                @Override
+                public void onCancelled(GestureDescription gestureDescription) {
+                    Log.w(TAG, "Gesture cancelled.");
+                }
+            };
+
+    private static volatile GestureCatalog current;
+
+    private final int widthPixels;
+    private final int heightPixels;
+    private final int densityDpi;
+
+    private final GestureDescription swipeLeft;
+    private final GestureDescription swipeUp;
+
+    private GestureCatalog(int widthPixels, int heightPixels, int densityDpi) {
+        this.widthPixels = widthPixels;
+        this.heightPixels = heightPixels;
+        this.densityDpi = densityDpi;
+
+        // 从屏幕 85% 宽度滑动到 15% 宽度，避开边缘区域的系统手势；
+        // 增加一个微小的垂直位移，模拟更自然的手势
+        swipeLeft = buildSwipe((int) (widthPixels * 0.85), heightPixels / 2,
+                (int) (widthPixels * 0.15), heightPixels / 2 + 5, SWIPE_LEFT_DURATION_MS);
+        // 从屏幕 80% 高度的中心位置滑动到 20% 高度的中心位置
+        swipeUp = buildSwipe(widthPixels / 2, (int) (heightPixels * 0.8),
+                widthPixels / 2, (int) (heightPixels * 0.2), SWIPE_UP_DURATION_MS);
+    }
+
+    /**
+     * 获取与当前显示配置对应的手势目录。配置没有变化时直接返回缓存，不分配任何对象。
+     *
+     * @param context 用于读取 DisplayMetrics，一般传入服务实例。
+     * @return 手势目录。
+     */
+    public static GestureCatalog get(Context context) {
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        GestureCatalog catalog = current;
+        if (catalog != null && catalog.matches(metrics)) {
+            return catalog;
+        }
+        synchronized (GestureCatalog.class) {
+            catalog = current;
+            if (catalog == null || !catalog.matches(metrics)) {
+                catalog = new GestureCatalog(metrics.widthPixels, metrics.heightPixels, metrics.densityDpi);
+                current = catalog;
+                Log.i(TAG, "按显示配置 " + metrics.widthPixels + "x" + metrics.heightPixels
+                        + "@" + metrics.densityDpi + "dpi 重建手势目录。");
+            }
+            return catalog;
+        }
+    }
+
+    /**
+     * 丢弃缓存，下一次 get() 时重新构建。一般不需要调用，get() 会自己发现配置变化。
+     */
+    public static void invalidate() {
+        current = null;
+    }
+
+    private boolean matches(DisplayMetrics metrics) {
+        return metrics.widthPixels == widthPixels
+                && metrics.heightPixels == heightPixels
+                && metrics.densityDpi == densityDpi;
+    }
+
+    private static GestureDescription buildSwipe(int startX, int startY, int endX, int endY, long durationMs) {
+        Path path = new Path();
+        path.moveTo(startX, startY);
+        path.lineTo(endX, endY);
+        return new GestureDescription.Builder()
+                .addStroke(new GestureDescription.StrokeDescription(path, 0, durationMs))
+                .build();
+    }
+
+    /**
+     * @return 从右向左的翻页手势。
+     */
+    public GestureDescription getSwipeLeft() {
+        return swipeLeft;
+    }
+
+    /**
+     * @return 从下向上的滚动手势。
+     */
+    public GestureDescription getSwipeUp() {
+        return swipeUp;
+    }
+
+    public int getWidthPixels() {
+        return widthPixels;
+    }
+
+    public int getHeightPixels() {
+        return heightPixels;
+    }
+}
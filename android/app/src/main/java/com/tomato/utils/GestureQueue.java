@@ -0,0 +1,367 @@
+package com.tomato.utils;
+
+import android.accessibilityservice.AccessibilityService;
+import android.accessibilityservice.GestureDescription;
+import android.graphics.Path;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 串行化的手势派发队列。
+ * 系统同一时刻只执行一个手势，新的 dispatchGesture 会取消正在执行的手势，
+ * 所以所有手势都经过这个队列：上一个手势完成（或取消）后才派发下一个。
+ *
+ * 1. 每个请求都可以带 GestureResultCallback，在手势真正完成或被取消时回调（主线程）；
+ * 2. 排队中相邻的点击会合并成一个多笔画手势，按顺序错开起始时间，省去中间的派发往返；
+ *    这些点击在入队时就已经决定好了，合并不会改变它们之间“不观察界面”的语义；
+ * 3. 记录每个手势从派发到完成的耗时。
+ *
+ * 每个 AccessibilityService 实例对应一个队列，通过 of() 获取。
+ */
+public class GestureQueue {
+
+    private static final String TAG = AccessibilityConfig.TAG + ".GestureQueue";
+
+    private static final Map<AccessibilityService, GestureQueue> QUEUES = new WeakHashMap<>();
+
+    /**
+     * 一个待派发的手势。点击请求可以被合并，合并后共享同一次派发。
+     * 请求本身同时充当系统回调和超时任务，预先构建好的手势每次派发只分配这一个对象。
+     */
+    private final class Request extends AccessibilityService.GestureResultCallback implements Runnable {
+        final boolean tap;
+        final String label;
+        // 预先构建好的手势（来自 GestureCatalog），为 null 时由 strokes 构建
+        final GestureDescription prebuilt;
+        List<GestureDescription.StrokeDescription> strokes;
+        AccessibilityService.GestureResultCallback callback;
+        List<AccessibilityService.GestureResultCallback> extraCallbacks; // 合并点击时其余请求的回调
+        long endTime; // 最后一笔结束的时间，相对手势开始
+        long dispatchedAt;
+        GestureDescription gesture;
+
+        Request(boolean tap, String label, GestureDescription prebuilt, long endTime,
+                AccessibilityService.GestureResultCallback callback) {
+            this.tap = tap;
+            this.label = label;
+            this.prebuilt = prebuilt;
+            this.endTime = endTime;
+            this.callback = callback;
+        }
+
+        void addStroke(GestureDescription.StrokeDescription stroke, AccessibilityService.GestureResultCallback strokeCallback) {
+            if (strokes == null) {
+                strokes = new ArrayList<>(1);
+            }
+            strokes.add(stroke);
+            endTime = Math.max(endTime, stroke.getStartTime() + stroke.getDuration());
+            if (strokeCallback == null) {
+                return;
+            }
+            if (callback == null) {
+                callback = strokeCallback;
+            } else {
+                if (extraCallbacks == null) {
+                    extraCallbacks = new ArrayList<>(1);
+                }
+                extraCallbacks.add(strokeCallback);
+            }
+        }
+
+        int strokeCount() {
+            return strokes == null ? 0 : strokes.size();
+        }
+
+        GestureDescription build() {
+            if (prebuilt != null) {
+                return prebuilt;
+            }
+            GestureDescription.Builder builder = new GestureDescription.Builder();
+            for (GestureDescription.StrokeDescription stroke : strokes) {
+                builder.addStroke(stroke);
+            }
+            return builder.build();
+        }
+
+        void notifyCallbacks(boolean completed) {
+            notify(callback, completed);
+            if (extraCallbacks != null) {
+                for (AccessibilityService.GestureResultCallback extra : extraCallbacks) {
+                    notify(extra, completed);
+                }
+            }
+        }
+
+        private void notify(AccessibilityService.GestureResultCallback target, boolean completed) {
+            if (target == null) {
+                return;
+            }
+            if (completed) {
+                target.onCompleted(gesture);
+            } else {
+                target.onCancelled(gesture);
+            }
+        }
+
+        @Override
+        public void onCompleted(GestureDescription gestureDescription) {
+            finish(this, true);
+        }
+
+        @Override
+        public void onCancelled(GestureDescription gestureDescription) {
+            finish(this, false);
+        }
+
+        /**
+         * 超时：回调丢失时（例如服务被中断）不能让队列永远卡住。
+         */
+        @Override
+        public void run() {
+            Log.w(TAG, "手势 " + label + " 超时未回调，按取消处理。");
+            finish(this, false);
+        }
+    }
+
+    private final AccessibilityService service;
+    // 手势回调和超时都在主线程处理
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ArrayDeque<Request> pending = new ArrayDeque<>();
+    private Request inFlight;
+
+    // --- 统计 ---
+    private long completedCount;
+    private long cancelledCount;
+    private long batchedTapCount;
+    private long lastLatencyMs = -1;
+    private long maxLatencyMs;
+    private long totalLatencyMs;
+
+    private GestureQueue(AccessibilityService service) {
+        this.service = service;
+    }
+
+    /**
+     * @return 该服务实例的手势队列。
+     */
+    public static GestureQueue of(AccessibilityService service) {
+        synchronized (QUEUES) {
+            GestureQueue queue = QUEUES.get(service);
+            if (queue == null) {
+                queue = new GestureQueue(service);
+                QUEUES.put(service, queue);
+            }
+            return queue;
+        }
+    }
+
+    /**
+     * 排队一次点击。
+     *
+     * @param x          X坐标。
+     * @param y          Y坐标。
+     * @param durationMs 按压时长（毫秒）。
+     * @param callback   可选的结果回调。
+     * @return 请求被接受时返回 true。
+     */
+    public boolean enqueueTap(int x, int y, long durationMs, AccessibilityService.GestureResultCallback callback) {
+        Path path = new Path();
+        path.moveTo(x, y);
+        return enqueue(path, durationMs, true, "tap(" + x + "," + y + ")", callback);
+    }
+
+    /**
+     * 排队一次单笔画手势（例如滑动）。
+     *
+     * @param path       手势路径。
+     * @param durationMs 持续时间（毫秒）。
+     * @param label      用于日志的描述。
+     * @param callback   可选的结果回调。
+     * @return 请求被接受时返回 true。
+     */
+    public boolean enqueueStroke(Path path, long durationMs, String label, AccessibilityService.GestureResultCallback callback) {
+        return enqueue(path, durationMs, false, label, callback);
+    }
+
+    /**
+     * 排队一个预先构建好的手势（见 GestureCatalog）。不会与其它手势合并。
+     *
+     * @param gesture    手势。
+     * @param durationMs 手势总时长（毫秒），用于计算回调超时。
+     * @param label      用于日志的描述，建议使用常量避免每次拼接字符串。
+     * @param callback   可选的结果回调。
+     * @return 请求被接受时返回 true。
+     */
+    public boolean enqueueGesture(GestureDescription gesture, long durationMs, String label,
+                                  AccessibilityService.GestureResultCallback callback) {
+        if (gesture == null) {
+            return false;
+        }
+        synchronized (this) {
+            pending.addLast(new Request(false, label, gesture, durationMs, callback));
+        }
+        dispatchNext();
+        return true;
+    }
+
+    private boolean enqueue(Path path, long durationMs, boolean tap, String label,
+                            AccessibilityService.GestureResultCallback callback) {
+        if (durationMs <= 0 || durationMs > GestureDescription.getMaxGestureDuration()) {
+            Log.w(TAG, "enqueue: 非法的手势时长 " + durationMs + "ms (" + label + ")。");
+            return false;
+        }
+        synchronized (this) {
+            Request last = pending.peekLast();
+            if (tap && canAppendTap(last, durationMs)) {
+                // 接在上一个排队点击之后，错开一点时间，避免被识别成多指同时点击
+                long startTime = last.endTime + AccessibilityConfig.GESTURE_BATCH_TAP_GAP_MS;
+                last.addStroke(new GestureDescription.StrokeDescription(path, startTime, durationMs), callback);
+                batchedTapCount++;
+                if (AccessibilityLog.isDebugEnabled()) {
+                    Log.d(TAG, "enqueue: " + label + " 与排队中的点击合并，共 " + last.strokeCount() + " 笔。");
+                }
+                return true;
+            }
+            Request request = new Request(tap, label, null, 0, null);
+            request.addStroke(new GestureDescription.StrokeDescription(path, 0, durationMs), callback);
+            pending.addLast(request);
+        }
+        dispatchNext();
+        return true;
+    }
+
+    private static boolean canAppendTap(Request last, long durationMs) {
+        if (last == null || !last.tap) {
+            return false;
+        }
+        long newEnd = last.endTime + AccessibilityConfig.GESTURE_BATCH_TAP_GAP_MS + durationMs;
+        return last.strokeCount() < GestureDescription.getMaxStrokeCount()
+                && newEnd <= GestureDescription.getMaxGestureDuration();
+    }
+
+    /**
+     * 如果当前没有手势在执行，派发队首的请求。
+     */
+    private void dispatchNext() {
+        while (true) {
+            final Request request;
+            synchronized (this) {
+                if (inFlight != null || pending.isEmpty()) {
+                    return;
+                }
+                request = pending.pollFirst();
+                inFlight = request;
+                request.dispatchedAt = SystemClock.uptimeMillis();
+            }
+
+            request.gesture = request.build();
+            if (service.dispatchGesture(request.gesture, request, mainHandler)) {
+                synchronized (this) {
+                    if (inFlight == request) {
+                        mainHandler.postDelayed(request, request.endTime + AccessibilityConfig.GESTURE_CALLBACK_TIMEOUT_MS);
+                    }
+                }
+                return;
+            }
+            Log.e(TAG, "dispatchGesture 失败: " + request.label);
+            finish(request, false);
+        }
+    }
+
+    private void finish(Request request, boolean completed) {
+        long latency;
+        synchronized (this) {
+            if (inFlight != request) {
+                return; // 超时后迟到的回调，已经处理过
+            }
+            inFlight = null;
+            mainHandler.removeCallbacks(request);
+            latency = SystemClock.uptimeMillis() - request.dispatchedAt;
+            lastLatencyMs = latency;
+            maxLatencyMs = Math.max(maxLatencyMs, latency);
+            if (completed) {
+                completedCount++;
+                totalLatencyMs += latency;
+            } else {
+                cancelledCount++;
+            }
+        }
+        MetricsRegistry.getInstance().recordGesture(latency, completed);
+        TraceBuffer.getInstance().record(0, TraceBuffer.NO_PROCESSOR,
+                completed ? TraceBuffer.OUTCOME_GESTURE_DONE : TraceBuffer.OUTCOME_GESTURE_CANCELLED, (int) latency);
+        if (!completed) {
+            Log.w(TAG, "手势 " + request.label + " 被取消，耗时 " + latency + "ms。");
+        }
+        request.notifyCallbacks(completed);
+        dispatchNext();
+    }
+
+    /**
+     * 丢弃所有尚未派发的手势，并通知它们的回调已取消。正在执行的手势不受影响。
+     */
+    public void clearPending() {
+        List<Request> dropped;
+        synchronized (this) {
+            dropped = new ArrayList<>(pending);
+            pending.clear();
+        }
+        for (Request request : dropped) {
+            request.notifyCallbacks(false);
+        }
+    }
+
+    /**
+     * @return 排队中（不含正在执行）的手势数量。
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return 是否有手势正在执行。
+     */
+    public synchronized boolean isBusy() {
+        return inFlight != null;
+    }
+
+    /**
+     * @return 最近一次手势从派发到回调的耗时（毫秒），还没有手势时返回 -1。
+     */
+    public synchronized long getLastLatencyMs() {
+        return lastLatencyMs;
+    }
+
+    /**
+     * @return 已完成手势的平均耗时（毫秒）。
+     */
+    public synchronized long getAverageLatencyMs() {
+        return completedCount == 0 ? 0 : totalLatencyMs / completedCount;
+    }
+
+    public synchronized long getMaxLatencyMs() {
+        return maxLatencyMs;
+    }
+
+    public synchronized long getCompletedCount() {
+        return completedCount;
+    }
+
+    public synchronized long getCancelledCount() {
+        return cancelledCount;
+    }
+
+    /**
+     * @return 被合并进其它手势的点击次数。
+     */
+    public synchronized long getBatchedTapCount() {
+        return batchedTapCount;
+    }
+}
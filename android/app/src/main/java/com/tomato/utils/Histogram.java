@@ -0,0 +1,133 @@
+package com.tomato.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 固定分桶的直方图。
+ * 分桶上界在创建时确定，记录一个值只需要一次二分查找和几次数组自增，不分配对象；
+ * 分位数按桶上界估算，精度取决于分桶，足够用来判断“哪个处理器慢、慢多少”。
+ *
+ * 记录和读取可能来自不同线程，方法都做了同步（竞争很少，开销可以忽略）。
+ */
+public final class Histogram {
+
+    /**
+     * 耗时类直方图的默认分桶（微秒）：50us ~ 5s，大致按 1-2.5-5 递增。
+     */
+    public static final long[] LATENCY_BOUNDS_US = {
+            50, 100, 250, 500,
+            1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000
+    };
+
+    /**
+     * 次数类直方图的默认分桶，例如一个处理周期经过几次重试才成功。
+     */
+    public static final long[] COUNT_BOUNDS = {0, 1, 2, 3, 4, 5, 6, 8, 12, 16};
+
+    /**
+     * 较大次数的分桶，例如一个处理周期中的跨进程调用次数。
+     */
+    public static final long[] LARGE_COUNT_BOUNDS = {0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000};
+
+    private final long[] bounds;
+    // 最后一个桶收集超过最大上界的值
+    private final long[] buckets;
+    private long count;
+    private long sum;
+    private long max;
+
+    public Histogram(long[] bounds) {
+        this.bounds = bounds.clone();
+        this.buckets = new long[bounds.length + 1];
+    }
+
+    /**
+     * 记录一个值。
+     */
+    public synchronized void record(long value) {
+        buckets[bucketOf(value)]++;
+        count++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * 记录从 startNanos 到现在经过的时间（以微秒记录）。
+     */
+    public void recordSinceNanos(long startNanos) {
+        record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    private int bucketOf(long value) {
+        int low = 0;
+        int high = bounds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (value <= bounds[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized long getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * 按桶上界估算分位数。落在最后一个（溢出）桶时返回记录到的最大值。
+     *
+     * @param quantile 0 ~ 1 之间的分位，例如 0.9。
+     */
+    public synchronized long getQuantile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return i < bounds.length ? Math.min(bounds[i], max) : max;
+            }
+        }
+        return max;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = 0;
+        }
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    /**
+     * @return 精简的摘要：count、mean、p50、p90、p99、max。
+     */
+    public synchronized Map<String, Object> toSummary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count);
+        summary.put("mean", getMean());
+        summary.put("p50", getQuantile(0.5));
+        summary.put("p90", getQuantile(0.9));
+        summary.put("p99", getQuantile(0.99));
+        summary.put("max", max);
+        return summary;
+    }
+}
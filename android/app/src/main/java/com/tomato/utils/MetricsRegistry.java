@@ -0,0 +1,234 @@
+package com.tomato.utils;
+
+import android.os.SystemClock;
+import android.view.accessibility.AccessibilityEvent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 运行指标：快照耗时、每个处理器 canProcess / process 的耗时、处理周期耗时、手势延迟、
+ * 重试次数、节点检索次数和按类型统计的事件数量。
+ *
+ * 耗时类直方图统一以微秒记录。记录操作不分配对象，只有 snapshot() 导出时才构建 Map，
+ * 导出结果通过 NativeAccessibilityModule.getMetrics() 交给 RN 侧展示。
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final long startedAt = SystemClock.uptimeMillis();
+
+    // --- 直方图 ---
+    private final Histogram snapshotUs = new Histogram(Histogram.LATENCY_BOUNDS_US);
+    private final Histogram cycleUs = new Histogram(Histogram.LATENCY_BOUNDS_US);
+    private final Histogram gestureUs = new Histogram(Histogram.LATENCY_BOUNDS_US);
+    private final Histogram attemptsToSuccess = new Histogram(Histogram.COUNT_BOUNDS);
+    private final Histogram slowFetchesPerCycle = new Histogram(Histogram.LARGE_COUNT_BOUNDS);
+
+    // 按处理器编号（注册顺序）保存，注册处理器时整体替换
+    private volatile String[] processorNames = new String[0];
+    private volatile Histogram[] canProcessUs = new Histogram[0];
+    private volatile Histogram[] processUs = new Histogram[0];
+
+    // --- 计数器 ---
+    // 事件类型是按位的常量，下标为其最低位的位置
+    private final AtomicLongArray eventsByType = new AtomicLongArray(32);
+    private final AtomicLong cyclesSkipped = new AtomicLong();
+    private final AtomicLong cyclesNoMatch = new AtomicLong();
+    private final AtomicLong retriesScheduled = new AtomicLong();
+    private final AtomicLong retriesExhausted = new AtomicLong();
+    private final AtomicLong gesturesCancelled = new AtomicLong();
+    // 经过 NodeFetcher 的节点检索次数，以及其中耗时超过 SLOW_FETCH_THRESHOLD_NS 的次数。
+    // 慢检索大多是跨进程调用，但也包括 GC 停顿和线程抢占，只能作为跨进程调用次数的上界参考
+    private final AtomicLong nodeFetches = new AtomicLong();
+    private final AtomicLong slowFetches = new AtomicLong();
+
+    private MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 按注册顺序设置处理器名称，并为每个处理器创建新的直方图。
+     */
+    public void setProcessorNames(String[] names) {
+        Histogram[] canProcess = new Histogram[names.length];
+        Histogram[] process = new Histogram[names.length];
+        for (int i = 0; i < names.length; i++) {
+            canProcess[i] = new Histogram(Histogram.LATENCY_BOUNDS_US);
+            process[i] = new Histogram(Histogram.LATENCY_BOUNDS_US);
+        }
+        canProcessUs = canProcess;
+        processUs = process;
+        processorNames = names.clone();
+    }
+
+    public void recordEvent(int eventType) {
+        if (eventType != 0) {
+            eventsByType.incrementAndGet(Integer.numberOfTrailingZeros(eventType));
+        }
+    }
+
+    public void recordSnapshot(long startNanos) {
+        snapshotUs.recordSinceNanos(startNanos);
+    }
+
+    public void recordCycle(long startNanos) {
+        cycleUs.recordSinceNanos(startNanos);
+    }
+
+    /**
+     * @param startNanos 检索开始的时间，耗时达到 SLOW_FETCH_THRESHOLD_NS 时记为一次慢检索。
+     */
+    public void recordNodeFetch(long startNanos) {
+        nodeFetches.incrementAndGet();
+        if (System.nanoTime() - startNanos >= AccessibilityConfig.SLOW_FETCH_THRESHOLD_NS) {
+            slowFetches.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return 到目前为止的慢检索次数，处理周期开始时记下，结束时交给 recordCycleSlowFetches。
+     */
+    public long getSlowFetchCount() {
+        return slowFetches.get();
+    }
+
+    /**
+     * @param slowFetchesAtStart 处理周期开始时 getSlowFetchCount() 的值。
+     */
+    public void recordCycleSlowFetches(long slowFetchesAtStart) {
+        slowFetchesPerCycle.record(slowFetches.get() - slowFetchesAtStart);
+    }
+
+    public void recordCanProcess(int processorId, long startNanos) {
+        Histogram[] histograms = canProcessUs;
+        if (processorId >= 0 && processorId < histograms.length) {
+            histograms[processorId].recordSinceNanos(startNanos);
+        }
+    }
+
+    public void recordProcess(int processorId, long startNanos) {
+        Histogram[] histograms = processUs;
+        if (processorId >= 0 && processorId < histograms.length) {
+            histograms[processorId].recordSinceNanos(startNanos);
+        }
+    }
+
+    /**
+     * @param latencyMs 手势从派发到回调的耗时（毫秒）。
+     * @param completed 是否完成（否则为取消）。
+     */
+    public void recordGesture(long latencyMs, boolean completed) {
+        gestureUs.record(latencyMs * 1000);
+        if (!completed) {
+            gesturesCancelled.incrementAndGet();
+        }
+    }
+
+    public void recordCycleSkipped() {
+        cyclesSkipped.incrementAndGet();
+    }
+
+    public void recordNoMatch() {
+        cyclesNoMatch.incrementAndGet();
+    }
+
+    public void recordRetryScheduled() {
+        retriesScheduled.incrementAndGet();
+    }
+
+    public void recordRetryExhausted() {
+        retriesExhausted.incrementAndGet();
+    }
+
+    /**
+     * @param attempt 处理成功时的尝试序号，0 表示第一次就成功。
+     */
+    public void recordSuccess(int attempt) {
+        attemptsToSuccess.record(attempt);
+    }
+
+    /**
+     * 清空所有统计，处理器名称保持不变。
+     */
+    public void reset() {
+        snapshotUs.reset();
+        cycleUs.reset();
+        gestureUs.reset();
+        attemptsToSuccess.reset();
+        slowFetchesPerCycle.reset();
+        for (Histogram histogram : canProcessUs) {
+            histogram.reset();
+        }
+        for (Histogram histogram : processUs) {
+            histogram.reset();
+        }
+        for (int i = 0; i < eventsByType.length(); i++) {
+            eventsByType.set(i, 0);
+        }
+        cyclesSkipped.set(0);
+        cyclesNoMatch.set(0);
+        retriesScheduled.set(0);
+        retriesExhausted.set(0);
+        gesturesCancelled.set(0);
+        nodeFetches.set(0);
+        slowFetches.set(0);
+    }
+
+    /**
+     * 导出当前指标的精简快照。耗时单位为微秒，没有数据的处理器和事件类型会被省略。
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("uptimeMs", SystemClock.uptimeMillis() - startedAt);
+
+        Map<String, Object> events = new LinkedHashMap<>();
+        for (int i = 0; i < eventsByType.length(); i++) {
+            long count = eventsByType.get(i);
+            if (count > 0) {
+                events.put(AccessibilityEvent.eventTypeToString(1 << i), count);
+            }
+        }
+        result.put("events", events);
+
+        Map<String, Object> counters = new LinkedHashMap<>();
+        counters.put("cyclesSkipped", cyclesSkipped.get());
+        counters.put("cyclesNoMatch", cyclesNoMatch.get());
+        counters.put("retriesScheduled", retriesScheduled.get());
+        counters.put("retriesExhausted", retriesExhausted.get());
+        counters.put("gesturesCancelled", gesturesCancelled.get());
+        counters.put("nodeFetches", nodeFetches.get());
+        counters.put("slowFetches", slowFetches.get());
+        result.put("counters", counters);
+
+        Map<String, Object> histograms = new LinkedHashMap<>();
+        histograms.put("snapshotUs", snapshotUs.toSummary());
+        histograms.put("cycleUs", cycleUs.toSummary());
+        histograms.put("gestureUs", gestureUs.toSummary());
+        histograms.put("attemptsToSuccess", attemptsToSuccess.toSummary());
+        histograms.put("slowFetchesPerCycle", slowFetchesPerCycle.toSummary());
+        result.put("histograms", histograms);
+
+        String[] names = processorNames;
+        Histogram[] canProcess = canProcessUs;
+        Histogram[] process = processUs;
+        Map<String, Object> processors = new LinkedHashMap<>();
+        for (int i = 0; i < names.length && i < canProcess.length && i < process.length; i++) {
+            if (canProcess[i].getCount() == 0 && process[i].getCount() == 0) {
+                continue;
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("canProcessUs", canProcess[i].toSummary());
+            entry.put("processUs", process[i].toSummary());
+            processors.put(names[i], entry);
+        }
+        result.put("processors", processors);
+        return result;
+    }
+}
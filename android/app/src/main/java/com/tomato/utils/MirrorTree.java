@@ -0,0 +1,459 @@
+package com.tomato.utils;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 目标窗口的镜像树：用普通 Java 对象保存窗口的节点属性和层级，查询时不发起任何 IPC。
+ *
+ * 维护方式：
+ * 1. 窗口状态变化时镜像失效，下一个处理周期抓取快照时顺便由快照重建，不额外遍历；
+ * 2. 内容变化、滚动和文本变化事件只重新读取事件源的子树并替换到镜像中。
+ *    只涉及文本、content-desc 等属性的内容变化只更新事件源这一个节点，不读取子节点；
+ * 3. 事件源不在镜像中、没有事件源或者来自别的窗口时，镜像直接失效，等下一次重建。
+ *
+ * 每次镜像真正发生变化（重建，或者替换后的子树与原来不同）时代数加一，
+ * 缓存可以用代数判断界面是否真的变化过；结构指纹按代数缓存，代数不变时不重新计算。
+ *
+ * 节点按 AccessibilityNodeInfo.hashCode() 对应，它由源 view 的编号和窗口编号决定，同一个 view 不变。
+ * 镜像只在自动化线程上访问。
+ */
+public final class MirrorTree {
+
+    private static final String TAG = AccessibilityConfig.TAG + ".Mirror";
+
+    // 只改变节点自身属性、不改变子树结构的内容变化类型
+    private static final int ATTRIBUTE_CHANGE_TYPES = AccessibilityEvent.CONTENT_CHANGE_TYPE_TEXT
+            | AccessibilityEvent.CONTENT_CHANGE_TYPE_CONTENT_DESCRIPTION
+            | AccessibilityEvent.CONTENT_CHANGE_TYPE_STATE_DESCRIPTION;
+
+    /**
+     * 镜像中的一个节点。属性在节点被替换前保持不变，调用方不要修改。
+     */
+    public static final class Node {
+        final int key;
+        String className;
+        String viewId;
+        String text;
+        String contentDesc;
+        boolean clickable;
+        boolean visible;
+        boolean scrollable;
+        boolean editable;
+        Node parent;
+        final List<Node> children = new ArrayList<>(2);
+
+        Node(AccessibilityNodeInfo source) {
+            this.key = source.hashCode();
+            copyAttributes(source);
+        }
+
+        void copyAttributes(AccessibilityNodeInfo source) {
+            className = toStringOrNull(source.getClassName());
+            viewId = source.getViewIdResourceName();
+            text = toStringOrNull(source.getText());
+            contentDesc = toStringOrNull(source.getContentDescription());
+            clickable = source.isClickable();
+            visible = source.isVisibleToUser();
+            scrollable = source.isScrollable();
+            editable = source.isEditable();
+        }
+
+        boolean sameAttributes(Node other) {
+            return key == other.key
+                    && Objects.equals(className, other.className)
+                    && Objects.equals(viewId, other.viewId)
+                    && Objects.equals(text, other.text)
+                    && Objects.equals(contentDesc, other.contentDesc)
+                    && clickable == other.clickable
+                    && visible == other.visible
+                    && scrollable == other.scrollable
+                    && editable == other.editable;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getViewIdResourceName() {
+            return viewId;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getContentDescription() {
+            return contentDesc;
+        }
+
+        public boolean isClickable() {
+            return clickable;
+        }
+
+        public boolean isVisibleToUser() {
+            return visible;
+        }
+
+        public boolean isScrollable() {
+            return scrollable;
+        }
+
+        public boolean isEditable() {
+            return editable;
+        }
+
+        /**
+         * @return 父节点，根节点返回 null。
+         */
+        public Node getParent() {
+            return parent;
+        }
+
+        public List<Node> getChildren() {
+            return Collections.unmodifiableList(children);
+        }
+    }
+
+    private Node root;
+    private int windowId = -1;
+    private long builtAtMs;
+    private long generation;
+    private int nodeCount;
+
+    private final Map<Integer, Node> byKey = new HashMap<>();
+    // view id / content-desc -> 出现次数，子树替换时增减
+    private final Map<String, Integer> viewIdCounts = new HashMap<>();
+    private final Map<String, Integer> contentDescCounts = new HashMap<>();
+
+    private long fingerprint;
+    private long fingerprintGeneration = -1;
+
+    /**
+     * 用本轮抓取的快照重建镜像。
+     */
+    public void rebuild(ScreenSnapshot snapshot) {
+        clear();
+        List<Node> built = convert(snapshot);
+        root = built.get(0);
+        windowId = snapshot.getRoot().getWindowId();
+        builtAtMs = SystemClock.uptimeMillis();
+        addToIndex(root);
+        generation++;
+    }
+
+    /**
+     * 判断镜像能否代表当前窗口：镜像有效、根节点相同，且距离上次重建不超过 MIRROR_MAX_AGE_MS。
+     * 超时后要求重建一次，防止漏掉的事件让镜像与窗口长期不一致。
+     *
+     * @param rootNode 当前活动窗口的根节点。
+     */
+    public boolean isCurrent(AccessibilityNodeInfo rootNode) {
+        return root != null
+                && rootNode.getWindowId() == windowId
+                && rootNode.hashCode() == root.key
+                && SystemClock.uptimeMillis() - builtAtMs < AccessibilityConfig.MIRROR_MAX_AGE_MS;
+    }
+
+    /**
+     * 使镜像失效，下一个处理周期会重建。
+     */
+    public void invalidate(String reason) {
+        if (root != null && AccessibilityLog.isDebugEnabled()) {
+            Log.d(TAG, "镜像失效: " + reason);
+        }
+        clear();
+    }
+
+    /**
+     * 根据一个事件更新镜像。
+     */
+    public void apply(ScreenEvent event) {
+        if (root == null) {
+            return;
+        }
+        int eventType = event.getEventType();
+        if (eventType == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) {
+            invalidate("窗口状态变化");
+            return;
+        }
+        if (eventType != AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED
+                && eventType != AccessibilityEvent.TYPE_VIEW_SCROLLED
+                && eventType != AccessibilityEvent.TYPE_VIEW_TEXT_CHANGED) {
+            return;
+        }
+        AccessibilityNodeInfo source = event.getSource();
+        if (source == null || event.getWindowId() != windowId) {
+            invalidate("事件没有事件源或来自其他窗口");
+            return;
+        }
+        Node target = byKey.get(source.hashCode());
+        if (target == null || !Objects.equals(target.className, toStringOrNull(source.getClassName()))) {
+            invalidate("事件源不在镜像中");
+            return;
+        }
+        int changeTypes = event.getContentChangeTypes();
+        boolean attributesOnly = eventType == AccessibilityEvent.TYPE_VIEW_TEXT_CHANGED
+                || (eventType == AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED
+                && changeTypes != AccessibilityEvent.CONTENT_CHANGE_TYPE_UNDEFINED
+                && (changeTypes & ~ATTRIBUTE_CHANGE_TYPES) == 0);
+        if (attributesOnly) {
+            patchAttributes(target, source);
+        } else {
+            patchSubtree(target, source);
+        }
+    }
+
+    /**
+     * 只更新事件源节点自身的属性，不读取子节点。
+     */
+    private void patchAttributes(Node target, AccessibilityNodeInfo source) {
+        Node updated = new Node(source);
+        if (updated.sameAttributes(target)) {
+            return;
+        }
+        removeFromIndex(target, false);
+        target.copyAttributes(source);
+        addToIndex(target, false);
+        generation++;
+    }
+
+    /**
+     * 重新读取事件源的子树，与镜像中的子树不同时替换。
+     */
+    private void patchSubtree(Node target, AccessibilityNodeInfo source) {
+        ScreenSnapshot snapshot = ScreenSnapshot.capture(AccessibilityNodeInfo.obtain(source));
+        Node replacement;
+        try {
+            replacement = convert(snapshot).get(0);
+        } finally {
+            snapshot.recycle();
+        }
+        if (sameSubtree(target, replacement)) {
+            return;
+        }
+        removeFromIndex(target);
+        Node parent = target.parent;
+        if (parent == null) {
+            root = replacement;
+        } else {
+            parent.children.set(parent.children.indexOf(target), replacement);
+            replacement.parent = parent;
+        }
+        addToIndex(replacement);
+        generation++;
+        if (AccessibilityLog.isDebugEnabled()) {
+            Log.d(TAG, "替换子树 " + target.className + "，镜像共 " + nodeCount + " 个节点，代数 " + generation);
+        }
+    }
+
+    /**
+     * @return 镜像的代数，每次镜像真正变化时加一。
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return 根节点；镜像无效时返回 null。
+     */
+    public Node getRoot() {
+        return root;
+    }
+
+    /**
+     * @return view id 完全匹配的节点，按前序深度优先顺序排列。
+     */
+    public List<Node> findByViewId(String viewId) {
+        List<Node> found = new ArrayList<>();
+        if (root == null || viewId == null || !viewIdCounts.containsKey(viewId)) {
+            return found;
+        }
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (viewId.equals(node.viewId)) {
+                found.add(node);
+            }
+            for (int i = node.children.size() - 1; i >= 0; i--) {
+                stack.push(node.children.get(i));
+            }
+        }
+        return found;
+    }
+
+    public Set<String> getViewIds() {
+        return Collections.unmodifiableSet(viewIdCounts.keySet());
+    }
+
+    public Set<String> getContentDescriptions() {
+        return Collections.unmodifiableSet(contentDescCounts.keySet());
+    }
+
+    public boolean hasViewId(String viewId) {
+        return viewId != null && viewIdCounts.containsKey(viewId);
+    }
+
+    public boolean hasContentDescriptionContaining(String part) {
+        if (part == null) {
+            return false;
+        }
+        for (String contentDesc : contentDescCounts.keySet()) {
+            if (contentDesc.contains(part)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return nodeCount;
+    }
+
+    /**
+     * 与 ScreenSnapshot 相同的算法计算结构指纹，镜像由快照重建后两者相同。代数不变时直接返回缓存的值。
+     */
+    public long getFingerprint() {
+        if (fingerprintGeneration == generation) {
+            return fingerprint;
+        }
+        long hash = ScreenFingerprint.OFFSET_BASIS;
+        if (root != null) {
+            // 广度优先遍历，深度超出范围的节点不会影响指纹，不再展开
+            ArrayDeque<Node> queue = new ArrayDeque<>();
+            ArrayDeque<Integer> depths = new ArrayDeque<>();
+            queue.add(root);
+            depths.add(0);
+            while (!queue.isEmpty()) {
+                Node node = queue.poll();
+                int depth = depths.poll();
+                hash = ScreenFingerprint.add(hash, depth, node.className, node.viewId, node.children.size());
+                if (depth < AccessibilityConfig.FINGERPRINT_MAX_DEPTH) {
+                    for (Node child : node.children) {
+                        queue.add(child);
+                        depths.add(depth + 1);
+                    }
+                }
+            }
+        }
+        fingerprint = hash;
+        fingerprintGeneration = generation;
+        return hash;
+    }
+
+    private void clear() {
+        root = null;
+        windowId = -1;
+        nodeCount = 0;
+        byKey.clear();
+        viewIdCounts.clear();
+        contentDescCounts.clear();
+    }
+
+    /**
+     * 把快照中的节点转换成镜像节点，保持父子关系。
+     *
+     * @return 广度优先顺序的镜像节点，第一个为根节点。
+     */
+    private static List<Node> convert(ScreenSnapshot snapshot) {
+        List<Node> built = new ArrayList<>(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            Node node = new Node(snapshot.nodeAt(i));
+            int parent = snapshot.parentIndexAt(i);
+            if (parent >= 0) {
+                node.parent = built.get(parent);
+                node.parent.children.add(node);
+            }
+            built.add(node);
+        }
+        return built;
+    }
+
+    private static boolean sameSubtree(Node a, Node b) {
+        if (!a.sameAttributes(b) || a.children.size() != b.children.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.children.size(); i++) {
+            if (!sameSubtree(a.children.get(i), b.children.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addToIndex(Node subtree) {
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(subtree);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            addToIndex(node, true);
+            for (Node child : node.children) {
+                stack.push(child);
+            }
+        }
+    }
+
+    private void removeFromIndex(Node subtree) {
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(subtree);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            removeFromIndex(node, true);
+            for (Node child : node.children) {
+                stack.push(child);
+            }
+        }
+    }
+
+    /**
+     * @param counted 是否同时增减节点总数；只更新属性时节点数不变。
+     */
+    private void addToIndex(Node node, boolean counted) {
+        byKey.put(node.key, node);
+        increment(viewIdCounts, node.viewId, 1);
+        increment(contentDescCounts, node.contentDesc, 1);
+        if (counted) {
+            nodeCount++;
+        }
+    }
+
+    private void removeFromIndex(Node node, boolean counted) {
+        if (byKey.get(node.key) == node) {
+            byKey.remove(node.key);
+        }
+        increment(viewIdCounts, node.viewId, -1);
+        increment(contentDescCounts, node.contentDesc, -1);
+        if (counted) {
+            nodeCount--;
+        }
+    }
+
+    private static void increment(Map<String, Integer> counts, String key, int delta) {
+        if (key == null) {
+            return;
+        }
+        Integer count = counts.get(key);
+        int updated = (count == null ? 0 : count) + delta;
+        if (updated > 0) {
+            counts.put(key, updated);
+        } else {
+            counts.remove(key);
+        }
+    }
+
+    private static String toStringOrNull(CharSequence value) {
+        return value == null ? null : value.toString();
+    }
+}
@@ -0,0 +1,287 @@
+package com.tomato.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 多模式子串匹配器（Aho-Corasick 自动机）。
+ * 把多个需要查找的标志文本（例如 "广告"、"领取奖励"、"坚持退出"、"领取成功"）编译成一个自动机，
+ * 对每段 content-desc 只扫描一遍，就能知道其中包含了哪些标志文本。
+ *
+ * 自动机在构造后不可变，可以在多个线程之间共享。建议在处理器创建时编译一次，之后反复使用。
+ * 为了用一个 long 表示匹配结果，最多支持 64 个模式。
+ */
+public final class MultiPatternMatcher {
+
+    private static final int MAX_PATTERNS = Long.SIZE;
+
+    private final String[] patterns;
+    // 每个状态的出边，按字符升序排列，匹配时二分查找
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] failure;
+    // 到达该状态时命中的模式集合（已沿失败链合并）
+    private final long[] output;
+
+    private MultiPatternMatcher(String[] patterns) {
+        this.patterns = patterns;
+
+        // 1. 构建字典树
+        List<char[]> chars = new ArrayList<>();
+        List<int[]> targets = new ArrayList<>();
+        List<Long> outputs = new ArrayList<>();
+        chars.add(new char[0]);
+        targets.add(new int[0]);
+        outputs.add(0L);
+        for (int p = 0; p < patterns.length; p++) {
+            int state = 0;
+            String pattern = patterns[p];
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                int next = find(chars.get(state), targets.get(state), c);
+                if (next < 0) {
+                    next = chars.size();
+                    chars.add(new char[0]);
+                    targets.add(new int[0]);
+                    outputs.add(0L);
+                    insertEdge(chars, targets, state, c, next);
+                }
+                state = next;
+            }
+            outputs.set(state, outputs.get(state) | (1L << p));
+        }
+
+        int stateCount = chars.size();
+        this.edgeChars = chars.toArray(new char[stateCount][]);
+        this.edgeTargets = targets.toArray(new int[stateCount][]);
+        this.output = new long[stateCount];
+        for (int i = 0; i < stateCount; i++) {
+            output[i] = outputs.get(i);
+        }
+
+        // 2. 广度优先计算失败指针，并把失败状态的输出合并进来
+        this.failure = new int[stateCount];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int target : edgeTargets[0]) {
+            failure[target] = 0;
+            queue.add(target);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int e = 0; e < edgeChars[state].length; e++) {
+                char c = edgeChars[state][e];
+                int child = edgeTargets[state][e];
+                int fallback = failure[state];
+                while (fallback != 0 && find(edgeChars[fallback], edgeTargets[fallback], c) < 0) {
+                    fallback = failure[fallback];
+                }
+                int fallbackTarget = find(edgeChars[fallback], edgeTargets[fallback], c);
+                failure[child] = fallbackTarget >= 0 && fallbackTarget != child ? fallbackTarget : 0;
+                output[child] |= output[failure[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * 编译一组模式。
+     *
+     * @param patterns 要查找的文本，不能为空字符串，最多 64 个。
+     * @return 编译好的匹配器。
+     */
+    public static MultiPatternMatcher compile(String... patterns) {
+        if (patterns == null || patterns.length == 0 || patterns.length > MAX_PATTERNS) {
+            throw new IllegalArgumentException("模式数量必须在 1 到 " + MAX_PATTERNS + " 之间");
+        }
+        for (String pattern : patterns) {
+            if (pattern == null || pattern.isEmpty()) {
+                throw new IllegalArgumentException("模式不能为空");
+            }
+        }
+        return new MultiPatternMatcher(patterns.clone());
+    }
+
+    private static int find(char[] labels, int[] targets, char c) {
+        int index = Arrays.binarySearch(labels, c);
+        return index >= 0 ? targets[index] : -1;
+    }
+
+    private static void insertEdge(List<char[]> chars, List<int[]> targets, int state, char c, int next) {
+        char[] oldChars = chars.get(state);
+        int[] oldTargets = targets.get(state);
+        int insertAt = -(Arrays.binarySearch(oldChars, c) + 1);
+        char[] newChars = new char[oldChars.length + 1];
+        int[] newTargets = new int[oldTargets.length + 1];
+        System.arraycopy(oldChars, 0, newChars, 0, insertAt);
+        System.arraycopy(oldTargets, 0, newTargets, 0, insertAt);
+        newChars[insertAt] = c;
+        newTargets[insertAt] = next;
+        System.arraycopy(oldChars, insertAt, newChars, insertAt + 1, oldChars.length - insertAt);
+        System.arraycopy(oldTargets, insertAt, newTargets, insertAt + 1, oldTargets.length - insertAt);
+        chars.set(state, newChars);
+        targets.set(state, newTargets);
+    }
+
+    /**
+     * 扫描一段文本，返回其中出现过的模式集合。
+     *
+     * @param text 要扫描的文本，可以为 null。
+     * @return 位掩码，第 i 位为 1 表示包含第 i 个模式。
+     */
+    public long match(CharSequence text) {
+        if (text == null) {
+            return 0L;
+        }
+        long found = 0L;
+        long all = allPatternsMask();
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next = find(edgeChars[state], edgeTargets[state], c);
+            while (next < 0 && state != 0) {
+                state = failure[state];
+                next = find(edgeChars[state], edgeTargets[state], c);
+            }
+            state = next < 0 ? 0 : next;
+            found |= output[state];
+            if (found == all) {
+                break; // 所有模式都已命中，不必继续扫描
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return 模式数量。
+     */
+    public int size() {
+        return patterns.length;
+    }
+
+    /**
+     * @return 第 index 个模式。
+     */
+    public String getPattern(int index) {
+        return patterns[index];
+    }
+
+    /**
+     * @return 模式在编译时的下标，不存在返回 -1。
+     */
+    public int indexOf(String pattern) {
+        for (int i = 0; i < patterns.length; i++) {
+            if (patterns[i].equals(pattern)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private long allPatternsMask() {
+        return patterns.length == MAX_PATTERNS ? -1L : (1L << patterns.length) - 1;
+    }
+
+    /**
+     * 创建一个与本匹配器对应的空结果集。
+     */
+    public <T> Hits<T> newHits() {
+        return new Hits<>(this);
+    }
+
+    /**
+     * 一次遍历中每个模式各自命中的元素。
+     *
+     * @param <T> 元素类型，通常是 AccessibilityNodeInfo。
+     */
+    public static final class Hits<T> {
+        private final MultiPatternMatcher matcher;
+        private final List<List<T>> perPattern;
+        private long mask = 0L;
+
+        private Hits(MultiPatternMatcher matcher) {
+            this.matcher = matcher;
+            this.perPattern = new ArrayList<>(matcher.size());
+            for (int i = 0; i < matcher.size(); i++) {
+                perPattern.add(null);
+            }
+        }
+
+        /**
+         * 记录一个元素，它命中了 matchMask 中的所有模式。
+         */
+        public void add(long matchMask, T item) {
+            mask |= matchMask;
+            for (int i = 0; i < perPattern.size(); i++) {
+                if ((matchMask & (1L << i)) != 0) {
+                    List<T> items = perPattern.get(i);
+                    if (items == null) {
+                        items = new ArrayList<>(1);
+                        perPattern.set(i, items);
+                    }
+                    items.add(item);
+                }
+            }
+        }
+
+        /**
+         * @return 包含该模式的元素列表；模式没有命中或未注册时返回空列表。
+         */
+        public List<T> get(String pattern) {
+            return get(matcher.indexOf(pattern));
+        }
+
+        /**
+         * 按模式下标取命中元素，调用方已经知道下标时可以省去按字符串查找。
+         *
+         * @return 包含第 index 个模式的元素列表；没有命中或下标无效时返回空列表。
+         */
+        public List<T> get(int index) {
+            List<T> items = index < 0 || index >= perPattern.size() ? null : perPattern.get(index);
+            return items == null ? Collections.<T>emptyList() : Collections.unmodifiableList(items);
+        }
+
+        /**
+         * @return 该模式的第一个命中元素，没有则返回 null。
+         */
+        public T getFirst(String pattern) {
+            List<T> items = get(pattern);
+            return items.isEmpty() ? null : items.get(0);
+        }
+
+        public boolean contains(String pattern) {
+            int index = matcher.indexOf(pattern);
+            return index >= 0 && (mask & (1L << index)) != 0;
+        }
+
+        /**
+         * @return 命中模式的位掩码。
+         */
+        public long getMask() {
+            return mask;
+        }
+
+        /**
+         * @return 所有命中元素（去重），用于统一回收。
+         */
+        public List<T> all() {
+            Set<T> seen = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+            List<T> items = new ArrayList<>();
+            for (List<T> list : perPattern) {
+                if (list == null) {
+                    continue;
+                }
+                for (T item : list) {
+                    if (seen.add(item)) {
+                        items.add(item);
+                    }
+                }
+            }
+            return items;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.tomato.utils;
+
+import android.accessibilityservice.AccessibilityService;
+import android.os.Build;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityWindowInfo;
+
+/**
+ * 节点检索层：快照遍历、窗口根节点以及作用域中的父子节点都经过这里取得。
+ *
+ * API 33 起 getChild / getParent / getRoot 可以指定预取策略：一次跨进程调用顺带取回最多
+ * MAX_NUMBER_OF_PREFETCHED_NODES 个相关节点放进客户端节点缓存，之后访问这些节点直接命中缓存。
+ * 向下遍历使用广度优先的后代预取，与 ScreenSnapshot 的遍历顺序一致，预取到的节点正好是接下来要访问的；
+ * 向上查找使用祖先预取。
+ *
+ * API 33 以下不在本类的范围内：这些版本没有指定预取策略或批量取节点的公开接口，这里只退回默认的
+ * getChild / getParent，由系统按它自己的默认策略预取。快照仍按广度优先顺序逐层访问，
+ * 同一层的兄弟节点连续取得，但没有实现批量的广度优先检索，旧版本上的跨进程调用次数不会因此减少。
+ *
+ * 跨进程调用的次数和缓存是否命中都无法从公开接口取得。这里只统计耗时达到 SLOW_FETCH_THRESHOLD_NS
+ * 的慢检索（MetricsRegistry 的 slowFetches / slowFetchesPerCycle）：跨进程调用几乎都是慢检索，
+ * 但 GC 停顿、线程被抢占和较慢的设备也会产生慢检索，它只是跨进程调用次数的上界参考，不是准确计数。
+ */
+public final class NodeFetcher {
+
+    /** 当前系统是否支持指定预取策略。 */
+    public static final boolean PREFETCH_SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU;
+
+    private static final int DESCENDANTS = AccessibilityNodeInfo.FLAG_PREFETCH_DESCENDANTS_BREADTH_FIRST;
+    private static final int ANCESTORS = AccessibilityNodeInfo.FLAG_PREFETCH_ANCESTORS;
+
+    private NodeFetcher() {
+    }
+
+    /**
+     * @return 第 index 个子节点，由调用方负责回收。
+     */
+    public static AccessibilityNodeInfo child(AccessibilityNodeInfo parent, int index) {
+        long start = System.nanoTime();
+        AccessibilityNodeInfo child = PREFETCH_SUPPORTED ? parent.getChild(index, DESCENDANTS) : parent.getChild(index);
+        MetricsRegistry.getInstance().recordNodeFetch(start);
+        return child;
+    }
+
+    /**
+     * @return 父节点，由调用方负责回收。
+     */
+    public static AccessibilityNodeInfo parent(AccessibilityNodeInfo node) {
+        long start = System.nanoTime();
+        AccessibilityNodeInfo parent = PREFETCH_SUPPORTED ? node.getParent(ANCESTORS) : node.getParent();
+        MetricsRegistry.getInstance().recordNodeFetch(start);
+        return parent;
+    }
+
+    /**
+     * @return 窗口的根节点，由调用方负责回收。
+     */
+    public static AccessibilityNodeInfo root(AccessibilityWindowInfo window) {
+        long start = System.nanoTime();
+        AccessibilityNodeInfo root = PREFETCH_SUPPORTED ? window.getRoot(DESCENDANTS) : window.getRoot();
+        MetricsRegistry.getInstance().recordNodeFetch(start);
+        return root;
+    }
+
+    /**
+     * @return 活动窗口的根节点，由调用方负责回收。
+     */
+    public static AccessibilityNodeInfo activeRoot(AccessibilityService service) {
+        long start = System.nanoTime();
+        AccessibilityNodeInfo root = PREFETCH_SUPPORTED
+                ? service.getRootInActiveWindow(DESCENDANTS)
+                : service.getRootInActiveWindow();
+        MetricsRegistry.getInstance().recordNodeFetch(start);
+        return root;
+    }
+}
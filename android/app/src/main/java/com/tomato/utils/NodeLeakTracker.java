@@ -0,0 +1,144 @@
+package com.tomato.utils;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 调试用的节点泄漏统计。
+ * 每个持有者（处理器、快照、服务）取得节点时计数加一，回收时减一，存活数持续增长的持有者就是泄漏点。
+ * 旧版本系统上泄漏的节点会占着 native 内存，几个小时的自动阅读下来会造成明显的内存压力。
+ *
+ * 默认关闭（AccessibilityConfig.NODE_LEAK_TRACKING），关闭时所有方法只做一次布尔判断。
+ */
+public final class NodeLeakTracker {
+
+    private static final String TAG = AccessibilityConfig.TAG + ".NodeLeak";
+
+    private static volatile boolean enabled = AccessibilityConfig.NODE_LEAK_TRACKING;
+
+    // 持有者 -> {存活数, 累计取得数, 上一次检查点时的存活数}
+    private static final Map<String, long[]> COUNTS = new HashMap<>();
+
+    private static final int LIVE = 0;
+    private static final int ACQUIRED = 1;
+    private static final int LAST_CHECKPOINT = 2;
+
+    private NodeLeakTracker() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 运行时打开或关闭统计。关闭时清空已有的计数，避免重新打开后出现负数。
+     */
+    public static void setEnabled(boolean value) {
+        synchronized (COUNTS) {
+            enabled = value;
+            COUNTS.clear();
+        }
+    }
+
+    /**
+     * 记录持有者取得了 count 个节点。
+     */
+    public static void acquired(String owner, int count) {
+        if (!enabled || count <= 0) {
+            return;
+        }
+        synchronized (COUNTS) {
+            long[] counts = COUNTS.get(owner);
+            if (counts == null) {
+                counts = new long[3];
+                COUNTS.put(owner, counts);
+            }
+            counts[LIVE] += count;
+            counts[ACQUIRED] += count;
+        }
+    }
+
+    /**
+     * 记录持有者回收了 count 个节点。
+     */
+    public static void released(String owner, int count) {
+        if (!enabled || count <= 0) {
+            return;
+        }
+        synchronized (COUNTS) {
+            long[] counts = COUNTS.get(owner);
+            if (counts != null) {
+                counts[LIVE] -= count;
+            }
+        }
+    }
+
+    /**
+     * @return 该持有者当前存活的节点数。
+     */
+    public static long getLiveCount(String owner) {
+        synchronized (COUNTS) {
+            long[] counts = COUNTS.get(owner);
+            return counts == null ? 0 : counts[LIVE];
+        }
+    }
+
+    /**
+     * @return 各持有者当前存活节点数的拷贝。
+     */
+    public static Map<String, Long> getLiveCounts() {
+        Map<String, Long> result = new HashMap<>();
+        synchronized (COUNTS) {
+            for (Map.Entry<String, long[]> entry : COUNTS.entrySet()) {
+                result.put(entry.getKey(), entry.getValue()[LIVE]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 检查点：在一轮处理结束、所有作用域都应已关闭的时机调用。
+     * 存活数比上一个检查点多的持有者会被报告为疑似泄漏。
+     *
+     * @return 疑似泄漏的持有者数量。
+     */
+    public static int checkpoint() {
+        if (!enabled) {
+            return 0;
+        }
+        int leaking = 0;
+        synchronized (COUNTS) {
+            for (Map.Entry<String, long[]> entry : COUNTS.entrySet()) {
+                long[] counts = entry.getValue();
+                if (counts[LIVE] > counts[LAST_CHECKPOINT]) {
+                    leaking++;
+                    Log.w(TAG, "疑似节点泄漏: " + entry.getKey() + " 存活 " + counts[LIVE]
+                            + " 个 (上次检查 " + counts[LAST_CHECKPOINT] + "，累计取得 " + counts[ACQUIRED] + ")。");
+                }
+                counts[LAST_CHECKPOINT] = counts[LIVE];
+            }
+        }
+        return leaking;
+    }
+
+    /**
+     * 输出所有持有者的统计，一般在服务销毁时调用。
+     */
+    public static void report() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (COUNTS) {
+            for (Map.Entry<String, long[]> entry : COUNTS.entrySet()) {
+                long[] counts = entry.getValue();
+                if (counts[LIVE] != 0) {
+                    Log.w(TAG, entry.getKey() + ": 仍有 " + counts[LIVE] + " 个节点未回收，累计取得 " + counts[ACQUIRED] + " 个。");
+                } else {
+                    Log.i(TAG, entry.getKey() + ": 累计取得 " + counts[ACQUIRED] + " 个节点，已全部回收。");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.tomato.utils;
+
+import android.accessibilityservice.AccessibilityService;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 节点作用域：在作用域内取得的节点都由它持有，close() 时统一回收。
+ * 配合 try-with-resources 使用，提前 return 或抛出异常时也不会漏掉回收：
+ *
+ * <pre>
+ * try (NodeScope scope = NodeScope.open(TAG)) {
+ *     AccessibilityNodeInfo root = scope.root(service);
+ *     AccessibilityNodeInfo parent = scope.parentOf(node);
+ *     ...
+ * }
+ * </pre>
+ *
+ * 需要把节点交给作用域之外的代码时，先用 release() 解除持有。
+ * 通过 capture() 创建的快照会接管根节点，并在作用域关闭时一起回收。
+ * 作用域不是线程安全的，只在创建它的线程上使用。
+ */
+public final class NodeScope implements AutoCloseable {
+
+    private final String owner;
+    private final List<AccessibilityNodeInfo> nodes = new ArrayList<>(4);
+    private List<ScreenSnapshot> snapshots;
+    private boolean closed = false;
+
+    private NodeScope(String owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * @param owner 持有者名称，用于泄漏统计，一般传调用方的 TAG 或类名。
+     */
+    public static NodeScope open(String owner) {
+        return new NodeScope(owner);
+    }
+
+    /**
+     * 持有一个节点。null 原样返回，已经持有的节点不会重复登记。
+     *
+     * @return 传入的节点，方便链式使用。
+     */
+    public AccessibilityNodeInfo track(AccessibilityNodeInfo node) {
+        if (node == null) {
+            return null;
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i) == node) {
+                return node;
+            }
+        }
+        nodes.add(node);
+        NodeLeakTracker.acquired(owner, 1);
+        return node;
+    }
+
+    /**
+     * 持有一次查询返回的所有节点（同一次查询返回的节点互不相同）。
+     *
+     * @return 传入的列表，null 时返回空列表。
+     */
+    public List<AccessibilityNodeInfo> trackAll(List<AccessibilityNodeInfo> list) {
+        if (list == null) {
+            return new ArrayList<>();
+        }
+        int added = 0;
+        for (AccessibilityNodeInfo node : list) {
+            if (node != null) {
+                nodes.add(node);
+                added++;
+            }
+        }
+        NodeLeakTracker.acquired(owner, added);
+        return list;
+    }
+
+    /**
+     * @return 目标窗口的根节点（见 WindowRoots），由本作用域持有；取不到时返回 null。
+     */
+    public AccessibilityNodeInfo root(AccessibilityService service) {
+        return track(WindowRoots.of(service).acquireRoot());
+    }
+
+    /**
+     * @return node 的父节点，由本作用域持有。
+     */
+    public AccessibilityNodeInfo parentOf(AccessibilityNodeInfo node) {
+        return node == null ? null : track(NodeFetcher.parent(node));
+    }
+
+    /**
+     * @return node 的第 index 个子节点，由本作用域持有。
+     */
+    public AccessibilityNodeInfo childOf(AccessibilityNodeInfo node, int index) {
+        return node == null ? null : track(NodeFetcher.child(node, index));
+    }
+
+    /**
+     * @return node 的一份拷贝，由本作用域持有。原节点的所有权不变。
+     */
+    public AccessibilityNodeInfo copyOf(AccessibilityNodeInfo node) {
+        return node == null ? null : track(AccessibilityNodeInfo.obtain(node));
+    }
+
+    /**
+     * 以 rootNode 为根创建快照，快照在作用域关闭时回收。
+     * 快照会接管 rootNode，如果它之前由本作用域持有，会先解除持有，避免重复回收。
+     *
+     * @return 快照；rootNode 为 null 时返回 null。
+     */
+    public ScreenSnapshot capture(AccessibilityNodeInfo rootNode) {
+        if (rootNode == null) {
+            return null;
+        }
+        release(rootNode);
+        ScreenSnapshot snapshot = ScreenSnapshot.capture(rootNode);
+        if (snapshots == null) {
+            snapshots = new ArrayList<>(1);
+        }
+        snapshots.add(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * 解除对节点的持有，之后由调用方负责回收。
+     *
+     * @return 传入的节点。
+     */
+    public AccessibilityNodeInfo release(AccessibilityNodeInfo node) {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i) == node) {
+                nodes.remove(i);
+                NodeLeakTracker.released(owner, 1);
+                break;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * @return 当前持有的节点数量（不含快照内的节点）。
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * 回收所有持有的节点和快照。可以重复调用。
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        NodeLeakTracker.released(owner, nodes.size());
+        AccessibilityNodeUtils.recycleNodes(nodes);
+        nodes.clear();
+        if (snapshots != null) {
+            for (ScreenSnapshot snapshot : snapshots) {
+                snapshot.recycle();
+            }
+            snapshots = null;
+        }
+    }
+}
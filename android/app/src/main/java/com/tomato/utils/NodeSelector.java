@@ -0,0 +1,582 @@
+package com.tomato.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 在屏幕快照上查找节点的选择器，语法类似 CSS：
+ * <pre>
+ * [desc*=领取成功] ~ com.lynx.tasm.ui.image.UIImage    "领取成功" 之后的 UIImage 兄弟节点
+ * [clickable] > #com.dragon.read:id/agf               父节点可点击的书名节点
+ * #com.dragon.read:id/gfz > *[index=0]                列表容器的第一个子节点
+ * TextView[text=斗破苍穹] &lt;&lt; [clickable]              书名所在的可点击祖先
+ * </pre>
+ * 一个选择器由若干个节点条件和它们之间的轴组成，结果是满足最后一个条件的节点：
+ * <ul>
+ *   <li>节点条件：类名（完整类名，或不含包名的简单类名，* 表示任意）、#view-id，以及任意个 [属性]。
+ *       属性可以是 id= / class= / text= / text*= / desc= / desc*=（= 完全匹配，*= 包含匹配，值可以加引号）、
+ *       index=N（在父节点的子节点中的位置，从 0 开始），以及 clickable / visible / scrollable / editable
+ *       （可以写成 clickable=false）；</li>
+ *   <li>轴：空格（后代）、&gt;（子节点）、+（紧随其后的兄弟）、~（之后的任意兄弟）、
+ *       &lt;（父节点）、&lt;&lt;（祖先）。</li>
+ * </ul>
+ *
+ * 选择器编译一次得到查询计划，按选择器字符串缓存，可以在多个线程之间共享。
+ * 查询在快照的节点数组上进行，不发起任何 IPC：快照按广度优先顺序保存节点，父节点总在子节点之前、
+ * 兄弟节点连续，所以只含向下和向后的轴的选择器在一次顺序扫描中就能算出所有条件；
+ * 向上的轴（&lt;、&lt;&lt;）需要子树的信息，在一次逆序扫描中完成。
+ *
+ * 节点数组通过 Tree 访问，本类不依赖 Android：设备上由 ScreenSnapshot 提供，JVM 上的测试使用合成树。
+ */
+public final class NodeSelector {
+
+    /**
+     * 选择器查询的节点数组，节点按广度优先顺序排列，父节点在子节点之前，同一父节点的子节点连续。
+     * 节点的属性也通过这里读取，节点类型本身不需要实现任何接口。
+     */
+    public interface Tree<N> {
+
+        int size();
+
+        N nodeAt(int index);
+
+        /**
+         * @return 父节点的下标，根节点返回 -1。
+         */
+        int parentIndexAt(int index);
+
+        /**
+         * @return 节点在父节点的子节点中的位置，根节点返回 0。
+         */
+        int childPositionAt(int index);
+
+        /**
+         * @return 节点的下标，不属于这棵树时返回 -1。
+         */
+        int indexOf(N node);
+
+        /**
+         * @return 指定 view id 的节点，按树上的顺序排列。
+         */
+        List<N> findByViewId(String viewId);
+
+        CharSequence getClassName(N node);
+
+        String getViewIdResourceName(N node);
+
+        CharSequence getText(N node);
+
+        CharSequence getContentDescription(N node);
+
+        boolean isClickable(N node);
+
+        boolean isVisibleToUser(N node);
+
+        boolean isScrollable(N node);
+
+        boolean isEditable(N node);
+    }
+
+    private static final int AXIS_DESCENDANT = 0;
+    private static final int AXIS_CHILD = 1;
+    private static final int AXIS_NEXT_SIBLING = 2;
+    private static final int AXIS_FOLLOWING_SIBLING = 3;
+    private static final int AXIS_PARENT = 4;
+    private static final int AXIS_ANCESTOR = 5;
+
+    // 选择器字符串 -> 编译好的查询计划
+    private static final Map<String, NodeSelector> CACHE =
+            new LinkedHashMap<String, NodeSelector>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, NodeSelector> eldest) {
+                    return size() > AccessibilityConfig.SELECTOR_CACHE_SIZE;
+                }
+            };
+
+    private final String source;
+    private final Step[] steps;
+    // axes[s] 是第 s - 1 个条件到第 s 个条件的轴，axes[0] 不使用
+    private final int[] axes;
+    // 每一遍扫描覆盖的条件区间：第 p 遍扫描计算 passStart[p] .. passStart[p + 1] - 1
+    private final int[] passStart;
+
+    private NodeSelector(String source, List<Step> steps, List<Integer> axes) {
+        this.source = source;
+        this.steps = steps.toArray(new Step[0]);
+        this.axes = new int[axes.size()];
+        for (int i = 0; i < this.axes.length; i++) {
+            this.axes[i] = axes.get(i);
+        }
+        // 方向改变的地方开始新的一遍扫描
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for (int s = 2; s < this.steps.length; s++) {
+            if (isReverse(this.axes[s]) != isReverse(this.axes[s - 1])) {
+                starts.add(s);
+            }
+        }
+        starts.add(this.steps.length);
+        this.passStart = new int[starts.size()];
+        for (int i = 0; i < passStart.length; i++) {
+            passStart[i] = starts.get(i);
+        }
+    }
+
+    /**
+     * 编译选择器，相同的字符串只编译一次。
+     *
+     * @throws IllegalArgumentException 选择器有语法错误。
+     */
+    public static NodeSelector compile(String selector) {
+        synchronized (CACHE) {
+            NodeSelector compiled = CACHE.get(selector);
+            if (compiled == null) {
+                compiled = new Parser(selector).parse();
+                CACHE.put(selector, compiled);
+            }
+            return compiled;
+        }
+    }
+
+    /**
+     * @return 扫描快照的遍数。只含向下和向后的轴时为 1。
+     */
+    public int getPassCount() {
+        return passStart.length - 1;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * @return 按快照顺序（广度优先）排列的所有匹配节点，节点归快照所有。
+     */
+    public <N> List<N> select(Tree<N> snapshot) {
+        return run(snapshot, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return 按快照顺序的第一个匹配节点，没有时返回 null。节点归快照所有。
+     */
+    public <N> N selectFirst(Tree<N> snapshot) {
+        List<N> found = run(snapshot, 1);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    private <N> List<N> run(Tree<N> snapshot, int limit) {
+        if (snapshot.size() == 0) {
+            return Collections.emptyList();
+        }
+        // 只有一个条件且带 view id 时直接查快照的索引
+        if (steps.length == 1 && steps[0].viewId != null) {
+            List<N> found = new ArrayList<>();
+            for (N node : snapshot.findByViewId(steps[0].viewId)) {
+                if (steps[0].test(snapshot, snapshot.indexOf(node), node)) {
+                    found.add(node);
+                    if (found.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+            return found;
+        }
+
+        int size = snapshot.size();
+        boolean[][] matched = new boolean[steps.length][size];
+        // carry[s][i]: 节点 i 沿第 s + 1 个条件的轴与第 s 个条件的某个匹配节点相连
+        //（后代、之后的兄弟、父节点、祖先），由扫描顺序逐步累积
+        boolean[][] carry = new boolean[steps.length][size];
+        int last = steps.length - 1;
+        boolean singleForwardPass = getPassCount() == 1 && (steps.length == 1 || !isReverse(axes[1]));
+        List<N> found = new ArrayList<>();
+
+        for (int p = 0; p + 1 < passStart.length; p++) {
+            int from = passStart[p];
+            int to = passStart[p + 1];
+            boolean reverse = steps.length > 1 && isReverse(axes[Math.max(from, 1)]);
+            if (!reverse) {
+                // 顺序扫描：父节点和前一个兄弟节点都在 i 之前，已经算好
+                for (int i = 0; i < size; i++) {
+                    N node = snapshot.nodeAt(i);
+                    for (int s = from; s < to; s++) {
+                        matched[s][i] = (s == 0 || linkedForward(snapshot, matched, carry, s, i))
+                                && steps[s].test(snapshot, i, node);
+                    }
+                    if (singleForwardPass && matched[last][i]) {
+                        found.add(node);
+                        if (found.size() >= limit) {
+                            return found;
+                        }
+                    }
+                }
+            } else {
+                // 逆序扫描：子节点都在父节点之后，访问到节点 i 时它的子树已经全部处理过
+                for (int i = size - 1; i >= 0; i--) {
+                    N node = snapshot.nodeAt(i);
+                    if (from > 0) {
+                        // 上一遍扫描的结果已经完整，只需要向上传递
+                        propagateUp(snapshot, matched, carry, from - 1, i);
+                    }
+                    for (int s = from; s < to; s++) {
+                        matched[s][i] = (s == 0 || carry[s - 1][i]) && steps[s].test(snapshot, i, node);
+                        propagateUp(snapshot, matched, carry, s, i);
+                    }
+                }
+            }
+        }
+        if (!singleForwardPass) {
+            for (int i = 0; i < size && found.size() < limit; i++) {
+                if (matched[last][i]) {
+                    found.add(snapshot.nodeAt(i));
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 顺序扫描中第 s 个条件的轴：父节点和前一个兄弟节点在数组中都位于 i 之前，已经算好。
+     */
+    private boolean linkedForward(Tree<?> snapshot, boolean[][] matched, boolean[][] carry, int s, int i) {
+        int parent = snapshot.parentIndexAt(i);
+        boolean previousIsSibling = i > 0 && parent >= 0 && snapshot.parentIndexAt(i - 1) == parent;
+        switch (axes[s]) {
+            case AXIS_CHILD:
+                return parent >= 0 && matched[s - 1][parent];
+            case AXIS_DESCENDANT:
+                carry[s - 1][i] = parent >= 0 && (matched[s - 1][parent] || carry[s - 1][parent]);
+                return carry[s - 1][i];
+            case AXIS_NEXT_SIBLING:
+                return previousIsSibling && matched[s - 1][i - 1];
+            case AXIS_FOLLOWING_SIBLING:
+                carry[s - 1][i] = previousIsSibling && (matched[s - 1][i - 1] || carry[s - 1][i - 1]);
+                return carry[s - 1][i];
+            default:
+                throw new IllegalStateException("顺序扫描中出现了向上的轴");
+        }
+    }
+
+    /**
+     * 逆序扫描中把节点 i 对第 s 个条件的匹配结果传给父节点，供第 s + 1 个条件使用。
+     */
+    private void propagateUp(Tree<?> snapshot, boolean[][] matched, boolean[][] carry, int s, int i) {
+        if (s + 1 >= steps.length || !isReverse(axes[s + 1])) {
+            return;
+        }
+        int parent = snapshot.parentIndexAt(i);
+        if (parent < 0) {
+            return;
+        }
+        if (axes[s + 1] == AXIS_PARENT) {
+            carry[s][parent] |= matched[s][i];
+        } else {
+            carry[s][parent] |= matched[s][i] || carry[s][i];
+        }
+    }
+
+    private static boolean isReverse(int axis) {
+        return axis == AXIS_PARENT || axis == AXIS_ANCESTOR;
+    }
+
+    /**
+     * 单个节点的条件，所有字段都要满足。
+     */
+    private static final class Step {
+        String className;
+        boolean simpleClassName;
+        String viewId;
+        String textEquals;
+        String textContains;
+        String descEquals;
+        String descContains;
+        int index = -1;
+        Boolean clickable;
+        Boolean visible;
+        Boolean scrollable;
+        Boolean editable;
+
+        <N> boolean test(Tree<N> snapshot, int i, N node) {
+            if (viewId != null && !viewId.equals(snapshot.getViewIdResourceName(node))) {
+                return false;
+            }
+            if (className != null && !classMatches(snapshot.getClassName(node))) {
+                return false;
+            }
+            if (index >= 0 && snapshot.childPositionAt(i) != index) {
+                return false;
+            }
+            if (textEquals != null || textContains != null) {
+                if (!textMatches(snapshot.getText(node), textEquals, textContains)) {
+                    return false;
+                }
+            }
+            if (descEquals != null || descContains != null) {
+                if (!textMatches(snapshot.getContentDescription(node), descEquals, descContains)) {
+                    return false;
+                }
+            }
+            return (clickable == null || clickable == snapshot.isClickable(node))
+                    && (visible == null || visible == snapshot.isVisibleToUser(node))
+                    && (scrollable == null || scrollable == snapshot.isScrollable(node))
+                    && (editable == null || editable == snapshot.isEditable(node));
+        }
+
+        private boolean classMatches(CharSequence actual) {
+            if (actual == null) {
+                return false;
+            }
+            String value = actual.toString();
+            if (!simpleClassName) {
+                return className.equals(value);
+            }
+            return value.endsWith(className)
+                    && (value.length() == className.length() || value.charAt(value.length() - className.length() - 1) == '.');
+        }
+
+        private static boolean textMatches(CharSequence actual, String equals, String contains) {
+            if (actual == null) {
+                return false;
+            }
+            String value = actual.toString();
+            return (equals == null || equals.equals(value)) && (contains == null || value.contains(contains));
+        }
+    }
+
+    /**
+     * 选择器的递归下降解析器。
+     */
+    private static final class Parser {
+        private final String source;
+        private int pos;
+
+        Parser(String source) {
+            if (source == null || source.trim().isEmpty()) {
+                throw new IllegalArgumentException("选择器不能为空");
+            }
+            this.source = source;
+        }
+
+        NodeSelector parse() {
+            List<Step> steps = new ArrayList<>();
+            List<Integer> axes = new ArrayList<>();
+            axes.add(-1);
+            skipSpaces();
+            steps.add(step());
+            while (pos < source.length()) {
+                boolean spaced = skipSpaces();
+                if (pos >= source.length()) {
+                    break;
+                }
+                int axis;
+                char c = source.charAt(pos);
+                if (c == '>') {
+                    axis = AXIS_CHILD;
+                    pos++;
+                } else if (c == '+') {
+                    axis = AXIS_NEXT_SIBLING;
+                    pos++;
+                } else if (c == '~') {
+                    axis = AXIS_FOLLOWING_SIBLING;
+                    pos++;
+                } else if (c == '<') {
+                    pos++;
+                    axis = AXIS_PARENT;
+                    if (pos < source.length() && source.charAt(pos) == '<') {
+                        axis = AXIS_ANCESTOR;
+                        pos++;
+                    }
+                } else if (spaced) {
+                    axis = AXIS_DESCENDANT;
+                } else {
+                    throw error("无法识别的字符 '" + c + "'");
+                }
+                skipSpaces();
+                axes.add(axis);
+                steps.add(step());
+            }
+            return new NodeSelector(source, steps, axes);
+        }
+
+        private Step step() {
+            Step step = new Step();
+            int start = pos;
+            if (pos < source.length() && source.charAt(pos) == '*') {
+                pos++;
+            } else {
+                String type = token();
+                if (!type.isEmpty()) {
+                    step.className = type;
+                    step.simpleClassName = type.indexOf('.') < 0;
+                }
+            }
+            if (pos < source.length() && source.charAt(pos) == '#') {
+                pos++;
+                step.viewId = token();
+                if (step.viewId.isEmpty()) {
+                    throw error("# 之后缺少 view id");
+                }
+            }
+            while (pos < source.length() && source.charAt(pos) == '[') {
+                pos++;
+                attribute(step);
+            }
+            if (pos == start) {
+                throw error("缺少节点条件");
+            }
+            return step;
+        }
+
+        private void attribute(Step step) {
+            skipSpaces();
+            int nameStart = pos;
+            while (pos < source.length() && Character.isLetter(source.charAt(pos))) {
+                pos++;
+            }
+            String name = source.substring(nameStart, pos);
+            boolean contains = false;
+            String value = null;
+            if (pos < source.length() && source.charAt(pos) == '*') {
+                contains = true;
+                pos++;
+            }
+            if (pos < source.length() && source.charAt(pos) == '=') {
+                pos++;
+                value = value();
+            } else if (contains) {
+                throw error("*= 之后缺少值");
+            }
+            skipSpaces();
+            if (pos >= source.length() || source.charAt(pos) != ']') {
+                throw error("缺少 ]");
+            }
+            pos++;
+
+            switch (name) {
+                case "id":
+                    step.viewId = required(name, value, contains);
+                    break;
+                case "class":
+                    step.className = required(name, value, contains);
+                    step.simpleClassName = step.className.indexOf('.') < 0;
+                    break;
+                case "text":
+                    if (contains) {
+                        step.textContains = required(name, value, false);
+                    } else {
+                        step.textEquals = required(name, value, false);
+                    }
+                    break;
+                case "desc":
+                    if (contains) {
+                        step.descContains = required(name, value, false);
+                    } else {
+                        step.descEquals = required(name, value, false);
+                    }
+                    break;
+                case "index":
+                    try {
+                        step.index = Integer.parseInt(required(name, value, contains));
+                    } catch (NumberFormatException e) {
+                        throw error("index 必须是非负整数");
+                    }
+                    if (step.index < 0) {
+                        throw error("index 必须是非负整数");
+                    }
+                    break;
+                case "clickable":
+                    step.clickable = flag(name, value, contains);
+                    break;
+                case "visible":
+                    step.visible = flag(name, value, contains);
+                    break;
+                case "scrollable":
+                    step.scrollable = flag(name, value, contains);
+                    break;
+                case "editable":
+                    step.editable = flag(name, value, contains);
+                    break;
+                default:
+                    throw error("未知的属性 " + name);
+            }
+        }
+
+        private String required(String name, String value, boolean contains) {
+            if (value == null || contains) {
+                throw error(name + " 需要用 = 给出值");
+            }
+            return value;
+        }
+
+        private Boolean flag(String name, String value, boolean contains) {
+            if (contains) {
+                throw error(name + " 不支持 *=");
+            }
+            if (value == null || "true".equals(value)) {
+                return Boolean.TRUE;
+            }
+            if ("false".equals(value)) {
+                return Boolean.FALSE;
+            }
+            throw error(name + " 的值只能是 true 或 false");
+        }
+
+        /**
+         * 属性值：带引号时到匹配的引号为止（反斜杠转义），否则到 ] 为止。
+         */
+        private String value() {
+            if (pos < source.length() && (source.charAt(pos) == '"' || source.charAt(pos) == '\'')) {
+                char quote = source.charAt(pos++);
+                StringBuilder value = new StringBuilder();
+                while (pos < source.length() && source.charAt(pos) != quote) {
+                    char c = source.charAt(pos++);
+                    if (c == '\\' && pos < source.length()) {
+                        c = source.charAt(pos++);
+                    }
+                    value.append(c);
+                }
+                if (pos >= source.length()) {
+                    throw error("引号没有闭合");
+                }
+                pos++;
+                return value.toString();
+            }
+            int start = pos;
+            while (pos < source.length() && source.charAt(pos) != ']') {
+                pos++;
+            }
+            return source.substring(start, pos).trim();
+        }
+
+        /**
+         * 类名或 view id，由字母、数字和 . _ $ : / - 组成。
+         */
+        private String token() {
+            int start = pos;
+            while (pos < source.length() && isTokenChar(source.charAt(pos))) {
+                pos++;
+            }
+            return source.substring(start, pos);
+        }
+
+        private static boolean isTokenChar(char c) {
+            return Character.isLetterOrDigit(c) || "._$:/-".indexOf(c) >= 0;
+        }
+
+        private boolean skipSpaces() {
+            int start = pos;
+            while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) {
+                pos++;
+            }
+            return pos > start;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("选择器 \"" + source + "\" 第 " + (pos + 1) + " 个字符处: " + message);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.tomato.utils;
+
+/**
+ * 处理器判断界面时读取的运行状态：哪些只执行一次的操作已经完成、要搜索的小说名、自动阅读开关，
+ * 以及内置处理器启动的异步流程是否还在运行。
+ *
+ * 设备上由 AccessibilityEventService 实现，读取 ActionStateManager、State 和各处理器的运行标志；
+ * 会话录制把这些状态记成 RecordedContext，回放时处理器看到的状态与录制时一致。本接口不依赖 Android。
+ */
+public interface ProcessorContext {
+
+    /**
+     * @return 只执行一次的操作是否已经完成（见 ActionStateManager）。
+     */
+    boolean isActionCompleted(String actionId);
+
+    /**
+     * @return 前端设置的要搜索的小说名，没有设置时返回 null。
+     */
+    String getNovelNameToSearch();
+
+    boolean isAutoReading();
+
+    /**
+     * @param processorName 处理器名称，见 ScreenMatcher.getName()。
+     * @return 该处理器在 process 中启动的异步流程（例如翻页循环）是否仍在运行。运行期间处理器不再匹配同一界面。
+     */
+    boolean isFlowRunning(String processorName);
+}
@@ -0,0 +1,95 @@
+package com.tomato.utils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 会话录制中的处理器运行状态，是 ProcessorContext 在录制数据上的实现。
+ * 录制时在状态变化后的第一个界面之前写入一次，回放时这之后的界面都在这份状态下调度。
+ *
+ * 对象在构造后不可变，可以直接比较是否与上一次写入的相同。
+ */
+public final class RecordedContext implements ProcessorContext {
+
+    private final Set<String> completedActions;
+    private final String novelNameToSearch;
+    private final boolean autoReading;
+    private final Set<String> runningFlows;
+
+    /**
+     * @param completedActions  已完成的操作标识。
+     * @param novelNameToSearch 要搜索的小说名，可以为 null。
+     * @param autoReading       自动阅读是否开启。
+     * @param runningFlows      异步流程仍在运行的处理器名称。
+     */
+    public RecordedContext(Collection<String> completedActions, String novelNameToSearch, boolean autoReading,
+                           Collection<String> runningFlows) {
+        this.completedActions = Collections.unmodifiableSet(new TreeSet<>(completedActions));
+        this.novelNameToSearch = novelNameToSearch;
+        this.autoReading = autoReading;
+        this.runningFlows = Collections.unmodifiableSet(new TreeSet<>(runningFlows));
+    }
+
+    /**
+     * @return 已完成的操作标识，按字典序排列。
+     */
+    public Set<String> getCompletedActions() {
+        return completedActions;
+    }
+
+    /**
+     * @return 异步流程仍在运行的处理器名称，按字典序排列。
+     */
+    public Set<String> getRunningFlows() {
+        return runningFlows;
+    }
+
+    @Override
+    public boolean isActionCompleted(String actionId) {
+        return actionId != null && completedActions.contains(actionId);
+    }
+
+    @Override
+    public String getNovelNameToSearch() {
+        return novelNameToSearch;
+    }
+
+    @Override
+    public boolean isAutoReading() {
+        return autoReading;
+    }
+
+    @Override
+    public boolean isFlowRunning(String processorName) {
+        return processorName != null && runningFlows.contains(processorName);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RecordedContext)) {
+            return false;
+        }
+        RecordedContext other = (RecordedContext) o;
+        return autoReading == other.autoReading
+                && completedActions.equals(other.completedActions)
+                && Objects.equals(novelNameToSearch, other.novelNameToSearch)
+                && runningFlows.equals(other.runningFlows);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(completedActions, novelNameToSearch, autoReading, runningFlows);
+    }
+
+    @Override
+    public String toString() {
+        return "{completed=" + completedActions + ", novelName=" + novelNameToSearch
+                + ", autoReading=" + autoReading + ", running=" + runningFlows + "}";
+    }
+}
@@ -0,0 +1,93 @@
+package com.tomato.utils;
+
+/**
+ * 会话录制中的一个节点：只保留调度和处理器判断会用到的属性，不依赖 AccessibilityNodeInfo。
+ * 节点按广度优先顺序排列，parentIndex 为父节点在同一界面中的下标，根节点为 -1。
+ * 屏幕坐标用四个 int 保存，避免依赖 android.graphics.Rect。
+ */
+public final class RecordedNode {
+
+    private final int parentIndex;
+    private final String className;
+    private final String viewId;
+    private final String text;
+    private final String contentDesc;
+    private final boolean clickable;
+    private final boolean visible;
+    private final boolean scrollable;
+    private final boolean editable;
+    private final int left;
+    private final int top;
+    private final int right;
+    private final int bottom;
+
+    public RecordedNode(int parentIndex, String className, String viewId, String text, String contentDesc,
+                        boolean clickable, boolean visible, boolean scrollable, boolean editable,
+                        int left, int top, int right, int bottom) {
+        this.parentIndex = parentIndex;
+        this.className = className;
+        this.viewId = viewId;
+        this.text = text;
+        this.contentDesc = contentDesc;
+        this.clickable = clickable;
+        this.visible = visible;
+        this.scrollable = scrollable;
+        this.editable = editable;
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public int getParentIndex() {
+        return parentIndex;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getViewIdResourceName() {
+        return viewId;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getContentDescription() {
+        return contentDesc;
+    }
+
+    public boolean isClickable() {
+        return clickable;
+    }
+
+    public boolean isVisibleToUser() {
+        return visible;
+    }
+
+    public boolean isScrollable() {
+        return scrollable;
+    }
+
+    public boolean isEditable() {
+        return editable;
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getRight() {
+        return right;
+    }
+
+    public int getBottom() {
+        return bottom;
+    }
+}
@@ -0,0 +1,230 @@
+package com.tomato.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 会话录制中的一个界面，是 ScreenView 在录制数据上的实现。
+ * 构造时按与 ScreenSnapshot 相同的方式建立 view id / content-desc / text / class name 索引并计算结构指纹，
+ * 回放时签名预筛选、处理器的 canProcess 和决策缓存看到的界面与设备上完全一致。
+ */
+public final class RecordedScreen implements ScreenView<RecordedNode> {
+
+    private final List<RecordedNode> nodes;
+    private final int[] childPosition;
+    private final Map<RecordedNode, Integer> indexOfNode;
+    private final Map<String, List<RecordedNode>> byViewId = new LinkedHashMap<>();
+    private final Map<String, List<RecordedNode>> byContentDesc = new LinkedHashMap<>();
+    private final Map<String, List<RecordedNode>> byText = new LinkedHashMap<>();
+    private final Map<String, List<RecordedNode>> byClassName = new LinkedHashMap<>();
+    private final long fingerprint;
+
+    /**
+     * @param nodes 广度优先顺序的节点，第一个为根节点。
+     */
+    public RecordedScreen(List<RecordedNode> nodes) {
+        this.nodes = new ArrayList<>(nodes);
+        this.childPosition = new int[nodes.size()];
+        this.indexOfNode = new IdentityHashMap<>(nodes.size() * 2);
+        int[] depths = new int[nodes.size()];
+        int[] childCounts = new int[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            int parent = nodes.get(i).getParentIndex();
+            if (parent >= 0) {
+                depths[i] = depths[parent] + 1;
+                childPosition[i] = childCounts[parent]++;
+            }
+        }
+        long hash = ScreenFingerprint.OFFSET_BASIS;
+        for (int i = 0; i < nodes.size(); i++) {
+            RecordedNode node = nodes.get(i);
+            indexOfNode.put(node, i);
+            index(byViewId, node.getViewIdResourceName(), node);
+            index(byContentDesc, node.getContentDescription(), node);
+            index(byText, node.getText(), node);
+            index(byClassName, node.getClassName(), node);
+            hash = ScreenFingerprint.add(hash, depths[i], node.getClassName(), node.getViewIdResourceName(), childCounts[i]);
+        }
+        this.fingerprint = hash;
+    }
+
+    private static void index(Map<String, List<RecordedNode>> map, String key, RecordedNode node) {
+        if (key == null) {
+            return;
+        }
+        List<RecordedNode> bucket = map.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<>(1);
+            map.put(key, bucket);
+        }
+        bucket.add(node);
+    }
+
+    /**
+     * @return 广度优先顺序的全部节点。
+     */
+    public List<RecordedNode> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    private static List<RecordedNode> lookup(Map<String, List<RecordedNode>> map, String key) {
+        List<RecordedNode> bucket = key == null ? null : map.get(key);
+        return bucket == null ? Collections.<RecordedNode>emptyList() : Collections.unmodifiableList(bucket);
+    }
+
+    @Override
+    public List<RecordedNode> findByViewId(String viewId) {
+        return lookup(byViewId, viewId);
+    }
+
+    @Override
+    public List<RecordedNode> findByClassName(String className) {
+        return lookup(byClassName, className);
+    }
+
+    @Override
+    public Set<String> getViewIds() {
+        return Collections.unmodifiableSet(byViewId.keySet());
+    }
+
+    @Override
+    public Set<String> getContentDescriptions() {
+        return Collections.unmodifiableSet(byContentDesc.keySet());
+    }
+
+    @Override
+    public boolean hasViewId(String viewId) {
+        return viewId != null && byViewId.containsKey(viewId);
+    }
+
+    @Override
+    public boolean hasContentDescriptionContaining(String part) {
+        if (part == null) {
+            return false;
+        }
+        for (String contentDesc : byContentDesc.keySet()) {
+            if (contentDesc.contains(part)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public MultiPatternMatcher.Hits<RecordedNode> matchContentDescriptions(MultiPatternMatcher matcher) {
+        return match(byContentDesc, matcher);
+    }
+
+    @Override
+    public MultiPatternMatcher.Hits<RecordedNode> matchTexts(MultiPatternMatcher matcher) {
+        return match(byText, matcher);
+    }
+
+    /**
+     * 与 ScreenSnapshot 相同：每个不同的字符串只匹配一次，命中的节点按树上的顺序加入。
+     */
+    private MultiPatternMatcher.Hits<RecordedNode> match(Map<String, List<RecordedNode>> map,
+                                                         MultiPatternMatcher matcher) {
+        MultiPatternMatcher.Hits<RecordedNode> hits = matcher.newHits();
+        long[] masks = null;
+        for (Map.Entry<String, List<RecordedNode>> entry : map.entrySet()) {
+            long matched = matcher.match(entry.getKey());
+            if (matched == 0L) {
+                continue;
+            }
+            if (masks == null) {
+                masks = new long[nodes.size()];
+            }
+            for (RecordedNode node : entry.getValue()) {
+                masks[indexOfNode.get(node)] = matched;
+            }
+        }
+        if (masks == null) {
+            return hits;
+        }
+        for (int i = 0; i < masks.length; i++) {
+            if (masks[i] != 0L) {
+                hits.add(masks[i], nodes.get(i));
+            }
+        }
+        return hits;
+    }
+
+    // --- NodeSelector 看到的节点数组 ---
+
+    @Override
+    public RecordedNode nodeAt(int index) {
+        return nodes.get(index);
+    }
+
+    @Override
+    public int parentIndexAt(int index) {
+        return nodes.get(index).getParentIndex();
+    }
+
+    @Override
+    public int childPositionAt(int index) {
+        return childPosition[index];
+    }
+
+    @Override
+    public int indexOf(RecordedNode node) {
+        Integer index = indexOfNode.get(node);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public CharSequence getClassName(RecordedNode node) {
+        return node.getClassName();
+    }
+
+    @Override
+    public String getViewIdResourceName(RecordedNode node) {
+        return node.getViewIdResourceName();
+    }
+
+    @Override
+    public CharSequence getText(RecordedNode node) {
+        return node.getText();
+    }
+
+    @Override
+    public CharSequence getContentDescription(RecordedNode node) {
+        return node.getContentDescription();
+    }
+
+    @Override
+    public boolean isClickable(RecordedNode node) {
+        return node.isClickable();
+    }
+
+    @Override
+    public boolean isVisibleToUser(RecordedNode node) {
+        return node.isVisibleToUser();
+    }
+
+    @Override
+    public boolean isScrollable(RecordedNode node) {
+        return node.isScrollable();
+    }
+
+    @Override
+    public boolean isEditable(RecordedNode node) {
+        return node.isEditable();
+    }
+}
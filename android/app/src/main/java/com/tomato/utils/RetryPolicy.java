@@ -0,0 +1,131 @@
+package com.tomato.utils;
+
+import java.util.Random;
+
+/**
+ * 屏幕处理失败后的重试策略：指数退避 + 随机抖动 + 最大尝试次数。
+ * 第 n 次重试（n 从 1 开始）前等待 baseDelay * 2^(n-1)，不超过 maxDelay，再在 ±jitterRatio 范围内随机浮动。
+ *
+ * 策略会记录实际观测到的界面稳定耗时（从第一次尝试到处理成功），
+ * 用其指数加权平均值调整首次重试间隔：界面通常很快稳定时保持 baseDelay，稳定得慢时自动退避得更远。
+ * 观测值只在自动化线程上读写。
+ */
+public final class RetryPolicy {
+
+    /**
+     * 处理器匹配但执行失败时使用的默认策略。
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy("default",
+            AccessibilityConfig.RETRY_DEFAULT_BASE_DELAY_MS,
+            AccessibilityConfig.RETRY_DEFAULT_MAX_DELAY_MS,
+            AccessibilityConfig.MAX_RETRY_ATTEMPTS);
+
+    /**
+     * 没有任何处理器匹配（过渡界面、动画中）时使用，快速重查。
+     */
+    public static final RetryPolicy TRANSITION = new RetryPolicy("transition",
+            AccessibilityConfig.RETRY_TRANSITION_BASE_DELAY_MS,
+            AccessibilityConfig.RETRY_TRANSITION_MAX_DELAY_MS,
+            AccessibilityConfig.RETRY_TRANSITION_MAX_ATTEMPTS);
+
+    /**
+     * 加载较慢的界面（广告、搜索结果）使用，退避得更远。
+     */
+    public static final RetryPolicy SLOW = new RetryPolicy("slow",
+            AccessibilityConfig.RETRY_SLOW_BASE_DELAY_MS,
+            AccessibilityConfig.RETRY_SLOW_MAX_DELAY_MS,
+            AccessibilityConfig.RETRY_SLOW_MAX_ATTEMPTS);
+
+    private final String name;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final int maxAttempts;
+
+    // 观测到的界面稳定耗时的加权平均值，小于 0 表示还没有观测值
+    private double settleEwmaMs = -1;
+
+    /**
+     * @param name        策略名称，用于日志。
+     * @param baseDelayMs 首次重试间隔（毫秒）。
+     * @param maxDelayMs  最大重试间隔（毫秒）。
+     * @param maxAttempts 最大尝试次数，包含第一次尝试。
+     */
+    public RetryPolicy(String name, long baseDelayMs, long maxDelayMs, int maxAttempts) {
+        this.name = name;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param attempt 即将进行的尝试序号，0 为第一次尝试。
+     * @return 是否还允许进行这次尝试。
+     */
+    public boolean allows(int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /**
+     * 计算第 attempt 次尝试（attempt >= 1）之前需要等待的时间。
+     *
+     * @param attempt 即将进行的尝试序号。
+     * @param random  用于抖动的随机数生成器。
+     * @return 等待时间（毫秒）。
+     */
+    public long delayBeforeAttempt(int attempt, Random random) {
+        long delay = getEffectiveBaseDelayMs();
+        for (int i = 1; i < attempt && delay < maxDelayMs; i++) {
+            delay *= 2;
+        }
+        delay = Math.min(delay, maxDelayMs);
+        double jitter = (random.nextDouble() * 2 - 1) * AccessibilityConfig.RETRY_JITTER_RATIO;
+        return Math.max(1, Math.round(delay * (1 + jitter)));
+    }
+
+    /**
+     * 首次重试间隔：有观测值时取平均稳定耗时的一半，落在 [baseDelay, maxDelay] 范围内。
+     * 这样第一次重试大约在界面通常稳定的中途，之后的翻倍覆盖到稳定得较慢的情况。
+     */
+    public long getEffectiveBaseDelayMs() {
+        if (settleEwmaMs < 0) {
+            return baseDelayMs;
+        }
+        long adaptive = Math.round(settleEwmaMs / 2);
+        return Math.max(baseDelayMs, Math.min(adaptive, maxDelayMs));
+    }
+
+    /**
+     * 记录一次观测到的界面稳定耗时。
+     *
+     * @param settleMs 从第一次尝试到处理成功经过的时间（毫秒）。
+     */
+    public void recordSettleTime(long settleMs) {
+        if (settleEwmaMs < 0) {
+            settleEwmaMs = settleMs;
+        } else {
+            double alpha = AccessibilityConfig.RETRY_SETTLE_EWMA_ALPHA;
+            settleEwmaMs = alpha * settleMs + (1 - alpha) * settleEwmaMs;
+        }
+    }
+
+    /**
+     * @return 平均稳定耗时（毫秒），没有观测值时返回 -1。
+     */
+    public long getSettleEwmaMs() {
+        return Math.round(settleEwmaMs);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" + name + ", base=" + getEffectiveBaseDelayMs() + "ms, max=" + maxDelayMs
+                + "ms, attempts=" + maxAttempts + "}";
+    }
+}
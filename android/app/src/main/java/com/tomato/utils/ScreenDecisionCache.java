@@ -0,0 +1,125 @@
+package com.tomato.utils;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 界面结构指纹 -> 处理器决策 的 LRU 缓存。
+ * 同一类界面（阅读页、广告页、评价页……）会反复出现，记住上次匹配到的处理器后，
+ * 下次遇到相同指纹可以直接调用该处理器的 canProcess，不必重新走一遍调度。
+ *
+ * 失效规则：
+ * 1. ActionStateManager 或 State 的版本号变化时清空全部条目，因为 canProcess 依赖这些状态；
+ * 2. 服务重置状态时由调用方调用 invalidate()；
+ * 3. “无匹配” 只在指纹与上一轮相同且未超过 NO_MATCH_SKIP_TTL_MS 时用于跳过调度。
+ *
+ * 调度在自动化线程上执行，而重置可能来自主线程，所以公开方法都做了同步。
+ */
+public class ScreenDecisionCache {
+
+    private static final String TAG = AccessibilityConfig.TAG + ".DecisionCache";
+
+    /**
+     * 缓存中的一条决策。processor 为 null 表示该指纹上一次没有任何处理器匹配。
+     */
+    private static final class Decision {
+        final ScreenProcessor processor;
+        final long timestamp;
+
+        Decision(ScreenProcessor processor, long timestamp) {
+            this.processor = processor;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private final int maxEntries;
+    private final Map<Long, Decision> decisions;
+
+    private long actionStateVersion = -1;
+    private long stateVersion = -1;
+
+    // 上一轮调度的指纹
+    private boolean hasLastFingerprint = false;
+    private long lastFingerprint;
+
+    public ScreenDecisionCache() {
+        this(AccessibilityConfig.DECISION_CACHE_SIZE);
+    }
+
+    public ScreenDecisionCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        // accessOrder = true，get 也会刷新条目的位置
+        this.decisions = new LinkedHashMap<Long, Decision>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Decision> eldest) {
+                return size() > ScreenDecisionCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 判断本轮是否可以整体跳过调度：指纹与上一轮相同，且上一轮的结果是无匹配。
+     *
+     * @param fingerprint 本轮快照的指纹。
+     * @return 为 true 时调用方无需执行任何 canProcess。
+     */
+    public synchronized boolean shouldSkip(long fingerprint) {
+        checkVersions();
+        if (!hasLastFingerprint || lastFingerprint != fingerprint) {
+            return false;
+        }
+        Decision decision = decisions.get(fingerprint);
+        if (decision == null || decision.processor != null) {
+            return false;
+        }
+        return SystemClock.uptimeMillis() - decision.timestamp < AccessibilityConfig.NO_MATCH_SKIP_TTL_MS;
+    }
+
+    /**
+     * @param fingerprint 本轮快照的指纹。
+     * @return 该指纹上次匹配到的处理器；没有记录或上次无匹配时返回 null。
+     */
+    public synchronized ScreenProcessor getProcessor(long fingerprint) {
+        checkVersions();
+        Decision decision = decisions.get(fingerprint);
+        return decision == null ? null : decision.processor;
+    }
+
+    /**
+     * 记录本轮完整调度的结果。被 shouldSkip 跳过的轮次不需要记录，
+     * 这样 TTL 从最近一次真正执行的调度开始计算。
+     *
+     * @param fingerprint 本轮快照的指纹。
+     * @param processor   匹配到的处理器，没有匹配时传 null。
+     */
+    public synchronized void record(long fingerprint, ScreenProcessor processor) {
+        checkVersions();
+        decisions.put(fingerprint, new Decision(processor, SystemClock.uptimeMillis()));
+        lastFingerprint = fingerprint;
+        hasLastFingerprint = true;
+    }
+
+    /**
+     * 清空所有缓存的决策。
+     */
+    public synchronized void invalidate() {
+        decisions.clear();
+        hasLastFingerprint = false;
+    }
+
+    private void checkVersions() {
+        long currentActionStateVersion = ActionStateManager.getInstance().getVersion();
+        long currentStateVersion = State.getInstance().getVersion();
+        if (currentActionStateVersion != actionStateVersion || currentStateVersion != stateVersion) {
+            if (!decisions.isEmpty()) {
+                Log.d(TAG, "状态已变化，清空决策缓存。");
+            }
+            invalidate();
+            actionStateVersion = currentActionStateVersion;
+            stateVersion = currentStateVersion;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.tomato.utils;
+
+import android.util.Log;
+
+import com.tomato.nativeaccessibility.AccessibilityEventService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 基于界面签名的处理器调度器。
+ * 注册时把每个处理器的 ScreenSignature 拆成元素，建立 “元素 -> 处理器” 的倒排索引（SignatureIndex）；
+ * 调度时只收集当前界面上出现的元素，所有必需元素都出现且没有禁止元素的处理器才会进入候选，
+ * 再按注册顺序依次调用候选的 canProcess。
+ *
+ * 这样调度开销只和界面上的元素数量有关，不会随着处理器数量线性增长。
+ * 没有声明签名的处理器总是作为候选，保持原有的逐个 canProcess 行为。
+ */
+public class ScreenDispatcher {
+
+    private static final String TAG = AccessibilityConfig.TAG + ".Dispatcher";
+
+    private final List<ScreenProcessor> processors = new ArrayList<>();
+    private final List<ScreenSignature> signatures = new ArrayList<>();
+
+    // 签名倒排索引，在 register 后惰性重建
+    private SignatureIndex signatureIndex;
+
+    /**
+     * 按优先级顺序注册处理器，先注册的先尝试。
+     */
+    public void register(ScreenProcessor processor) {
+        processors.add(processor);
+        signatures.add(processor.getSignature());
+        signatureIndex = null;
+    }
+
+    /**
+     * @return 已注册的处理器（按注册顺序）。
+     */
+    public List<ScreenProcessor> getProcessors() {
+        return Collections.unmodifiableList(processors);
+    }
+
+    /**
+     * @return 处理器的编号（注册顺序下标），用于追踪记录；未注册时返回 TraceBuffer.NO_PROCESSOR。
+     */
+    public int getProcessorId(ScreenProcessor processor) {
+        if (processor == null) {
+            return TraceBuffer.NO_PROCESSOR;
+        }
+        for (int i = 0; i < processors.size(); i++) {
+            if (processors.get(i) == processor) {
+                return i;
+            }
+        }
+        return TraceBuffer.NO_PROCESSOR;
+    }
+
+    /**
+     * @return 按编号排列的处理器名称。
+     */
+    public String[] getProcessorNames() {
+        String[] names = new String[processors.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = processors.get(i).getName();
+        }
+        return names;
+    }
+
+    public void clear() {
+        processors.clear();
+        signatures.clear();
+        signatureIndex = null;
+    }
+
+    /**
+     * 根据当前界面出现的元素，计算需要调用 canProcess 的候选处理器。
+     *
+     * @param snapshot 本轮的屏幕快照。
+     * @return 候选处理器，按注册顺序排列。
+     */
+    public List<ScreenProcessor> findCandidates(ScreenSnapshot snapshot) {
+        if (signatureIndex == null) {
+            signatureIndex = new SignatureIndex(signatures);
+        }
+        boolean[] hits = signatureIndex.match(snapshot);
+        List<ScreenProcessor> candidates = new ArrayList<>();
+        for (int p = 0; p < processors.size(); p++) {
+            if (hits[p]) {
+                candidates.add(processors.get(p));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 在候选处理器中按顺序找到第一个 canProcess 返回 true 的处理器。
+     *
+     * @return 匹配的处理器，没有则返回 null。
+     */
+    public ScreenProcessor selectProcessor(AccessibilityEventService service, ScreenSnapshot snapshot) {
+        List<ScreenProcessor> candidates = findCandidates(snapshot);
+        if (AccessibilityLog.isDebugEnabled()) {
+            Log.d(TAG, "selectProcessor: " + processors.size() + " 个处理器中有 " + candidates.size() + " 个候选。");
+        }
+        for (ScreenProcessor processor : candidates) {
+            if (canProcess(service, processor, snapshot)) {
+                return processor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 调用处理器的 canProcess，并把耗时记入该处理器的指标。
+     */
+    public boolean canProcess(AccessibilityEventService service, ScreenProcessor processor, ScreenSnapshot snapshot) {
+        long start = System.nanoTime();
+        boolean matched = processor.canProcess(service, snapshot);
+        MetricsRegistry.getInstance().recordCanProcess(getProcessorId(processor), start);
+        return matched;
+    }
+}
@@ -0,0 +1,106 @@
+package com.tomato.utils;
+
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+/**
+ * 转交给自动化线程的无障碍事件。
+ * AccessibilityEvent 在 onAccessibilityEvent 返回后就会被系统回收，不能跨线程使用，
+ * 所以在主线程上把需要的字段和事件源节点取出来，保存到这个对象里。
+ *
+ * 所有权约定：事件源节点归本对象所有，监听者在回调中可以使用但不要 recycle()，
+ * 回调结束后由服务统一调用 recycle()。
+ */
+public final class ScreenEvent {
+
+    // 泄漏统计中事件源节点的持有者名称
+    private static final String LEAK_OWNER = "ScreenEvent";
+
+    private final int eventType;
+    private final int windowId;
+    private final int contentChangeTypes;
+    private final long eventTime;
+    private final String packageName;
+    private final String className;
+    private AccessibilityNodeInfo source;
+
+    private ScreenEvent(AccessibilityEvent event) {
+        this.eventType = event.getEventType();
+        this.windowId = event.getWindowId();
+        this.contentChangeTypes = event.getContentChangeTypes();
+        this.eventTime = event.getEventTime();
+        this.packageName = toStringOrNull(event.getPackageName());
+        this.className = toStringOrNull(event.getClassName());
+        this.source = event.getSource();
+        if (source != null) {
+            NodeLeakTracker.acquired(LEAK_OWNER, 1);
+        }
+    }
+
+    /**
+     * 从系统事件复制一份，必须在 onAccessibilityEvent 中调用。
+     */
+    public static ScreenEvent from(AccessibilityEvent event) {
+        return new ScreenEvent(event);
+    }
+
+    private static String toStringOrNull(CharSequence value) {
+        return value == null ? null : value.toString();
+    }
+
+    public int getEventType() {
+        return eventType;
+    }
+
+    public int getWindowId() {
+        return windowId;
+    }
+
+    public int getContentChangeTypes() {
+        return contentChangeTypes;
+    }
+
+    public long getEventTime() {
+        return eventTime;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return 事件源节点，可能为 null。节点归本对象所有。
+     */
+    public AccessibilityNodeInfo getSource() {
+        return source;
+    }
+
+    /**
+     * @return 事件源节点的 view id，没有事件源或没有 id 时返回 null。
+     */
+    public String getSourceViewId() {
+        return source == null ? null : source.getViewIdResourceName();
+    }
+
+    /**
+     * @return 事件是否来自指定 view id 的节点。
+     */
+    public boolean isFromViewId(String viewId) {
+        return viewId != null && viewId.equals(getSourceViewId());
+    }
+
+    /**
+     * 回收事件源节点。可以重复调用。
+     */
+    public void recycle() {
+        if (source != null) {
+            NodeLeakTracker.released(LEAK_OWNER, 1);
+            source.recycle();
+            source = null;
+        }
+    }
+}
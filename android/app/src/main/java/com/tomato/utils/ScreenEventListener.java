@@ -0,0 +1,28 @@
+package com.tomato.utils;
+
+import com.tomato.nativeaccessibility.AccessibilityEventService;
+
+/**
+ * 需要直接响应无障碍事件的处理器（例如等待列表滚动完成）实现此接口，
+ * 并通过 AccessibilityEventService.addScreenEventListener 注册。
+ * 回调在自动化线程上执行；服务重置状态时会移除所有监听者。
+ */
+public interface ScreenEventListener {
+
+    /**
+     * @param service AccessibilityEventService 的实例。
+     * @param event   事件副本，只在回调期间有效。
+     */
+    void onScreenEvent(AccessibilityEventService service, ScreenEvent event);
+
+    /**
+     * 增量模式：监听者在事件源所在的子树上自行检查内容变化和滚动。
+     * 只要有一个增量监听者在注册中，这两类事件就只分发给监听者，不再安排整窗口的处理周期，
+     * 整窗口的处理周期只由窗口状态变化触发。
+     *
+     * @return 默认 false，事件照常触发整窗口的处理周期。
+     */
+    default boolean isIncremental() {
+        return false;
+    }
+}
@@ -0,0 +1,44 @@
+package com.tomato.utils;
+
+/**
+ * 界面结构指纹的计算（64 位 FNV-1a）。
+ * 只由深度不超过 FINGERPRINT_MAX_DEPTH 的节点的深度、类名、view id 和子节点数决定，与文本内容无关。
+ * ScreenSnapshot 和回放用的 RecordedScreen 共用这里的算法，同一个界面在设备上和回放时得到相同的指纹。
+ */
+public final class ScreenFingerprint {
+
+    public static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private ScreenFingerprint() {
+    }
+
+    /**
+     * 把一个节点混入指纹。节点需要按广度优先顺序依次加入，深度超出范围的节点会被忽略。
+     *
+     * @param hash 当前指纹，第一个节点传 OFFSET_BASIS。
+     * @return 新的指纹。
+     */
+    public static long add(long hash, int depth, CharSequence className, CharSequence viewId, int childCount) {
+        if (depth > AccessibilityConfig.FINGERPRINT_MAX_DEPTH) {
+            return hash;
+        }
+        hash = mix(hash, depth);
+        hash = mix(hash, hashOf(className));
+        hash = mix(hash, hashOf(viewId));
+        hash = mix(hash, childCount);
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash ^= (value >>> shift) & 0xff;
+            hash *= PRIME;
+        }
+        return hash;
+    }
+
+    private static int hashOf(CharSequence value) {
+        return value == null ? 0 : value.toString().hashCode();
+    }
+}
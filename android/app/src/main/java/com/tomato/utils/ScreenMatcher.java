@@ -0,0 +1,34 @@
+package com.tomato.utils;
+
+/**
+ * 处理器的界面识别部分：签名和 canProcess。只依赖 ProcessorContext 和 ScreenView，不依赖 Android，
+ * 基准测试模块在 JVM 上用录制的界面（RecordedScreen）运行与设备上完全相同的判断。
+ *
+ * 处理器（ScreenProcessor）在此之上加上执行操作的部分。
+ */
+public interface ScreenMatcher {
+
+    /**
+     * 判断当前界面是否可以由本处理器处理。
+     * @param context 处理器读取的运行状态，设备上是 AccessibilityEventService。
+     * @param screen 本轮调度共享的界面视图，设备上是 ScreenSnapshot。快照中的节点不要自行回收。
+     * @return 如果是本处理器负责的界面，返回 true。
+     */
+    boolean canProcess(ProcessorContext context, ScreenView<?> screen);
+
+    /**
+     * 声明本处理器负责的界面的静态特征，供 ScreenDispatcher 预筛选候选处理器。
+     * @return 界面签名；返回 null 表示不做预筛选，每轮都会调用 canProcess。
+     */
+    default ScreenSignature getSignature() {
+        return null;
+    }
+
+    /**
+     * 处理器的名称，用于日志、指标、追踪和会话录制，规则文件中的 builtin 条目也按名称引用内置处理器。
+     * @return 默认为类名；规则处理器返回规则名。
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+}
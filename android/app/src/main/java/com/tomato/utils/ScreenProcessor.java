@@ -1,22 +1,55 @@
 package com.tomato.utils;
 
+import android.view.accessibility.AccessibilityEvent;
+
 import com.tomato.nativeaccessibility.AccessibilityEventService;
-import android.view.accessibility.AccessibilityNodeInfo;
 
-public interface ScreenProcessor {
+import java.util.Collections;
+import java.util.Set;
 
-    /**
-     * 判断当前界面是否可以由本处理器处理。
-     * @param service AccessibilityEventService 的实例，用于访问状态管理器等。
-     * @param rootNode 窗口根节点，用于查找特征元素。
-     * @return 如果是本处理器负责的界面，返回 true。
-     */
-    boolean canProcess(AccessibilityEventService service, AccessibilityNodeInfo rootNode);
+/**
+ * 界面处理器。界面识别（签名、canProcess）来自 ScreenMatcher，不依赖 Android；
+ * 本接口加上在设备上执行操作的部分。canProcess 收到的 context 是 AccessibilityEventService，
+ * screen 是本轮调度共享的 ScreenSnapshot。
+ */
+public interface ScreenProcessor extends ScreenMatcher {
 
     /**
      * 对当前界面执行具体的操作。
      * @param service AccessibilityEventService 的实例，用于执行点击、访问 Handler 等。
-     * @param rootNode 窗口根节点。
+     * @param snapshot 本轮调度共享的屏幕快照，与 canProcess 收到的是同一份。
+     */
+    boolean  process(AccessibilityEventService service, ScreenSnapshot snapshot);
+
+    /**
+     * 本处理器在 process 中启动的异步流程是否仍在运行，服务据此实现 ProcessorContext.isFlowRunning。
+     * @return 默认为 false，process 返回时操作就已结束。
+     */
+    default boolean isFlowRunning() {
+        return false;
+    }
+
+    /**
+     * 本处理器匹配但 process() 返回 false 时使用的重试策略。加载较慢的界面可以返回 RetryPolicy.SLOW。
+     * @return 重试策略；返回 null 表示使用 RetryPolicy.DEFAULT。
+     */
+    default RetryPolicy getRetryPolicy() {
+        return null;
+    }
+
+    /**
+     * 本处理器在当前状态下需要订阅的事件类型，服务按所有处理器的并集收窄订阅（见 EventSubscription）。
+     * @return AccessibilityEvent.TYPE_* 按位或；返回 0 表示当前状态下本处理器不会匹配任何界面，例如只执行一次的操作已经完成。
+     */
+    default int getEventTypes(AccessibilityEventService service) {
+        return AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED | AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED;
+    }
+
+    /**
+     * 本处理器负责的界面所属的应用包名，getEventTypes 不为 0 时加入订阅。
+     * @return 默认为番茄小说。
      */
-    boolean  process(AccessibilityEventService service, AccessibilityNodeInfo rootNode);
+    default Set<String> getPackageNames() {
+        return Collections.singleton(AccessibilityConfig.TARGET_PACKAGE_NAME_1);
+    }
 }
@@ -0,0 +1,224 @@
+package com.tomato.utils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 一条声明式的界面规则：界面上满足哪些条件、状态满足哪些守卫时，依次执行哪些操作。
+ * 规则由 ScreenRuleFile 从规则文件解析并编译，由 RuleProcessor 作为普通的处理器注册到调度器，
+ * 界面条件和状态守卫由 ScreenRuleSet 检查。
+ *
+ * 规则对象在构造后不可变，不依赖 Android。
+ */
+public final class ScreenRule {
+
+    /** 守卫：前端已经设置了要搜索的小说名。 */
+    public static final String REQUIRE_NOVEL_NAME = "novelName";
+    /** 守卫：自动阅读处于开启状态。 */
+    public static final String REQUIRE_AUTO_READING = "autoReading";
+
+    private final String name;
+    private final List<Selector> conditions;
+    private final List<Action> actions;
+    private final String onceActionId;
+    // 状态守卫，由 ScreenRuleSet.guardsPass 检查
+    final boolean requireNovelName;
+    final boolean requireAutoReading;
+    private final RetryPolicy retryPolicy;
+    private final ScreenSignature signature;
+    private final Set<String> packageNames;
+
+    ScreenRule(String name, List<Selector> conditions, List<Action> actions, String onceActionId,
+               boolean requireNovelName, boolean requireAutoReading, RetryPolicy retryPolicy,
+               ScreenSignature signature) {
+        this.name = name;
+        this.conditions = Collections.unmodifiableList(conditions);
+        this.actions = Collections.unmodifiableList(actions);
+        this.onceActionId = onceActionId;
+        this.requireNovelName = requireNovelName;
+        this.requireAutoReading = requireAutoReading;
+        this.retryPolicy = retryPolicy;
+        this.signature = signature;
+        this.packageNames = derivePackageNames(conditions, actions);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 界面条件，全部满足时规则才匹配。
+     */
+    public List<Selector> getConditions() {
+        return conditions;
+    }
+
+    public List<Action> getActions() {
+        return actions;
+    }
+
+    /**
+     * @return 只执行一次的操作标识：已完成时规则不再匹配，所有操作成功后标记为完成；没有时返回 null。
+     */
+    public String getOnceActionId() {
+        return onceActionId;
+    }
+
+    /**
+     * @return 重试策略，规则没有指定时返回 null。
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * @return 由界面条件推导出的签名，供调度器预筛选。
+     */
+    public ScreenSignature getSignature() {
+        return signature;
+    }
+
+    /**
+     * @return 规则涉及的界面所属的应用包名，由条件和操作中资源 ID 的包名前缀推导；
+     *         没有资源 ID 时为番茄小说。
+     */
+    public Set<String> getPackageNames() {
+        return packageNames;
+    }
+
+    private static Set<String> derivePackageNames(List<Selector> conditions, List<Action> actions) {
+        Set<String> packages = new TreeSet<>();
+        for (Selector selector : conditions) {
+            addPackageOf(packages, selector.viewId);
+        }
+        for (Action action : actions) {
+            if (action.target != null) {
+                addPackageOf(packages, action.target.viewId);
+            }
+        }
+        if (packages.isEmpty()) {
+            packages.add(AccessibilityConfig.TARGET_PACKAGE_NAME_1);
+        }
+        return Collections.unmodifiableSet(packages);
+    }
+
+    private static void addPackageOf(Set<String> packages, String viewId) {
+        // 完整的资源 ID 形如 "com.dragon.read:id/c8"
+        int separator = viewId == null ? -1 : viewId.indexOf(":id/");
+        if (separator > 0) {
+            packages.add(viewId.substring(0, separator));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * 节点选择器：同一个节点需要同时满足其中的所有字段。
+     * view id 和类名按完全匹配判断，content-desc 和文本按包含匹配判断。
+     * 需要父子、兄弟关系时使用 select 字段，由 NodeSelector 查找。
+     */
+    public static final class Selector {
+        final String viewId;
+        final String contentDesc;
+        final String text;
+        final String className;
+        final Boolean hasText;
+        final Boolean editable;
+        final Boolean clickable;
+        final boolean absent;
+
+        // content-desc / 文本在规则集共享匹配器中的模式编号，由 ScreenRuleFile 编译时填入
+        int contentDescPattern = -1;
+        int textPattern = -1;
+        // 带层级关系的条件（规则文件中的 select 字段），不为 null 时其他字段都为空
+        NodeSelector query;
+
+        Selector(String viewId, String contentDesc, String text, String className,
+                 Boolean hasText, Boolean editable, Boolean clickable, boolean absent) {
+            this.viewId = viewId;
+            this.contentDesc = contentDesc;
+            this.text = text;
+            this.className = className;
+            this.hasText = hasText;
+            this.editable = editable;
+            this.clickable = clickable;
+            this.absent = absent;
+        }
+
+        /**
+         * @return true 表示条件要求界面上没有满足选择器的节点。
+         */
+        public boolean isAbsent() {
+            return absent;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(absent ? "!{" : "{");
+            append(builder, "id", viewId);
+            append(builder, "desc", contentDesc);
+            append(builder, "text", text);
+            append(builder, "class", className);
+            append(builder, "hasText", hasText);
+            append(builder, "editable", editable);
+            append(builder, "clickable", clickable);
+            append(builder, "select", query);
+            return builder.append('}').toString();
+        }
+
+        private static void append(StringBuilder builder, String key, Object value) {
+            if (value != null) {
+                if (builder.length() > 2) {
+                    builder.append(", ");
+                }
+                builder.append(key).append('=').append(value);
+            }
+        }
+    }
+
+    /**
+     * 规则匹配后执行的一个操作。
+     */
+    public static final class Action {
+        public static final int CLICK = 0;
+        public static final int INPUT = 1;
+        public static final int SWIPE = 2;
+        public static final int SCROLL = 3;
+
+        /** 输入值中的占位符，执行时替换为前端设置的小说名。 */
+        public static final String NOVEL_NAME_PLACEHOLDER = "${novelName}";
+
+        final int type;
+        final Selector target;
+        final String argument;
+
+        Action(int type, Selector target, String argument) {
+            this.type = type;
+            this.target = target;
+            this.argument = argument;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        /**
+         * @return 操作的目标节点；滑动操作没有目标，返回 null。
+         */
+        public Selector getTarget() {
+            return target;
+        }
+
+        /**
+         * @return 输入操作的文本、滑动操作的方向（left / up）或滚动操作的方向（forward / backward）。
+         */
+        public String getArgument() {
+            return argument;
+        }
+    }
+}
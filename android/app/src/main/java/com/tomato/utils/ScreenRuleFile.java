@@ -0,0 +1,350 @@
+package com.tomato.utils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 解析并编译好的规则文件：按优先级排列的规则和内置处理器引用，以及所有规则共用的多模式匹配器。
+ *
+ * 规则文件是 JSON：
+ * <pre>
+ * {
+ *   "version": 1,
+ *   "rules": [
+ *     { "name": "RankProcessor",
+ *       "match":   [ { "id": "com.dragon.read:id/ll" } ],
+ *       "actions": [ { "click": { "id": "com.dragon.read:id/ll" } } ] },
+ *     { "name": "SearchNovelProcessor",
+ *       "once": "action_click_search_button",
+ *       "match":   [ { "id": "com.dragon.read:id/gh2" }, { "id": "com.dragon.read:id/gfy", "hasText": true } ],
+ *       "actions": [ { "click": { "id": "com.dragon.read:id/gh2" } } ] },
+ *     { "builtin": "AdProcessor" }
+ *   ]
+ * }
+ * </pre>
+ * 规则字段：
+ * <ul>
+ *   <li>match: 选择器列表，全部满足时规则匹配。选择器字段 id / class 完全匹配，desc / text 包含匹配，
+ *       hasText / editable / clickable 检查节点属性，"absent": true 表示界面上不能有这样的节点；
+ *       需要父子、兄弟关系时改用 "select": "[desc*=领取成功] ~ UIImage" 这样的 NodeSelector 语法；</li>
+ *   <li>actions: 依次执行的操作，click / input（"value" 中的 ${novelName} 替换为小说名）/
+ *       scroll（"direction": forward | backward）的值是目标选择器，swipe 的值是方向 left | up；</li>
+ *   <li>once: 操作标识，已完成时不再匹配，所有操作成功后标记为完成；</li>
+ *   <li>requires: 状态守卫，可选 novelName / autoReading；</li>
+ *   <li>retry: 操作失败时的重试策略，default / slow / transition。</li>
+ * </ul>
+ * builtin 条目引用 Java 实现的处理器（需要订阅事件或循环执行的流程），使整个调度顺序都由规则文件决定。
+ *
+ * 编译时从每条规则的界面条件推导出签名，所有规则的 desc 条件合并成一个多模式匹配器，text 条件合并成另一个，
+ * 匹配由 ScreenRuleSet 在快照上完成。本类不依赖 Android，基准测试模块用它加载同一份规则文件。
+ */
+public final class ScreenRuleFile {
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final Set<String> SELECTOR_KEYS = new HashSet<>(Arrays.asList(
+            "id", "desc", "text", "class", "hasText", "editable", "clickable", "absent", "select"));
+
+    /**
+     * 规则文件中的一项：一条规则，或者对内置处理器的引用。
+     */
+    public static final class Entry {
+        private final ScreenRule rule;
+        private final String builtin;
+
+        private Entry(ScreenRule rule, String builtin) {
+            this.rule = rule;
+            this.builtin = builtin;
+        }
+
+        /**
+         * @return 规则；内置处理器的引用返回 null。
+         */
+        public ScreenRule getRule() {
+            return rule;
+        }
+
+        /**
+         * @return 内置处理器的名称；规则返回 null。
+         */
+        public String getBuiltin() {
+            return builtin;
+        }
+    }
+
+    private final List<Entry> entries;
+    private final MultiPatternMatcher contentDescMatcher;
+    private final MultiPatternMatcher textMatcher;
+
+    private ScreenRuleFile(List<Entry> entries, MultiPatternMatcher contentDescMatcher, MultiPatternMatcher textMatcher) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.contentDescMatcher = contentDescMatcher;
+        this.textMatcher = textMatcher;
+    }
+
+    /**
+     * @return 按优先级排列的规则和内置处理器引用。
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return 规则（不含内置处理器引用）的数量。
+     */
+    public int getRuleCount() {
+        int count = 0;
+        for (Entry entry : entries) {
+            if (entry.rule != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return 所有规则的 desc 条件编译成的匹配器，模式编号见 ScreenRule.Selector；没有 desc 条件时返回 null。
+     */
+    MultiPatternMatcher getContentDescMatcher() {
+        return contentDescMatcher;
+    }
+
+    /**
+     * @return 所有规则的 text 条件编译成的匹配器；没有 text 条件时返回 null。
+     */
+    MultiPatternMatcher getTextMatcher() {
+        return textMatcher;
+    }
+
+    /**
+     * 解析并编译规则文件。
+     *
+     * @param json 规则文件内容。
+     * @return 编译好的规则文件。
+     * @throws JSONException 文件不是合法的 JSON，或者规则有误（缺少字段、未知的操作等）。
+     */
+    public static ScreenRuleFile parse(String json) throws JSONException {
+        JSONObject root = new JSONObject(json);
+        int version = root.optInt("version", FORMAT_VERSION);
+        if (version != FORMAT_VERSION) {
+            throw new JSONException("不支持的规则文件版本: " + version);
+        }
+        JSONArray items = root.getJSONArray("rules");
+        Compiler compiler = new Compiler();
+        List<Entry> entries = new ArrayList<>(items.length());
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < items.length(); i++) {
+            JSONObject item = items.getJSONObject(i);
+            String builtin = item.optString("builtin", null);
+            Entry entry = builtin != null ? new Entry(null, builtin) : new Entry(compiler.rule(item), null);
+            String name = builtin != null ? builtin : entry.rule.getName();
+            if (!names.add(name)) {
+                throw new JSONException("规则名称重复: " + name);
+            }
+            entries.add(entry);
+        }
+        return new ScreenRuleFile(entries, compiler.matcher(compiler.contentDescPatterns, "desc"),
+                compiler.matcher(compiler.textPatterns, "text"));
+    }
+
+    /**
+     * 解析过程中的状态：收集所有 desc / text 模式并分配编号。
+     */
+    private static final class Compiler {
+        final Map<String, Integer> contentDescPatterns = new LinkedHashMap<>();
+        final Map<String, Integer> textPatterns = new LinkedHashMap<>();
+
+        ScreenRule rule(JSONObject item) throws JSONException {
+            String name = item.getString("name");
+            JSONArray match = item.getJSONArray("match");
+            if (match.length() == 0) {
+                throw new JSONException("规则 " + name + " 没有任何界面条件");
+            }
+            List<ScreenRule.Selector> conditions = new ArrayList<>(match.length());
+            ScreenSignature.Builder signature = ScreenSignature.builder();
+            for (int i = 0; i < match.length(); i++) {
+                ScreenRule.Selector condition = selector(name, match.getJSONObject(i), true);
+                conditions.add(condition);
+                addToSignature(signature, condition);
+            }
+
+            JSONArray actionItems = item.getJSONArray("actions");
+            List<ScreenRule.Action> actions = new ArrayList<>(actionItems.length());
+            for (int i = 0; i < actionItems.length(); i++) {
+                actions.add(action(name, actionItems.getJSONObject(i)));
+            }
+
+            boolean requireNovelName = false;
+            boolean requireAutoReading = false;
+            JSONArray requires = item.optJSONArray("requires");
+            for (int i = 0; requires != null && i < requires.length(); i++) {
+                String guard = requires.getString(i);
+                if (ScreenRule.REQUIRE_NOVEL_NAME.equals(guard)) {
+                    requireNovelName = true;
+                } else if (ScreenRule.REQUIRE_AUTO_READING.equals(guard)) {
+                    requireAutoReading = true;
+                } else {
+                    throw new JSONException("规则 " + name + " 使用了未知的守卫: " + guard);
+                }
+            }
+
+            return new ScreenRule(name, conditions, actions, item.optString("once", null),
+                    requireNovelName, requireAutoReading, retryPolicy(name, item.optString("retry", null)),
+                    signature.build());
+        }
+
+        /**
+         * 必需的节点一定带着它的 view id（或 content-desc）出现在界面上，可以放进签名；
+         * 禁止条件只有在选择器仅由该字段构成时才等价于签名中的禁止元素。
+         */
+        private static void addToSignature(ScreenSignature.Builder signature, ScreenRule.Selector condition) {
+            boolean idOnly = condition.viewId != null && condition.contentDesc == null && condition.text == null
+                    && condition.className == null && condition.hasText == null && condition.editable == null
+                    && condition.clickable == null;
+            boolean contentDescOnly = condition.viewId == null && condition.contentDesc != null
+                    && condition.text == null && condition.className == null && condition.hasText == null
+                    && condition.editable == null && condition.clickable == null;
+            if (!condition.absent) {
+                if (condition.viewId != null) {
+                    signature.requireViewId(condition.viewId);
+                } else if (condition.contentDesc != null) {
+                    signature.requireContentDesc(condition.contentDesc);
+                }
+            } else if (idOnly) {
+                signature.forbidViewId(condition.viewId);
+            } else if (contentDescOnly) {
+                signature.forbidContentDesc(condition.contentDesc);
+            }
+        }
+
+        private ScreenRule.Selector selector(String rule, JSONObject item, boolean allowAbsent) throws JSONException {
+            for (Iterator<String> keys = item.keys(); keys.hasNext(); ) {
+                String key = keys.next();
+                if (!SELECTOR_KEYS.contains(key)) {
+                    throw new JSONException("规则 " + rule + " 的选择器中有未知字段: " + key);
+                }
+            }
+            boolean absent = item.optBoolean("absent", false);
+            if (absent && !allowAbsent) {
+                throw new JSONException("规则 " + rule + " 的操作目标不能是 absent");
+            }
+            if (item.has("select")) {
+                return structural(rule, item, absent);
+            }
+            String viewId = item.optString("id", null);
+            String contentDesc = nonEmpty(rule, item, "desc");
+            String text = nonEmpty(rule, item, "text");
+            String className = item.optString("class", null);
+            if (viewId == null && contentDesc == null && text == null && className == null) {
+                throw new JSONException("规则 " + rule + " 的选择器至少需要 id / desc / text / class / select 之一");
+            }
+            ScreenRule.Selector selector = new ScreenRule.Selector(viewId, contentDesc, text, className,
+                    optBoolean(item, "hasText"), optBoolean(item, "editable"), optBoolean(item, "clickable"), absent);
+            if (viewId == null && contentDesc != null) {
+                selector.contentDescPattern = patternIndex(contentDescPatterns, contentDesc);
+            } else if (viewId == null && text != null) {
+                selector.textPattern = patternIndex(textPatterns, text);
+            }
+            return selector;
+        }
+
+        /**
+         * 带层级关系的条件用 NodeSelector 的语法书写，不能再与其他字段混用（absent 除外）。
+         * 选择器在解析规则文件时编译，语法错误与其他规则错误一样使整个文件无效。
+         */
+        private static ScreenRule.Selector structural(String rule, JSONObject item, boolean absent) throws JSONException {
+            if (item.length() > (item.has("absent") ? 2 : 1)) {
+                throw new JSONException("规则 " + rule + " 的 select 不能与其他字段混用");
+            }
+            String query = nonEmpty(rule, item, "select");
+            ScreenRule.Selector selector = new ScreenRule.Selector(null, null, null, null, null, null, null, absent);
+            try {
+                selector.query = NodeSelector.compile(query);
+            } catch (IllegalArgumentException e) {
+                throw new JSONException("规则 " + rule + " 的 select 无效: " + e.getMessage());
+            }
+            return selector;
+        }
+
+        private ScreenRule.Action action(String rule, JSONObject item) throws JSONException {
+            if (item.has("click")) {
+                return new ScreenRule.Action(ScreenRule.Action.CLICK, selector(rule, item.getJSONObject("click"), false), null);
+            }
+            if (item.has("input")) {
+                return new ScreenRule.Action(ScreenRule.Action.INPUT, selector(rule, item.getJSONObject("input"), false),
+                        item.getString("value"));
+            }
+            if (item.has("scroll")) {
+                String direction = item.optString("direction", "forward");
+                if (!"forward".equals(direction) && !"backward".equals(direction)) {
+                    throw new JSONException("规则 " + rule + " 的滚动方向无效: " + direction);
+                }
+                return new ScreenRule.Action(ScreenRule.Action.SCROLL, selector(rule, item.getJSONObject("scroll"), false),
+                        direction);
+            }
+            if (item.has("swipe")) {
+                String direction = item.getString("swipe");
+                if (!"left".equals(direction) && !"up".equals(direction)) {
+                    throw new JSONException("规则 " + rule + " 的滑动方向无效: " + direction);
+                }
+                return new ScreenRule.Action(ScreenRule.Action.SWIPE, null, direction);
+            }
+            throw new JSONException("规则 " + rule + " 中有未知的操作");
+        }
+
+        private static RetryPolicy retryPolicy(String rule, String name) throws JSONException {
+            if (name == null) {
+                return null;
+            }
+            for (RetryPolicy policy : new RetryPolicy[]{RetryPolicy.DEFAULT, RetryPolicy.SLOW, RetryPolicy.TRANSITION}) {
+                if (policy.getName().equals(name)) {
+                    return policy;
+                }
+            }
+            throw new JSONException("规则 " + rule + " 使用了未知的重试策略: " + name);
+        }
+
+        private static String nonEmpty(String rule, JSONObject item, String key) throws JSONException {
+            String value = item.optString(key, null);
+            if (value != null && value.isEmpty()) {
+                throw new JSONException("规则 " + rule + " 的 " + key + " 不能为空字符串");
+            }
+            return value;
+        }
+
+        private static Boolean optBoolean(JSONObject item, String key) {
+            return item.has(key) ? item.optBoolean(key) : null;
+        }
+
+        private static int patternIndex(Map<String, Integer> patterns, String pattern) {
+            Integer index = patterns.get(pattern);
+            if (index == null) {
+                index = patterns.size();
+                patterns.put(pattern, index);
+            }
+            return index;
+        }
+
+        MultiPatternMatcher matcher(Map<String, Integer> patterns, String field) throws JSONException {
+            if (patterns.isEmpty()) {
+                return null;
+            }
+            try {
+                return MultiPatternMatcher.compile(patterns.keySet().toArray(new String[0]));
+            } catch (IllegalArgumentException e) {
+                throw new JSONException("规则中的 " + field + " 条件过多: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.tomato.utils;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 加载界面规则文件，并在文件更新时热加载。
+ *
+ * 内置规则打包在 assets/screen_rules.json。应用的外部文件目录下的 rules/screen_rules.json 存在时覆盖内置规则，
+ * 可以直接用 adb push 更新，不需要重新打包，也不需要重启服务：
+ * <pre>
+ * adb push screen_rules.json /sdcard/Android/data/&lt;应用包名&gt;/files/rules/
+ * </pre>
+ * 覆盖文件的修改时间变化后，下一个处理周期开始时重新加载；新文件有误时记录错误并继续使用当前规则，
+ * 覆盖文件被删除后回到内置规则。
+ */
+public final class ScreenRuleLoader {
+
+    private static final String TAG = AccessibilityConfig.TAG + ".Rules";
+
+    private final Context context;
+    private final File overrideFile;
+    // 最近一次尝试加载的覆盖文件的修改时间，0 表示使用内置规则（与文件不存在时 lastModified() 的返回值一致）
+    private long loadedModified = 0L;
+    private long lastCheckMs;
+
+    public ScreenRuleLoader(Context context) {
+        this.context = context;
+        File directory = context.getExternalFilesDir(AccessibilityConfig.RULES_DIRECTORY);
+        if (directory == null) {
+            directory = new File(context.getFilesDir(), AccessibilityConfig.RULES_DIRECTORY);
+        }
+        this.overrideFile = new File(directory, AccessibilityConfig.RULES_FILE_NAME);
+    }
+
+    /**
+     * @return 覆盖内置规则的文件路径（文件不一定存在）。
+     */
+    public File getOverrideFile() {
+        return overrideFile;
+    }
+
+    /**
+     * 加载规则：覆盖文件存在且有效时使用覆盖文件，否则使用内置规则。
+     *
+     * @throws IllegalStateException 内置规则无法读取或有误，属于打包错误。
+     */
+    public ScreenRuleSet load() {
+        lastCheckMs = SystemClock.uptimeMillis();
+        long modified = overrideFile.lastModified();
+        if (modified != 0L) {
+            ScreenRuleSet rules = loadOverride(modified);
+            if (rules != null) {
+                return rules;
+            }
+        }
+        return loadBundled();
+    }
+
+    /**
+     * 检查覆盖文件是否有变化，有变化时重新加载。两次检查之间至少间隔 RULES_RELOAD_CHECK_INTERVAL_MS，
+     * 每个处理周期调用一次的开销只是偶尔一次 stat。
+     *
+     * @return 新的规则集；没有变化或新文件有误时返回 null，调用方继续使用当前规则。
+     */
+    public ScreenRuleSet reloadIfChanged() {
+        long now = SystemClock.uptimeMillis();
+        if (now - lastCheckMs < AccessibilityConfig.RULES_RELOAD_CHECK_INTERVAL_MS) {
+            return null;
+        }
+        lastCheckMs = now;
+        long modified = overrideFile.lastModified();
+        if (modified == loadedModified) {
+            return null;
+        }
+        if (modified == 0L) {
+            Log.i(TAG, "覆盖规则文件已删除，恢复使用内置规则。");
+            return loadBundled();
+        }
+        return loadOverride(modified);
+    }
+
+    private ScreenRuleSet loadOverride(long modified) {
+        // 无论成功与否都记下修改时间，同一个无效文件不会被反复解析
+        loadedModified = modified;
+        try (InputStream in = new FileInputStream(overrideFile)) {
+            ScreenRuleSet rules = ScreenRuleSet.parse(readFully(in));
+            Log.i(TAG, "已加载规则文件 " + overrideFile + "，共 " + rules.getRuleCount() + " 条规则。");
+            return rules;
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "规则文件 " + overrideFile + " 无效，继续使用当前规则: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private ScreenRuleSet loadBundled() {
+        loadedModified = 0L;
+        try (InputStream in = context.getAssets().open(AccessibilityConfig.RULES_FILE_NAME)) {
+            ScreenRuleSet rules = ScreenRuleSet.parse(readFully(in));
+            Log.i(TAG, "已加载内置规则，共 " + rules.getRuleCount() + " 条规则。");
+            return rules;
+        } catch (IOException | JSONException e) {
+            throw new IllegalStateException("内置规则文件无效: " + e.getMessage(), e);
+        }
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,153 @@
+package com.tomato.utils;
+
+import org.json.JSONException;
+
+import java.util.List;
+
+/**
+ * 在界面上匹配一个规则文件（见 ScreenRuleFile）中的界面规则。
+ *
+ * 规则文件中所有规则的 desc 条件编译成了一个多模式匹配器，text 条件编译成了另一个；每个界面只扫描一遍，
+ * 结果在本界面的所有规则之间共享。view id 条件直接查界面的哈希索引。
+ * 规则集只通过 ScreenView 和 ProcessorContext 读取界面和状态，不依赖 Android，回放时在录制的界面上运行。
+ * 规则集只在自动化线程上使用。
+ */
+public final class ScreenRuleSet {
+
+    private final ScreenRuleFile file;
+    private final MultiPatternMatcher contentDescMatcher;
+    private final MultiPatternMatcher textMatcher;
+
+    // 最近一次匹配的界面及其匹配结果，同一界面上的所有规则共用。节点类型与界面一致
+    private ScreenView<?> matchedScreen;
+    private MultiPatternMatcher.Hits<?> contentDescHits;
+    private MultiPatternMatcher.Hits<?> textHits;
+
+    public ScreenRuleSet(ScreenRuleFile file) {
+        this.file = file;
+        this.contentDescMatcher = file.getContentDescMatcher();
+        this.textMatcher = file.getTextMatcher();
+    }
+
+    /**
+     * @return 按优先级排列的规则和内置处理器引用。
+     */
+    public List<ScreenRuleFile.Entry> getEntries() {
+        return file.getEntries();
+    }
+
+    /**
+     * @return 规则（不含内置处理器引用）的数量。
+     */
+    public int getRuleCount() {
+        return file.getRuleCount();
+    }
+
+    /**
+     * 检查规则中与界面无关的状态守卫。这些检查只读内存中的状态，比界面条件便宜，先于界面条件执行。
+     */
+    public boolean guardsPass(ProcessorContext context, ScreenRule rule) {
+        if (rule.getOnceActionId() != null && context.isActionCompleted(rule.getOnceActionId())) {
+            return false;
+        }
+        if (rule.requireNovelName) {
+            String novelName = context.getNovelNameToSearch();
+            if (novelName == null || novelName.isEmpty()) {
+                return false;
+            }
+        }
+        return !rule.requireAutoReading || context.isAutoReading();
+    }
+
+    /**
+     * 检查规则的界面条件。状态守卫由调用方先行检查。
+     */
+    public boolean matches(ScreenView<?> screen, ScreenRule rule) {
+        for (ScreenRule.Selector condition : rule.getConditions()) {
+            if ((findFirst(screen, condition) == null) != condition.isAbsent()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 界面中第一个满足选择器的节点，节点归界面所有；没有则返回 null。
+     */
+    public <N> N findFirst(ScreenView<N> screen, ScreenRule.Selector selector) {
+        if (selector.query != null) {
+            return screen.selectFirst(selector.query);
+        }
+        for (N node : candidates(screen, selector)) {
+            if (test(screen, selector, node)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 用最有区分度的索引取出候选节点：view id 查哈希表，desc / text 查本界面的匹配结果，最后才按类名。
+     */
+    @SuppressWarnings("unchecked")
+    private <N> List<N> candidates(ScreenView<N> screen, ScreenRule.Selector selector) {
+        if (selector.viewId != null) {
+            return screen.findByViewId(selector.viewId);
+        }
+        if (selector.contentDescPattern >= 0 || selector.textPattern >= 0) {
+            if (matchedScreen != screen) {
+                matchedScreen = screen;
+                contentDescHits = contentDescMatcher == null ? null : screen.matchContentDescriptions(contentDescMatcher);
+                textHits = textMatcher == null ? null : screen.matchTexts(textMatcher);
+            }
+            // 命中结果来自同一个界面，节点类型相同
+            return (List<N>) (selector.contentDescPattern >= 0
+                    ? contentDescHits.get(selector.contentDescPattern)
+                    : textHits.get(selector.textPattern));
+        }
+        return screen.findByClassName(selector.className);
+    }
+
+    /**
+     * 逐个字段检查节点。索引只用于缩小候选范围，最终都由这里确认。
+     */
+    private static <N> boolean test(ScreenView<N> screen, ScreenRule.Selector selector, N node) {
+        if (selector.viewId != null && !selector.viewId.equals(screen.getViewIdResourceName(node))) {
+            return false;
+        }
+        if (selector.className != null && !contentEquals(selector.className, screen.getClassName(node))) {
+            return false;
+        }
+        if (selector.contentDesc != null && !contains(screen.getContentDescription(node), selector.contentDesc)) {
+            return false;
+        }
+        CharSequence nodeText = screen.getText(node);
+        if (selector.text != null && !contains(nodeText, selector.text)) {
+            return false;
+        }
+        if (selector.hasText != null && selector.hasText != (nodeText != null && nodeText.length() > 0)) {
+            return false;
+        }
+        if (selector.editable != null && selector.editable != screen.isEditable(node)) {
+            return false;
+        }
+        return selector.clickable == null || selector.clickable == screen.isClickable(node);
+    }
+
+    private static boolean contentEquals(String expected, CharSequence actual) {
+        return actual != null && expected.contentEquals(actual);
+    }
+
+    private static boolean contains(CharSequence value, String part) {
+        return value != null && value.toString().contains(part);
+    }
+
+    /**
+     * 解析并编译规则文件，见 ScreenRuleFile.parse。
+     *
+     * @throws JSONException 文件不是合法的 JSON，或者规则有误。
+     */
+    public static ScreenRuleSet parse(String json) throws JSONException {
+        return new ScreenRuleSet(ScreenRuleFile.parse(json));
+    }
+}
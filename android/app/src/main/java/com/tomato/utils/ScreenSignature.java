@@ -0,0 +1,89 @@
+package com.tomato.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 处理器静态声明的界面特征。
+ * required 中的所有元素都出现在界面上、且 forbidden 中的元素一个都没有出现时，
+ * 调度器才会调用该处理器的 canProcess。
+ *
+ * view id 按完全匹配判断，content-desc 按包含匹配判断，与处理器中原有的查找语义一致。
+ * 签名只用于预筛选，canProcess 仍然负责最终判断（例如状态检查、文本内容检查）。
+ */
+public final class ScreenSignature {
+
+    private final List<String> requiredViewIds;
+    private final List<String> requiredContentDescs;
+    private final List<String> forbiddenViewIds;
+    private final List<String> forbiddenContentDescs;
+
+    private ScreenSignature(Builder builder) {
+        this.requiredViewIds = Collections.unmodifiableList(new ArrayList<>(builder.requiredViewIds));
+        this.requiredContentDescs = Collections.unmodifiableList(new ArrayList<>(builder.requiredContentDescs));
+        this.forbiddenViewIds = Collections.unmodifiableList(new ArrayList<>(builder.forbiddenViewIds));
+        this.forbiddenContentDescs = Collections.unmodifiableList(new ArrayList<>(builder.forbiddenContentDescs));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public List<String> getRequiredViewIds() {
+        return requiredViewIds;
+    }
+
+    public List<String> getRequiredContentDescs() {
+        return requiredContentDescs;
+    }
+
+    public List<String> getForbiddenViewIds() {
+        return forbiddenViewIds;
+    }
+
+    public List<String> getForbiddenContentDescs() {
+        return forbiddenContentDescs;
+    }
+
+    /**
+     * @return 必需元素的数量。
+     */
+    public int requiredCount() {
+        return requiredViewIds.size() + requiredContentDescs.size();
+    }
+
+    public static final class Builder {
+        private final List<String> requiredViewIds = new ArrayList<>();
+        private final List<String> requiredContentDescs = new ArrayList<>();
+        private final List<String> forbiddenViewIds = new ArrayList<>();
+        private final List<String> forbiddenContentDescs = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder requireViewId(String viewId) {
+            requiredViewIds.add(viewId);
+            return this;
+        }
+
+        public Builder requireContentDesc(String contentDesc) {
+            requiredContentDescs.add(contentDesc);
+            return this;
+        }
+
+        public Builder forbidViewId(String viewId) {
+            forbiddenViewIds.add(viewId);
+            return this;
+        }
+
+        public Builder forbidContentDesc(String contentDesc) {
+            forbiddenContentDescs.add(contentDesc);
+            return this;
+        }
+
+        public ScreenSignature build() {
+            return new ScreenSignature(this);
+        }
+    }
+}
@@ -0,0 +1,537 @@
+package com.tomato.utils;
+
+import android.graphics.Rect;
+import android.util.Log;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一次调度周期内的屏幕快照。
+ * 从根节点出发只做一次广度优先遍历，把所有节点按 view id / content-desc / text / class name 建立哈希索引，
+ * 索引按广度优先顺序填充，所有查询结果都按节点在树上的顺序排列，"第一个" 总是树上最靠前的那个。
+ * 所有 ScreenProcessor 的 canProcess / process 共享这一份快照，不再各自调用
+ * findAccessibilityNodeInfosByViewId 或递归遍历整棵树。
+ *
+ * 所有权约定：
+ * 1. capture() 会接管传入的根节点，以及遍历过程中取得的全部子节点；
+ * 2. 通过快照查询得到的节点都归快照所有，调用方不要自行 recycle()；
+ * 3. 快照用完后必须调用 recycle()，之后不能再使用任何从快照中取得的节点。
+ */
+public class ScreenSnapshot implements ScreenView<AccessibilityNodeInfo> {
+
+    private static final String TAG = AccessibilityConfig.TAG + ".Snapshot";
+    // 泄漏统计中快照的持有者名称
+    private static final String LEAK_OWNER = "ScreenSnapshot";
+
+    // 广度优先顺序的节点列表，下标 0 为根节点。同一父节点的子节点在列表中是连续的。
+    private final List<AccessibilityNodeInfo> nodes;
+    private final int[] parentIndex;
+    private final int[] childStart;
+    private final int[] childCount;
+    // 节点 -> 下标，用于在不发起 IPC 的情况下查找父节点和兄弟节点
+    private final Map<AccessibilityNodeInfo, Integer> indexOfNode;
+
+    private final Map<String, List<AccessibilityNodeInfo>> byViewId;
+    private final Map<String, List<AccessibilityNodeInfo>> byContentDesc;
+    private final Map<String, List<AccessibilityNodeInfo>> byText;
+    private final Map<String, List<AccessibilityNodeInfo>> byClassName;
+
+    // 界面结构指纹：只由浅层节点的深度 / 类名 / view id / 子节点数决定，与文本内容无关
+    private final long fingerprint;
+
+    private boolean recycled = false;
+
+    private ScreenSnapshot(List<AccessibilityNodeInfo> nodes, int[] parentIndex, int[] childStart, int[] childCount,
+                           int[] depths) {
+        this.nodes = nodes;
+        this.parentIndex = parentIndex;
+        this.childStart = childStart;
+        this.childCount = childCount;
+        this.indexOfNode = new IdentityHashMap<>(nodes.size() * 2);
+        this.byViewId = new LinkedHashMap<>();
+        this.byContentDesc = new LinkedHashMap<>();
+        this.byText = new LinkedHashMap<>();
+        this.byClassName = new LinkedHashMap<>();
+
+        long hash = ScreenFingerprint.OFFSET_BASIS;
+        for (int i = 0; i < nodes.size(); i++) {
+            AccessibilityNodeInfo node = nodes.get(i);
+            indexOfNode.put(node, i);
+            index(byViewId, node.getViewIdResourceName(), node);
+            index(byContentDesc, node.getContentDescription(), node);
+            index(byText, node.getText(), node);
+            index(byClassName, node.getClassName(), node);
+            // 广度优先顺序下，浅层节点恰好是列表的前缀
+            hash = ScreenFingerprint.add(hash, depths[i], node.getClassName(), node.getViewIdResourceName(), childCount[i]);
+        }
+        this.fingerprint = hash;
+    }
+
+    /**
+     * 从根节点出发，一次遍历构建屏幕快照。
+     *
+     * @param rootNode 窗口根节点，所有权转移给快照。
+     * @return 构建好的快照；如果 rootNode 为 null 则返回 null。
+     */
+    public static ScreenSnapshot capture(AccessibilityNodeInfo rootNode) {
+        return capture(rootNode, SearchBudget.SNAPSHOT);
+    }
+
+    /**
+     * 在给定预算内，从根节点出发一次遍历构建屏幕快照。
+     * 超出节点数或深度预算的部分不再展开；visibleOnly 时不可见节点及其子树不会进入快照。
+     *
+     * @param rootNode 窗口根节点，所有权转移给快照。
+     * @param budget   遍历预算。
+     * @return 构建好的快照；如果 rootNode 为 null 则返回 null。
+     */
+    public static ScreenSnapshot capture(AccessibilityNodeInfo rootNode, SearchBudget budget) {
+        if (rootNode == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+
+        List<AccessibilityNodeInfo> nodes = new ArrayList<>();
+        int[] parents = new int[64];
+        int[] starts = new int[64];
+        int[] counts = new int[64];
+        int[] depths = new int[64];
+
+        nodes.add(rootNode);
+        parents[0] = -1;
+        depths[0] = 0;
+        // nodes 本身就是广度优先遍历的队列，cursor 指向下一个要展开的节点
+        for (int cursor = 0; cursor < nodes.size(); cursor++) {
+            AccessibilityNodeInfo current = nodes.get(cursor);
+            starts[cursor] = nodes.size();
+            counts[cursor] = 0;
+            if (depths[cursor] >= budget.getMaxDepth()) {
+                continue;
+            }
+            int childTotal = current.getChildCount();
+            if (starts.length < nodes.size() + childTotal) {
+                int newLength = Math.max(starts.length * 2, nodes.size() + childTotal);
+                parents = Arrays.copyOf(parents, newLength);
+                starts = Arrays.copyOf(starts, newLength);
+                counts = Arrays.copyOf(counts, newLength);
+                depths = Arrays.copyOf(depths, newLength);
+            }
+            for (int i = 0; i < childTotal && nodes.size() < budget.getMaxNodes(); i++) {
+                AccessibilityNodeInfo child = NodeFetcher.child(current, i);
+                if (child == null) {
+                    continue;
+                }
+                if (budget.isVisibleOnly() && !child.isVisibleToUser()) {
+                    child.recycle();
+                    continue;
+                }
+                parents[nodes.size()] = cursor;
+                depths[nodes.size()] = depths[cursor] + 1;
+                nodes.add(child);
+            }
+            counts[cursor] = nodes.size() - starts[cursor];
+        }
+        if (nodes.size() >= budget.getMaxNodes()) {
+            Log.w(TAG, "capture: 已达到节点预算 " + budget.getMaxNodes() + "，快照不完整。");
+        }
+
+        ScreenSnapshot snapshot = new ScreenSnapshot(nodes, parents, starts, counts, depths);
+        NodeLeakTracker.acquired(LEAK_OWNER, nodes.size());
+        MetricsRegistry.getInstance().recordSnapshot(start);
+        if (AccessibilityLog.isDebugEnabled()) {
+            Log.d(TAG, "capture: 共 " + nodes.size() + " 个节点，耗时 " + (System.nanoTime() - start) / 1000 + "us");
+        }
+        return snapshot;
+    }
+
+    private static void index(Map<String, List<AccessibilityNodeInfo>> map, CharSequence key, AccessibilityNodeInfo node) {
+        if (key == null) {
+            return;
+        }
+        String keyStr = key.toString();
+        List<AccessibilityNodeInfo> bucket = map.get(keyStr);
+        if (bucket == null) {
+            bucket = new ArrayList<>(1);
+            map.put(keyStr, bucket);
+        }
+        bucket.add(node);
+    }
+
+    private static List<AccessibilityNodeInfo> lookup(Map<String, List<AccessibilityNodeInfo>> map, String key) {
+        List<AccessibilityNodeInfo> bucket = key == null ? null : map.get(key);
+        return bucket == null ? Collections.<AccessibilityNodeInfo>emptyList() : Collections.unmodifiableList(bucket);
+    }
+
+    private List<AccessibilityNodeInfo> lookupContains(Map<String, List<AccessibilityNodeInfo>> map, String part) {
+        if (part == null) {
+            return Collections.emptyList();
+        }
+        List<AccessibilityNodeInfo> found = new ArrayList<>();
+        int matchedKeys = 0;
+        // 只需遍历去重后的 key，比逐个节点比较少得多，而且不涉及任何 IPC
+        for (Map.Entry<String, List<AccessibilityNodeInfo>> entry : map.entrySet()) {
+            if (entry.getKey().contains(part)) {
+                found.addAll(entry.getValue());
+                matchedKeys++;
+            }
+        }
+        if (matchedKeys > 1) {
+            sortInTreeOrder(found);
+        }
+        return found;
+    }
+
+    /**
+     * 每个 key 的节点本身按树上的顺序排列，但不同 key 的节点在树上是交错的，合并后按快照下标重新排序。
+     */
+    private void sortInTreeOrder(List<AccessibilityNodeInfo> found) {
+        Collections.sort(found, (a, b) -> Integer.compare(indexOfNode.get(a), indexOfNode.get(b)));
+    }
+
+    /**
+     * @return 窗口根节点。
+     */
+    public AccessibilityNodeInfo getRoot() {
+        return nodes.get(0);
+    }
+
+    /**
+     * @return 快照中的节点总数。
+     */
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * 界面结构指纹。由深度不超过 FINGERPRINT_MAX_DEPTH 的节点的类名、view id 和子节点数计算，
+     * 同一个界面在文本、滚动位置变化时指纹保持不变，不同界面的骨架一般不同。
+     *
+     * @return 64 位指纹。
+     */
+    @Override
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    // --- view id ---
+
+    @Override
+    public List<AccessibilityNodeInfo> findByViewId(String viewId) {
+        return lookup(byViewId, viewId);
+    }
+
+    public AccessibilityNodeInfo findFirstByViewId(String viewId) {
+        List<AccessibilityNodeInfo> found = findByViewId(viewId);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    @Override
+    public boolean hasViewId(String viewId) {
+        return viewId != null && byViewId.containsKey(viewId);
+    }
+
+    /**
+     * @return 界面上出现的所有 view id（去重）。
+     */
+    @Override
+    public Set<String> getViewIds() {
+        return Collections.unmodifiableSet(byViewId.keySet());
+    }
+
+    // --- content-desc ---
+
+    /**
+     * @return 界面上出现的所有 content-desc（去重）。
+     */
+    @Override
+    public Set<String> getContentDescriptions() {
+        return Collections.unmodifiableSet(byContentDesc.keySet());
+    }
+
+    public List<AccessibilityNodeInfo> findByContentDescription(String contentDesc) {
+        return lookup(byContentDesc, contentDesc);
+    }
+
+    /**
+     * 查找 content-desc 包含指定文本的节点，按树上的顺序排列。快照保留了不可见的节点，它们同样参与匹配。
+     */
+    public List<AccessibilityNodeInfo> findByContentDescriptionContains(String part) {
+        return lookupContains(byContentDesc, part);
+    }
+
+    public AccessibilityNodeInfo findFirstByContentDescriptionContains(String part) {
+        List<AccessibilityNodeInfo> found = findByContentDescriptionContains(part);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    @Override
+    public boolean hasContentDescriptionContaining(String part) {
+        if (part == null) {
+            return false;
+        }
+        for (String contentDesc : byContentDesc.keySet()) {
+            if (contentDesc.contains(part)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 用多模式匹配器一次性匹配所有 content-desc。
+     * 每个不同的 content-desc 只扫描一遍，返回每个模式各自命中的节点。
+     *
+     * @param matcher 预先编译好的多模式匹配器
+     * @return 命中结果，节点归快照所有
+     */
+    @Override
+    public MultiPatternMatcher.Hits<AccessibilityNodeInfo> matchContentDescriptions(MultiPatternMatcher matcher) {
+        return match(byContentDesc, matcher);
+    }
+
+    private MultiPatternMatcher.Hits<AccessibilityNodeInfo> match(
+            Map<String, List<AccessibilityNodeInfo>> map, MultiPatternMatcher matcher) {
+        MultiPatternMatcher.Hits<AccessibilityNodeInfo> hits = matcher.newHits();
+        List<AccessibilityNodeInfo> matchedNodes = null;
+        Map<AccessibilityNodeInfo, Long> masks = null;
+        for (Map.Entry<String, List<AccessibilityNodeInfo>> entry : map.entrySet()) {
+            long matched = matcher.match(entry.getKey());
+            if (matched == 0L) {
+                continue;
+            }
+            if (matchedNodes == null) {
+                matchedNodes = new ArrayList<>();
+                masks = new IdentityHashMap<>();
+            }
+            for (AccessibilityNodeInfo node : entry.getValue()) {
+                matchedNodes.add(node);
+                masks.put(node, matched);
+            }
+        }
+        if (matchedNodes == null) {
+            return hits;
+        }
+        // 按树上的顺序加入，每个模式的 getFirst 都是树上最靠前的命中
+        sortInTreeOrder(matchedNodes);
+        for (AccessibilityNodeInfo node : matchedNodes) {
+            hits.add(masks.get(node), node);
+        }
+        return hits;
+    }
+
+    // --- text ---
+
+    public List<AccessibilityNodeInfo> findByText(String text) {
+        return lookup(byText, text);
+    }
+
+    public List<AccessibilityNodeInfo> findByTextContains(String part) {
+        return lookupContains(byText, part);
+    }
+
+    /**
+     * 用多模式匹配器一次性匹配所有文本，与 matchContentDescriptions 相同，每个不同的文本只扫描一遍。
+     *
+     * @param matcher 预先编译好的多模式匹配器
+     * @return 命中结果，节点归快照所有
+     */
+    @Override
+    public MultiPatternMatcher.Hits<AccessibilityNodeInfo> matchTexts(MultiPatternMatcher matcher) {
+        return match(byText, matcher);
+    }
+
+    // --- class name ---
+
+    @Override
+    public List<AccessibilityNodeInfo> findByClassName(String className) {
+        return lookup(byClassName, className);
+    }
+
+    // --- 结构导航（基于快照，不发起 IPC） ---
+
+    /**
+     * @return 节点在快照中的父节点；如果是根节点或节点不属于本快照，返回 null。
+     */
+    public AccessibilityNodeInfo getParent(AccessibilityNodeInfo node) {
+        Integer index = indexOfNode.get(node);
+        if (index == null || parentIndex[index] < 0) {
+            return null;
+        }
+        return nodes.get(parentIndex[index]);
+    }
+
+    /**
+     * 从节点自身开始向上查找第一个可点击的节点。
+     *
+     * @return 可点击的节点（可能是节点本身），找不到则返回 null。
+     */
+    public AccessibilityNodeInfo findClickableAncestor(AccessibilityNodeInfo node) {
+        Integer index = indexOfNode.get(node);
+        if (index == null) {
+            return null;
+        }
+        for (int i = index; i >= 0; i = parentIndex[i]) {
+            if (nodes.get(i).isClickable()) {
+                return nodes.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 查找锚点节点之后第一个指定类名的兄弟节点。
+     *
+     * @param anchorNode 锚点节点，必须属于本快照。
+     * @param className  目标类名。
+     * @return 找到的兄弟节点，如果没有则返回 null。
+     */
+    public AccessibilityNodeInfo findNextSiblingByClass(AccessibilityNodeInfo anchorNode, String className) {
+        Integer index = indexOfNode.get(anchorNode);
+        if (index == null || className == null || parentIndex[index] < 0) {
+            return null;
+        }
+        int parent = parentIndex[index];
+        int end = childStart[parent] + childCount[parent];
+        for (int i = index + 1; i < end; i++) {
+            CharSequence siblingClass = nodes.get(i).getClassName();
+            if (siblingClass != null && className.equals(siblingClass.toString())) {
+                return nodes.get(i);
+            }
+        }
+        return null;
+    }
+
+    // --- 选择器 ---
+
+    /**
+     * 按选择器查找节点，语法见 NodeSelector。选择器按字符串缓存，只在第一次使用时编译。
+     *
+     * @return 按快照顺序排列的匹配节点，节点归快照所有。
+     * @throws IllegalArgumentException 选择器有语法错误。
+     */
+    public List<AccessibilityNodeInfo> select(String selector) {
+        return NodeSelector.compile(selector).select(this);
+    }
+
+    /**
+     * @return 第一个匹配选择器的节点，没有时返回 null。
+     * @throws IllegalArgumentException 选择器有语法错误。
+     */
+    public AccessibilityNodeInfo selectFirst(String selector) {
+        return selectFirst(NodeSelector.compile(selector));
+    }
+
+    // --- NodeSelector 看到的节点数组：下标即快照中的下标，节点属性直接读 AccessibilityNodeInfo 的缓存字段 ---
+
+    @Override
+    public AccessibilityNodeInfo nodeAt(int index) {
+        return nodes.get(index);
+    }
+
+    @Override
+    public int parentIndexAt(int index) {
+        return parentIndex[index];
+    }
+
+    @Override
+    public int childPositionAt(int index) {
+        int parent = parentIndex[index];
+        return parent < 0 ? 0 : index - childStart[parent];
+    }
+
+    @Override
+    public int indexOf(AccessibilityNodeInfo node) {
+        Integer index = indexOfNode.get(node);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public CharSequence getClassName(AccessibilityNodeInfo node) {
+        return node.getClassName();
+    }
+
+    @Override
+    public String getViewIdResourceName(AccessibilityNodeInfo node) {
+        return node.getViewIdResourceName();
+    }
+
+    @Override
+    public CharSequence getText(AccessibilityNodeInfo node) {
+        return node.getText();
+    }
+
+    @Override
+    public CharSequence getContentDescription(AccessibilityNodeInfo node) {
+        return node.getContentDescription();
+    }
+
+    @Override
+    public boolean isClickable(AccessibilityNodeInfo node) {
+        return node.isClickable();
+    }
+
+    @Override
+    public boolean isVisibleToUser(AccessibilityNodeInfo node) {
+        return node.isVisibleToUser();
+    }
+
+    @Override
+    public boolean isScrollable(AccessibilityNodeInfo node) {
+        return node.isScrollable();
+    }
+
+    @Override
+    public boolean isEditable(AccessibilityNodeInfo node) {
+        return node.isEditable();
+    }
+
+    /**
+     * 把快照转换成与设备无关的节点记录，供会话录制使用。只在录制时调用，会为每个节点分配一个记录对象。
+     *
+     * @return 广度优先顺序的节点记录，下标与快照中的节点一致。
+     */
+    public List<RecordedNode> toRecordedNodes() {
+        List<RecordedNode> recorded = new ArrayList<>(nodes.size());
+        Rect bounds = new Rect();
+        for (int i = 0; i < nodes.size(); i++) {
+            AccessibilityNodeInfo node = nodes.get(i);
+            node.getBoundsInScreen(bounds);
+            recorded.add(new RecordedNode(parentIndex[i], toStringOrNull(node.getClassName()),
+                    node.getViewIdResourceName(), toStringOrNull(node.getText()),
+                    toStringOrNull(node.getContentDescription()), node.isClickable(), node.isVisibleToUser(),
+                    node.isScrollable(), node.isEditable(), bounds.left, bounds.top, bounds.right, bounds.bottom));
+        }
+        return recorded;
+    }
+
+    private static String toStringOrNull(CharSequence value) {
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * 回收快照持有的全部节点。可以重复调用。
+     */
+    public void recycle() {
+        if (recycled) {
+            return;
+        }
+        recycled = true;
+        NodeLeakTracker.released(LEAK_OWNER, nodes.size());
+        AccessibilityNodeUtils.recycleNodes(nodes);
+        nodes.clear();
+        indexOfNode.clear();
+        byViewId.clear();
+        byContentDesc.clear();
+        byText.clear();
+        byClassName.clear();
+    }
+}
@@ -0,0 +1,63 @@
+package com.tomato.utils;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 一个界面的只读视图，包含调度和处理器判断需要的全部信息：出现了哪些 view id / content-desc、结构指纹，
+ * 以及按索引和选择器查找节点。
+ *
+ * 设备上由 ScreenSnapshot 实现（节点为 AccessibilityNodeInfo）；回放录制的会话时由 RecordedScreen 实现，
+ * 不依赖 AccessibilityNodeInfo，因此签名预筛选（SignatureIndex）和处理器的 canProcess（ScreenMatcher）
+ * 可以在没有设备的 JVM 上用真实录制的界面运行。
+ *
+ * @param <N> 节点类型。所有查找结果都按节点在树上的顺序排列。
+ */
+public interface ScreenView<N> extends NodeSelector.Tree<N> {
+
+    /**
+     * @return 界面上出现的所有 view id（去重）。
+     */
+    Set<String> getViewIds();
+
+    /**
+     * @return 界面上出现的所有 content-desc（去重）。
+     */
+    Set<String> getContentDescriptions();
+
+    boolean hasViewId(String viewId);
+
+    /**
+     * @return 是否有节点的 content-desc 包含指定文本。
+     */
+    boolean hasContentDescriptionContaining(String part);
+
+    /**
+     * @return 界面结构指纹，见 ScreenFingerprint。
+     */
+    long getFingerprint();
+
+    /**
+     * @return 类名完全匹配的节点。
+     */
+    List<N> findByClassName(String className);
+
+    /**
+     * 用多模式匹配器一次性匹配所有 content-desc，每个不同的 content-desc 只扫描一遍。
+     *
+     * @return 每个模式各自命中的节点，每个模式的 getFirst 都是树上最靠前的命中。
+     */
+    MultiPatternMatcher.Hits<N> matchContentDescriptions(MultiPatternMatcher matcher);
+
+    /**
+     * 与 matchContentDescriptions 相同，匹配的是节点文本。
+     */
+    MultiPatternMatcher.Hits<N> matchTexts(MultiPatternMatcher matcher);
+
+    /**
+     * @return 第一个匹配已编译选择器的节点，没有时返回 null。
+     */
+    default N selectFirst(NodeSelector selector) {
+        return selector.selectFirst(this);
+    }
+}
@@ -0,0 +1,48 @@
+package com.tomato.utils;
+
+/**
+ * 节点树遍历的预算。
+ * 限制一次查找最多访问多少个节点、向下走多深，以及是否跳过对用户不可见的子树，
+ * 避免在 Lynx 生成的上千节点的大树上做无上限的遍历。
+ */
+public final class SearchBudget {
+
+    /**
+     * 存在性检查使用的默认预算：跳过不可见子树。
+     */
+    public static final SearchBudget DEFAULT = new SearchBudget(
+            AccessibilityConfig.SEARCH_MAX_NODES, AccessibilityConfig.SEARCH_MAX_DEPTH, true);
+
+    /**
+     * 构建屏幕快照使用的预算：保留不可见节点，保持与 findAccessibilityNodeInfosByViewId 一致的语义。
+     */
+    public static final SearchBudget SNAPSHOT = new SearchBudget(
+            AccessibilityConfig.SEARCH_MAX_NODES, AccessibilityConfig.SEARCH_MAX_DEPTH, false);
+
+    private final int maxNodes;
+    private final int maxDepth;
+    private final boolean visibleOnly;
+
+    /**
+     * @param maxNodes    最多访问的节点数（包含起始节点）。
+     * @param maxDepth    最大深度，起始节点深度为 0。
+     * @param visibleOnly 为 true 时跳过 isVisibleToUser() 为 false 的节点及其整棵子树。
+     */
+    public SearchBudget(int maxNodes, int maxDepth, boolean visibleOnly) {
+        this.maxNodes = maxNodes;
+        this.maxDepth = maxDepth;
+        this.visibleOnly = visibleOnly;
+    }
+
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public boolean isVisibleOnly() {
+        return visibleOnly;
+    }
+}
@@ -0,0 +1,324 @@
+package com.tomato.utils;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 读取 SessionWriter 写出的会话文件（格式见 SessionWriter），按记录顺序回调给 Listener。
+ * 不依赖 Android，可以在 JVM 上使用。
+ *
+ * 未压缩的文件通过内存映射直接解码，不经过额外的拷贝；压缩的文件边解压边解码。
+ * 文件在两条记录之间结束（例如录制时进程被杀）视为正常结束，在记录中间结束则报错。
+ */
+public final class SessionReader {
+
+    /**
+     * 会话记录的接收者。
+     */
+    public interface Listener {
+
+        void onEvent(long uptimeMs, int eventType, String packageName, String className);
+
+        /**
+         * @param decision 录制时的调度结果：处理器类名，或 SessionWriter.DECISION_* 之一。
+         */
+        void onScreen(long uptimeMs, int attempt, String decision, RecordedScreen screen);
+
+        /**
+         * 处理器的运行状态，对之后的界面有效，直到下一次回调。版本 2 的文件没有这类记录。
+         */
+        default void onContext(RecordedContext context) {
+        }
+    }
+
+    private static final int HEADER_SIZE = SessionWriter.MAGIC.length + 2;
+
+    private final Input in;
+    private final List<String> strings = new ArrayList<>();
+    private long uptimeMs;
+
+    private SessionReader(Input in) {
+        this.in = in;
+    }
+
+    /**
+     * 读取会话文件。未压缩时使用内存映射。
+     */
+    public static void read(File file, Listener listener) throws IOException {
+        try (FileInputStream stream = new FileInputStream(file)) {
+            FileChannel channel = stream.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            read(buffer, listener);
+        }
+    }
+
+    /**
+     * 从内存中的数据（或内存映射）读取会话。
+     */
+    public static void read(ByteBuffer buffer, Listener listener) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE) {
+            throw new IOException("会话文件过短");
+        }
+        byte[] header = new byte[HEADER_SIZE];
+        buffer.get(header);
+        if (isCompressed(header)) {
+            // 压缩内容只能顺序解压，把剩余部分包装成输入流
+            InputStream inflated = new InflaterInputStream(new ByteBufferInputStream(buffer), new Inflater(), 8192);
+            new SessionReader(new StreamInput(new BufferedInputStream(inflated))).readRecords(listener);
+        } else {
+            new SessionReader(new BufferInput(buffer)).readRecords(listener);
+        }
+    }
+
+    /**
+     * 从输入流读取会话，例如压缩文件或网络传输的数据。
+     */
+    public static void read(InputStream stream, Listener listener) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        int read = 0;
+        while (read < header.length) {
+            int n = stream.read(header, read, header.length - read);
+            if (n < 0) {
+                throw new IOException("会话文件过短");
+            }
+            read += n;
+        }
+        InputStream body = isCompressed(header) ? new InflaterInputStream(stream, new Inflater(), 8192) : stream;
+        new SessionReader(new StreamInput(new BufferedInputStream(body))).readRecords(listener);
+    }
+
+    private static boolean isCompressed(byte[] header) throws IOException {
+        for (int i = 0; i < SessionWriter.MAGIC.length; i++) {
+            if (header[i] != SessionWriter.MAGIC[i]) {
+                throw new IOException("不是会话文件");
+            }
+        }
+        int version = header[SessionWriter.MAGIC.length] & 0xFF;
+        if (version < SessionWriter.MIN_VERSION || version > SessionWriter.VERSION) {
+            throw new IOException("不支持的会话文件版本: " + version);
+        }
+        return (header[SessionWriter.MAGIC.length + 1] & SessionWriter.FLAG_DEFLATE) != 0;
+    }
+
+    private void readRecords(Listener listener) throws IOException {
+        int type;
+        while ((type = in.readTag()) >= 0) {
+            switch (type) {
+                case SessionWriter.RECORD_STRING:
+                    byte[] bytes = new byte[(int) in.readVarint()];
+                    in.readFully(bytes);
+                    strings.add(new String(bytes, StandardCharsets.UTF_8));
+                    break;
+                case SessionWriter.RECORD_EVENT:
+                    readTime();
+                    int eventType = (int) in.readVarint();
+                    String packageName = string();
+                    String className = string();
+                    listener.onEvent(uptimeMs, eventType, packageName, className);
+                    break;
+                case SessionWriter.RECORD_SCREEN:
+                    readTime();
+                    int attempt = (int) in.readVarint();
+                    String decision = string();
+                    listener.onScreen(uptimeMs, attempt, decision, new RecordedScreen(readNodes()));
+                    break;
+                case SessionWriter.RECORD_CONTEXT:
+                    int flags = in.readByte();
+                    String novelName = string();
+                    List<String> completedActions = strings((int) in.readVarint());
+                    List<String> runningFlows = strings((int) in.readVarint());
+                    listener.onContext(new RecordedContext(completedActions, novelName,
+                            (flags & SessionWriter.CONTEXT_AUTO_READING) != 0, runningFlows));
+                    break;
+                default:
+                    throw new IOException("未知的记录类型: " + type);
+            }
+        }
+    }
+
+    private List<RecordedNode> readNodes() throws IOException {
+        int count = (int) in.readVarint();
+        List<RecordedNode> nodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int distance = (int) in.readVarint();
+            int parent = distance == 0 ? -1 : i - distance;
+            if (parent >= i) {
+                throw new IOException("节点 " + i + " 的父节点下标无效");
+            }
+            int flags = in.readByte();
+            String className = string();
+            String viewId = string();
+            String text = string();
+            String contentDesc = string();
+            int left = (int) in.readSignedVarint() + (parent < 0 ? 0 : nodes.get(parent).getLeft());
+            int top = (int) in.readSignedVarint() + (parent < 0 ? 0 : nodes.get(parent).getTop());
+            int width = (int) in.readSignedVarint();
+            int height = (int) in.readSignedVarint();
+            nodes.add(new RecordedNode(parent, className, viewId, text, contentDesc,
+                    (flags & SessionWriter.NODE_CLICKABLE) != 0, (flags & SessionWriter.NODE_VISIBLE) != 0,
+                    (flags & SessionWriter.NODE_SCROLLABLE) != 0, (flags & SessionWriter.NODE_EDITABLE) != 0,
+                    left, top, left + width, top + height));
+        }
+        return nodes;
+    }
+
+    private List<String> strings(int count) throws IOException {
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(string());
+        }
+        return values;
+    }
+
+    private void readTime() throws IOException {
+        uptimeMs += in.readSignedVarint();
+    }
+
+    private String string() throws IOException {
+        int id = (int) in.readVarint();
+        if (id == 0) {
+            return null;
+        }
+        if (id > strings.size()) {
+            throw new IOException("引用了未定义的字符串 " + id);
+        }
+        return strings.get(id - 1);
+    }
+
+    /**
+     * 解码用的字节来源。
+     */
+    private abstract static class Input {
+
+        /**
+         * @return 下一条记录的类型；在记录边界上结束时返回 -1。
+         */
+        abstract int readTag() throws IOException;
+
+        abstract int readByte() throws IOException;
+
+        abstract void readFully(byte[] target) throws IOException;
+
+        long readVarint() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("varint 过长");
+        }
+
+        long readSignedVarint() throws IOException {
+            long raw = readVarint();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+    }
+
+    private static final class BufferInput extends Input {
+        private final ByteBuffer buffer;
+
+        BufferInput(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        int readTag() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        int readByte() throws IOException {
+            if (!buffer.hasRemaining()) {
+                throw new EOFException("会话文件在记录中间结束");
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        @Override
+        void readFully(byte[] target) throws IOException {
+            if (buffer.remaining() < target.length) {
+                throw new EOFException("会话文件在记录中间结束");
+            }
+            buffer.get(target);
+        }
+    }
+
+    private static final class StreamInput extends Input {
+        private final InputStream stream;
+
+        StreamInput(InputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        int readTag() throws IOException {
+            try {
+                return stream.read();
+            } catch (EOFException e) {
+                // 压缩流在同步刷新点之后被截断时，解压器会在这里报告意外结束
+                return -1;
+            }
+        }
+
+        @Override
+        int readByte() throws IOException {
+            int b = stream.read();
+            if (b < 0) {
+                throw new EOFException("会话文件在记录中间结束");
+            }
+            return b;
+        }
+
+        @Override
+        void readFully(byte[] target) throws IOException {
+            int read = 0;
+            while (read < target.length) {
+                int n = stream.read(target, read, target.length - read);
+                if (n < 0) {
+                    throw new EOFException("会话文件在记录中间结束");
+                }
+                read += n;
+            }
+        }
+    }
+
+    /**
+     * 把 ByteBuffer 的剩余部分包装成输入流，用于解压内存映射的压缩文件。
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, n);
+            return n;
+        }
+    }
+}
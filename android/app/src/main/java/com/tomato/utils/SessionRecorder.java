@@ -0,0 +1,205 @@
+package com.tomato.utils;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.accessibility.AccessibilityEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 会话录制器：把目标应用的事件流、每次调度时的界面和处理器状态写入会话文件（二进制格式，见 SessionWriter），
+ * 之后可以在没有设备的 JVM 上回放，用来复现时序问题和做调度回归测试。
+ *
+ * 默认关闭。未录制时 recordEvent / recordScreen 只读一次 volatile 字段，不影响热路径。
+ * 录制时调用方线程只负责复制数据（界面节点必须在快照回收前复制），编码和文件写入都在后台的写入线程上进行，
+ * 不会阻塞主线程或自动化线程；写入线程积压超过 SESSION_MAX_PENDING_WRITES 条时丢弃新的记录。
+ * 写入失败时停止录制，已写入的内容保留。
+ */
+public final class SessionRecorder {
+
+    private static final String TAG = AccessibilityConfig.TAG + ".Recorder";
+    private static final String FILE_SUFFIX = ".tmsn";
+
+    private static final SessionRecorder INSTANCE = new SessionRecorder();
+
+    /**
+     * 一次录制：文件、写入器，以及专属的写入线程。写入器只在写入线程上访问。
+     */
+    private static final class Session {
+        final File file;
+        final SessionWriter writer;
+        final HandlerThread thread;
+        final Handler handler;
+        final AtomicInteger pending = new AtomicInteger();
+        final AtomicInteger dropped = new AtomicInteger();
+        // 只在写入线程上访问
+        boolean closed;
+        // 最近写入的处理器状态，只在写入线程上访问。状态不变时不重复写入
+        RecordedContext lastContext;
+
+        Session(File file, SessionWriter writer) {
+            this.file = file;
+            this.writer = writer;
+            this.thread = new HandlerThread("TomatoSessionWriter", Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            this.handler = new Handler(thread.getLooper());
+        }
+    }
+
+    /**
+     * 写入线程上执行的一条写入操作。
+     */
+    private interface WriteTask {
+        void write(SessionWriter writer) throws IOException;
+    }
+
+    private volatile Session current;
+
+    private SessionRecorder() {
+    }
+
+    public static SessionRecorder getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isRecording() {
+        return current != null;
+    }
+
+    /**
+     * 开始录制到一个新的会话文件。已经在录制时先结束当前会话。
+     *
+     * @param directory 会话文件所在目录，不存在时会被创建。
+     * @return 新会话文件；创建失败时返回 null。
+     */
+    public synchronized File start(File directory) {
+        stop();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "start: 无法创建目录 " + directory);
+            return null;
+        }
+        String name = "session-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + FILE_SUFFIX;
+        File target = new File(directory, name);
+        SessionWriter writer;
+        try {
+            writer = new SessionWriter(new BufferedOutputStream(new FileOutputStream(target)),
+                    AccessibilityConfig.SESSION_COMPRESS);
+        } catch (IOException e) {
+            Log.e(TAG, "start: 无法创建会话文件 " + target, e);
+            return null;
+        }
+        current = new Session(target, writer);
+        Log.i(TAG, "开始录制会话: " + target);
+        return target;
+    }
+
+    /**
+     * 结束录制。已排队的记录会在写入线程上写完后再关闭文件。
+     *
+     * @return 刚结束的会话文件；没有在录制时返回 null。
+     */
+    public synchronized File stop() {
+        final Session session = current;
+        if (session == null) {
+            return null;
+        }
+        current = null;
+        session.handler.post(() -> {
+            session.closed = true;
+            try {
+                session.writer.close();
+            } catch (IOException e) {
+                Log.e(TAG, "stop: 关闭会话文件失败", e);
+            }
+            Log.i(TAG, "结束录制会话: " + session.file + "，大小 " + session.file.length()
+                    + " 字节，丢弃 " + session.dropped.get() + " 条记录");
+        });
+        session.thread.quitSafely();
+        return session.file;
+    }
+
+    /**
+     * 记录一个目标应用的事件。
+     */
+    public void recordEvent(AccessibilityEvent event) {
+        Session session = current;
+        if (session == null) {
+            return;
+        }
+        final long uptimeMs = SystemClock.uptimeMillis();
+        final int eventType = event.getEventType();
+        final String packageName = toStringOrNull(event.getPackageName());
+        final String className = toStringOrNull(event.getClassName());
+        enqueue(session, writer -> writer.writeEvent(uptimeMs, eventType, packageName, className));
+    }
+
+    /**
+     * 记录一次调度时的界面、调度时的处理器状态和调度结果。必须在快照回收前调用。
+     * 处理器状态与上一次写入的相同时不再写入，回放时沿用上一份。
+     *
+     * @param context  调度时处理器读取的运行状态，回放时用它重新调度。
+     * @param decision 选中的处理器类名，或 SessionWriter.DECISION_* 之一。
+     */
+    public void recordScreen(final RecordedContext context, ScreenSnapshot snapshot, final int attempt,
+                             final String decision) {
+        Session session = current;
+        if (session == null) {
+            return;
+        }
+        final long uptimeMs = SystemClock.uptimeMillis();
+        if (session.pending.get() >= AccessibilityConfig.SESSION_MAX_PENDING_WRITES) {
+            session.dropped.incrementAndGet();
+            return;
+        }
+        final List<RecordedNode> nodes = snapshot.toRecordedNodes();
+        enqueue(session, writer -> {
+            if (!context.equals(session.lastContext)) {
+                writer.writeContext(context);
+                session.lastContext = context;
+            }
+            writer.writeScreen(uptimeMs, attempt, decision, nodes);
+            // 每个界面刷新一次，服务被系统杀掉时最多丢失最后一个界面
+            writer.flush();
+        });
+    }
+
+    private void enqueue(final Session session, final WriteTask task) {
+        if (session.pending.incrementAndGet() > AccessibilityConfig.SESSION_MAX_PENDING_WRITES) {
+            session.pending.decrementAndGet();
+            session.dropped.incrementAndGet();
+            return;
+        }
+        session.handler.post(() -> {
+            session.pending.decrementAndGet();
+            if (session.closed) {
+                // 与 stop() 并发提交的记录排在了关闭之后，直接丢弃
+                return;
+            }
+            try {
+                task.write(session.writer);
+            } catch (IOException e) {
+                Log.e(TAG, "写入会话文件失败，停止录制。", e);
+                synchronized (SessionRecorder.this) {
+                    if (current == session) {
+                        stop();
+                    }
+                }
+            }
+        });
+    }
+
+    private static String toStringOrNull(CharSequence value) {
+        return value == null ? null : value.toString();
+    }
+}
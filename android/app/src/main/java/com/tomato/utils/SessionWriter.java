@@ -0,0 +1,237 @@
+package com.tomato.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * 会话文件的写入器。会话文件按时间顺序记录目标应用的事件，以及每次调度时的界面和调度结果，
+ * 可以在 JVM 上用 SessionReader 读回并回放；只含一个界面的会话文件也可以直接作为调试用的树 dump。
+ *
+ * 文件格式（所有整数都是 varint，带符号的值先做 zigzag 编码）：
+ * <pre>
+ * 文件头:  "TMSN"  版本(1 字节)  标志(1 字节, bit0 = 其后内容经过 Deflate 压缩)
+ * 记录:    类型(1 字节) + 内容，依次排列直到文件结束
+ *   T  字符串定义:  长度  UTF-8 字节          —— 按出现顺序编号为 1, 2, 3 ...
+ *   E  事件:       时间增量  事件类型  包名  类名
+ *   S  界面:       时间增量  尝试序号  决策  节点数，之后紧跟节点数个节点:
+ *                  父节点距离  标志  类名  view id  文本  content-desc
+ *                  left - 父 left  top - 父 top  宽  高
+ *   C  处理器状态:  标志(bit0 = 自动阅读)  小说名  已完成操作数  操作...  运行中流程数  处理器名...
+ *                  之后的界面都在这份状态下调度，直到下一条 C 记录（见 RecordedContext）
+ * </pre>
+ * 字符串字段写的是字符串表中的编号，0 表示 null。字符串在第一次出现前以 T 记录定义，
+ * 类名、view id 这类重复极多的长字符串在每个文件中只出现一次。时间增量相对上一条记录（毫秒），
+ * 父节点距离为节点下标减父节点下标（根节点为 0），坐标相对父节点，数值都很小，大多只占一个字节。
+ * 版本 2 的文件没有 C 记录，节点标志中也没有 scrollable / editable，读取器仍然接受。
+ *
+ * 写入是流式的：每条记录先编码到内部缓冲区，再整体写入输出流。开启压缩时 flush() 会做一次同步刷新，
+ * 进程被杀时已刷新的记录仍然可以读出。本类不做同步，由调用方保证同一时刻只有一个线程写入。
+ */
+public final class SessionWriter {
+
+    static final byte[] MAGIC = {'T', 'M', 'S', 'N'};
+    static final int VERSION = 3;
+    // 仍然可以读取的最早版本
+    static final int MIN_VERSION = 2;
+    static final int FLAG_DEFLATE = 1;
+
+    /** 没有处理器匹配。 */
+    public static final String DECISION_NO_MATCH = "#none";
+    /** 界面结构与上一轮无匹配时相同，本轮跳过了调度。 */
+    public static final String DECISION_SKIPPED = "#skipped";
+
+    static final int RECORD_STRING = 'T';
+    static final int RECORD_EVENT = 'E';
+    static final int RECORD_SCREEN = 'S';
+    static final int RECORD_CONTEXT = 'C';
+
+    static final int NODE_CLICKABLE = 1;
+    static final int NODE_VISIBLE = 1 << 1;
+    static final int NODE_SCROLLABLE = 1 << 2;
+    static final int NODE_EDITABLE = 1 << 3;
+
+    static final int CONTEXT_AUTO_READING = 1;
+
+    private final OutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+    // 本条记录中新出现的字符串定义，写在记录之前
+    private final ByteSink pendingStrings = new ByteSink(256);
+    private final ByteSink record = new ByteSink(4096);
+    private long lastUptimeMs;
+
+    /**
+     * @param out      输出流，写入器关闭时一并关闭。
+     * @param compress 是否对文件头之后的内容做 Deflate 压缩。
+     */
+    public SessionWriter(OutputStream out, boolean compress) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.write(compress ? FLAG_DEFLATE : 0);
+        // 压缩级别用最快的一档：类名、view id 已经由字符串表去重，剩下的主要是小整数
+        this.out = compress
+                ? new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED), 8192, true)
+                : out;
+    }
+
+    public void writeEvent(long uptimeMs, int eventType, String packageName, String className) throws IOException {
+        record.reset();
+        record.writeByte(RECORD_EVENT);
+        writeTime(uptimeMs);
+        record.writeVarint(eventType);
+        record.writeVarint(ref(packageName));
+        record.writeVarint(ref(className));
+        commit();
+    }
+
+    /**
+     * @param nodes 广度优先顺序的节点记录，见 ScreenSnapshot.toRecordedNodes()。
+     */
+    public void writeScreen(long uptimeMs, int attempt, String decision, List<RecordedNode> nodes) throws IOException {
+        record.reset();
+        record.writeByte(RECORD_SCREEN);
+        writeTime(uptimeMs);
+        record.writeVarint(attempt);
+        record.writeVarint(ref(decision));
+        record.writeVarint(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            RecordedNode node = nodes.get(i);
+            int parent = node.getParentIndex();
+            record.writeVarint(parent < 0 ? 0 : i - parent);
+            record.writeByte((node.isClickable() ? NODE_CLICKABLE : 0) | (node.isVisibleToUser() ? NODE_VISIBLE : 0)
+                    | (node.isScrollable() ? NODE_SCROLLABLE : 0) | (node.isEditable() ? NODE_EDITABLE : 0));
+            record.writeVarint(ref(node.getClassName()));
+            record.writeVarint(ref(node.getViewIdResourceName()));
+            record.writeVarint(ref(node.getText()));
+            record.writeVarint(ref(node.getContentDescription()));
+            int parentLeft = parent < 0 ? 0 : nodes.get(parent).getLeft();
+            int parentTop = parent < 0 ? 0 : nodes.get(parent).getTop();
+            record.writeSignedVarint(node.getLeft() - parentLeft);
+            record.writeSignedVarint(node.getTop() - parentTop);
+            record.writeSignedVarint(node.getRight() - node.getLeft());
+            record.writeSignedVarint(node.getBottom() - node.getTop());
+        }
+        commit();
+    }
+
+    /**
+     * 记录处理器读取的运行状态，之后写入的界面都在这份状态下调度。状态没有变化时调用方不必重复写入。
+     */
+    public void writeContext(RecordedContext context) throws IOException {
+        record.reset();
+        record.writeByte(RECORD_CONTEXT);
+        record.writeByte(context.isAutoReading() ? CONTEXT_AUTO_READING : 0);
+        record.writeVarint(ref(context.getNovelNameToSearch()));
+        writeRefs(context.getCompletedActions());
+        writeRefs(context.getRunningFlows());
+        commit();
+    }
+
+    private void writeRefs(Set<String> values) {
+        record.writeVarint(values.size());
+        for (String value : values) {
+            record.writeVarint(ref(value));
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeTime(long uptimeMs) {
+        record.writeSignedVarint(uptimeMs - lastUptimeMs);
+        lastUptimeMs = uptimeMs;
+    }
+
+    /**
+     * @return 字符串在字符串表中的编号，第一次出现时追加一条定义。
+     */
+    private int ref(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Integer id = strings.get(value);
+        if (id == null) {
+            id = strings.size() + 1;
+            strings.put(value, id);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            pendingStrings.writeByte(RECORD_STRING);
+            pendingStrings.writeVarint(bytes.length);
+            pendingStrings.write(bytes);
+        }
+        return id;
+    }
+
+    private void commit() throws IOException {
+        if (pendingStrings.size() > 0) {
+            out.write(pendingStrings.buffer(), 0, pendingStrings.size());
+            pendingStrings.reset();
+        }
+        out.write(record.buffer(), 0, record.size());
+    }
+
+    /**
+     * 可复用的字节缓冲区，避免每条记录分配新的数组。
+     */
+    private static final class ByteSink {
+        private byte[] bytes;
+        private int size;
+
+        ByteSink(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] buffer() {
+            return bytes;
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void write(byte[] data) {
+            ensure(data.length);
+            System.arraycopy(data, 0, bytes, size, data.length);
+            size += data.length;
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeSignedVarint(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.tomato.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 界面签名的倒排索引：把每个签名拆成元素，建立 “元素 -> 签名下标” 的倒排表。
+ * 查询时只收集界面上出现的元素，所有必需元素都出现且没有禁止元素的签名才算命中。
+ *
+ * 索引在构造后不可变，不依赖 Android，ScreenDispatcher 和 JVM 上的回放工具共用同一份实现。
+ */
+public final class SignatureIndex {
+
+    /**
+     * 倒排表中的一项：哪个签名，以及该元素对它来说是必需还是禁止。
+     */
+    private static final class Posting {
+        final int signatureIndex;
+        final boolean forbidden;
+
+        Posting(int signatureIndex, boolean forbidden) {
+            this.signatureIndex = signatureIndex;
+            this.forbidden = forbidden;
+        }
+    }
+
+    private final List<ScreenSignature> signatures;
+    private final Map<String, List<Posting>> viewIdPostings = new HashMap<>();
+    private final MultiPatternMatcher contentDescMatcher;
+    private final List<List<Posting>> contentDescPostings = new ArrayList<>();
+
+    /**
+     * @param signatures 按优先级排列的签名，元素可以为 null（表示不做预筛选，总是命中）。
+     */
+    public SignatureIndex(List<ScreenSignature> signatures) {
+        this.signatures = new ArrayList<>(signatures);
+
+        // content-desc 是包含匹配，把所有出现过的文本编译进同一个自动机
+        Set<String> contentDescs = new LinkedHashSet<>();
+        for (ScreenSignature signature : this.signatures) {
+            if (signature != null) {
+                contentDescs.addAll(signature.getRequiredContentDescs());
+                contentDescs.addAll(signature.getForbiddenContentDescs());
+            }
+        }
+        List<String> patterns = new ArrayList<>(contentDescs);
+        contentDescMatcher = patterns.isEmpty() ? null : MultiPatternMatcher.compile(patterns.toArray(new String[0]));
+        for (int i = 0; i < patterns.size(); i++) {
+            contentDescPostings.add(new ArrayList<Posting>());
+        }
+
+        for (int s = 0; s < this.signatures.size(); s++) {
+            ScreenSignature signature = this.signatures.get(s);
+            if (signature == null) {
+                continue;
+            }
+            for (String viewId : signature.getRequiredViewIds()) {
+                addPosting(viewId, new Posting(s, false));
+            }
+            for (String viewId : signature.getForbiddenViewIds()) {
+                addPosting(viewId, new Posting(s, true));
+            }
+            for (String contentDesc : signature.getRequiredContentDescs()) {
+                contentDescPostings.get(patterns.indexOf(contentDesc)).add(new Posting(s, false));
+            }
+            for (String contentDesc : signature.getForbiddenContentDescs()) {
+                contentDescPostings.get(patterns.indexOf(contentDesc)).add(new Posting(s, true));
+            }
+        }
+    }
+
+    private void addPosting(String key, Posting posting) {
+        List<Posting> postings = viewIdPostings.get(key);
+        if (postings == null) {
+            postings = new ArrayList<>(1);
+            viewIdPostings.put(key, postings);
+        }
+        postings.add(posting);
+    }
+
+    /**
+     * @return 签名数量。
+     */
+    public int size() {
+        return signatures.size();
+    }
+
+    /**
+     * 计算在给定界面上命中的签名。
+     *
+     * @param view 当前界面。
+     * @return 与签名一一对应的命中标记。
+     */
+    public boolean[] match(ScreenView<?> view) {
+        int[] hitCounts = new int[signatures.size()];
+        boolean[] blocked = new boolean[signatures.size()];
+
+        // 1. 界面上出现的 view id
+        for (String viewId : view.getViewIds()) {
+            List<Posting> postings = viewIdPostings.get(viewId);
+            if (postings != null) {
+                collect(postings, hitCounts, blocked);
+            }
+        }
+
+        // 2. 界面上出现的 content-desc，一次扫描得到所有命中的签名文本
+        if (contentDescMatcher != null) {
+            long matched = 0L;
+            for (String contentDesc : view.getContentDescriptions()) {
+                matched |= contentDescMatcher.match(contentDesc);
+            }
+            for (int i = 0; matched != 0L; i++, matched >>>= 1) {
+                if ((matched & 1L) != 0) {
+                    collect(contentDescPostings.get(i), hitCounts, blocked);
+                }
+            }
+        }
+
+        boolean[] hits = new boolean[signatures.size()];
+        for (int s = 0; s < signatures.size(); s++) {
+            ScreenSignature signature = signatures.get(s);
+            hits[s] = signature == null || (!blocked[s] && hitCounts[s] == signature.requiredCount());
+        }
+        return hits;
+    }
+
+    private static void collect(List<Posting> postings, int[] hitCounts, boolean[] blocked) {
+        for (Posting posting : postings) {
+            if (posting.forbidden) {
+                blocked[posting.signatureIndex] = true;
+            } else {
+                hitCounts[posting.signatureIndex]++;
+            }
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.tomato.utils;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class State {
     private static final State instance = new State();
-    private String novelNameToSearch;
+    private volatile String novelNameToSearch; // 由 React Native 线程写入，自动化线程读取
     private volatile boolean autoReading = true; // 新增：自动阅读状态标志，使用 volatile 保证线程可见性
+    private final AtomicLong version = new AtomicLong(); // 每次状态变化递增，用于让依赖状态的缓存失效
 
     private State() {}
 
@@ -21,6 +24,7 @@ public class State {
      */
     public void setNovelNameToSearch(String novelNameToSearch) {
         this.novelNameToSearch = novelNameToSearch;
+        version.incrementAndGet();
     }
 
     /**
@@ -37,5 +41,13 @@ public class State {
      */
     public void setAutoReading(boolean autoReading) {
         this.autoReading = autoReading;
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return 当前状态版本号，任何状态的变化都会使其递增。
+     */
+    public long getVersion() {
+        return version.get();
     }
 }
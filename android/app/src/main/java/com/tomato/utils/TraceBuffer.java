@@ -0,0 +1,153 @@
+package com.tomato.utils;
+
+import android.view.accessibility.AccessibilityEvent;
+
+import java.util.Locale;
+
+/**
+ * 固定大小的二进制追踪记录环形缓冲区。
+ * 每条记录只有几个基本类型字段（时间、事件类型、处理器编号、结果、附加值），
+ * 写入时不分配对象、不拼接字符串，生产环境也可以一直开着；需要排查问题时再 dump() 成文本。
+ *
+ * 字段按列存放在几个基本类型数组里，写满后覆盖最旧的记录。
+ * 事件在主线程写入，调度结果在自动化线程写入，所以写入和导出都加了同步。
+ */
+public final class TraceBuffer {
+
+    // --- 记录结果 (outcome) ---
+    public static final byte OUTCOME_EVENT = 1;            // 收到一个目标应用的事件
+    public static final byte OUTCOME_CYCLE_SCHEDULED = 2;  // 事件安排了新的处理周期
+    public static final byte OUTCOME_COALESCED = 3;        // 事件被合并进已有周期
+    public static final byte OUTCOME_SKIPPED = 4;          // 指纹未变化，跳过调度
+    public static final byte OUTCOME_NO_MATCH = 5;         // 没有处理器匹配
+    public static final byte OUTCOME_PROCESSED = 6;        // 处理器处理成功
+    public static final byte OUTCOME_FAILED = 7;           // 处理器处理失败
+    public static final byte OUTCOME_RETRY = 8;            // 安排了重试，附加值为下一次尝试序号
+    public static final byte OUTCOME_GESTURE_DONE = 9;     // 手势完成，附加值为耗时（毫秒）
+    public static final byte OUTCOME_GESTURE_CANCELLED = 10; // 手势取消，附加值为耗时（毫秒）
+    public static final byte OUTCOME_ROUTED = 11;          // 事件只交给增量监听者，不安排整窗口周期
+
+    private static final String[] OUTCOME_NAMES = {
+            "?", "EVENT", "CYCLE_SCHEDULED", "COALESCED", "SKIPPED", "NO_MATCH",
+            "PROCESSED", "FAILED", "RETRY", "GESTURE_DONE", "GESTURE_CANCELLED", "ROUTED"
+    };
+
+    /**
+     * 没有关联处理器时使用的编号。
+     */
+    public static final int NO_PROCESSOR = -1;
+
+    private static final TraceBuffer INSTANCE = new TraceBuffer(AccessibilityConfig.TRACE_BUFFER_CAPACITY);
+
+    private final int capacity;
+    private final long[] nanos;
+    private final int[] eventTypes;
+    private final short[] processorIds;
+    private final byte[] outcomes;
+    private final int[] values;
+    private long written; // 累计写入的记录数，写入位置为 written % capacity
+
+    // 处理器编号 -> 名称，只在导出时使用
+    private volatile String[] processorNames = new String[0];
+
+    private TraceBuffer(int capacity) {
+        this.capacity = capacity;
+        this.nanos = new long[capacity];
+        this.eventTypes = new int[capacity];
+        this.processorIds = new short[capacity];
+        this.outcomes = new byte[capacity];
+        this.values = new int[capacity];
+    }
+
+    public static TraceBuffer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 设置导出时显示的处理器名称，下标即处理器编号（注册顺序）。
+     */
+    public void setProcessorNames(String[] names) {
+        processorNames = names == null ? new String[0] : names.clone();
+    }
+
+    /**
+     * 写入一条记录。
+     *
+     * @param eventType   事件类型，没有时传 0。
+     * @param processorId 处理器编号，没有时传 NO_PROCESSOR。
+     * @param outcome     OUTCOME_* 之一。
+     * @param value       附加值，含义由 outcome 决定。
+     */
+    public void record(int eventType, int processorId, byte outcome, int value) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            int slot = (int) (written % capacity);
+            nanos[slot] = now;
+            eventTypes[slot] = eventType;
+            processorIds[slot] = (short) processorId;
+            outcomes[slot] = outcome;
+            values[slot] = value;
+            written++;
+        }
+    }
+
+    public void record(int eventType, int processorId, byte outcome) {
+        record(eventType, processorId, outcome, 0);
+    }
+
+    /**
+     * @return 当前缓冲区中的记录数量。
+     */
+    public synchronized int size() {
+        return (int) Math.min(written, capacity);
+    }
+
+    /**
+     * @return 累计写入的记录数量（包括已被覆盖的）。
+     */
+    public synchronized long getTotalWritten() {
+        return written;
+    }
+
+    public synchronized void clear() {
+        written = 0;
+    }
+
+    /**
+     * 把缓冲区中的记录按时间顺序导出成文本，每条一行，时间相对最后一条记录。
+     *
+     * @return 导出的文本。
+     */
+    public String dump() {
+        String[] names = processorNames;
+        StringBuilder sb = new StringBuilder();
+        synchronized (this) {
+            int count = (int) Math.min(written, capacity);
+            long first = written - count;
+            long lastNanos = count == 0 ? 0 : nanos[(int) ((written - 1) % capacity)];
+            sb.append("TraceBuffer: ").append(count).append(" / ").append(written).append(" records\n");
+            for (long i = first; i < written; i++) {
+                int slot = (int) (i % capacity);
+                sb.append(String.format(Locale.US, "%9.3fms ", (nanos[slot] - lastNanos) / 1_000_000.0));
+                sb.append(outcomeName(outcomes[slot]));
+                if (eventTypes[slot] != 0) {
+                    sb.append(" event=").append(AccessibilityEvent.eventTypeToString(eventTypes[slot]));
+                }
+                int processorId = processorIds[slot];
+                if (processorId != NO_PROCESSOR) {
+                    sb.append(" processor=").append(processorId >= 0 && processorId < names.length
+                            ? names[processorId] : String.valueOf(processorId));
+                }
+                if (values[slot] != 0) {
+                    sb.append(" value=").append(values[slot]);
+                }
+                sb.append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String outcomeName(byte outcome) {
+        return outcome > 0 && outcome < OUTCOME_NAMES.length ? OUTCOME_NAMES[outcome] : OUTCOME_NAMES[0];
+    }
+}
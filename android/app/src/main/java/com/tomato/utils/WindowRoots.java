@@ -0,0 +1,192 @@
+package com.tomato.utils;
+
+import android.accessibilityservice.AccessibilityService;
+import android.util.Log;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityWindowInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 目标窗口根节点的提供者。
+ *
+ * getRootInActiveWindow() 只能取到活动窗口，广告弹窗、三星桌面的 “添加到主屏” 面板这类悬浮窗口
+ * 不是活动窗口时就会被漏掉。这里用 getWindows() 枚举所有可交互的窗口，按层级从上到下选出第一个
+ * 属于目标应用的窗口（需要服务配置 flagRetrieveInteractiveWindows）；取不到窗口列表或没有目标窗口时
+ * 退回 getRootInActiveWindow()。
+ *
+ * 窗口列表和根节点按窗口编号缓存在当前这一代：每个处理周期开始和窗口状态变化时调用 advance()
+ * 进入新的一代。服务按包名订阅，不带包名的 TYPE_WINDOWS_CHANGED 不会送达，悬浮面板的出现和消失
+ * 由下一个处理周期开始时的 advance() 反映出来。
+ * 同一代内所有调用方拿到的都是同一个根节点的拷贝，拷贝只在本地复制，不发起 IPC。
+ *
+ * acquireRoot 只在自动化线程上调用；advance 可以在任何线程调用。
+ */
+public final class WindowRoots {
+
+    private static final String TAG = AccessibilityConfig.TAG + ".Windows";
+    // 泄漏统计中缓存节点的持有者名称
+    private static final String LEAK_OWNER = "WindowRoots";
+
+    private static final Map<AccessibilityService, WindowRoots> INSTANCES = new WeakHashMap<>();
+
+    private final AccessibilityService service;
+    private final AtomicLong generation = new AtomicLong();
+
+    // --- 当前这一代的缓存，只在自动化线程上访问 ---
+    private long cachedGeneration = -1;
+    private List<AccessibilityWindowInfo> windows = Collections.emptyList();
+    private final Map<Integer, AccessibilityNodeInfo> roots = new HashMap<>();
+    private AccessibilityNodeInfo targetRoot;
+    // 目标根节点来自 getRootInActiveWindow，不在 roots 中，需要单独回收
+    private boolean targetFromActiveWindow;
+
+    private WindowRoots(AccessibilityService service) {
+        this.service = service;
+    }
+
+    /**
+     * @return 服务对应的根节点提供者，第一次调用时创建。
+     */
+    public static WindowRoots of(AccessibilityService service) {
+        synchronized (INSTANCES) {
+            WindowRoots windowRoots = INSTANCES.get(service);
+            if (windowRoots == null) {
+                windowRoots = new WindowRoots(service);
+                INSTANCES.put(service, windowRoots);
+            }
+            return windowRoots;
+        }
+    }
+
+    /**
+     * 进入新的一代，之后的 acquireRoot 重新枚举窗口。
+     */
+    public void advance() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * @return 目标窗口根节点的一份拷贝，由调用方负责回收；取不到任何窗口时返回 null。
+     */
+    public AccessibilityNodeInfo acquireRoot() {
+        refresh();
+        return targetRoot == null ? null : AccessibilityNodeInfo.obtain(targetRoot);
+    }
+
+    /**
+     * @return 指定窗口根节点的一份拷贝，由调用方负责回收；窗口不存在时返回 null。
+     */
+    public AccessibilityNodeInfo acquireRoot(int windowId) {
+        refresh();
+        AccessibilityNodeInfo root = rootOf(windowId);
+        return root == null ? null : AccessibilityNodeInfo.obtain(root);
+    }
+
+    /**
+     * 丢弃缓存的窗口和根节点。服务销毁时调用。
+     */
+    public void release() {
+        if (targetFromActiveWindow && targetRoot != null) {
+            targetRoot.recycle();
+            NodeLeakTracker.released(LEAK_OWNER, 1);
+        }
+        targetFromActiveWindow = false;
+        int recycled = 0;
+        for (AccessibilityNodeInfo root : roots.values()) {
+            if (root != null) {
+                root.recycle();
+                recycled++;
+            }
+        }
+        NodeLeakTracker.released(LEAK_OWNER, recycled);
+        roots.clear();
+        targetRoot = null;
+        for (AccessibilityWindowInfo window : windows) {
+            window.recycle();
+        }
+        windows = Collections.emptyList();
+        cachedGeneration = -1;
+    }
+
+    private void refresh() {
+        long current = generation.get();
+        if (current == cachedGeneration) {
+            return;
+        }
+        release();
+        cachedGeneration = current;
+
+        List<AccessibilityWindowInfo> found = service.getWindows();
+        if (found != null && !found.isEmpty()) {
+            windows = new ArrayList<>(found);
+            // 层级高的窗口在上面，悬浮面板优先于被它盖住的页面
+            Collections.sort(windows, (a, b) -> Integer.compare(b.getLayer(), a.getLayer()));
+            for (AccessibilityWindowInfo window : windows) {
+                if (!isCandidate(window)) {
+                    continue;
+                }
+                AccessibilityNodeInfo root = rootOf(window.getId());
+                if (root != null && isTargetPackage(root.getPackageName())) {
+                    targetRoot = root;
+                    break;
+                }
+            }
+        }
+        if (targetRoot == null) {
+            // 没有开启窗口检索，或者目标应用不在前台
+            targetRoot = NodeFetcher.activeRoot(service);
+            targetFromActiveWindow = true;
+            if (targetRoot != null) {
+                NodeLeakTracker.acquired(LEAK_OWNER, 1);
+            }
+        }
+        if (AccessibilityLog.isDebugEnabled()) {
+            Log.d(TAG, "第 " + current + " 代: " + windows.size() + " 个窗口，目标窗口 "
+                    + (targetRoot == null ? "无" : targetRoot.getWindowId() + " (" + targetRoot.getPackageName() + ")"));
+        }
+    }
+
+    /**
+     * @return 当前这一代中指定窗口的根节点，第一次使用时获取并缓存。节点归本对象所有。
+     */
+    private AccessibilityNodeInfo rootOf(int windowId) {
+        if (roots.containsKey(windowId)) {
+            return roots.get(windowId);
+        }
+        AccessibilityNodeInfo root = null;
+        for (AccessibilityWindowInfo window : windows) {
+            if (window.getId() == windowId) {
+                root = NodeFetcher.root(window);
+                break;
+            }
+        }
+        roots.put(windowId, root);
+        if (root != null) {
+            NodeLeakTracker.acquired(LEAK_OWNER, 1);
+        }
+        return root;
+    }
+
+    /**
+     * 只考虑应用窗口和系统窗口（桌面的面板属于系统窗口），输入法和无障碍悬浮层不会是目标。
+     */
+    private static boolean isCandidate(AccessibilityWindowInfo window) {
+        int type = window.getType();
+        return type == AccessibilityWindowInfo.TYPE_APPLICATION || type == AccessibilityWindowInfo.TYPE_SYSTEM;
+    }
+
+    private static boolean isTargetPackage(CharSequence packageName) {
+        if (packageName == null) {
+            return false;
+        }
+        String name = packageName.toString();
+        return AccessibilityConfig.TARGET_PACKAGE_NAME_1.equals(name) || AccessibilityConfig.TARGET_PACKAGE_NAME_2.equals(name);
+    }
+}
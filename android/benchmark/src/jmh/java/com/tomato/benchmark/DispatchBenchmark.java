@@ -0,0 +1,70 @@
+package com.tomato.benchmark;
+
+import com.tomato.benchmark.replay.BundledRules;
+import com.tomato.benchmark.replay.SyntheticSessions;
+import com.tomato.benchmark.tree.FakeDispatcher;
+import com.tomato.benchmark.tree.FakeNode;
+import com.tomato.benchmark.tree.FakeSnapshot;
+import com.tomato.benchmark.tree.FakeTree;
+import com.tomato.benchmark.tree.TreeGenerators;
+import com.tomato.benchmark.tree.TreeGenerators.TreeShape;
+import com.tomato.utils.ProcessorContext;
+import com.tomato.utils.ScreenMatcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 一个完整调度周期的基准测试：从拿到根节点到选出处理器。
+ *
+ * 处理器是线上处理器的界面识别部分（见 BundledRules），在合成会话的处理器状态下调度。
+ * legacyPerProcessor 对应最初的实现，每个处理器各自从根节点遍历整棵树；
+ * snapshotLinear 先建快照再逐个 canProcess；snapshotIndexed 再加上签名倒排索引，与当前线上一致。
+ * 快照的结构指纹也计入 snapshotIndexed，反映决策缓存查询前的全部开销。
+ */
+@State(Scope.Thread)
+public class DispatchBenchmark {
+
+    @Param({"LYNX_READING", "SEARCH_RESULTS", "AD_OVERLAY", "MAIN_PAGE"})
+    public TreeShape shape;
+
+    @Param({"0", "200"})
+    public int ipcSpin;
+
+    private FakeTree tree;
+    private FakeDispatcher dispatcher;
+    private final ProcessorContext context = SyntheticSessions.CONTEXT;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = TreeGenerators.generate(shape);
+        tree.setIpcSpin(ipcSpin);
+        dispatcher = new FakeDispatcher(BundledRules.registrationOrder());
+        // 提前确认每种树形都能选出处理器，避免测的是“全部不匹配”的路径
+        if (dispatcher.selectIndexed(context, FakeSnapshot.capture(tree.getRoot())) == null) {
+            throw new IllegalStateException("没有处理器匹配树形 " + shape);
+        }
+    }
+
+    @Benchmark
+    public ScreenMatcher legacyPerProcessor() {
+        return dispatcher.selectLegacy(context, tree.getRoot());
+    }
+
+    @Benchmark
+    public ScreenMatcher snapshotLinear() {
+        return dispatcher.selectLinear(context, FakeSnapshot.capture(tree.getRoot()));
+    }
+
+    @Benchmark
+    public long snapshotIndexed() {
+        FakeNode root = tree.getRoot();
+        FakeSnapshot snapshot = FakeSnapshot.capture(root);
+        ScreenMatcher processor = dispatcher.selectIndexed(context, snapshot);
+        return snapshot.getFingerprint() ^ System.identityHashCode(processor);
+    }
+}
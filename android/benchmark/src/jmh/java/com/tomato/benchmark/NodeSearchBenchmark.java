@@ -0,0 +1,122 @@
+package com.tomato.benchmark;
+
+import com.tomato.benchmark.tree.FakeNode;
+import com.tomato.benchmark.tree.FakeSnapshot;
+import com.tomato.benchmark.tree.FakeTree;
+import com.tomato.benchmark.tree.LegacySearch;
+import com.tomato.benchmark.tree.TreeGenerators;
+import com.tomato.benchmark.tree.TreeGenerators.TreeShape;
+import com.tomato.utils.AccessibilityConfig;
+import com.tomato.utils.MultiPatternMatcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * 节点查找的基准测试：旧的逐节点 IPC 查找与基于快照索引的查找对比。
+ *
+ * ipcSpin 为 0 时测的是纯 CPU 开销；调大后每次 getChild / getParent 额外空转，
+ * 用来观察跨进程调用次数对两种方式的影响。快照类的测试把建快照的开销单独放在 captureSnapshot 中。
+ * 兄弟节点查找只在广告浮层上有意义，见 SiblingSearchBenchmark。
+ */
+@State(Scope.Thread)
+public class NodeSearchBenchmark {
+
+    private static final String[] AD_PATTERNS = {"广告", "领取成功", "领取奖励", "坚持退出"};
+
+    @Param({"LYNX_READING", "SEARCH_RESULTS", "AD_OVERLAY", "MAIN_PAGE"})
+    public TreeShape shape;
+
+    @Param({"0", "200"})
+    public int ipcSpin;
+
+    private FakeTree tree;
+    private FakeNode root;
+    private FakeSnapshot snapshot;
+    private MultiPatternMatcher adMatcher;
+    // 查找目标：树形中存在的特征 view id，广告浮层上则是一个不存在的 id
+    private String targetViewId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = TreeGenerators.generate(shape);
+        tree.setIpcSpin(ipcSpin);
+        root = tree.getRoot();
+        snapshot = FakeSnapshot.capture(root);
+        adMatcher = MultiPatternMatcher.compile(AD_PATTERNS);
+        switch (shape) {
+            case LYNX_READING:
+                targetViewId = AccessibilityConfig.TARGET_FOR_READING_PAGE_FEATURE_1;
+                break;
+            case SEARCH_RESULTS:
+                targetViewId = AccessibilityConfig.TARGET_FOR_SEARCH_RESULT_ITEM;
+                break;
+            case MAIN_PAGE:
+                targetViewId = AccessibilityConfig.TARGET_FOR_INPUT_BUTTON_1;
+                break;
+            default:
+                // 广告浮层上没有 view id，测的是查找不到时的开销
+                targetViewId = AccessibilityConfig.AD_BUTTON_ID;
+                break;
+        }
+    }
+
+    // --- 建快照 ---
+
+    @Benchmark
+    public FakeSnapshot captureSnapshot() {
+        return FakeSnapshot.capture(root);
+    }
+
+    // --- content-desc 查找 ---
+
+    /**
+     * 旧方式：每个标志文本各自递归遍历一次整棵树。
+     */
+    @Benchmark
+    public int contentDescRecursive() {
+        int found = 0;
+        for (String pattern : AD_PATTERNS) {
+            found += LegacySearch.findNodesByContentDescriptionContains(root, pattern).size();
+        }
+        return found;
+    }
+
+    /**
+     * 在快照上逐个标志文本做包含匹配。
+     */
+    @Benchmark
+    public int contentDescSnapshot() {
+        int found = 0;
+        for (String pattern : AD_PATTERNS) {
+            found += snapshot.findByContentDescriptionContains(pattern).size();
+        }
+        return found;
+    }
+
+    /**
+     * 在快照上用多模式匹配器一次扫描所有 content-desc。
+     */
+    @Benchmark
+    public int contentDescMultiPattern() {
+        return snapshot.matchContentDescriptions(adMatcher).all().size();
+    }
+
+    // --- view id 查找 ---
+
+    @Benchmark
+    public List<FakeNode> viewIdSystemLookup() {
+        return LegacySearch.findNodesByResourceID(root, targetViewId);
+    }
+
+    @Benchmark
+    public List<FakeNode> viewIdSnapshotIndex() {
+        return snapshot.findByViewId(targetViewId);
+    }
+}
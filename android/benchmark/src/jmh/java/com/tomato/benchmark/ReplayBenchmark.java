@@ -0,0 +1,51 @@
+package com.tomato.benchmark;
+
+import com.tomato.benchmark.replay.BundledRules;
+import com.tomato.benchmark.replay.ReplaySession;
+import com.tomato.benchmark.replay.SessionReplay;
+import com.tomato.benchmark.replay.SyntheticSessions;
+import com.tomato.benchmark.tree.FakeDispatcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 回放录制会话的调度吞吐量。一次调用把所有会话中的界面全部调度一遍。
+ * 会话文件或目录由系统属性 replay.sessions 指定（逗号分隔），没有指定时使用合成会话：
+ * ./gradlew :benchmark:jmh -PjmhIncludes=Replay -Psessions=<会话文件或目录>
+ */
+@State(Scope.Thread)
+public class ReplayBenchmark {
+
+    private FakeDispatcher dispatcher;
+    private List<ReplaySession> loaded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dispatcher = new FakeDispatcher(BundledRules.registrationOrder());
+        String sessions = System.getProperty("replay.sessions", "");
+        if (sessions.isEmpty()) {
+            loaded = Collections.singletonList(SyntheticSessions.create(10));
+        } else {
+            List<File> paths = new ArrayList<>();
+            for (String path : sessions.split(",")) {
+                paths.add(new File(path));
+            }
+            loaded = ReplaySession.readAll(paths);
+        }
+    }
+
+    @Benchmark
+    public long dispatchAllScreens() {
+        return SessionReplay.dispatchAll(dispatcher, loaded);
+    }
+}
@@ -0,0 +1,48 @@
+package com.tomato.benchmark;
+
+import com.tomato.benchmark.tree.FakeNode;
+import com.tomato.benchmark.tree.FakeSnapshot;
+import com.tomato.benchmark.tree.FakeTree;
+import com.tomato.benchmark.tree.LegacySearch;
+import com.tomato.benchmark.tree.TreeGenerators;
+import com.tomato.benchmark.tree.TreeGenerators.TreeShape;
+import com.tomato.utils.AccessibilityConfig;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 广告浮层上查找关闭按钮的基准测试：从 content-desc 锚点出发，找之后第一个 UIImage 兄弟节点。
+ * 旧方式经 getParent / getChild 逐个比较，快照方式直接利用兄弟节点在广度优先列表中连续的特点。
+ */
+@State(Scope.Thread)
+public class SiblingSearchBenchmark {
+
+    @Param({"0", "200"})
+    public int ipcSpin;
+
+    private FakeNode anchor;
+    private FakeSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FakeTree tree = TreeGenerators.generate(TreeShape.AD_OVERLAY);
+        tree.setIpcSpin(ipcSpin);
+        snapshot = FakeSnapshot.capture(tree.getRoot());
+        anchor = snapshot.findByContentDescriptionContains("领取成功").get(0);
+    }
+
+    @Benchmark
+    public FakeNode nextSiblingIpc() {
+        return LegacySearch.findNextSiblingByClass(anchor, AccessibilityConfig.TARGET_IMAGE_CLASS);
+    }
+
+    @Benchmark
+    public FakeNode nextSiblingSnapshot() {
+        return snapshot.findNextSiblingByClass(anchor, AccessibilityConfig.TARGET_IMAGE_CLASS);
+    }
+}
@@ -0,0 +1,92 @@
+package com.tomato.benchmark.replay;
+
+import com.tomato.processor.AdMatcher;
+import com.tomato.processor.FindAndClickNovelMatcher;
+import com.tomato.processor.ReadingPageMatcher;
+import com.tomato.processor.RuleMatcher;
+import com.tomato.utils.AccessibilityConfig;
+import com.tomato.utils.ScreenMatcher;
+import com.tomato.utils.ScreenRuleFile;
+import com.tomato.utils.ScreenRuleSet;
+
+import org.json.JSONException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 应用内置的规则文件 assets/screen_rules.json，以及按其中的顺序排列的处理器。
+ * 处理器就是线上处理器的界面识别部分：规则包装成 RuleMatcher，builtin 条目换成 processor 包中对应的 Matcher，
+ * 与 AccessibilityEventService 注册的是同一份 canProcess 和签名，回放时在录制的界面上运行。
+ */
+public final class BundledRules {
+
+    // build.gradle 把 app 的 assets/screen_rules.json 加入了资源
+    private static final String RULES_RESOURCE = "/" + AccessibilityConfig.RULES_FILE_NAME;
+
+    private BundledRules() {
+    }
+
+    /**
+     * @return 按应用内置规则文件中的顺序排列的全部处理器。
+     */
+    public static List<ScreenMatcher> registrationOrder() {
+        return matchers(load());
+    }
+
+    /**
+     * 读取并编译应用内置的规则文件。
+     *
+     * @throws IllegalStateException 类路径上没有规则文件，或者规则文件有误。
+     */
+    public static ScreenRuleFile load() {
+        try (InputStream in = BundledRules.class.getResourceAsStream(RULES_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("类路径上没有规则文件 " + RULES_RESOURCE);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return ScreenRuleFile.parse(new String(out.toByteArray(), StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            throw new IllegalStateException("内置规则文件无效: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 与 AccessibilityEventService.initializeProcessors 相同的注册顺序，所有规则共用一个规则集。
+     *
+     * @return 按规则文件中的顺序排列的处理器。
+     * @throws IllegalArgumentException 规则文件引用了未知的内置处理器。
+     */
+    public static List<ScreenMatcher> matchers(ScreenRuleFile rules) {
+        ScreenRuleSet ruleSet = new ScreenRuleSet(rules);
+        List<ScreenMatcher> matchers = new ArrayList<>();
+        for (ScreenRuleFile.Entry entry : rules.getEntries()) {
+            matchers.add(entry.getRule() != null
+                    ? new RuleMatcher(entry.getRule(), ruleSet)
+                    : builtin(entry.getBuiltin()));
+        }
+        return matchers;
+    }
+
+    private static ScreenMatcher builtin(String name) {
+        switch (name) {
+            case AdMatcher.NAME:
+                return new AdMatcher();
+            case FindAndClickNovelMatcher.NAME:
+                return new FindAndClickNovelMatcher();
+            case ReadingPageMatcher.NAME:
+                return new ReadingPageMatcher();
+            default:
+                throw new IllegalArgumentException("规则文件引用了未知的内置处理器: " + name);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.tomato.benchmark.replay;
+
+import com.tomato.utils.RecordedContext;
+import com.tomato.utils.RecordedScreen;
+import com.tomato.utils.SessionReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 读入内存的一个录制会话：事件数量和按时间顺序排列的界面，每个界面带着调度时的处理器状态。
+ * 回放前整体读入，计时只包含调度本身，不包含文件读取和解析。
+ */
+public final class ReplaySession {
+
+    /**
+     * 录制时的一次调度：界面、当时的处理器状态和调度结果。
+     */
+    public static final class Screen {
+        public final int attempt;
+        public final String decision;
+        public final RecordedScreen view;
+        // 版本 2 的会话没有记录处理器状态，为 null
+        public final RecordedContext context;
+
+        Screen(int attempt, String decision, RecordedScreen view, RecordedContext context) {
+            this.attempt = attempt;
+            this.decision = decision;
+            this.view = view;
+            this.context = context;
+        }
+    }
+
+    private final String name;
+    private final long byteSize;
+    private final List<Screen> screens = new ArrayList<>();
+    private int eventCount;
+    // 读取过程中最近一条处理器状态记录
+    private RecordedContext currentContext;
+
+    private ReplaySession(String name, long byteSize) {
+        this.name = name;
+        this.byteSize = byteSize;
+    }
+
+    private SessionReader.Listener collector() {
+        return new SessionReader.Listener() {
+            @Override
+            public void onEvent(long uptimeMs, int eventType, String packageName, String className) {
+                eventCount++;
+            }
+
+            @Override
+            public void onScreen(long uptimeMs, int attempt, String decision, RecordedScreen screen) {
+                screens.add(new Screen(attempt, decision, screen, currentContext));
+            }
+
+            @Override
+            public void onContext(RecordedContext context) {
+                currentContext = context;
+            }
+        };
+    }
+
+    /**
+     * 从内存中的会话数据读取。
+     */
+    public static ReplaySession read(String name, byte[] data) throws IOException {
+        ReplaySession session = new ReplaySession(name, data.length);
+        SessionReader.read(ByteBuffer.wrap(data), session.collector());
+        return session;
+    }
+
+    public static ReplaySession read(File file) throws IOException {
+        ReplaySession session = new ReplaySession(file.getName(), file.length());
+        SessionReader.read(file, session.collector());
+        return session;
+    }
+
+    /**
+     * 读取多个会话文件；参数为目录时读取其中所有会话文件（按文件名排序）。
+     */
+    public static List<ReplaySession> readAll(List<File> paths) throws IOException {
+        List<ReplaySession> sessions = new ArrayList<>();
+        for (File path : paths) {
+            if (path.isDirectory()) {
+                File[] files = path.listFiles((dir, fileName) -> fileName.startsWith("session-"));
+                if (files == null) {
+                    continue;
+                }
+                Arrays.sort(files);
+                for (File file : files) {
+                    sessions.add(read(file));
+                }
+            } else {
+                sessions.add(read(path));
+            }
+        }
+        return sessions;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 会话文件的字节数。
+     */
+    public long getByteSize() {
+        return byteSize;
+    }
+
+    public List<Screen> getScreens() {
+        return Collections.unmodifiableList(screens);
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+}
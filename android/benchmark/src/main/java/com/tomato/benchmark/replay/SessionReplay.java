@@ -0,0 +1,164 @@
+package com.tomato.benchmark.replay;
+
+import com.tomato.benchmark.tree.FakeDispatcher;
+import com.tomato.utils.ProcessorContext;
+import com.tomato.utils.RecordedContext;
+import com.tomato.utils.ScreenMatcher;
+import com.tomato.utils.SessionWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 会话回放工具：把录制的会话全速送进调度流程（SignatureIndex 预筛选 + 按注册顺序 canProcess），
+ * 统计吞吐量，并把回放得到的处理器与录制时的决策对比。
+ *
+ * 处理器就是线上处理器的界面识别部分（见 BundledRules），每个界面在录制时的处理器状态下调度，
+ * 回放结果与录制时的决策不一致就是调度的回归，main 以退出码 1 结束。
+ * 版本 2 的会话没有记录处理器状态，其中的界面只参与计时，不参与对比。
+ *
+ * 用法: SessionReplay [会话文件或目录...]，不给参数时使用合成会话。
+ * 系统属性 replay.iterations 指定计时轮数（默认 20）。
+ */
+public final class SessionReplay {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MAX_REPORTED_MISMATCHES = 20;
+
+    // 没有记录处理器状态的界面在计时时使用的状态：所有操作都未完成，没有小说名，自动阅读关闭
+    private static final RecordedContext NO_CONTEXT = new RecordedContext(Collections.<String>emptyList(), null,
+            false, Collections.<String>emptyList());
+
+    /**
+     * 与录制决策的对比结果。
+     */
+    public static final class Comparison {
+        /** 回放中各处理器被选中的次数，没有处理器匹配记为 SessionWriter.DECISION_NO_MATCH。 */
+        public final Map<String, Integer> selected = new LinkedHashMap<>();
+        /** 不一致的界面，每项描述一个界面。 */
+        public final List<String> mismatches = new ArrayList<>();
+        public int compared;
+        /** 没有记录处理器状态、未参与对比的界面数。 */
+        public int withoutContext;
+    }
+
+    private SessionReplay() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<ReplaySession> sessions;
+        if (args.length == 0) {
+            System.out.println("未指定会话文件，使用合成会话。");
+            sessions = new ArrayList<>();
+            sessions.add(SyntheticSessions.create(50));
+        } else {
+            List<File> paths = new ArrayList<>();
+            for (String arg : args) {
+                paths.add(new File(arg));
+            }
+            sessions = ReplaySession.readAll(paths);
+        }
+        int iterations = Integer.getInteger("replay.iterations", 20);
+
+        FakeDispatcher dispatcher = new FakeDispatcher(BundledRules.registrationOrder());
+        int events = 0;
+        int screens = 0;
+        long nodes = 0;
+        for (ReplaySession session : sessions) {
+            events += session.getEventCount();
+            screens += session.getScreens().size();
+            for (ReplaySession.Screen screen : session.getScreens()) {
+                nodes += screen.view.size();
+            }
+        }
+        long bytes = 0;
+        for (ReplaySession session : sessions) {
+            bytes += session.getByteSize();
+        }
+        System.out.printf(Locale.US, "%d 个会话，%d 个事件，%d 个界面，平均 %.1f 个节点，文件共 %d 字节 (%.1f 字节/界面)%n",
+                sessions.size(), events, screens, screens == 0 ? 0.0 : (double) nodes / screens,
+                bytes, screens == 0 ? 0.0 : (double) bytes / screens);
+        if (screens == 0) {
+            return;
+        }
+
+        // 1. 与录制决策对比，同时统计各处理器被选中的次数
+        Comparison comparison = compare(dispatcher, sessions);
+        for (int i = 0; i < comparison.mismatches.size() && i < MAX_REPORTED_MISMATCHES; i++) {
+            System.out.println("  不一致: " + comparison.mismatches.get(i));
+        }
+        System.out.println("回放选中的处理器: " + comparison.selected);
+        System.out.printf(Locale.US, "与录制决策对比 %d 个界面，不一致 %d 个，%d 个界面没有处理器状态未对比%n",
+                comparison.compared, comparison.mismatches.size(), comparison.withoutContext);
+
+        // 2. 全速回放计时
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += dispatchAll(dispatcher, sessions);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += dispatchAll(dispatcher, sessions);
+        }
+        long elapsed = System.nanoTime() - start;
+        long dispatched = (long) screens * iterations;
+        System.out.printf(Locale.US, "调度 %d 次，平均 %.2f us/界面，%.0f 界面/秒 (校验值 %d)%n",
+                dispatched, elapsed / 1000.0 / dispatched, dispatched * 1e9 / elapsed, sink);
+        if (!comparison.mismatches.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 在录制时的处理器状态下重新调度每个界面，与录制时的决策对比。跳过调度的界面不参与对比。
+     */
+    public static Comparison compare(FakeDispatcher dispatcher, List<ReplaySession> sessions) {
+        Comparison comparison = new Comparison();
+        for (ReplaySession session : sessions) {
+            List<ReplaySession.Screen> screens = session.getScreens();
+            for (int i = 0; i < screens.size(); i++) {
+                ReplaySession.Screen screen = screens.get(i);
+                if (SessionWriter.DECISION_SKIPPED.equals(screen.decision)) {
+                    continue;
+                }
+                if (screen.context == null) {
+                    comparison.withoutContext++;
+                    continue;
+                }
+                ScreenMatcher processor = dispatcher.selectIndexed(screen.context, screen.view);
+                String decision = processor != null ? processor.getName() : SessionWriter.DECISION_NO_MATCH;
+                comparison.selected.merge(decision, 1, Integer::sum);
+                comparison.compared++;
+                if (!decision.equals(screen.decision)) {
+                    comparison.mismatches.add(String.format(Locale.US, "%s #%d (attempt %d) 录制=%s 回放=%s 状态=%s",
+                            session.getName(), i, screen.attempt, screen.decision, decision, screen.context));
+                }
+            }
+        }
+        return comparison;
+    }
+
+    /**
+     * 依次调度所有会话中的所有界面。
+     *
+     * @return 选中处理器的计数，防止调度结果被 JIT 消除。
+     */
+    public static long dispatchAll(FakeDispatcher dispatcher, List<ReplaySession> sessions) {
+        long matched = 0;
+        for (ReplaySession session : sessions) {
+            for (ReplaySession.Screen screen : session.getScreens()) {
+                ProcessorContext context = screen.context != null ? screen.context : NO_CONTEXT;
+                if (dispatcher.selectIndexed(context, screen.view) != null) {
+                    matched++;
+                }
+            }
+        }
+        return matched;
+    }
+}
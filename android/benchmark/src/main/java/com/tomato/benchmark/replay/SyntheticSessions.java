@@ -0,0 +1,116 @@
+package com.tomato.benchmark.replay;
+
+import com.tomato.benchmark.tree.FakeNode;
+import com.tomato.benchmark.tree.FakeTree;
+import com.tomato.benchmark.tree.TreeGenerators;
+import com.tomato.benchmark.tree.TreeGenerators.TreeShape;
+import com.tomato.utils.RecordedContext;
+import com.tomato.utils.RecordedNode;
+import com.tomato.utils.SessionWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 没有录制文件时使用的合成会话：依次经过 TreeGenerators 的各种树形，
+ * 通过 SessionWriter 写出再用 SessionReader 读回，与真实会话走完全相同的格式和解析路径。
+ * 合成树没有坐标，节点的屏幕坐标都为 0。
+ */
+public final class SyntheticSessions {
+
+    private static final int WINDOW_STATE_CHANGED = 0x20;
+    private static final int WINDOW_CONTENT_CHANGED = 0x800;
+
+    /**
+     * 合成会话录制时的处理器状态：搜索流程刚开始，所有操作都还没有完成，设置了小说名并开启了自动阅读，
+     * 每种树形都会选出 expectedDecision 给出的处理器。
+     */
+    public static final RecordedContext CONTEXT = new RecordedContext(Collections.<String>emptyList(),
+            "斗破苍穹", true, Collections.<String>emptyList());
+
+    private SyntheticSessions() {
+    }
+
+    /**
+     * @param rounds 所有树形轮流出现的轮数。
+     */
+    public static ReplaySession create(int rounds) {
+        return create(rounds, true);
+    }
+
+    /**
+     * @param rounds   所有树形轮流出现的轮数。
+     * @param compress 是否压缩会话数据。
+     */
+    public static ReplaySession create(int rounds, boolean compress) {
+        List<List<RecordedNode>> screens = new ArrayList<>();
+        List<String> decisions = new ArrayList<>();
+        for (TreeShape shape : TreeShape.values()) {
+            screens.add(toRecordedNodes(TreeGenerators.generate(shape)));
+            decisions.add(expectedDecision(shape));
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            SessionWriter writer = new SessionWriter(buffer, compress);
+            long uptime = 0;
+            writer.writeContext(CONTEXT);
+            for (int round = 0; round < rounds; round++) {
+                for (int i = 0; i < screens.size(); i++) {
+                    uptime += 40;
+                    writer.writeEvent(uptime, WINDOW_STATE_CHANGED, "com.dragon.read", "android.widget.FrameLayout");
+                    writer.writeEvent(uptime + 5, WINDOW_CONTENT_CHANGED, "com.dragon.read", "android.widget.FrameLayout");
+                    writer.writeScreen(uptime + 3000, 0, decisions.get(i), screens.get(i));
+                    uptime += 3000;
+                }
+            }
+            writer.close();
+            return ReplaySession.read("synthetic", buffer.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String expectedDecision(TreeShape shape) {
+        switch (shape) {
+            case LYNX_READING:
+                return "ReadingPageProcessor";
+            case SEARCH_RESULTS:
+                return "FindAndClickNovelProcessor";
+            case AD_OVERLAY:
+                return "AdProcessor";
+            case MAIN_PAGE:
+                return "MainPageProcessor";
+            default:
+                return SessionWriter.DECISION_NO_MATCH;
+        }
+    }
+
+    /**
+     * 按广度优先顺序把合成树转换成节点记录，与 ScreenSnapshot.toRecordedNodes() 的顺序一致。
+     */
+    private static List<RecordedNode> toRecordedNodes(FakeTree tree) {
+        List<FakeNode> order = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        order.add(tree.getRoot());
+        parents.add(-1);
+        for (int cursor = 0; cursor < order.size(); cursor++) {
+            FakeNode node = order.get(cursor);
+            for (int i = 0; i < node.getChildCount(); i++) {
+                order.add(node.getChild(i));
+                parents.add(cursor);
+            }
+        }
+        List<RecordedNode> recorded = new ArrayList<>(order.size());
+        for (int i = 0; i < order.size(); i++) {
+            FakeNode node = order.get(i);
+            recorded.add(new RecordedNode(parents.get(i), node.getClassName(), node.getViewIdResourceName(),
+                    node.getText(), node.getContentDescription(), node.isClickable(), node.isVisibleToUser(),
+                    node.isScrollable(), node.isEditable(), 0, 0, 0, 0));
+        }
+        return recorded;
+    }
+}
@@ -0,0 +1,84 @@
+package com.tomato.benchmark.tree;
+
+import com.tomato.utils.ProcessorContext;
+import com.tomato.utils.ScreenMatcher;
+import com.tomato.utils.ScreenSignature;
+import com.tomato.utils.ScreenView;
+import com.tomato.utils.SignatureIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 与 ScreenDispatcher 相同的调度流程：使用同一份 SignatureIndex 预筛选候选，再按注册顺序调用处理器的 canProcess。
+ * 处理器就是线上处理器的界面识别部分（ScreenMatcher），只是不记录指标和日志。
+ * 另外提供两种旧的调度方式作为对照：selectLegacy 每个处理器各自遍历整棵树，selectLinear 共享快照但逐个调用 canProcess。
+ */
+public final class FakeDispatcher {
+
+    private final List<ScreenMatcher> processors;
+    private final SignatureIndex signatureIndex;
+
+    public FakeDispatcher(List<ScreenMatcher> processors) {
+        this.processors = new ArrayList<>(processors);
+        List<ScreenSignature> signatures = new ArrayList<>();
+        for (ScreenMatcher processor : processors) {
+            signatures.add(processor.getSignature());
+        }
+        this.signatureIndex = new SignatureIndex(signatures);
+    }
+
+    public List<ScreenMatcher> getProcessors() {
+        return processors;
+    }
+
+    /**
+     * 与 ScreenDispatcher.findCandidates 相同。
+     */
+    public List<ScreenMatcher> findCandidates(ScreenView<?> view) {
+        boolean[] hits = signatureIndex.match(view);
+        List<ScreenMatcher> candidates = new ArrayList<>();
+        for (int p = 0; p < processors.size(); p++) {
+            if (hits[p]) {
+                candidates.add(processors.get(p));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 当前的调度方式：先用倒排索引筛出候选，再按顺序调用候选的 canProcess。
+     */
+    public ScreenMatcher selectIndexed(ProcessorContext context, ScreenView<?> view) {
+        for (ScreenMatcher processor : findCandidates(view)) {
+            if (processor.canProcess(context, view)) {
+                return processor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 共享快照、但按注册顺序逐个调用 canProcess。
+     */
+    public ScreenMatcher selectLinear(ProcessorContext context, ScreenView<?> view) {
+        for (ScreenMatcher processor : processors) {
+            if (processor.canProcess(context, view)) {
+                return processor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 最初的调度方式：没有共享快照，每个处理器各自从根节点遍历整棵树。
+     */
+    public ScreenMatcher selectLegacy(ProcessorContext context, FakeNode root) {
+        for (ScreenMatcher processor : processors) {
+            if (processor.canProcess(context, FakeSnapshot.capture(root))) {
+                return processor;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,167 @@
+package com.tomato.benchmark.tree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AccessibilityNodeInfo 的纯 JVM 替身，只保留处理器用到的那部分接口：
+ * 类名、view id、文本、content-desc、可点击/可见/可滚动/可编辑状态，以及父子关系。
+ *
+ * 真实设备上 getChild / getParent / findAccessibilityNodeInfosByViewId 每次都是一次跨进程调用，
+ * 这里通过所属 FakeTree 的 chargeIpc() 计数，并可选地模拟固定的调用开销。
+ */
+public final class FakeNode {
+
+    private final String className;
+    private String viewId;
+    private String text;
+    private String contentDesc;
+    private boolean clickable;
+    private boolean visible = true;
+    private boolean scrollable;
+    private boolean editable;
+
+    private FakeNode parent;
+    private final List<FakeNode> children = new ArrayList<>();
+    private FakeTree tree;
+
+    public FakeNode(String className) {
+        this.className = className;
+    }
+
+    // --- 构建 ---
+
+    public FakeNode id(String viewId) {
+        this.viewId = viewId;
+        return this;
+    }
+
+    public FakeNode text(String text) {
+        this.text = text;
+        return this;
+    }
+
+    public FakeNode desc(String contentDesc) {
+        this.contentDesc = contentDesc;
+        return this;
+    }
+
+    public FakeNode clickable() {
+        this.clickable = true;
+        return this;
+    }
+
+    public FakeNode hidden() {
+        this.visible = false;
+        return this;
+    }
+
+    public FakeNode scrollable() {
+        this.scrollable = true;
+        return this;
+    }
+
+    public FakeNode editable() {
+        this.editable = true;
+        return this;
+    }
+
+    public FakeNode add(FakeNode child) {
+        child.parent = this;
+        children.add(child);
+        return this;
+    }
+
+    void attach(FakeTree tree) {
+        this.tree = tree;
+    }
+
+    List<FakeNode> children() {
+        return children;
+    }
+
+    // --- 与 AccessibilityNodeInfo 对应的查询 ---
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getViewIdResourceName() {
+        return viewId;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getContentDescription() {
+        return contentDesc;
+    }
+
+    public boolean isClickable() {
+        return clickable;
+    }
+
+    public boolean isVisibleToUser() {
+        return visible;
+    }
+
+    public boolean isScrollable() {
+        return scrollable;
+    }
+
+    public boolean isEditable() {
+        return editable;
+    }
+
+    public int getChildCount() {
+        return children.size();
+    }
+
+    /**
+     * 对应 AccessibilityNodeInfo.getChild，计为一次跨进程调用。
+     */
+    public FakeNode getChild(int index) {
+        tree.chargeIpc();
+        return children.get(index);
+    }
+
+    /**
+     * 对应 AccessibilityNodeInfo.getParent，计为一次跨进程调用。
+     */
+    public FakeNode getParent() {
+        tree.chargeIpc();
+        return parent;
+    }
+
+    /**
+     * 对应 findAccessibilityNodeInfosByViewId：查找在目标应用进程内完成，整体只计一次跨进程调用。
+     */
+    public List<FakeNode> findAccessibilityNodeInfosByViewId(String id) {
+        tree.chargeIpc();
+        List<FakeNode> found = new ArrayList<>();
+        collectByViewId(this, id, found);
+        return found;
+    }
+
+    private static void collectByViewId(FakeNode node, String id, List<FakeNode> found) {
+        if (id.equals(node.viewId)) {
+            found.add(node);
+        }
+        for (FakeNode child : node.children) {
+            collectByViewId(child, id, found);
+        }
+    }
+
+    /**
+     * 对应 recycle()。替身不需要回收，保留这个方法是为了让移植过来的代码保持原样。
+     */
+    public void recycle() {
+    }
+
+    @Override
+    public String toString() {
+        return "FakeNode{" + className + (viewId != null ? " id=" + viewId : "")
+                + (contentDesc != null ? " desc=" + contentDesc : "") + "}";
+    }
+}
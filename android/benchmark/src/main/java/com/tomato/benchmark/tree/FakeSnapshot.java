@@ -0,0 +1,325 @@
+package com.tomato.benchmark.tree;
+
+import com.tomato.utils.MultiPatternMatcher;
+import com.tomato.utils.NodeSelector;
+import com.tomato.utils.ScreenFingerprint;
+import com.tomato.utils.ScreenView;
+import com.tomato.utils.SearchBudget;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ScreenSnapshot 在 FakeNode 上的移植：同样的一次广度优先遍历、同样按树上顺序排列的索引和结构指纹
+ *（ScreenFingerprint），只去掉了日志、泄漏统计和指标记录。修改 ScreenSnapshot 的遍历或索引方式时，需要同步修改这里。
+ */
+public final class FakeSnapshot implements ScreenView<FakeNode> {
+
+    private final List<FakeNode> nodes;
+    private final int[] parentIndex;
+    private final int[] childStart;
+    private final int[] childCount;
+    private final Map<FakeNode, Integer> indexOfNode;
+
+    private final Map<String, List<FakeNode>> byViewId;
+    private final Map<String, List<FakeNode>> byContentDesc;
+    private final Map<String, List<FakeNode>> byText;
+    private final Map<String, List<FakeNode>> byClassName;
+
+    private final long fingerprint;
+
+    private FakeSnapshot(List<FakeNode> nodes, int[] parentIndex, int[] childStart, int[] childCount, int[] depths) {
+        this.nodes = nodes;
+        this.parentIndex = parentIndex;
+        this.childStart = childStart;
+        this.childCount = childCount;
+        this.indexOfNode = new IdentityHashMap<>(nodes.size() * 2);
+        this.byViewId = new LinkedHashMap<>();
+        this.byContentDesc = new LinkedHashMap<>();
+        this.byText = new LinkedHashMap<>();
+        this.byClassName = new LinkedHashMap<>();
+
+        long hash = ScreenFingerprint.OFFSET_BASIS;
+        for (int i = 0; i < nodes.size(); i++) {
+            FakeNode node = nodes.get(i);
+            indexOfNode.put(node, i);
+            index(byViewId, node.getViewIdResourceName(), node);
+            index(byContentDesc, node.getContentDescription(), node);
+            index(byText, node.getText(), node);
+            index(byClassName, node.getClassName(), node);
+            hash = ScreenFingerprint.add(hash, depths[i], node.getClassName(), node.getViewIdResourceName(), childCount[i]);
+        }
+        this.fingerprint = hash;
+    }
+
+    public static FakeSnapshot capture(FakeNode rootNode) {
+        return capture(rootNode, SearchBudget.SNAPSHOT);
+    }
+
+    public static FakeSnapshot capture(FakeNode rootNode, SearchBudget budget) {
+        if (rootNode == null) {
+            return null;
+        }
+        List<FakeNode> nodes = new ArrayList<>();
+        int[] parents = new int[64];
+        int[] starts = new int[64];
+        int[] counts = new int[64];
+        int[] depths = new int[64];
+
+        nodes.add(rootNode);
+        parents[0] = -1;
+        depths[0] = 0;
+        for (int cursor = 0; cursor < nodes.size(); cursor++) {
+            FakeNode current = nodes.get(cursor);
+            starts[cursor] = nodes.size();
+            counts[cursor] = 0;
+            if (depths[cursor] >= budget.getMaxDepth()) {
+                continue;
+            }
+            int childTotal = current.getChildCount();
+            if (starts.length < nodes.size() + childTotal) {
+                int newLength = Math.max(starts.length * 2, nodes.size() + childTotal);
+                parents = Arrays.copyOf(parents, newLength);
+                starts = Arrays.copyOf(starts, newLength);
+                counts = Arrays.copyOf(counts, newLength);
+                depths = Arrays.copyOf(depths, newLength);
+            }
+            for (int i = 0; i < childTotal && nodes.size() < budget.getMaxNodes(); i++) {
+                FakeNode child = current.getChild(i);
+                if (child == null) {
+                    continue;
+                }
+                if (budget.isVisibleOnly() && !child.isVisibleToUser()) {
+                    child.recycle();
+                    continue;
+                }
+                parents[nodes.size()] = cursor;
+                depths[nodes.size()] = depths[cursor] + 1;
+                nodes.add(child);
+            }
+            counts[cursor] = nodes.size() - starts[cursor];
+        }
+        return new FakeSnapshot(nodes, parents, starts, counts, depths);
+    }
+
+    private static void index(Map<String, List<FakeNode>> map, String key, FakeNode node) {
+        if (key == null) {
+            return;
+        }
+        List<FakeNode> bucket = map.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<>(1);
+            map.put(key, bucket);
+        }
+        bucket.add(node);
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    private static List<FakeNode> lookup(Map<String, List<FakeNode>> map, String key) {
+        List<FakeNode> bucket = key == null ? null : map.get(key);
+        return bucket == null ? Collections.<FakeNode>emptyList() : Collections.unmodifiableList(bucket);
+    }
+
+    @Override
+    public List<FakeNode> findByViewId(String viewId) {
+        return lookup(byViewId, viewId);
+    }
+
+    @Override
+    public boolean hasViewId(String viewId) {
+        return viewId != null && byViewId.containsKey(viewId);
+    }
+
+    @Override
+    public Set<String> getViewIds() {
+        return Collections.unmodifiableSet(byViewId.keySet());
+    }
+
+    @Override
+    public Set<String> getContentDescriptions() {
+        return Collections.unmodifiableSet(byContentDesc.keySet());
+    }
+
+    public List<FakeNode> findByContentDescriptionContains(String part) {
+        if (part == null) {
+            return Collections.emptyList();
+        }
+        List<FakeNode> found = new ArrayList<>();
+        int matchedKeys = 0;
+        for (Map.Entry<String, List<FakeNode>> entry : byContentDesc.entrySet()) {
+            if (entry.getKey().contains(part)) {
+                found.addAll(entry.getValue());
+                matchedKeys++;
+            }
+        }
+        if (matchedKeys > 1) {
+            sortInTreeOrder(found);
+        }
+        return found;
+    }
+
+    @Override
+    public boolean hasContentDescriptionContaining(String part) {
+        if (part == null) {
+            return false;
+        }
+        for (String contentDesc : byContentDesc.keySet()) {
+            if (contentDesc.contains(part)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public MultiPatternMatcher.Hits<FakeNode> matchContentDescriptions(MultiPatternMatcher matcher) {
+        return match(byContentDesc, matcher);
+    }
+
+    @Override
+    public MultiPatternMatcher.Hits<FakeNode> matchTexts(MultiPatternMatcher matcher) {
+        return match(byText, matcher);
+    }
+
+    private MultiPatternMatcher.Hits<FakeNode> match(Map<String, List<FakeNode>> map, MultiPatternMatcher matcher) {
+        MultiPatternMatcher.Hits<FakeNode> hits = matcher.newHits();
+        List<FakeNode> matchedNodes = null;
+        Map<FakeNode, Long> masks = null;
+        for (Map.Entry<String, List<FakeNode>> entry : map.entrySet()) {
+            long matched = matcher.match(entry.getKey());
+            if (matched == 0L) {
+                continue;
+            }
+            if (matchedNodes == null) {
+                matchedNodes = new ArrayList<>();
+                masks = new IdentityHashMap<>();
+            }
+            for (FakeNode node : entry.getValue()) {
+                matchedNodes.add(node);
+                masks.put(node, matched);
+            }
+        }
+        if (matchedNodes == null) {
+            return hits;
+        }
+        sortInTreeOrder(matchedNodes);
+        for (FakeNode node : matchedNodes) {
+            hits.add(masks.get(node), node);
+        }
+        return hits;
+    }
+
+    private void sortInTreeOrder(List<FakeNode> found) {
+        Collections.sort(found, (a, b) -> Integer.compare(indexOfNode.get(a), indexOfNode.get(b)));
+    }
+
+    @Override
+    public List<FakeNode> findByClassName(String className) {
+        return lookup(byClassName, className);
+    }
+
+    /**
+     * 与 ScreenSnapshot.findNextSiblingByClass 相同：利用广度优先顺序下兄弟节点连续的特点，不发起 IPC。
+     */
+    public FakeNode findNextSiblingByClass(FakeNode anchorNode, String className) {
+        Integer index = indexOfNode.get(anchorNode);
+        if (index == null || className == null || parentIndex[index] < 0) {
+            return null;
+        }
+        int parent = parentIndex[index];
+        int end = childStart[parent] + childCount[parent];
+        for (int i = index + 1; i < end; i++) {
+            if (className.equals(nodes.get(i).getClassName())) {
+                return nodes.get(i);
+            }
+        }
+        return null;
+    }
+
+    public List<FakeNode> select(String selector) {
+        return NodeSelector.compile(selector).select(this);
+    }
+
+    public FakeNode selectFirst(String selector) {
+        return selectFirst(NodeSelector.compile(selector));
+    }
+
+    // --- 与 ScreenSnapshot 相同：NodeSelector 直接在节点数组上扫描 ---
+
+    @Override
+    public FakeNode nodeAt(int index) {
+        return nodes.get(index);
+    }
+
+    @Override
+    public int parentIndexAt(int index) {
+        return parentIndex[index];
+    }
+
+    @Override
+    public int childPositionAt(int index) {
+        int parent = parentIndex[index];
+        return parent < 0 ? 0 : index - childStart[parent];
+    }
+
+    @Override
+    public int indexOf(FakeNode node) {
+        Integer index = indexOfNode.get(node);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public CharSequence getClassName(FakeNode node) {
+        return node.getClassName();
+    }
+
+    @Override
+    public String getViewIdResourceName(FakeNode node) {
+        return node.getViewIdResourceName();
+    }
+
+    @Override
+    public CharSequence getText(FakeNode node) {
+        return node.getText();
+    }
+
+    @Override
+    public CharSequence getContentDescription(FakeNode node) {
+        return node.getContentDescription();
+    }
+
+    @Override
+    public boolean isClickable(FakeNode node) {
+        return node.isClickable();
+    }
+
+    @Override
+    public boolean isVisibleToUser(FakeNode node) {
+        return node.isVisibleToUser();
+    }
+
+    @Override
+    public boolean isScrollable(FakeNode node) {
+        return node.isScrollable();
+    }
+
+    @Override
+    public boolean isEditable(FakeNode node) {
+        return node.isEditable();
+    }
+}
@@ -0,0 +1,67 @@
+package com.tomato.benchmark.tree;
+
+/**
+ * 一棵合成的节点树，负责统计和模拟跨进程调用。
+ *
+ * ipcSpin 为 0 时只计数，基准测试测到的是纯 CPU 开销；
+ * 大于 0 时每次调用额外空转固定次数，用来近似真实设备上 binder 调用的相对成本。
+ */
+public final class FakeTree {
+
+    private final FakeNode root;
+    private final int nodeCount;
+    private int ipcSpin;
+    private long ipcCalls;
+    // 防止空转循环被 JIT 消除
+    private volatile long sink;
+
+    public FakeTree(FakeNode root) {
+        this.root = root;
+        this.nodeCount = attach(root);
+    }
+
+    private int attach(FakeNode node) {
+        node.attach(this);
+        int count = 1;
+        // 构建阶段直接访问子节点，不计入跨进程调用
+        for (FakeNode child : node.children()) {
+            count += attach(child);
+        }
+        return count;
+    }
+
+    /**
+     * @return 根节点，对应 getRootInActiveWindow()，计为一次跨进程调用。
+     */
+    public FakeNode getRoot() {
+        chargeIpc();
+        return root;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public void setIpcSpin(int ipcSpin) {
+        this.ipcSpin = ipcSpin;
+    }
+
+    public long getIpcCalls() {
+        return ipcCalls;
+    }
+
+    public void resetIpcCalls() {
+        ipcCalls = 0;
+    }
+
+    void chargeIpc() {
+        ipcCalls++;
+        if (ipcSpin > 0) {
+            long acc = 0;
+            for (int i = 0; i < ipcSpin; i++) {
+                acc += i ^ ipcCalls;
+            }
+            sink = acc;
+        }
+    }
+}
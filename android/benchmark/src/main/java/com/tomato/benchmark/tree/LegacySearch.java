@@ -0,0 +1,79 @@
+package com.tomato.benchmark.tree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 引入 ScreenSnapshot 之前的查找方式，作为基准测试的对照组。
+ * 每个方法都按原来的 AccessibilityNodeUtils / AdProcessor 实现逐步移植，保留其中所有的跨进程调用。
+ */
+public final class LegacySearch {
+
+    private LegacySearch() {
+    }
+
+    /**
+     * 原 AccessibilityNodeUtils.findNodesByContentDescriptionContains：经 getChild 递归遍历整棵树。
+     */
+    public static List<FakeNode> findNodesByContentDescriptionContains(FakeNode rootNode, String contentDesc) {
+        List<FakeNode> foundNodes = new ArrayList<>();
+        if (rootNode == null || contentDesc == null) {
+            return foundNodes;
+        }
+        findNodesByContentDescriptionRecursive(rootNode, contentDesc, foundNodes);
+        return foundNodes;
+    }
+
+    private static void findNodesByContentDescriptionRecursive(FakeNode currentNode, String contentDesc,
+                                                               List<FakeNode> foundNodes) {
+        String currentContentDesc = currentNode.getContentDescription();
+        if (currentContentDesc != null && currentContentDesc.contains(contentDesc)) {
+            foundNodes.add(currentNode);
+        }
+        for (int i = 0; i < currentNode.getChildCount(); i++) {
+            FakeNode childNode = currentNode.getChild(i);
+            if (childNode != null) {
+                findNodesByContentDescriptionRecursive(childNode, contentDesc, foundNodes);
+            }
+        }
+    }
+
+    /**
+     * 原 AccessibilityNodeUtils.findNodesByResourceID：直接使用系统的 findAccessibilityNodeInfosByViewId。
+     */
+    public static List<FakeNode> findNodesByResourceID(FakeNode rootNode, String resourceId) {
+        return rootNode.findAccessibilityNodeInfosByViewId(resourceId);
+    }
+
+    /**
+     * 原 AdProcessor.findNextSiblingImageByClass：先 getParent，再逐个 getChild 定位锚点，
+     * 然后继续向后逐个 getChild 查找目标类名。原实现用屏幕坐标和类名判断锚点，这里直接比较对象。
+     */
+    public static FakeNode findNextSiblingByClass(FakeNode anchorNode, String className) {
+        if (anchorNode == null || className == null) {
+            return null;
+        }
+        FakeNode parent = anchorNode.getParent();
+        if (parent == null) {
+            return null;
+        }
+        int anchorIndex = -1;
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            FakeNode child = parent.getChild(i);
+            if (child == anchorNode) {
+                anchorIndex = i;
+                break;
+            }
+        }
+        if (anchorIndex < 0) {
+            return null;
+        }
+        for (int i = anchorIndex + 1; i < parent.getChildCount(); i++) {
+            FakeNode sibling = parent.getChild(i);
+            if (sibling != null && className.equals(sibling.getClassName())) {
+                return sibling;
+            }
+        }
+        return null;
+    }
+}
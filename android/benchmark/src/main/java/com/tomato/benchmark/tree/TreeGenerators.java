@@ -0,0 +1,172 @@
+package com.tomato.benchmark.tree;
+
+import com.tomato.utils.AccessibilityConfig;
+
+import java.util.Random;
+
+/**
+ * 按固定种子生成合成节点树。
+ * 结构参照目标应用几类典型界面的 dump：Lynx 渲染的阅读页层级很深，搜索结果是长列表，
+ * 广告浮层中的关闭按钮是 content-desc 锚点之后的 UIImage 兄弟节点。
+ * 同一个 TreeShape 每次生成的树完全相同，不同版本之间的基准结果可以直接对比。
+ */
+public final class TreeGenerators {
+
+    private static final String FRAME = "android.widget.FrameLayout";
+    private static final String LINEAR = "android.widget.LinearLayout";
+    private static final String TEXT = "android.widget.TextView";
+    private static final String IMAGE = "android.widget.ImageView";
+    private static final String RECYCLER = "androidx.recyclerview.widget.RecyclerView";
+    private static final String LYNX_VIEW = "com.lynx.tasm.behavior.ui.view.UIView";
+    private static final String LYNX_TEXT = AccessibilityConfig.AD_BUTTON_CLASS_NAME;
+
+    private static final String[] FILLER_CLASSES = {FRAME, LINEAR, TEXT, IMAGE, LYNX_VIEW};
+
+    private static final long SEED = 0x746f6d61746fL;
+
+    public enum TreeShape {
+        /** 阅读页：约 1500 个节点，Lynx 容器嵌套 30 层以上，特征 id 位于深处。 */
+        LYNX_READING,
+        /** 搜索结果：滚动容器中 200 个结果条目，每个条目 6~8 个子节点。 */
+        SEARCH_RESULTS,
+        /** 广告浮层：大量 Lynx 文本节点，带“广告”“领取成功”等 content-desc 锚点和 UIImage 关闭按钮。 */
+        AD_OVERLAY,
+        /** 首页：顶部搜索框、底部标签栏和约 300 个节点的信息流。 */
+        MAIN_PAGE
+    }
+
+    private TreeGenerators() {
+    }
+
+    public static FakeTree generate(TreeShape shape) {
+        Random random = new Random(SEED ^ shape.ordinal());
+        switch (shape) {
+            case LYNX_READING:
+                return new FakeTree(lynxReading(random));
+            case SEARCH_RESULTS:
+                return new FakeTree(searchResults(random));
+            case AD_OVERLAY:
+                return new FakeTree(adOverlay(random));
+            case MAIN_PAGE:
+                return new FakeTree(mainPage(random));
+            default:
+                throw new IllegalArgumentException("未知的树形: " + shape);
+        }
+    }
+
+    private static FakeNode lynxReading(Random random) {
+        FakeNode root = new FakeNode(FRAME);
+        FakeNode current = root;
+        // 深层嵌套的 Lynx 容器链，每层带一些兄弟子树
+        for (int depth = 0; depth < 32; depth++) {
+            FakeNode next = new FakeNode(LYNX_VIEW);
+            current.add(next);
+            for (int i = 0; i < 3; i++) {
+                current.add(filler(random, 3, 3));
+            }
+            current = next;
+        }
+        current.add(new FakeNode(FRAME).id(AccessibilityConfig.TARGET_FOR_READING_PAGE_FEATURE_1));
+        for (int line = 0; line < 120; line++) {
+            current.add(new FakeNode(LYNX_TEXT).text("正文第 " + line + " 行"));
+        }
+        return root;
+    }
+
+    private static FakeNode searchResults(Random random) {
+        FakeNode root = new FakeNode(FRAME);
+        FakeNode toolbar = new FakeNode(LINEAR);
+        toolbar.add(new FakeNode(IMAGE).clickable());
+        toolbar.add(new FakeNode(TEXT).text("搜索"));
+        root.add(toolbar);
+        FakeNode list = new FakeNode(RECYCLER).id(AccessibilityConfig.SCROLLABLE_CONTAINER_ID);
+        root.add(list);
+        for (int item = 0; item < 200; item++) {
+            FakeNode entry = new FakeNode(LINEAR).id(AccessibilityConfig.TARGET_FOR_SEARCH_RESULT_ITEM).clickable();
+            entry.add(new FakeNode(IMAGE));
+            entry.add(new FakeNode(TEXT).text("小说 " + item));
+            entry.add(new FakeNode(TEXT).text("作者 " + random.nextInt(1000)));
+            entry.add(new FakeNode(TEXT).text("简介 " + random.nextInt(100000)));
+            int tags = 2 + random.nextInt(3);
+            for (int t = 0; t < tags; t++) {
+                entry.add(new FakeNode(TEXT).text("标签" + random.nextInt(50)));
+            }
+            if (item > 12) {
+                entry.hidden();
+            }
+            list.add(entry);
+        }
+        return root;
+    }
+
+    private static FakeNode adOverlay(Random random) {
+        FakeNode root = new FakeNode(FRAME);
+        FakeNode lynx = new FakeNode(LYNX_VIEW);
+        root.add(lynx);
+        for (int block = 0; block < 40; block++) {
+            FakeNode group = new FakeNode(LYNX_VIEW);
+            for (int i = 0; i < 12; i++) {
+                group.add(new FakeNode(LYNX_TEXT).desc("文案" + random.nextInt(500)));
+            }
+            group.add(filler(random, 2, 4));
+            lynx.add(group);
+        }
+        FakeNode banner = new FakeNode(LYNX_VIEW);
+        banner.add(new FakeNode(LYNX_TEXT).desc("广告"));
+        banner.add(new FakeNode(LYNX_TEXT).desc(AccessibilityConfig.AD_FEEDBACK_TEXT));
+        lynx.add(banner);
+        // 关闭按钮是锚点之后的第一个 UIImage 兄弟节点，前面隔着几个文本节点
+        FakeNode reward = new FakeNode(LYNX_VIEW);
+        reward.add(new FakeNode(LYNX_TEXT).desc("领取成功"));
+        for (int i = 0; i < 6; i++) {
+            reward.add(new FakeNode(LYNX_TEXT).desc("奖励说明" + i));
+        }
+        reward.add(new FakeNode(AccessibilityConfig.TARGET_IMAGE_CLASS).clickable());
+        lynx.add(reward);
+        return root;
+    }
+
+    private static FakeNode mainPage(Random random) {
+        FakeNode root = new FakeNode(FRAME);
+        FakeNode header = new FakeNode(LINEAR);
+        header.add(new FakeNode(FRAME).id(AccessibilityConfig.TARGET_FOR_INPUT_BUTTON_5).clickable());
+        header.add(new FakeNode(IMAGE));
+        root.add(header);
+        FakeNode feed = new FakeNode(RECYCLER);
+        for (int i = 0; i < 40; i++) {
+            feed.add(filler(random, 2, 3));
+        }
+        root.add(feed);
+        FakeNode tabs = new FakeNode(LINEAR);
+        for (int i = 0; i < 5; i++) {
+            FakeNode tab = new FakeNode(FRAME).clickable();
+            if (i == 0) {
+                tab.id(AccessibilityConfig.TARGET_FOR_INPUT_BUTTON_1);
+            }
+            tab.add(new FakeNode(TEXT).text("标签页" + i));
+            tabs.add(tab);
+        }
+        root.add(tabs);
+        return root;
+    }
+
+    /**
+     * 生成一棵随机的填充子树。
+     *
+     * @param depth     剩余深度。
+     * @param maxFanout 每个节点最多的子节点数。
+     */
+    private static FakeNode filler(Random random, int depth, int maxFanout) {
+        FakeNode node = new FakeNode(FILLER_CLASSES[random.nextInt(FILLER_CLASSES.length)]);
+        if (random.nextInt(4) == 0) {
+            node.text("文本" + random.nextInt(1000));
+        }
+        if (depth > 0) {
+            int fanout = 1 + random.nextInt(maxFanout);
+            for (int i = 0; i < fanout; i++) {
+                node.add(filler(random, depth - 1, maxFanout));
+            }
+        }
+        return node;
+    }
+}
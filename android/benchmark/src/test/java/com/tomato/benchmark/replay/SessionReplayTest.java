@@ -0,0 +1,126 @@
+package com.tomato.benchmark.replay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.tomato.benchmark.tree.FakeDispatcher;
+import com.tomato.benchmark.tree.TreeGenerators.TreeShape;
+import com.tomato.utils.AccessibilityConfig;
+import com.tomato.utils.RecordedContext;
+import com.tomato.utils.ScreenMatcher;
+import com.tomato.utils.SessionWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 会话回放是调度的回归测试：内置规则文件中的处理器在录制时的处理器状态下重新调度录制的界面，
+ * 结果必须与录制时的决策一致，状态守卫（once 操作、小说名、自动阅读、运行中的流程）同样生效。
+ */
+public class SessionReplayTest {
+
+    private FakeDispatcher dispatcher;
+    // 合成会话的一轮：每种树形一个界面，按 TreeShape 的顺序
+    private List<ReplaySession.Screen> screens;
+
+    @Before
+    public void setUp() {
+        dispatcher = new FakeDispatcher(BundledRules.registrationOrder());
+        screens = SyntheticSessions.create(1).getScreens();
+    }
+
+    @Test
+    public void syntheticSessionMatchesRecordedDecisions() {
+        SessionReplay.Comparison comparison =
+                SessionReplay.compare(dispatcher, Collections.singletonList(SyntheticSessions.create(3, false)));
+        assertEquals(comparison.mismatches.toString(), 0, comparison.mismatches.size());
+        assertEquals(3 * TreeShape.values().length, comparison.compared);
+        assertEquals(0, comparison.withoutContext);
+        assertEquals(Integer.valueOf(3), comparison.selected.get("MainPageProcessor"));
+        assertEquals(Integer.valueOf(3), comparison.selected.get("ReadingPageProcessor"));
+    }
+
+    @Test
+    public void completedOnceActionsAreNotSelected() {
+        ReplaySession.Screen mainPage = screen(TreeShape.MAIN_PAGE);
+        assertEquals("MainPageProcessor", select(SyntheticSessions.CONTEXT, mainPage));
+        RecordedContext completed = context(Collections.singletonList(AccessibilityConfig.ACTION_ID_CLICK_MAIN_PAGE_SEARCH),
+                "斗破苍穹", true, Collections.<String>emptyList());
+        assertNotEquals("MainPageProcessor", select(completed, mainPage));
+
+        ReplaySession.Screen searchResults = screen(TreeShape.SEARCH_RESULTS);
+        assertEquals("FindAndClickNovelProcessor", select(SyntheticSessions.CONTEXT, searchResults));
+        RecordedContext found = context(Collections.singletonList(AccessibilityConfig.ACTION_ID_FIND_AND_CLICK_NOVEL),
+                "斗破苍穹", true, Collections.<String>emptyList());
+        assertNotEquals("FindAndClickNovelProcessor", select(found, searchResults));
+        RecordedContext noNovelName = context(Collections.<String>emptyList(), null, true,
+                Collections.<String>emptyList());
+        assertNotEquals("FindAndClickNovelProcessor", select(noNovelName, searchResults));
+    }
+
+    @Test
+    public void runningFlowsAndAutoReadingGuardReadingPage() {
+        ReplaySession.Screen reading = screen(TreeShape.LYNX_READING);
+        assertEquals("ReadingPageProcessor", select(SyntheticSessions.CONTEXT, reading));
+        RecordedContext loopRunning = context(Collections.<String>emptyList(), "斗破苍穹", true,
+                Collections.singletonList("ReadingPageProcessor"));
+        assertNotEquals("ReadingPageProcessor", select(loopRunning, reading));
+        RecordedContext autoReadingOff = context(Collections.<String>emptyList(), "斗破苍穹", false,
+                Collections.<String>emptyList());
+        assertNotEquals("ReadingPageProcessor", select(autoReadingOff, reading));
+    }
+
+    @Test
+    public void changedDecisionIsReported() throws IOException {
+        ReplaySession.Screen ad = screen(TreeShape.AD_OVERLAY);
+        assertEquals("AdProcessor", ad.decision);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        SessionWriter writer = new SessionWriter(buffer, false);
+        writer.writeContext(SyntheticSessions.CONTEXT);
+        writer.writeScreen(10, 0, "AdProcessor", ad.view.getNodes());
+        writer.writeScreen(20, 0, SessionWriter.DECISION_NO_MATCH, ad.view.getNodes());
+        writer.writeScreen(30, 0, SessionWriter.DECISION_SKIPPED, ad.view.getNodes());
+        writer.close();
+
+        SessionReplay.Comparison comparison = SessionReplay.compare(dispatcher,
+                Collections.singletonList(ReplaySession.read("tampered", buffer.toByteArray())));
+        assertEquals(2, comparison.compared);
+        assertEquals(1, comparison.mismatches.size());
+        assertTrue(comparison.mismatches.get(0), comparison.mismatches.get(0).contains("tampered #1"));
+    }
+
+    @Test
+    public void screensWithoutContextAreNotCompared() throws IOException {
+        ReplaySession.Screen ad = screen(TreeShape.AD_OVERLAY);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        SessionWriter writer = new SessionWriter(buffer, false);
+        writer.writeScreen(10, 0, SessionWriter.DECISION_NO_MATCH, ad.view.getNodes());
+        writer.close();
+
+        SessionReplay.Comparison comparison = SessionReplay.compare(dispatcher,
+                Collections.singletonList(ReplaySession.read("old", buffer.toByteArray())));
+        assertEquals(0, comparison.compared);
+        assertEquals(1, comparison.withoutContext);
+        assertTrue(comparison.mismatches.isEmpty());
+    }
+
+    private ReplaySession.Screen screen(TreeShape shape) {
+        return screens.get(shape.ordinal());
+    }
+
+    private String select(RecordedContext context, ReplaySession.Screen screen) {
+        ScreenMatcher processor = dispatcher.selectIndexed(context, screen.view);
+        return processor != null ? processor.getName() : SessionWriter.DECISION_NO_MATCH;
+    }
+
+    private static RecordedContext context(List<String> completedActions, String novelName, boolean autoReading,
+                                           List<String> runningFlows) {
+        return new RecordedContext(completedActions, novelName, autoReading, runningFlows);
+    }
+}
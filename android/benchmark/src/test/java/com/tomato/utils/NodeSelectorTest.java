@@ -0,0 +1,361 @@
+package com.tomato.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.tomato.benchmark.tree.FakeNode;
+import com.tomato.benchmark.tree.FakeSnapshot;
+import com.tomato.benchmark.tree.FakeTree;
+import com.tomato.benchmark.tree.TreeGenerators;
+import com.tomato.benchmark.tree.TreeGenerators.TreeShape;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NodeSelector 的解析和求值，在 FakeSnapshot 上运行，与设备上的 ScreenSnapshot 走同一份查询代码。
+ */
+public class NodeSelectorTest {
+
+    private static final String TEXT = "android.widget.TextView";
+    private static final String UI_TEXT = "com.lynx.tasm.behavior.ui.text.UIText";
+    private static final String UI_IMAGE = "com.lynx.tasm.ui.image.UIImage";
+
+    private FakeNode root;
+    private FakeNode header;
+    private FakeNode search;
+    private FakeNode back;
+    private FakeNode list;
+    private FakeNode item0;
+    private FakeNode title0;
+    private FakeNode author0;
+    private FakeNode item1;
+    private FakeNode title1;
+    private FakeNode author1;
+    private FakeNode overlay;
+    private FakeNode reward;
+    private FakeNode adLabel;
+    private FakeNode close;
+    private FakeNode image;
+    private FakeSnapshot snapshot;
+
+    /**
+     * <pre>
+     * FrameLayout #root
+     * ├─ LinearLayout #header [clickable]
+     * │  ├─ EditText #search [editable] text="搜索 [书名]"
+     * │  └─ ImageView #back desc="返回"
+     * ├─ RecyclerView #list [scrollable]
+     * │  ├─ LinearLayout #item [clickable]
+     * │  │  ├─ TextView #agf text="斗破苍穹"
+     * │  │  └─ TextView #author text="天蚕土豆"
+     * │  └─ LinearLayout #item [clickable]
+     * │     ├─ TextView #agf text="斗罗大陆"
+     * │     └─ TextView #author text="唐家三少" [hidden]
+     * └─ FrameLayout #overlay
+     *    ├─ UIText desc="领取成功"
+     *    ├─ TextView text="广告"
+     *    ├─ UIImage [clickable] desc="关闭"
+     *    └─ UIImage
+     * </pre>
+     */
+    @Before
+    public void setUp() {
+        root = new FakeNode("android.widget.FrameLayout").id(id("root"));
+        header = new FakeNode("android.widget.LinearLayout").id(id("header")).clickable();
+        search = new FakeNode("android.widget.EditText").id(id("search")).text("搜索 [书名]").editable();
+        back = new FakeNode("android.widget.ImageView").id(id("back")).desc("返回");
+        list = new FakeNode("androidx.recyclerview.widget.RecyclerView").id(id("list")).scrollable();
+        item0 = new FakeNode("android.widget.LinearLayout").id(id("item")).clickable();
+        title0 = new FakeNode(TEXT).id(id("agf")).text("斗破苍穹");
+        author0 = new FakeNode(TEXT).id(id("author")).text("天蚕土豆");
+        item1 = new FakeNode("android.widget.LinearLayout").id(id("item")).clickable();
+        title1 = new FakeNode(TEXT).id(id("agf")).text("斗罗大陆");
+        author1 = new FakeNode(TEXT).id(id("author")).text("唐家三少").hidden();
+        overlay = new FakeNode("android.widget.FrameLayout").id(id("overlay"));
+        reward = new FakeNode(UI_TEXT).desc("领取成功");
+        adLabel = new FakeNode(TEXT).text("广告");
+        close = new FakeNode(UI_IMAGE).clickable().desc("关闭");
+        image = new FakeNode(UI_IMAGE);
+
+        root.add(header.add(search).add(back))
+                .add(list.add(item0.add(title0).add(author0)).add(item1.add(title1).add(author1)))
+                .add(overlay.add(reward).add(adLabel).add(close).add(image));
+        snapshot = FakeSnapshot.capture(new FakeTree(root).getRoot());
+    }
+
+    // --- 轴 ---
+
+    @Test
+    public void descendantAxis() {
+        assertSelect("RecyclerView TextView", title0, author0, title1, author1);
+        // 按快照（广度优先）顺序：浮层中的 TextView 比列表条目中的浅
+        assertSelect("#com.dragon.read:id/root TextView", adLabel, title0, author0, title1, author1);
+        assertSelect("#com.dragon.read:id/header TextView");
+        assertSelect("FrameLayout * UIImage", close, image);
+    }
+
+    @Test
+    public void childAxis() {
+        assertSelect("#com.dragon.read:id/list > *", item0, item1);
+        assertSelect("FrameLayout > TextView", adLabel);
+        assertSelect("RecyclerView > TextView");
+        assertSelect("RecyclerView>LinearLayout>[text*=斗]", title0, title1);
+    }
+
+    @Test
+    public void siblingAxes() {
+        assertSelect("[text=斗破苍穹] + TextView", author0);
+        assertSelect("[desc=领取成功] + UIImage");
+        assertSelect("[desc=领取成功] ~ UIImage", close, image);
+        assertSelect("[desc=领取成功] ~ UIImage + *", image);
+        // 兄弟轴不跨越父节点
+        assertSelect("#com.dragon.read:id/header ~ *", list, overlay);
+        assertSelect("[text=天蚕土豆] ~ *");
+        assertSelect("LinearLayout ~ LinearLayout", item1);
+    }
+
+    @Test
+    public void parentAndAncestorAxes() {
+        assertSelect("[text=斗罗大陆] < *", item1);
+        assertSelect("[text=斗罗大陆] << [clickable]", item1);
+        assertSelect("[text*=斗] << *", root, list, item0, item1);
+        assertSelect("UIImage < *", overlay);
+        assertSelect("FrameLayout < *", root);
+        assertSelect("#com.dragon.read:id/root < *");
+        assertEquals(1, NodeSelector.compile("[text*=斗] << *").getPassCount());
+    }
+
+    @Test
+    public void mixedDirections() {
+        NodeSelector selector = NodeSelector.compile("[text=斗罗大陆] < * > [index=1]");
+        assertEquals(2, selector.getPassCount());
+        assertSelect("[text=斗罗大陆] < * > [index=1]", author1);
+        assertSelect("RecyclerView > * > [text=天蚕土豆] << [clickable] ~ *", item1);
+        assertEquals(3, NodeSelector.compile("RecyclerView > * > [text=天蚕土豆] << [clickable] ~ *").getPassCount());
+        assertSelect("#com.dragon.read:id/overlay > [desc=领取成功] ~ [clickable]", close);
+        assertEquals(1, NodeSelector.compile("#com.dragon.read:id/overlay > [desc=领取成功] ~ [clickable]")
+                .getPassCount());
+    }
+
+    @Test
+    public void indexPredicate() {
+        assertSelect("#com.dragon.read:id/list > *[index=1]", item1);
+        assertSelect("RecyclerView > * > [index=0]", title0, title1);
+        assertSelect("[index=3]", image);
+        assertSelect("*[index=4]");
+        // 根节点的位置为 0
+        assertSelect("FrameLayout[index=0]", root);
+    }
+
+    // --- 节点条件 ---
+
+    @Test
+    public void classNames() {
+        assertSelect("[class=android.widget.TextView]", adLabel, title0, author0, title1, author1);
+        assertSelect("android.widget.TextView", adLabel, title0, author0, title1, author1);
+        assertSelect("TextView", adLabel, title0, author0, title1, author1);
+        assertSelect("UIImage", close, image);
+        // 简单类名只匹配最后一段
+        assertSelect("View");
+        assertSelect("widget.TextView");
+        assertSelect("[class=TextView]", adLabel, title0, author0, title1, author1);
+    }
+
+    @Test
+    public void viewIds() {
+        assertSelect("#com.dragon.read:id/agf", title0, title1);
+        assertSelect("[id=com.dragon.read:id/agf]", title0, title1);
+        assertSelect("#com.dragon.read:id/agf[text=斗罗大陆]", title1);
+        assertSelect("TextView#com.dragon.read:id/author[visible]", author0);
+        assertSelect("LinearLayout#com.dragon.read:id/agf");
+        assertSelect("#com.dragon.read:id/missing");
+    }
+
+    @Test
+    public void textAndDescription() {
+        assertSelect("[text=斗破苍穹]", title0);
+        assertSelect("[text=斗]");
+        assertSelect("[text*=斗]", title0, title1);
+        assertSelect("[text*=斗 ]", title0, title1);
+        assertSelect("[text=\"搜索 [书名]\"]", search);
+        assertSelect("[text*='[书名]']", search);
+        assertSelect("[text='a\\'b']");
+        assertSelect("[desc=领取成功]", reward);
+        assertSelect("[desc*=领取]", reward);
+        assertSelect("[desc*=关][clickable]", close);
+        assertSelect("[desc=领取]");
+    }
+
+    @Test
+    public void flags() {
+        assertSelect("[clickable]", header, item0, item1, close);
+        assertSelect("[clickable=true]", header, item0, item1, close);
+        assertSelect("LinearLayout[clickable=false]");
+        assertSelect("UIImage[clickable=false]", image);
+        assertSelect("[visible=false]", author1);
+        assertSelect("[scrollable]", list);
+        assertSelect("[editable]", search);
+        assertSelect("[editable][scrollable]");
+    }
+
+    @Test
+    public void selectFirst() {
+        assertSame(title0, snapshot.selectFirst("[text*=斗]"));
+        assertSame(item1, snapshot.selectFirst("[text=斗罗大陆] << [clickable]"));
+        assertSame(title0, snapshot.selectFirst("#com.dragon.read:id/agf"));
+        assertNull(snapshot.selectFirst("[text=不存在]"));
+    }
+
+    // --- 合成树 ---
+
+    @Test
+    public void closeButtonOnAdOverlay() {
+        FakeSnapshot ad = FakeSnapshot.capture(TreeGenerators.generate(TreeShape.AD_OVERLAY).getRoot());
+        FakeNode anchor = ad.findByContentDescriptionContains("领取成功").get(0);
+        FakeNode expected = ad.findNextSiblingByClass(anchor, AccessibilityConfig.TARGET_IMAGE_CLASS);
+        assertTrue(expected != null);
+        assertSame(expected, ad.selectFirst("[desc*=领取成功] ~ " + AccessibilityConfig.TARGET_IMAGE_CLASS));
+        assertSame(expected, ad.selectFirst("[desc*=领取成功] ~ [clickable]"));
+    }
+
+    @Test
+    public void visibleSearchResults() {
+        FakeSnapshot results = FakeSnapshot.capture(TreeGenerators.generate(TreeShape.SEARCH_RESULTS).getRoot());
+        List<FakeNode> visible = results.select("#" + AccessibilityConfig.SCROLLABLE_CONTAINER_ID + " > [visible]");
+        assertEquals(13, visible.size());
+        List<FakeNode> titles = results.select("[id=" + AccessibilityConfig.TARGET_FOR_SEARCH_RESULT_ITEM
+                + "][visible=false] > [index=1]");
+        assertEquals(187, titles.size());
+        assertEquals("小说 13", titles.get(0).getText());
+        assertEquals("小说 199", titles.get(titles.size() - 1).getText());
+    }
+
+    @Test
+    public void ancestorsMatchParentChainOnDeepTree() {
+        FakeTree tree = TreeGenerators.generate(TreeShape.LYNX_READING);
+        FakeSnapshot reading = FakeSnapshot.capture(tree.getRoot());
+        List<FakeNode> lines = reading.select("[text*=正文]");
+        assertEquals(120, lines.size());
+
+        // 沿 getParent 逐个收集祖先，按快照顺序排列后应与 << 的结果一致
+        Map<FakeNode, Boolean> ancestors = new IdentityHashMap<>();
+        for (FakeNode line : lines) {
+            for (FakeNode parent = line.getParent(); parent != null; parent = parent.getParent()) {
+                ancestors.put(parent, Boolean.TRUE);
+            }
+        }
+        List<FakeNode> expected = new ArrayList<>();
+        for (FakeNode node : reading.select("*")) {
+            if (ancestors.containsKey(node)) {
+                expected.add(node);
+            }
+        }
+        assertEquals(33, expected.size());
+        assertSameNodes(expected, reading.select("[text*=正文] << *"));
+        assertSameNodes(lines, reading.select("#" + AccessibilityConfig.TARGET_FOR_READING_PAGE_FEATURE_1 + " ~ *"));
+    }
+
+    // --- 编译缓存 ---
+
+    @Test
+    public void compiledSelectorsAreCached() {
+        NodeSelector first = NodeSelector.compile("[desc*=领取成功] ~ UIImage");
+        assertSame(first, NodeSelector.compile("[desc*=领取成功] ~ UIImage"));
+        assertEquals("[desc*=领取成功] ~ UIImage", first.toString());
+        // 缓存按字符串区分，等价但写法不同的选择器各自编译
+        assertNotSame(first, NodeSelector.compile("[desc*=领取成功]~UIImage"));
+        assertSame(first, NodeSelector.compile("[desc*=领取成功] ~ UIImage"));
+    }
+
+    @Test
+    public void cacheEvictsLeastRecentlyUsed() {
+        NodeSelector kept = NodeSelector.compile("[text=常用]");
+        NodeSelector evicted = NodeSelector.compile("[text=不常用]");
+        for (int i = 0; i < AccessibilityConfig.SELECTOR_CACHE_SIZE; i++) {
+            NodeSelector.compile("[text=填充" + i + "]");
+            assertSame(kept, NodeSelector.compile("[text=常用]"));
+        }
+        assertSame(kept, NodeSelector.compile("[text=常用]"));
+        assertNotSame(evicted, NodeSelector.compile("[text=不常用]"));
+    }
+
+    // --- 语法错误 ---
+
+    @Test
+    public void malformedSelectors() {
+        assertMalformed(null, "不能为空");
+        assertMalformed("", "不能为空");
+        assertMalformed("   ", "不能为空");
+        assertMalformed("> TextView", "第 1 个字符处: 缺少节点条件");
+        assertMalformed("TextView >", "第 11 个字符处: 缺少节点条件");
+        assertMalformed("a ! b", "第 3 个字符处: 缺少节点条件");
+        assertMalformed("a!b", "第 2 个字符处: 无法识别的字符 '!'");
+        assertMalformed("#", "第 2 个字符处: # 之后缺少 view id");
+        assertMalformed("[text=x", "第 8 个字符处: 缺少 ]");
+        assertMalformed("[text='x]", "第 10 个字符处: 引号没有闭合");
+        assertMalformed("[text]", "text 需要用 = 给出值");
+        assertMalformed("[text*]", "*= 之后缺少值");
+        assertMalformed("[id*=x]", "id 需要用 = 给出值");
+        assertMalformed("[index=a]", "index 必须是非负整数");
+        assertMalformed("[index=-1]", "index 必须是非负整数");
+        assertMalformed("[clickable=maybe]", "clickable 的值只能是 true 或 false");
+        assertMalformed("[clickable*=true]", "clickable 不支持 *=");
+        assertMalformed("[checked]", "未知的属性 checked");
+    }
+
+    @Test
+    public void malformedSelectorsAreNotCached() {
+        assertMalformed("[text", "缺少 ]");
+        assertMalformed("[text", "缺少 ]");
+    }
+
+    private void assertSelect(String selector, FakeNode... expected) {
+        List<FakeNode> actual = snapshot.select(selector);
+        assertSameNodes(Arrays.asList(expected), actual);
+        FakeNode first = snapshot.selectFirst(selector);
+        assertSame(selector, expected.length == 0 ? null : expected[0], first);
+    }
+
+    private static void assertSameNodes(List<FakeNode> expected, List<FakeNode> actual) {
+        assertEquals(describe(expected), describe(actual));
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static List<String> describe(List<FakeNode> nodes) {
+        if (nodes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> described = new ArrayList<>(nodes.size());
+        for (FakeNode node : nodes) {
+            described.add(node.toString());
+        }
+        return described;
+    }
+
+    private static void assertMalformed(String selector, String message) {
+        try {
+            NodeSelector.compile(selector);
+            fail("应当拒绝选择器: " + selector);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    private static String id(String name) {
+        return "com.dragon.read:id/" + name;
+    }
+}
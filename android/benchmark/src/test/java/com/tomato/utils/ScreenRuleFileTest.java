@@ -0,0 +1,113 @@
+package com.tomato.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import com.tomato.benchmark.replay.BundledRules;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 规则文件的解析和签名推导。应用内置的 assets/screen_rules.json 也在这里解析一遍，
+ * 规则文件有误时在 JVM 上就能发现，不必等到安装到设备上。
+ */
+public class ScreenRuleFileTest {
+
+    @Test
+    public void bundledRulesKeepFileOrder() {
+        ScreenRuleFile rules = BundledRules.load();
+        List<String> names = new ArrayList<>();
+        for (ScreenRuleFile.Entry entry : rules.getEntries()) {
+            names.add(entry.getRule() != null ? entry.getRule().getName() : entry.getBuiltin());
+        }
+        assertEquals(Arrays.asList("EnterAdProcessor", "AfterSkipAdProcessor", "AdProcessor", "Middle1InAdProcessor",
+                "RankProcessor", "ProductProcessor", "MainPageProcessor", "AddToHomePageProcessor",
+                "InputNovelNameProcessor", "SearchNovelProcessor", "FindAndClickNovelProcessor",
+                "ReadingPageProcessor"), names);
+        assertEquals(9, rules.getRuleCount());
+
+        List<String> processorNames = new ArrayList<>();
+        for (ScreenMatcher processor : BundledRules.matchers(rules)) {
+            processorNames.add(processor.getName());
+        }
+        assertEquals(names, processorNames);
+    }
+
+    @Test
+    public void signatureDerivedFromConditions() throws Exception {
+        ScreenRuleFile rules = ScreenRuleFile.parse("{\"rules\": [{"
+                + "\"name\": \"Dialog\","
+                + "\"match\": ["
+                + "  {\"id\": \"com.dragon.read:id/a\"},"
+                + "  {\"desc\": \"领取奖励\"},"
+                + "  {\"id\": \"com.dragon.read:id/b\", \"absent\": true},"
+                + "  {\"desc\": \"坚持退出\", \"absent\": true},"
+                + "  {\"id\": \"com.dragon.read:id/c\", \"hasText\": true, \"absent\": true},"
+                + "  {\"text\": \"继续阅读\"}"
+                + "],"
+                + "\"actions\": [{\"click\": {\"id\": \"com.sec.android.app.launcher:id/cancel\"}}]"
+                + "}]}");
+        ScreenRule rule = rules.getEntries().get(0).getRule();
+        ScreenSignature signature = rule.getSignature();
+        assertEquals(Collections.singletonList("com.dragon.read:id/a"), signature.getRequiredViewIds());
+        assertEquals(Collections.singletonList("领取奖励"), signature.getRequiredContentDescs());
+        // 只有仅由 id 或 desc 构成的禁止条件才能放进签名
+        assertEquals(Collections.singletonList("com.dragon.read:id/b"), signature.getForbiddenViewIds());
+        assertEquals(Collections.singletonList("坚持退出"), signature.getForbiddenContentDescs());
+        assertEquals(Arrays.asList("com.dragon.read", "com.sec.android.app.launcher"),
+                new ArrayList<>(rule.getPackageNames()));
+        assertNull(rule.getOnceActionId());
+        assertNull(rule.getRetryPolicy());
+    }
+
+    @Test
+    public void ruleOptions() throws Exception {
+        ScreenRuleFile rules = ScreenRuleFile.parse("{\"version\": 1, \"rules\": ["
+                + "{\"builtin\": \"AdProcessor\"},"
+                + "{\"name\": \"Search\", \"once\": \"action_search\", \"retry\": \"slow\", \"requires\": [\"novelName\"],"
+                + " \"match\": [{\"select\": \"[desc*=搜索] > EditText\"}],"
+                + " \"actions\": [{\"input\": {\"class\": \"android.widget.EditText\"}, \"value\": \"${novelName}\"},"
+                + "             {\"swipe\": \"up\"}]}"
+                + "]}");
+        assertEquals("AdProcessor", rules.getEntries().get(0).getBuiltin());
+        ScreenRule rule = rules.getEntries().get(1).getRule();
+        assertEquals("action_search", rule.getOnceActionId());
+        assertEquals(RetryPolicy.SLOW, rule.getRetryPolicy());
+        assertEquals(2, rule.getActions().size());
+        assertEquals(ScreenRule.Action.INPUT, rule.getActions().get(0).getType());
+        assertEquals("up", rule.getActions().get(1).getArgument());
+        // 层级条件不进入签名，也没有资源 ID 可以推导包名
+        assertEquals(0, rule.getSignature().requiredCount());
+        assertEquals(Collections.singleton(AccessibilityConfig.TARGET_PACKAGE_NAME_1), rule.getPackageNames());
+    }
+
+    @Test
+    public void invalidRulesRejected() {
+        String[] invalid = {
+                "{\"version\": 2, \"rules\": []}",
+                "{\"rules\": [{\"name\": \"A\", \"match\": [], \"actions\": []}]}",
+                "{\"rules\": [{\"name\": \"A\", \"match\": [{\"idd\": \"x\"}], \"actions\": []}]}",
+                "{\"rules\": [{\"name\": \"A\", \"match\": [{\"desc\": \"\"}], \"actions\": []}]}",
+                "{\"rules\": [{\"name\": \"A\", \"match\": [{\"select\": \"[desc*=a\"}], \"actions\": []}]}",
+                "{\"rules\": [{\"name\": \"A\", \"match\": [{\"select\": \"A\", \"id\": \"x\"}], \"actions\": []}]}",
+                "{\"rules\": [{\"name\": \"A\", \"match\": [{\"id\": \"x\"}], \"actions\": [{\"tap\": {}}]}]}",
+                "{\"rules\": [{\"name\": \"A\", \"match\": [{\"id\": \"x\"}], \"actions\": [{\"swipe\": \"down\"}]}]}",
+                "{\"rules\": [{\"name\": \"A\", \"match\": [{\"id\": \"x\"}], \"actions\": [],"
+                        + " \"requires\": [\"login\"]}]}",
+                "{\"rules\": [{\"name\": \"A\", \"match\": [{\"id\": \"x\"}], \"actions\": [], \"retry\": \"fast\"}]}",
+                "{\"rules\": [{\"name\": \"A\", \"match\": [{\"id\": \"x\"}], \"actions\": [{\"click\": "
+                        + "{\"id\": \"x\", \"absent\": true}}]}]}",
+                "{\"rules\": [{\"builtin\": \"AdProcessor\"}, {\"builtin\": \"AdProcessor\"}]}",
+        };
+        for (String json : invalid) {
+            assertThrows(json, JSONException.class, () -> ScreenRuleFile.parse(json));
+        }
+    }
+}
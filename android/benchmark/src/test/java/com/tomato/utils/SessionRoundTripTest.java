@@ -0,0 +1,345 @@
+package com.tomato.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.tomato.benchmark.tree.FakeNode;
+import com.tomato.benchmark.tree.FakeTree;
+import com.tomato.benchmark.tree.TreeGenerators;
+import com.tomato.benchmark.tree.TreeGenerators.TreeShape;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * SessionWriter 写出、SessionReader 读回之后，事件和界面的每个字段都应与写入的一致。
+ * 压缩和不压缩两种格式、内存数据 / 输入流 / 内存映射文件三种读取方式都要覆盖。
+ */
+public class SessionRoundTripTest {
+
+    private static final int WINDOW_STATE_CHANGED = 0x20;
+    private static final int WINDOW_CONTENT_CHANGED = 0x800;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void generatedTreesRoundTrip() throws IOException {
+        Random random = new Random(42);
+        for (boolean compress : new boolean[]{false, true}) {
+            List<Screen> screens = new ArrayList<>();
+            long uptime = 1000;
+            for (TreeShape shape : TreeShape.values()) {
+                uptime += 3000;
+                screens.add(new Screen(uptime, shape.ordinal(), shape.name(),
+                        toRecordedNodes(TreeGenerators.generate(shape), random)));
+            }
+            byte[] data = write(compress, screens);
+            assertSession(screens, readBuffer(data));
+            assertSession(screens, readStream(data));
+            assertSession(screens, readFile(data));
+        }
+    }
+
+    @Test
+    public void stringsEmptyAndNullFields() throws IOException {
+        String longText = repeat("第一章 斗破苍穹", 2000);
+        List<RecordedNode> nodes = Arrays.asList(
+                new RecordedNode(-1, null, null, null, null, false, false, false, false, 0, 0, 1080, 2400),
+                new RecordedNode(0, "", "", "", "", true, true, true, true, 0, 0, 100, 100),
+                new RecordedNode(0, "android.widget.TextView", "com.dragon.read:id/agf", "领取成功 🎁",
+                        "广告\n关闭", false, true, true, false, 10, 20, 30, 40),
+                new RecordedNode(1, "android.widget.TextView", "com.dragon.read:id/agf", longText,
+                        "android.widget.TextView", true, false, false, true, 5, 5, 5, 5),
+                new RecordedNode(1, "\u0000", " ", "\"'\\", null, false, true, false, false, 1, 1, 2, 2));
+        List<Screen> screens = Arrays.asList(
+                new Screen(10, 0, null, nodes),
+                new Screen(20, 1, "", nodes),
+                new Screen(30, 2, SessionWriter.DECISION_NO_MATCH, new ArrayList<>()));
+        for (boolean compress : new boolean[]{false, true}) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            SessionWriter writer = new SessionWriter(buffer, compress);
+            writer.writeEvent(5, WINDOW_STATE_CHANGED, null, null);
+            writer.writeEvent(6, WINDOW_CONTENT_CHANGED, "", "");
+            writer.writeEvent(7, WINDOW_CONTENT_CHANGED, "com.dragon.read", longText);
+            for (Screen screen : screens) {
+                writer.writeScreen(screen.uptimeMs, screen.attempt, screen.decision, screen.nodes);
+            }
+            writer.close();
+
+            for (Collector read : new Collector[]{readBuffer(buffer.toByteArray()), readStream(buffer.toByteArray())}) {
+                assertEquals(3, read.events.size());
+                assertArrayEquals(new Object[]{5L, WINDOW_STATE_CHANGED, null, null}, read.events.get(0));
+                assertArrayEquals(new Object[]{6L, WINDOW_CONTENT_CHANGED, "", ""}, read.events.get(1));
+                assertArrayEquals(new Object[]{7L, WINDOW_CONTENT_CHANGED, "com.dragon.read", longText},
+                        read.events.get(2));
+                assertScreens(screens, read.screens);
+                assertNull(read.screens.get(0).nodes.get(0).getClassName());
+                assertEquals("", read.screens.get(0).nodes.get(1).getText());
+            }
+        }
+    }
+
+    @Test
+    public void negativeBoundsAndTimes() throws IOException {
+        List<RecordedNode> nodes = Arrays.asList(
+                // 根节点在屏幕左上方之外
+                new RecordedNode(-1, "android.widget.FrameLayout", null, null, null, false, true, false, false,
+                        -1080, -2400, -10, -20),
+                // 子节点超出父节点的左上边界
+                new RecordedNode(0, "android.widget.LinearLayout", null, null, null, false, true, false, false,
+                        -5000, -3000, 200, 100),
+                // 宽高为 0，以及左右、上下颠倒的边界
+                new RecordedNode(0, "android.widget.ImageView", null, null, null, true, false, false, false, 0, 0, 0, 0),
+                new RecordedNode(1, "android.widget.TextView", null, null, null, false, true, false, false,
+                        300, 400, -300, -400),
+                new RecordedNode(1, "android.widget.TextView", null, null, null, false, true, false, false,
+                        Integer.MIN_VALUE / 2, Integer.MAX_VALUE / 2, Integer.MAX_VALUE / 2, Integer.MIN_VALUE / 2));
+        // 时间增量可以为负（例如录制时系统时钟回拨），起点也可以是负数
+        List<Screen> screens = Arrays.asList(
+                new Screen(-100, 0, "A", nodes),
+                new Screen(5000, 1, "B", nodes),
+                new Screen(4000, 2, "C", nodes),
+                new Screen(Long.MAX_VALUE / 4, 3, "D", nodes));
+        for (boolean compress : new boolean[]{false, true}) {
+            byte[] data = write(compress, screens);
+            assertSession(screens, readBuffer(data));
+            assertSession(screens, readStream(data));
+        }
+    }
+
+    @Test
+    public void compressedSessionIsSmallerAndReadableAfterFlush() throws IOException {
+        Random random = new Random(7);
+        List<RecordedNode> nodes = toRecordedNodes(TreeGenerators.generate(TreeShape.SEARCH_RESULTS), random);
+        List<Screen> screens = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            screens.add(new Screen(i * 100L, i, "FindAndClickNovelProcessor", nodes));
+        }
+        byte[] plain = write(false, screens);
+        byte[] compressed = write(true, screens);
+        assertTrue("压缩后 " + compressed.length + " 字节，未压缩 " + plain.length + " 字节",
+                compressed.length < plain.length);
+
+        // 进程被杀时压缩流没有结束标记，已经同步刷新的记录仍然可以读出
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        SessionWriter writer = new SessionWriter(buffer, true);
+        for (Screen screen : screens.subList(0, 3)) {
+            writer.writeScreen(screen.uptimeMs, screen.attempt, screen.decision, screen.nodes);
+        }
+        writer.flush();
+        byte[] truncated = buffer.toByteArray();
+        assertScreens(screens.subList(0, 3), readBuffer(truncated).screens);
+        assertScreens(screens.subList(0, 3), readStream(truncated).screens);
+    }
+
+    @Test
+    public void contextsApplyToFollowingScreens() throws IOException {
+        List<RecordedNode> nodes = toRecordedNodes(TreeGenerators.generate(TreeShape.MAIN_PAGE), new Random(3));
+        RecordedContext searching = new RecordedContext(Arrays.asList("action_b", "action_a"), "斗破苍穹", true,
+                Arrays.asList("ReadingPageProcessor"));
+        RecordedContext idle = new RecordedContext(new ArrayList<String>(), null, false, new ArrayList<String>());
+        for (boolean compress : new boolean[]{false, true}) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            SessionWriter writer = new SessionWriter(buffer, compress);
+            writer.writeScreen(1, 0, "A", nodes);
+            writer.writeContext(searching);
+            writer.writeScreen(2, 0, "B", nodes);
+            writer.writeScreen(3, 0, "C", nodes);
+            writer.writeContext(idle);
+            writer.writeScreen(4, 0, "D", nodes);
+            writer.close();
+
+            for (Collector read : new Collector[]{readBuffer(buffer.toByteArray()), readStream(buffer.toByteArray())}) {
+                assertEquals(Arrays.asList(null, searching, searching, idle), read.contexts);
+                RecordedContext context = read.contexts.get(1);
+                assertEquals(Arrays.asList("action_a", "action_b"), new ArrayList<>(context.getCompletedActions()));
+                assertTrue(context.isActionCompleted("action_a"));
+                assertEquals("斗破苍穹", context.getNovelNameToSearch());
+                assertTrue(context.isAutoReading());
+                assertTrue(context.isFlowRunning("ReadingPageProcessor"));
+                assertNull(read.contexts.get(3).getNovelNameToSearch());
+            }
+        }
+    }
+
+    @Test
+    public void version2SessionsStillReadable() throws IOException {
+        List<RecordedNode> nodes = Arrays.asList(
+                new RecordedNode(-1, "android.widget.FrameLayout", null, null, null, true, true, false, false,
+                        0, 0, 1080, 2400));
+        byte[] data = write(false, Arrays.asList(new Screen(10, 0, "A", nodes)));
+        // 没有 C 记录、节点标志中只有 clickable / visible 的文件与版本 2 的格式相同
+        data[SessionWriter.MAGIC.length] = 2;
+        Collector read = readBuffer(data);
+        assertEquals(1, read.screens.size());
+        assertNull(read.contexts.get(0));
+        assertTrue(read.screens.get(0).nodes.get(0).isClickable());
+    }
+
+    /**
+     * 按广度优先顺序把合成树转换成节点记录。合成树没有坐标，这里给每个节点一个相对父节点的随机偏移，
+     * 包括负偏移和为 0 的宽高，覆盖坐标的增量编码。
+     */
+    private static List<RecordedNode> toRecordedNodes(FakeTree tree, Random random) {
+        List<FakeNode> order = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        order.add(tree.getRoot());
+        parents.add(-1);
+        for (int cursor = 0; cursor < order.size(); cursor++) {
+            FakeNode node = order.get(cursor);
+            for (int i = 0; i < node.getChildCount(); i++) {
+                order.add(node.getChild(i));
+                parents.add(cursor);
+            }
+        }
+        List<RecordedNode> recorded = new ArrayList<>(order.size());
+        for (int i = 0; i < order.size(); i++) {
+            FakeNode node = order.get(i);
+            int parent = parents.get(i);
+            int left = (parent < 0 ? 0 : recorded.get(parent).getLeft()) + random.nextInt(401) - 200;
+            int top = (parent < 0 ? 0 : recorded.get(parent).getTop()) + random.nextInt(401) - 200;
+            recorded.add(new RecordedNode(parent, node.getClassName(), node.getViewIdResourceName(),
+                    node.getText(), node.getContentDescription(), node.isClickable(), node.isVisibleToUser(),
+                    node.isScrollable(), node.isEditable(), left, top, left + random.nextInt(1081), top + random.nextInt(241)));
+        }
+        return recorded;
+    }
+
+    private static byte[] write(boolean compress, List<Screen> screens) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        SessionWriter writer = new SessionWriter(buffer, compress);
+        for (Screen screen : screens) {
+            writer.writeEvent(screen.uptimeMs, WINDOW_STATE_CHANGED, "com.dragon.read", "android.widget.FrameLayout");
+            writer.writeScreen(screen.uptimeMs, screen.attempt, screen.decision, screen.nodes);
+        }
+        writer.close();
+        return buffer.toByteArray();
+    }
+
+    private static Collector readBuffer(byte[] data) throws IOException {
+        Collector collector = new Collector();
+        SessionReader.read(ByteBuffer.wrap(data), collector);
+        return collector;
+    }
+
+    private static Collector readStream(byte[] data) throws IOException {
+        Collector collector = new Collector();
+        SessionReader.read(new ByteArrayInputStream(data), collector);
+        return collector;
+    }
+
+    private Collector readFile(byte[] data) throws IOException {
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        Collector collector = new Collector();
+        SessionReader.read(file, collector);
+        return collector;
+    }
+
+    /**
+     * 由 write() 写出的会话：每个界面之前有一个同一时刻的窗口状态变化事件。
+     */
+    private static void assertSession(List<Screen> expected, Collector actual) {
+        assertEquals(expected.size(), actual.events.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(new Object[]{expected.get(i).uptimeMs, WINDOW_STATE_CHANGED, "com.dragon.read",
+                    "android.widget.FrameLayout"}, actual.events.get(i));
+        }
+        assertScreens(expected, actual.screens);
+    }
+
+    private static void assertScreens(List<Screen> expected, List<Screen> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int s = 0; s < expected.size(); s++) {
+            Screen want = expected.get(s);
+            Screen got = actual.get(s);
+            String where = "界面 " + s;
+            assertEquals(where, want.uptimeMs, got.uptimeMs);
+            assertEquals(where, want.attempt, got.attempt);
+            assertEquals(where, want.decision, got.decision);
+            assertEquals(where, want.nodes.size(), got.nodes.size());
+            for (int i = 0; i < want.nodes.size(); i++) {
+                assertNode(where + " 节点 " + i, want.nodes.get(i), got.nodes.get(i));
+            }
+        }
+    }
+
+    private static void assertNode(String where, RecordedNode expected, RecordedNode actual) {
+        assertEquals(where, expected.getParentIndex(), actual.getParentIndex());
+        assertEquals(where, expected.getClassName(), actual.getClassName());
+        assertEquals(where, expected.getViewIdResourceName(), actual.getViewIdResourceName());
+        assertEquals(where, expected.getText(), actual.getText());
+        assertEquals(where, expected.getContentDescription(), actual.getContentDescription());
+        assertEquals(where, expected.isClickable(), actual.isClickable());
+        assertEquals(where, expected.isVisibleToUser(), actual.isVisibleToUser());
+        assertEquals(where, expected.isScrollable(), actual.isScrollable());
+        assertEquals(where, expected.isEditable(), actual.isEditable());
+        assertEquals(where, expected.getLeft(), actual.getLeft());
+        assertEquals(where, expected.getTop(), actual.getTop());
+        assertEquals(where, expected.getRight(), actual.getRight());
+        assertEquals(where, expected.getBottom(), actual.getBottom());
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder(value.length() * count);
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    private static final class Screen {
+        final long uptimeMs;
+        final int attempt;
+        final String decision;
+        final List<RecordedNode> nodes;
+
+        Screen(long uptimeMs, int attempt, String decision, List<RecordedNode> nodes) {
+            this.uptimeMs = uptimeMs;
+            this.attempt = attempt;
+            this.decision = decision;
+            this.nodes = nodes;
+        }
+    }
+
+    private static final class Collector implements SessionReader.Listener {
+        final List<Object[]> events = new ArrayList<>();
+        final List<Screen> screens = new ArrayList<>();
+        // 每个界面读到时有效的处理器状态
+        final List<RecordedContext> contexts = new ArrayList<>();
+        RecordedContext context;
+
+        @Override
+        public void onEvent(long uptimeMs, int eventType, String packageName, String className) {
+            events.add(new Object[]{uptimeMs, eventType, packageName, className});
+        }
+
+        @Override
+        public void onScreen(long uptimeMs, int attempt, String decision, RecordedScreen screen) {
+            screens.add(new Screen(uptimeMs, attempt, decision, screen.getNodes()));
+            contexts.add(context);
+        }
+
+        @Override
+        public void onContext(RecordedContext context) {
+            this.context = context;
+        }
+    }
+}